@@ -17,7 +17,10 @@
 
 package smile.association;
 
-import java.util.*;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import smile.association.TotalSupportTree.Node;
@@ -63,10 +66,6 @@ public class ARM implements Iterable<AssociationRule> {
      * Compressed set enumeration tree.
      */
     private TotalSupportTree ttree;
-    /**
-     * The buffer to collect mining results.
-     */
-    private Queue<AssociationRule> buffer = new LinkedList<>();
 
     /**
      * Constructor.
@@ -80,38 +79,29 @@ public class ARM implements Iterable<AssociationRule> {
 
     @Override
     public Iterator<AssociationRule> iterator() {
-        return new Iterator<AssociationRule>() {
-            int i = 0;
-
-            @Override
-            public boolean hasNext() {
-                if (buffer.isEmpty()) {
-                    for (; i < ttree.root.children.length; i++) {
-                        Node child = ttree.root.children[i];
-                        if (ttree.root.children[i] != null) {
-                            int[] itemset = {child.id};
-                            generate(itemset, i, child);
-
-                            if (!buffer.isEmpty()) {
-                                i++; // we will miss i++ in for loop once break
-                                break;
-                            }
-                        }
-                    }
-                }
-
-                return !buffer.isEmpty();
-            }
+        return Spliterators.iterator(spliterator());
+    }
 
-            @Override
-            public AssociationRule next() {
-                return buffer.poll();
+    /**
+     * Returns the spliterator of association rules, which splits
+     * the subtrees of T-tree root for parallel streams.
+     */
+    @Override
+    public Spliterator<AssociationRule> spliterator() {
+        return new BatchSpliterator<>(0, ttree.root.children.length, () -> (i, sink) -> {
+            Node child = ttree.root.children[i];
+            if (child != null) {
+                int[] itemset = {child.id};
+                generate(itemset, i, child, sink);
             }
-        };
+        });
     }
 
     /**
-     * Mines the association rules.
+     * Mines the association rules. The rules are generated lazily so that
+     * they don't have to be hold in memory. The stream may be turned into
+     * parallel by <code>parallel()</code> to generate the rules on multiple
+     * threads.
      * @param confidence the confidence threshold for association rules.
      */
     public static Stream<AssociationRule> apply(double confidence, FPTree tree) {
@@ -125,8 +115,9 @@ public class ARM implements Iterable<AssociationRule> {
      * @param itemset the label for a T-tree node as generated sofar.
      * @param size the size of the current array level in the T-tree.
      * @param node the current node in the T-tree.
+     * @param sink the consumer of association rules.
      */
-    private void generate(int[] itemset, int size, Node node) {
+    private void generate(int[] itemset, int size, Node node, Consumer<? super AssociationRule> sink) {
         if (node.children == null) {
             return;
         }
@@ -135,9 +126,9 @@ public class ARM implements Iterable<AssociationRule> {
             if (node.children[i] != null) {
                 int[] newItemset = FPGrowth.insert(itemset, node.children[i].id);
                 // Generate ARs for current large itemset
-                generate(newItemset, node.children[i].support);
+                generate(newItemset, node.children[i].support, sink);
                 // Continue generation process
-                generate(newItemset, i, node.children[i]);
+                generate(newItemset, i, node.children[i], sink);
             }
         }
     }
@@ -146,8 +137,9 @@ public class ARM implements Iterable<AssociationRule> {
      * Generates all association rules for a given item set.
      * @param itemset the given frequent item set.
      * @param support the associated support value for the item set.
+     * @param sink the consumer of association rules.
      */
-    private void generate(int[] itemset, int support) {
+    private void generate(int[] itemset, int support, Consumer<? super AssociationRule> sink) {
         // Determine combinations
         int[][] combinations = getPowerSet(itemset);
 
@@ -165,7 +157,7 @@ public class ARM implements Iterable<AssociationRule> {
                     double lift = support / (antecedentSupport * consequentSupport / size);
                     double leverage = supp - (antecedentSupport / size) * (consequentSupport / size);
                     AssociationRule ar = new AssociationRule(combinations[i], complement, supp, arc, lift, leverage);
-                    buffer.offer(ar);
+                    sink.accept(ar);
                 }
             }
         }
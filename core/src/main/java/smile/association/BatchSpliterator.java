@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.association;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The spliterator of mining results that are generated in independent
+ * batches, e.g. the frequent item sets with the same item in the header
+ * table of FP-tree. The range of batches is split for parallel streams
+ * so that a batch is always generated by a single thread. Each split
+ * has its own generator, which may keep the workspace of mining.
+ * <p>
+ * The results are pushed to the downstream directly in bulk traversal
+ * (e.g. forEach, count, collect), so that they don't have to be hold in
+ * memory. Only the results of current batch are buffered in element-wise
+ * traversal.
+ *
+ * @param <T> the type of mining results.
+ *
+ * @author Haifeng Li
+ */
+class BatchSpliterator<T> implements Spliterator<T> {
+    /**
+     * The generator of a batch of results.
+     */
+    interface Generator<T> {
+        /**
+         * Generates a batch of results.
+         * @param batch the index of batch.
+         * @param sink the consumer of results.
+         */
+        void generate(int batch, Consumer<? super T> sink);
+    }
+
+    /** The factory of generators. */
+    private final Supplier<Generator<T>> factory;
+    /** The generator of this split, created lazily. */
+    private Generator<T> generator;
+    /** The next batch to generate. */
+    private int from;
+    /** The end (exclusive) of batches. */
+    private final int to;
+    /** The results of current batch in element-wise traversal. */
+    private ArrayDeque<T> buffer;
+
+    /**
+     * Constructor.
+     * @param from the first batch.
+     * @param to the end (exclusive) of batches.
+     * @param factory the factory of generators.
+     */
+    public BatchSpliterator(int from, int to, Supplier<Generator<T>> factory) {
+        this.from = from;
+        this.to = to;
+        this.factory = factory;
+    }
+
+    /** Returns the generator of this split. */
+    private Generator<T> generator() {
+        if (generator == null) {
+            generator = factory.get();
+        }
+        return generator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (buffer == null) {
+            buffer = new ArrayDeque<>();
+        }
+
+        while (buffer.isEmpty() && from < to) {
+            generator().generate(from++, buffer::add);
+        }
+
+        if (buffer.isEmpty()) {
+            return false;
+        }
+
+        action.accept(buffer.poll());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        if (buffer != null) {
+            while (!buffer.isEmpty()) {
+                action.accept(buffer.poll());
+            }
+        }
+
+        while (from < to) {
+            generator().generate(from++, action);
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (buffer != null && !buffer.isEmpty()) {
+            return null;
+        }
+
+        int mid = (from + to) >>> 1;
+        if (mid <= from) {
+            return null;
+        }
+
+        BatchSpliterator<T> prefix = new BatchSpliterator<>(from, mid, factory);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // The number of results is unknown. Returns the number of
+        // batches so that the stream framework splits the batches.
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -17,11 +17,14 @@
 
 package smile.association;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import smile.association.FPTree.HeaderTableItem;
-import smile.association.FPTree.Node;
 
 /**
  * Frequent item set mining based on the FP-growth (frequent pattern growth)
@@ -67,10 +70,6 @@ public class FPGrowth implements Iterable<ItemSet> {
      * FP-tree.
      */
     private FPTree T0;
-    /**
-     * The buffer to collect mining results.
-     */
-    private Queue<ItemSet> buffer = new LinkedList<>();
 
     /**
      * Constructor.
@@ -92,44 +91,42 @@ public class FPGrowth implements Iterable<ItemSet> {
 
     @Override
     public Iterator<ItemSet> iterator() {
-        return new Iterator<ItemSet>() {
-            int[] prefixItemset = new int[T0.maxItemSetSize];
-            int[] localItemSupport = new int[T0.numItems];
-            int i = T0.headerTable.length;
-
-            @Override
-            public boolean hasNext() {
-                if (buffer.isEmpty()) {
-                    /*
-                     * Mines frequent item sets. Start with the bottom of the header table and
-                     * work upwards. For each available FP tree node:
-                     *
-                     * - Count the support.
-                     * - Build up item set sofar.
-                     * - Add to supported sets.
-                     * - Build a new FP tree: (i) create a new local root, (ii) create a
-                     *   new local header table and (iii) populate with ancestors.
-                     * - If new local FP tree is not empty repeat mining operation.
-                     *
-                     * Otherwise end.
-                     */
-                    if (i-- > 0) {
-                        grow(T0.headerTable[i], null, localItemSupport, prefixItemset);
-                    }
-                }
-
-                return !buffer.isEmpty();
-            }
+        return Spliterators.iterator(spliterator());
+    }
 
-            @Override
-            public ItemSet next() {
-                return buffer.poll();
-            }
-        };
+    /**
+     * Returns the spliterator of frequent item sets. The item sets of
+     * each item in the header table of FP-tree are mined independently.
+     * Therefore, the header table is split for parallel mining.
+     */
+    @Override
+    public Spliterator<ItemSet> spliterator() {
+        /*
+         * Mines frequent item sets. Start with the bottom of the header table and
+         * work upwards. For each available FP tree node:
+         *
+         * - Count the support.
+         * - Build up item set sofar.
+         * - Add to supported sets.
+         * - Build a new FP tree: (i) create a new local root, (ii) create a
+         *   new local header table and (iii) populate with ancestors.
+         * - If new local FP tree is not empty repeat mining operation.
+         *
+         * Otherwise end.
+         */
+        int n = T0.headerTable.length;
+        return new BatchSpliterator<>(0, n, () -> {
+            Miner miner = new Miner();
+            return (i, sink) -> miner.grow(n - 1 - i, sink);
+        });
     }
 
     /**
-     * Mines the frequent item sets.
+     * Mines the frequent item sets. The item sets are generated lazily
+     * so that they don't have to be hold in memory. The stream may be
+     * turned into parallel by <code>parallel()</code> to mine the items
+     * in the header table of FP-tree on multiple threads.
+     *
      * @param tree the FP-tree of item sets.
      * @return the stream of frequent item sets.
      */
@@ -139,147 +136,170 @@ public class FPGrowth implements Iterable<ItemSet> {
     }
 
     /**
-     * Mines frequent item sets. Start with the bottom of the header table and
-     * work upwards. For each available FP tree node:
-     * <OL>
-     * <LI> Count the support.
-     * <LI> Build up item set sofar.
-     * <LI> Add to supported sets.
-     * <LI> Build a new FP tree: (i) create a new local root, (ii) create a
-     * new local header table and (iii) populate with ancestors.
-     * <LI> If new local FP tree is not empty repeat mining operation.
-     * </OL>
-     * Otherwise end.
-     * @param itemset the current item sets as generated so far (null at start).
+     * The miner of conditional FP-trees with its own workspace, which
+     * is used by a single thread.
      */
-    private void grow(FPTree fptree, int[] itemset, int[] localItemSupport, int[] prefixItemset) {
-        // Loop through header table from end to start, item by item
-        for (int i = fptree.headerTable.length; i-- > 0;) {
-            grow(fptree.headerTable[i], itemset, localItemSupport, prefixItemset);
+    private class Miner {
+        /** The support of single items in the conditional patterns. */
+        int[] localItemSupport = new int[T0.numItems];
+        /** The workspace of conditional patterns. */
+        int[] prefixItemset = new int[T0.maxItemSetSize];
+        /** The consumer of frequent item sets. */
+        Consumer<? super ItemSet> sink;
+
+        /**
+         * Mines the frequent item sets of an item in the header table of
+         * the full FP-tree.
+         * @param i the index of header table.
+         * @param sink the consumer of frequent item sets.
+         */
+        void grow(int i, Consumer<? super ItemSet> sink) {
+            this.sink = sink;
+            grow(T0, T0.headerTable[i], null);
         }
-    }
 
-    /**
-     * Adds an item set to the result.
-     */
-    private void collect(int[] itemset, int support) {
-        buffer.offer(new ItemSet(itemset, support));
-    }
+        /**
+         * Mines frequent item sets. Start with the bottom of the header table and
+         * work upwards. For each available FP tree node:
+         * <OL>
+         * <LI> Count the support.
+         * <LI> Build up item set sofar.
+         * <LI> Add to supported sets.
+         * <LI> Build a new FP tree: (i) create a new local root, (ii) create a
+         * new local header table and (iii) populate with ancestors.
+         * <LI> If new local FP tree is not empty repeat mining operation.
+         * </OL>
+         * Otherwise end.
+         * @param itemset the current item sets as generated so far (null at start).
+         */
+        private void grow(FPTree fptree, int[] itemset) {
+            // Loop through header table from end to start, item by item
+            for (int i = fptree.headerTable.length; i-- > 0;) {
+                grow(fptree, fptree.headerTable[i], itemset);
+            }
+        }
 
-    /**
-     * Mines all combinations along a single path tree
-     */
-    private void grow(FPTree.Node node, int[] itemset, int support) {
-        int height = 0;
-        for (FPTree.Node currentNode = node; currentNode != null; currentNode = currentNode.parent) {
-            height ++;
+        /**
+         * Adds an item set to the result.
+         */
+        private void collect(int[] itemset, int support) {
+            sink.accept(new ItemSet(itemset, support));
         }
 
-        if (height > 0) {
-            int[] items = new int[height];
-            int i = 0;
-            for (FPTree.Node currentNode = node; currentNode != null; currentNode = currentNode.parent) {
-                items[i ++] = currentNode.id;
+        /**
+         * Mines all combinations along a single path tree
+         */
+        private void grow(FPTree fptree, int node, int[] itemset, int support) {
+            int height = 0;
+            for (int currentNode = node; currentNode > 0; currentNode = fptree.parent[currentNode]) {
+                height ++;
             }
 
-            int[] itemIndexStack = new int[height];
-            int itemIndexStackPos = 0;
-            itemset = insert(itemset, items[itemIndexStack[itemIndexStackPos]]);
-            collect(itemset, support);
+            if (height > 0) {
+                int[] items = new int[height];
+                int i = 0;
+                for (int currentNode = node; currentNode > 0; currentNode = fptree.parent[currentNode]) {
+                    items[i ++] = fptree.item[currentNode];
+                }
+
+                int[] itemIndexStack = new int[height];
+                int itemIndexStackPos = 0;
+                itemset = insert(itemset, items[itemIndexStack[itemIndexStackPos]]);
+                collect(itemset, support);
 
-            while (itemIndexStack[0] < height - 1) {
-                if (itemIndexStack[itemIndexStackPos] < height - 1) {
-                    itemIndexStackPos ++;
-                    itemIndexStack[itemIndexStackPos] = itemIndexStack[itemIndexStackPos - 1] + 1;
-                    itemset = insert(itemset, items[itemIndexStack[itemIndexStackPos]]);
-                    collect(itemset, support);
-                } else {
-                    itemset = drop(itemset);
-                    if (itemset != null) {
-                        itemIndexStackPos --;
-                        itemIndexStack[itemIndexStackPos] = itemIndexStack[itemIndexStackPos] + 1;
-                        itemset[0] = items[itemIndexStack[itemIndexStackPos]];
+                while (itemIndexStack[0] < height - 1) {
+                    if (itemIndexStack[itemIndexStackPos] < height - 1) {
+                        itemIndexStackPos ++;
+                        itemIndexStack[itemIndexStackPos] = itemIndexStack[itemIndexStackPos - 1] + 1;
+                        itemset = insert(itemset, items[itemIndexStack[itemIndexStackPos]]);
                         collect(itemset, support);
+                    } else {
+                        itemset = drop(itemset);
+                        if (itemset != null) {
+                            itemIndexStackPos --;
+                            itemIndexStack[itemIndexStackPos] = itemIndexStack[itemIndexStackPos] + 1;
+                            itemset[0] = items[itemIndexStack[itemIndexStackPos]];
+                            collect(itemset, support);
+                        }
                     }
                 }
             }
         }
-    }
 
-    /**
-     * Mines FP-tree with respect to a single element in the header table.
-     * @param header the header table item of interest.
-     * @param itemset the item set represented by the current FP-tree.
-     */
-    private void grow(HeaderTableItem header, int[] itemset, int[] localItemSupport, int[] prefixItemset) {
-        int support = header.count;
-        int item = header.id;
-        itemset = insert(itemset, item);
-
-        collect(itemset, support);
-        
-        if (header.node.next == null) {
-            FPTree.Node node = header.node;
-            grow(node.parent, itemset, support);
-        } else {
-            // Count singles in linked list
-            if (getLocalItemSupport(header.node, localItemSupport)) {
-                // Create local FP tree
-                FPTree fptree = getLocalFPTree(header.node, localItemSupport, prefixItemset);
-                // Mine new FP-tree
-                grow(fptree, itemset, localItemSupport, prefixItemset);
+        /**
+         * Mines FP-tree with respect to a single element in the header table.
+         * @param header the header table item of interest.
+         * @param itemset the item set represented by the current FP-tree.
+         */
+        private void grow(FPTree fptree, HeaderTableItem header, int[] itemset) {
+            int support = header.count;
+            int item = header.id;
+            itemset = insert(itemset, item);
+
+            collect(itemset, support);
+
+            if (fptree.next[header.node] < 0) {
+                grow(fptree, fptree.parent[header.node], itemset, support);
+            } else {
+                // Count singles in linked list
+                if (getLocalItemSupport(fptree, header.node)) {
+                    // Create local FP tree
+                    FPTree local = getLocalFPTree(fptree, header.node);
+                    // Mine new FP-tree
+                    grow(local, itemset);
+                }
             }
         }
-    }
 
-    /**
-     * Counts the supports of single items in ancestor item sets linked list.
-     * @return true if there are condition patterns given this node
-     */
-    private boolean getLocalItemSupport(FPTree.Node node, int[] localItemSupport) {
-        boolean end = true;
-        Arrays.fill(localItemSupport, 0);
-        while (node != null) {
-            int support = node.count;
-            Node parent = node.parent;
-            while (parent != null) {
-                localItemSupport[parent.id] += support;
-                parent = parent.parent;
-                end = false;
+        /**
+         * Counts the supports of single items in ancestor item sets linked list.
+         * @return true if there are condition patterns given this node
+         */
+        private boolean getLocalItemSupport(FPTree fptree, int node) {
+            boolean end = true;
+            Arrays.fill(localItemSupport, 0);
+            while (node >= 0) {
+                int support = fptree.count[node];
+                int parent = fptree.parent[node];
+                while (parent > 0) {
+                    localItemSupport[fptree.item[parent]] += support;
+                    parent = fptree.parent[parent];
+                    end = false;
+                }
+
+                node = fptree.next[node];
             }
-            
-            node = node.next;
+
+            return !end;
         }
 
-        return !end;
-    }
+        /**
+         * Generates a local FP tree
+         * @param node the conditional patterns given this node to construct the local FP-tree.
+         * @return the local FP-tree.
+         */
+        private FPTree getLocalFPTree(FPTree fptree, int node) {
+            FPTree tree = new FPTree(minSupport, localItemSupport);
 
-    /**
-     * Generates a local FP tree
-     * @param node the conditional patterns given this node to construct the local FP-tree.
-     * @rerurn the local FP-tree.
-     */
-    private FPTree getLocalFPTree(FPTree.Node node, int[] localItemSupport, int[] prefixItemset) {
-        FPTree tree = new FPTree(minSupport, localItemSupport);
-
-        while (node != null) {
-            Node parent = node.parent;
-            int i = prefixItemset.length;
-            while (parent != null) {
-                if (localItemSupport[parent.id] >= minSupport) {
-                    prefixItemset[--i] = parent.id;
+            while (node >= 0) {
+                int parent = fptree.parent[node];
+                int i = prefixItemset.length;
+                while (parent > 0) {
+                    if (localItemSupport[fptree.item[parent]] >= minSupport) {
+                        prefixItemset[--i] = fptree.item[parent];
+                    }
+                    parent = fptree.parent[parent];
                 }
-                parent = parent.parent;
-            }
 
-            if (i < prefixItemset.length) {
-                tree.add(i, prefixItemset.length, prefixItemset, node.count);
+                if (i < prefixItemset.length) {
+                    tree.add(i, prefixItemset.length, prefixItemset, fptree.count[node]);
+                }
+
+                node = fptree.next[node];
             }
 
-            node = node.next;
+            return tree;
         }
-
-        return tree;
     }
 
     /**
@@ -18,7 +18,6 @@
 package smile.association;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 import smile.sort.QuickSort;
@@ -34,118 +33,16 @@ import smile.sort.QuickSort;
  * The list can be accessed through a head element, which also
  * states the total number of occurrences of the item in the
  * database.
+ * <p>
+ * The nodes are stored in primitive arrays (item, count, parent link and
+ * header link) indexed by the node number, and the children are looked up
+ * in a single open addressing hash table keyed by the parent node and item.
+ * So building a tree doesn't box the items or allocate per-node objects.
  *
  * @author Haifeng Li
  */
 public class FPTree {
 
-    /**
-     * FP-tree node object.
-     */
-    class Node {
-        /**
-         * The item identifier.
-         */
-        int id = -1;
-        /**
-         * The number of transactions represented by the portion of the path reaching this node.
-         */
-        int count = 0;
-        /**
-         * The backward link to the parent node in FP tree.
-         */
-        Node parent = null;
-        /**
-         * The forward link to the next node in a linked list of nodes with
-         * same item identifier starting with an element in the header table.
-         */
-        Node next = null;
-        /**
-         * The reference to the child branch (levels in FP-tree branches are
-         * stored as a arrays of Node structures.
-         */
-        HashMap<Integer, Node> children = null;
-
-        /**
-         * Constructs the root node.
-         */
-        Node() {
-        }
-
-        /**
-         * Constructor.
-         */
-        Node(int id, int support, Node parent) {
-            this.id = id;
-            this.count = support;
-            this.parent = parent;
-        }
-
-        /**
-         * Searches through the list of children for given item set.
-         * If a node for current item set found, increments support count and
-         * proceed down branch. Otherwise add a new child node.
-         * @param index the current item index in the item set.
-         * @param end the end index of item set to add into the database.
-         * @param itemset the given item set.
-         * @param support the associated support value for the given item set.
-         */
-        void add(int index, int end, int[] itemset, int support) {
-            if (children == null) {
-                children = new HashMap<>();
-            }
-            
-            Node child = children.get(itemset[index]);
-            if (child != null) {
-                // Node already exists. Update its support.
-                child.count += support;
-                if (++index < end) {
-                    child.add(index, end, itemset, support);
-                }
-            } else {
-                // Node doesn't exist. Create a new one.
-                append(index, end, itemset, support);
-            }
-        }
-
-        /**
-         * Appends nodes of items to the current path.
-         * @param index the current item index in the item set.
-         * @param end the end index of item set to append into the database.
-         * @param itemset the given item set.
-         * @param support the associated support value for the given item set.
-         */
-        void append(int index, int end, int[] itemset, int support) {
-            if (children == null) {
-                children = new HashMap<>();
-            }
-            
-            if (index >= maxItemSetSize) {
-                maxItemSetSize = index + 1;
-            }
-            
-            // Create new item subtree node
-            int item = itemset[index];
-            Node child = new Node(item, support, id < 0 ? null : this);
-            // Add link from header table
-            child.addToHeaderTable();
-            // Add into FP tree
-            children.put(item, child);
-            // Proceed down branch with rest of item set
-            if (++index < end) {
-                child.append(index, end, itemset, support);
-            }
-        }
-
-        /**
-         * Adds this node to header table.
-         */
-        void addToHeaderTable() {
-            next = headerTable[order[id]].node;
-            headerTable[order[id]].node = this;
-        }
-    }
-
     /**
      * Header table item. Array of these structures used to link into FP-tree.
      * All FP-tree nodes with the same identifier are linked together starting
@@ -163,9 +60,9 @@ public class FPTree {
          */
         int count = 0;
         /**
-         * The forward link to the next node in the link list of nodes.
+         * The forward link to the first node in the link list of nodes, or -1 if empty.
          */
-        Node node = null;
+        int node = -1;
 
         /**
          * Constructor.
@@ -192,12 +89,35 @@ public class FPTree {
      */
     int minSupport;
     /**
-     * Start reference for FP-tree. Root is just a dummy node for building the
-     * FP-tree as a starting point. It is used during mining maximal frequent
-     * item sets. No other nodes should use it as a parent node even if they
-     * are root's children nodes.
+     * The number of nodes, including the root.
+     */
+    int size = 1;
+    /**
+     * The item identifier of nodes. The node 0 is the root, which is
+     * just a dummy node as a starting point to build the FP-tree.
+     */
+    int[] item;
+    /**
+     * The number of transactions represented by the portion of the path
+     * reaching the nodes.
+     */
+    int[] count;
+    /**
+     * The backward link to the parent of nodes. The parent of root's
+     * children is the root (0), which terminates the walk to the top.
+     */
+    int[] parent;
+    /**
+     * The forward link to the next node in a linked list of nodes with
+     * same item identifier starting with an element in the header table,
+     * or -1 at the end of list.
      */
-    Node root = new Node();
+    int[] next;
+    /**
+     * The open addressing hash table of child nodes, keyed by the parent
+     * node and the item. The slots store the node indices, or -1 if empty.
+     */
+    int[] children;
     /**
      * The support of single items.
      */
@@ -261,6 +181,17 @@ public class FPTree {
 
     /** Initialize the FP-tree after the first scan of data. */
     private void init() {
+        int capacity = 16;
+        item = new int[capacity];
+        count = new int[capacity];
+        parent = new int[capacity];
+        next = new int[capacity];
+        children = new int[2 * capacity];
+        Arrays.fill(children, -1);
+        item[0] = -1;
+        parent[0] = -1;
+        next[0] = -1;
+
         numItems = itemSupport.length;
         for (int f : itemSupport) {
             if (f >= minSupport) {
@@ -419,7 +350,7 @@ public class FPTree {
                 }
             }
             
-            root.add(0, m, itemset, 1);
+            add(0, m, itemset, 1);
         }
     }
 
@@ -432,6 +363,82 @@ public class FPTree {
      * @param support the support/frequency of the item set.
      */
     void add(int index, int end, int[] itemset, int support) {
-        root.add(index, end, itemset, support);
+        if (end - index > maxItemSetSize) {
+            maxItemSetSize = end - index;
+        }
+
+        // Searches through the children for the items. If a node for
+        // current item found, increments support count and proceed down
+        // branch. Otherwise add a new child node.
+        int node = 0;
+        for (int i = index; i < end; i++) {
+            int id = itemset[i];
+            int mask = children.length - 1;
+            int slot = hash(node, id) & mask;
+            int child;
+            while ((child = children[slot]) >= 0) {
+                if (parent[child] == node && item[child] == id) break;
+                slot = (slot + 1) & mask;
+            }
+
+            if (child >= 0) {
+                count[child] += support;
+            } else {
+                child = node(id, support, node);
+                children[slot] = child;
+                if (2 * size > children.length) {
+                    rehash();
+                }
+            }
+
+            node = child;
+        }
+    }
+
+    /**
+     * Creates a node and adds it to the header table.
+     * @param id the item identifier.
+     * @param support the support of node.
+     * @param parent the parent node.
+     * @return the node index.
+     */
+    private int node(int id, int support, int parent) {
+        if (size == item.length) {
+            int capacity = 2 * size;
+            item = Arrays.copyOf(item, capacity);
+            count = Arrays.copyOf(count, capacity);
+            this.parent = Arrays.copyOf(this.parent, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+
+        int node = size++;
+        item[node] = id;
+        count[node] = support;
+        this.parent[node] = parent;
+
+        HeaderTableItem header = headerTable[order[id]];
+        next[node] = header.node;
+        header.node = node;
+        return node;
+    }
+
+    /** Doubles the hash table of child nodes. */
+    private void rehash() {
+        children = new int[2 * children.length];
+        Arrays.fill(children, -1);
+        int mask = children.length - 1;
+        for (int node = 1; node < size; node++) {
+            int slot = hash(parent[node], item[node]) & mask;
+            while (children[slot] >= 0) {
+                slot = (slot + 1) & mask;
+            }
+            children[slot] = node;
+        }
+    }
+
+    /** Returns the hash code of the child of a node with an item. */
+    private static int hash(int node, int item) {
+        int h = node * 0x9E3779B9 + item;
+        return h ^ (h >>> 16);
     }
 }
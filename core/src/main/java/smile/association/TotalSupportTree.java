@@ -18,8 +18,9 @@
 package smile.association;
 
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -81,20 +82,21 @@ class TotalSupportTree implements Iterable<ItemSet> {
      * The index of items after sorting.
      */
     private int[] order;
-    /**
-     * The buffer to collect mining results.
-     */
-    private Queue<ItemSet> buffer = new LinkedList<>();
 
     /**
-     * Constructor.
+     * Constructor. The frequent item sets are mined in parallel. It is
+     * safe to add them into the tree concurrently because the item sets
+     * of an item in the header table of FP-tree are mined by a single
+     * thread, and they all end with that item. Therefore, they are added
+     * into the disjoint subtrees of the root, whose array of children
+     * is preallocated.
      */
     public TotalSupportTree(FPTree tree) {
         this.numTransactions = tree.numTransactions;
         this.minSupport = tree.minSupport;
         this.order = tree.order;
         root.children = new Node[tree.numFreqItems];
-        FPGrowth.apply(tree).forEach(itemset -> add(itemset.items, itemset.support));
+        FPGrowth.apply(tree).parallel().forEach(itemset -> add(itemset.items, itemset.support));
     }
 
     /**
@@ -106,34 +108,22 @@ class TotalSupportTree implements Iterable<ItemSet> {
 
     @Override
     public Iterator<ItemSet> iterator() {
-        return new Iterator<ItemSet>() {
-            int i = 0;
-
-            @Override
-            public boolean hasNext() {
-                if (buffer.isEmpty()) {
-                    for (; i < root.children.length; i++) {
-                        Node child = root.children[i];
-                        if (child != null && child.support >= minSupport) {
-                            int[] itemset = {child.id};
-                            generate(itemset, i, child);
-
-                            if (!buffer.isEmpty()) {
-                                i++; // we will miss i++ in for loop once break
-                                break;
-                            }
-                        }
-                    }
-                }
-
-                return !buffer.isEmpty();
-            }
+        return Spliterators.iterator(spliterator());
+    }
 
-            @Override
-            public ItemSet next() {
-                return buffer.poll();
+    /**
+     * Returns the spliterator of frequent item sets, which splits
+     * the subtrees of root for parallel streams.
+     */
+    @Override
+    public Spliterator<ItemSet> spliterator() {
+        return new BatchSpliterator<>(0, root.children.length, () -> (i, sink) -> {
+            Node child = root.children[i];
+            if (child != null && child.support >= minSupport) {
+                int[] itemset = {child.id};
+                generate(itemset, i, child, sink);
             }
-        };
+        });
     }
 
     /**
@@ -224,17 +214,18 @@ class TotalSupportTree implements Iterable<ItemSet> {
      * @param node the path from root to this node matches the given item set.
      * @param itemset the frequent item set generated so far.
      * @param size the length/size of the current array level in the T-tree.
+     * @param sink the consumer of frequent item sets.
      */
-    private void generate(int[] itemset, int size, Node node) {
+    private void generate(int[] itemset, int size, Node node, Consumer<? super ItemSet> sink) {
         ItemSet set = new ItemSet(itemset, node.support);
-        buffer.offer(set);
+        sink.accept(set);
 
         if (node.children != null) {
             for (int i = 0; i < size; i++) {
                 Node child = node.children[i];
                 if (child != null && child.support >= minSupport) {
                     int[] newItemset = FPGrowth.insert(itemset, child.id);
-                    generate(newItemset, i, child);
+                    generate(newItemset, i, child, sink);
                 }
             }
         }
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.cart;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import smile.data.DataFrame;
+import smile.data.measure.Measure;
+import smile.data.measure.NominalScale;
+import smile.data.type.StructType;
+
+/**
+ * The quantized training data for histogram-based split finding.
+ * Each numeric column is discretized once into at most 256 bins
+ * by the quantiles of its values. The bin codes of samples take
+ * only one byte per cell, in contrast to the four bytes per cell
+ * of the pre-sorted sample index {@link CART#order(DataFrame)}.
+ * During the tree growth, the split search on a node accumulates
+ * the per-bin statistics of its samples and then scans the bins
+ * only, which costs O(bins) rather than O(n) per feature.
+ * <p>
+ * Nominal columns are not quantized as their levels are already
+ * used as the bins in the split search.
+ *
+ * @author Haifeng Li
+ */
+public class Bins {
+    /** The maximum number of bins of a column. */
+    public static final int MAX_BINS = 256;
+
+    /**
+     * The cut points of bins. The bin b covers the values in
+     * (cuts[j][b-1], cuts[j][b]]. The last bin has no upper bound.
+     * It is null for nominal columns.
+     */
+    private final double[][] cuts;
+
+    /**
+     * The bin codes of samples as unsigned bytes.
+     * It is null for nominal columns.
+     */
+    private final byte[][] codes;
+
+    /**
+     * Constructor.
+     * @param cuts the cut points of bins.
+     * @param codes the bin codes of samples.
+     */
+    private Bins(double[][] cuts, byte[][] codes) {
+        this.cuts = cuts;
+        this.codes = codes;
+    }
+
+    /**
+     * Quantizes the numeric columns of a data frame.
+     * @param x the data frame of the explanatory variable.
+     * @param maxBins the maximum number of bins of a column.
+     * @return the quantized data.
+     */
+    public static Bins of(DataFrame x, int maxBins) {
+        if (maxBins < 2 || maxBins > MAX_BINS) {
+            throw new IllegalArgumentException("Invalid maximum number of bins: " + maxBins);
+        }
+
+        int n = x.size();
+        int p = x.ncols();
+        StructType schema = x.schema();
+
+        double[][] cuts = new double[p][];
+        byte[][] codes = new byte[p][];
+
+        IntStream.range(0, p).parallel().forEach(j -> {
+            Measure measure = schema.field(j).measure;
+            if (!(measure instanceof NominalScale)) {
+                double[] a = x.column(j).toDoubleArray();
+                double[] sorted = a.clone();
+                Arrays.sort(sorted);
+
+                double[] cut = cuts(sorted, maxBins);
+                byte[] code = new byte[n];
+                for (int i = 0; i < n; i++) {
+                    code[i] = (byte) bin(cut, a[i]);
+                }
+
+                cuts[j] = cut;
+                codes[j] = code;
+            }
+        });
+
+        return new Bins(cuts, codes);
+    }
+
+    /**
+     * Returns the cut points of bins. If the number of distinct values
+     * is no more than maxBins, each distinct value has its own bin.
+     * Otherwise, the bins are of roughly equal frequency. The cut points
+     * are the midpoints of adjacent distinct values, the same as the
+     * split values of exact split search.
+     */
+    private static double[] cuts(double[] sorted, int maxBins) {
+        int n = sorted.length;
+        int distinct = n == 0 ? 0 : 1;
+        for (int i = 1; i < n && distinct <= maxBins; i++) {
+            if (sorted[i] > sorted[i-1]) distinct++;
+        }
+
+        // the target number of samples in each bin
+        double size = distinct <= maxBins ? 0.0 : (double) n / maxBins;
+        double[] cut = new double[maxBins - 1];
+        int m = 0;
+        for (int i = 1; i < n && m < cut.length; i++) {
+            if (sorted[i] > sorted[i-1] && i >= (m + 1) * size) {
+                cut[m++] = (sorted[i-1] + sorted[i]) / 2;
+            }
+        }
+
+        return Arrays.copyOf(cut, m);
+    }
+
+    /** Returns the bin of a value, i.e. the number of cut points less than it. */
+    private static int bin(double[] cut, double x) {
+        int lo = 0;
+        int hi = cut.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            // NaN goes to the last bin, as x <= value is false for NaN.
+            if (cut[mid] < x || Double.isNaN(x)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns true if the column is quantized.
+     * @param j the column index.
+     * @return true if the column is quantized.
+     */
+    public boolean isQuantized(int j) {
+        return codes[j] != null;
+    }
+
+    /**
+     * Returns the number of bins of a column.
+     * @param j the column index.
+     * @return the number of bins, 0 for nominal columns.
+     */
+    public int size(int j) {
+        return cuts[j] == null ? 0 : cuts[j].length + 1;
+    }
+
+    /**
+     * Returns the bin of a sample in a column.
+     * @param i the sample index.
+     * @param j the column index.
+     * @return the bin of sample.
+     */
+    public int bin(int i, int j) {
+        return codes[j][i] & 0xFF;
+    }
+
+    /**
+     * Returns the upper bound of a bin, which is the split value
+     * to send the samples of bins [0, b] to the true branch.
+     * @param j the column index.
+     * @param b the bin index.
+     * @return the upper bound of bin.
+     */
+    public double cut(int j, int b) {
+        return cuts[j][b];
+    }
+}
@@ -31,6 +31,7 @@ import smile.sort.QuickSort;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.IntStream;
 import java.util.AbstractMap.SimpleEntry;
 
@@ -107,6 +108,13 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      */
     protected transient int[][] order;
 
+    /**
+     * The quantized training data for histogram-based split finding.
+     * If it is not null, the split search works on the per-node histograms
+     * of bins of numeric columns rather than the pre-sorted {@link #order}.
+     */
+    protected transient Bins bins;
+
     /**
      * The working buffer for reordering {@link #index} array.
      */
@@ -142,6 +150,28 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      *              that only numeric attributes need be sorted.
      */
     public CART(DataFrame x, StructField y, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order) {
+        this(x, y, maxDepth, maxNodes, nodeSize, mtry, samples, order, null);
+    }
+
+    /**
+     * Constructor.
+     * @param x the data frame of the explanatory variable.
+     * @param y the response variables.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted.
+     * @param bins the quantized training data for histogram-based split
+     *             finding. If not null, order is needed only if the
+     *             subclass doesn't compute the histograms of bins.
+     */
+    public CART(DataFrame x, StructField y, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, Bins bins) {
         this.x = x;
         this.response = y;
         this.schema = x.schema();
@@ -183,8 +213,9 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
 
         buffer  = new int[index.length];
 
+        this.bins = bins;
         if (order == null) {
-            this.order = order(x);
+            if (bins == null) this.order = order(x);
         } else {
             this.order = new int[order.length][];
             for (int i = 0; i < order.length; i++) {
@@ -240,6 +271,7 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
     protected void clear() {
         this.x = null;
         this.order = null;
+        this.bins = null;
         this.index = null;
         this.samples = null;
         this.buffer = null;
@@ -251,6 +283,13 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      * Otherwise, return the node.
      */
     protected boolean split(final Split split, PriorityQueue<Split> queue) {
+        // release the memory of split as early as possible
+        double[][] own = split.histogram;
+        SiblingHistogram sibling = split.sibling;
+        split.histogram = null;
+        split.sibling = null;
+        if (sibling != null) sibling.pending--;
+
         if (split.feature < 0) {
             throw new IllegalStateException("Split a node with invalid feature.");
         }
@@ -284,10 +323,34 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
         assert falseChild.size >= nodeSize : String.format("falseChild size is too small: %d < %d", falseChild.size, nodeSize);
         InternalNode node = split.toNode(trueChild, falseChild);
 
+        final double[][] histogram = own != null ? own : histogram(split, sibling);
+
         shuffle(split.lo, mid, split.hi, trues);
 
-        Optional<Split> trueSplit = findBestSplit(trueChild, split.lo, mid, split.unsplittable.clone());
-        Optional<Split> falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable); // reuse parent's array
+        double[][] trueHistogram = null;
+        double[][] falseHistogram = null;
+        if (histogram != null) {
+            double[][][] children = histogram(split.lo, mid, split.hi, histogram);
+            trueHistogram = children[0];
+            falseHistogram = children[1];
+        }
+
+        final boolean[] trueUnsplittable = split.unsplittable.clone();
+        final double[][] trueHist = trueHistogram;
+        Optional<Split> trueSplit;
+        Optional<Split> falseSplit;
+        if (mtry < schema.length()) {
+            // random forest is in parallel already
+            trueSplit = findBestSplit(trueChild, split.lo, mid, trueUnsplittable, trueHist);
+            falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable, falseHistogram); // reuse parent's array
+        } else {
+            // Searches the children in parallel. The forked task runs in
+            // the pool of current thread if it is a fork/join worker, e.g.
+            // when the tree is trained in a dedicated pool.
+            ForkJoinTask<Optional<Split>> task = ForkJoinTask.adapt(() -> findBestSplit(trueChild, split.lo, mid, trueUnsplittable, trueHist)).fork();
+            falseSplit = findBestSplit(falseChild, mid, split.hi, split.unsplittable, falseHistogram); // reuse parent's array
+            trueSplit = task.join();
+        }
 
         // Prune the branch if both children are leaf nodes and of same output value.
         if (trueChild.equals(falseChild) && !trueSplit.isPresent() && !falseSplit.isPresent()) {
@@ -308,6 +371,14 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
         trueSplit.ifPresent(s -> {s.parent = node; s.depth = split.depth + 1;});
         falseSplit.ifPresent(s -> {s.parent = node; s.depth = split.depth + 1;});
 
+        if (histogram != null) {
+            // The children keep only the histograms of this node, from
+            // which theirs are derived again when they are split.
+            SiblingHistogram shared = new SiblingHistogram(split.lo, mid, split.hi, histogram);
+            trueSplit.ifPresent(s -> {s.histogram = null; s.sibling = shared; shared.pending++;});
+            falseSplit.ifPresent(s -> {s.histogram = null; s.sibling = shared; shared.pending++;});
+        }
+
         if (queue == null) {
             // deep first split
             trueSplit.ifPresent(s -> split(s, null));
@@ -330,6 +401,20 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      * @param unsplittable unsplittable[j] is true if the column j cannot be split further in the node.
      */
     protected Optional<Split> findBestSplit(LeafNode node, int lo, int hi, boolean[] unsplittable) {
+        return findBestSplit(node, lo, hi, unsplittable, null);
+    }
+
+    /**
+     * Finds the best attribute to split on a set of samples. at the current node. Returns
+     * null if a split doesn't exists to reduce the impurity.
+     * @param node the leaf node to split.
+     * @param lo the inclusive lower bound of the data partition in the reordered sample index array.
+     * @param hi the exclusive upper bound of the data partition in the reordered sample index array.
+     * @param unsplittable unsplittable[j] is true if the column j cannot be split further in the node.
+     * @param histogram the histograms of node in histogram-based split finding.
+     *                  If null, the histograms will be computed from the samples.
+     */
+    private Optional<Split> findBestSplit(LeafNode node, int lo, int hi, boolean[] unsplittable, double[][] histogram) {
         if (node.size() < 2 * nodeSize) {
             return Optional.empty(); // one child will has less than nodeSize samples.
         }
@@ -348,10 +433,26 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
             MathEx.permutate(columns);
         }
 
+        // The histograms are kept for the subtraction trick only if
+        // all columns are evaluated, i.e. not in random forest.
+        double[][] hist = bins == null ? null : (histogram != null ? histogram : new double[p][]);
+
         IntStream stream = Arrays.stream(columns).limit(mtry);
         Optional<Split> split = (mtry < p ? stream : stream.parallel()) // random forest is in parallel already
                 .mapToObj(j -> {
-                    Optional<Split> s = findBestSplit(node, j, impurity, lo, hi);
+                    Optional<Split> s;
+                    if (hist != null && bins.isQuantized(j) && hist[j] == null) {
+                        hist[j] = histogram(j, lo, hi);
+                        if (hist[j] == null && order == null) {
+                            throw new IllegalStateException("No histogram or order of training values for column " + schema.field(j).name);
+                        }
+                    }
+
+                    if (hist != null && hist[j] != null) {
+                        s = findBestSplit(node, j, impurity, lo, hi, hist[j]);
+                    } else {
+                        s = findBestSplit(node, j, impurity, lo, hi);
+                    }
                     if (!s.isPresent()) unsplittable[j] = true;
                     return s;
                 })
@@ -359,10 +460,97 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
                 .map(Optional::get)
                 .max(Split.comparator);
 
-        split.ifPresent(s -> s.unsplittable = unsplittable);
+        split.ifPresent(s -> {
+            s.unsplittable = unsplittable;
+            if (mtry >= p) s.histogram = hist;
+        });
         return split;
     }
 
+    /**
+     * Returns the histograms of a data partition for the columns
+     * that the parent node has histograms.
+     * @param lo the inclusive lower bound of the data partition in the reordered sample index array.
+     * @param hi the exclusive upper bound of the data partition in the reordered sample index array.
+     * @param parent the histograms of parent node.
+     */
+    private double[][] histogram(int lo, int hi, double[][] parent) {
+        double[][] hist = new double[parent.length][];
+        IntStream.range(0, parent.length).parallel()
+                .filter(j -> parent[j] != null)
+                .forEach(j -> hist[j] = histogram(j, lo, hi));
+        return hist;
+    }
+
+    /**
+     * Returns the histograms of the true and false children partitions.
+     * The histograms of the smaller child are built from the samples and
+     * those of the larger one are derived by subtraction.
+     * @param lo the inclusive lower bound of the parent partition.
+     * @param mid the boundary of children partitions.
+     * @param hi the exclusive upper bound of the parent partition.
+     * @param parent the histograms of parent node.
+     */
+    private double[][][] histogram(int lo, int mid, int hi, double[][] parent) {
+        if (mid - lo <= hi - mid) {
+            double[][] trueHistogram = histogram(lo, mid, parent);
+            return new double[][][]{trueHistogram, subtract(parent, trueHistogram)};
+        } else {
+            double[][] falseHistogram = histogram(mid, hi, parent);
+            return new double[][][]{subtract(parent, falseHistogram), falseHistogram};
+        }
+    }
+
+    /**
+     * Returns the histograms of a node to split from those shared with
+     * its sibling. If the shared histograms are of the parent, the
+     * histograms of both siblings are derived and those of the other
+     * sibling are kept if it is still waiting to be split. The parent's
+     * histograms are released then.
+     * @param split the split of node.
+     * @param sibling the histograms shared with the sibling.
+     * @return the histograms of node or null if not available.
+     */
+    private double[][] histogram(Split split, SiblingHistogram sibling) {
+        if (sibling == null || sibling.histogram == null) {
+            return null;
+        }
+
+        double[][] histogram = sibling.histogram;
+        sibling.histogram = null;
+        if (sibling.derived) {
+            return histogram;
+        }
+
+        double[][][] children = histogram(sibling.lo, sibling.mid, sibling.hi, histogram);
+        int k = split.lo == sibling.lo ? 0 : 1;
+        if (sibling.pending > 0) {
+            sibling.histogram = children[1 - k];
+            sibling.derived = true;
+        }
+        return children[k];
+    }
+
+    /**
+     * Returns the difference of parent and child histograms,
+     * which are the histograms of the sibling node.
+     */
+    private static double[][] subtract(double[][] parent, double[][] child) {
+        double[][] hist = new double[parent.length][];
+        for (int j = 0; j < parent.length; j++) {
+            if (parent[j] != null) {
+                double[] a = parent[j];
+                double[] b = child[j];
+                double[] c = new double[a.length];
+                for (int i = 0; i < c.length; i++) {
+                    c[i] = a[i] - b[i];
+                }
+                hist[j] = c;
+            }
+        }
+        return hist;
+    }
+
     /** Returns the impurity of node. */
     protected abstract double impurity(LeafNode node);
 
@@ -372,6 +560,37 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
     /** Finds the best split for given column. */
     protected abstract Optional<Split> findBestSplit(LeafNode node, int column, double impurity, int lo, int hi);
 
+    /**
+     * Returns the histogram of a quantized column on a data partition,
+     * i.e. the sufficient statistics of response in each bin for split
+     * finding. The layout of histogram is defined by the subclass.
+     * The histogram of a node must be the sum of those of its children
+     * so that the subtraction trick can be applied.
+     * <p>
+     * The default implementation returns null, i.e. the subclass doesn't
+     * support histogram-based split finding. In this case, the split is
+     * found by {@link #findBestSplit(LeafNode, int, double, int, int)},
+     * which requires the order of training values.
+     *
+     * @param column the column index.
+     * @param lo the inclusive lower bound of the data partition in the reordered sample index array.
+     * @param hi the exclusive upper bound of the data partition in the reordered sample index array.
+     * @return the histogram or null if not supported.
+     */
+    protected double[] histogram(int column, int lo, int hi) {
+        return null;
+    }
+
+    /**
+     * Finds the best split for given quantized column
+     * by scanning the histogram of bins. The default
+     * implementation ignores the histogram and calls
+     * {@link #findBestSplit(LeafNode, int, double, int, int)}.
+     */
+    protected Optional<Split> findBestSplit(LeafNode node, int column, double impurity, int lo, int hi, double[] histogram) {
+        return findBestSplit(node, column, impurity, lo, hi);
+    }
+
     /**
      * Returns the variable importance. Every time a split of a node is made
      * on variable the (GINI, information gain, etc.) impurity criterion for
@@ -451,7 +670,9 @@ public abstract class CART implements SHAP<Tuple>, Serializable {
      *        partition.
      */
     private void shuffle(int low, int split, int high, boolean[] predicate) {
-        Arrays.stream(order).filter(Objects::nonNull).forEach(o -> shuffle(o, low, split, high, predicate));
+        if (order != null) {
+            Arrays.stream(order).filter(Objects::nonNull).forEach(o -> shuffle(o, low, split, high, predicate));
+        }
         shuffle(index, low, split, high, predicate);
     }
 
@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.cart;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.stream.IntStream;
+import smile.data.DataFrame;
+
+/**
+ * A set of trees compiled into flat arrays for fast batch inference.
+ * The nodes of all trees are packed in the struct-of-arrays layout,
+ * i.e. the split feature, the split value and the child offset of
+ * each node are stored in parallel primitive arrays. The children
+ * of an internal node are adjacent in the arrays so that only the
+ * offset of true child is stored. The scoring of a batch walks these
+ * arrays in tight loops without virtual calls or tuple lookups, and
+ * processes the samples in blocks in parallel.
+ * <p>
+ * The leaf outputs are of dimension k, which is 1 for regression trees
+ * and the number of classes for decision trees (the posteriori
+ * probabilities).
+ *
+ * @author Haifeng Li
+ */
+public class FlatForest implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    /** The number of samples in a block of batch scoring. */
+    private static final int BLOCK_SIZE = 1024;
+
+    /** The number of trees. */
+    private final int ntrees;
+    /** The dimension of leaf outputs. */
+    private final int k;
+    /** The number of features. */
+    private final int p;
+    /** The node offset of tree roots. */
+    private final int[] root;
+    /** The split feature of internal nodes, or -1 for leaf nodes. */
+    private final int[] feature;
+    /** The split value of internal nodes. */
+    private final double[] value;
+    /** True if the internal node splits on a nominal feature. */
+    private final boolean[] nominal;
+    /**
+     * The offset of true child of internal nodes. The false child is
+     * right after the true child. For leaf nodes, it is the index of
+     * leaf in the output table.
+     */
+    private final int[] child;
+    /** The leaf outputs, k values per leaf. */
+    private final double[] output;
+    /** The class label of leaves of decision trees. */
+    private final int[] label;
+    /** The features used by the trees. */
+    private final int[] features;
+
+    /**
+     * Constructor.
+     * @param p the number of features.
+     * @param trees the root nodes of trees.
+     */
+    private FlatForest(int p, Node[] trees) {
+        this.ntrees = trees.length;
+        this.p = p;
+
+        int nodes = 0;
+        int leaves = 0;
+        for (Node tree : trees) {
+            int l = tree.leafs();
+            leaves += l;
+            nodes += 2 * l - 1;
+        }
+
+        Node node = leaf(trees[0]);
+        boolean classification = node instanceof DecisionNode;
+        this.k = classification ? ((DecisionNode) node).count().length : 1;
+
+        for (Node tree : trees) {
+            Node leaf = leaf(tree);
+            if ((leaf instanceof DecisionNode) != classification || (classification && ((DecisionNode) leaf).count().length != k)) {
+                throw new IllegalArgumentException("The trees are not all regression trees or all decision trees of the same classes");
+            }
+        }
+
+        root = new int[ntrees];
+        feature = new int[nodes];
+        value = new double[nodes];
+        nominal = new boolean[nodes];
+        child = new int[nodes];
+        output = new double[leaves * k];
+        label = classification ? new int[leaves] : null;
+
+        boolean[] used = new boolean[p];
+        double[] prob = new double[k];
+        int next = 0;
+        int leaf = 0;
+        Queue<Node> queue = new ArrayDeque<>();
+        for (int t = 0; t < ntrees; t++) {
+            // Breadth-first layout keeps the siblings adjacent.
+            root[t] = next++;
+            queue.add(trees[t]);
+            for (int i = root[t]; !queue.isEmpty(); i++) {
+                node = queue.poll();
+                if (node instanceof InternalNode) {
+                    InternalNode split = (InternalNode) node;
+                    feature[i] = split.feature;
+                    used[split.feature] = true;
+                    if (split instanceof OrdinalNode) {
+                        value[i] = ((OrdinalNode) split).value;
+                    } else {
+                        value[i] = ((NominalNode) split).value;
+                        nominal[i] = true;
+                    }
+                    child[i] = next;
+                    next += 2;
+                    queue.add(split.trueChild);
+                    queue.add(split.falseChild);
+                } else {
+                    feature[i] = -1;
+                    child[i] = leaf;
+                    if (classification) {
+                        DecisionNode decision = (DecisionNode) node;
+                        decision.posteriori(prob);
+                        System.arraycopy(prob, 0, output, leaf * k, k);
+                        label[leaf] = decision.output();
+                    } else {
+                        output[leaf] = ((RegressionNode) node).output();
+                    }
+                    leaf++;
+                }
+            }
+        }
+
+        features = IntStream.range(0, p).filter(j -> used[j]).toArray();
+    }
+
+    /** Returns the leftmost leaf of a tree. */
+    private static Node leaf(Node node) {
+        while (node instanceof InternalNode) {
+            node = ((InternalNode) node).trueChild;
+        }
+        return node;
+    }
+
+    /**
+     * Compiles a set of trees.
+     * @param trees the trees, which must be all regression trees
+     *              or all decision trees of the same classes.
+     * @return the compiled trees.
+     * @throws IllegalArgumentException if the trees are empty or
+     *         of different types or classes.
+     */
+    public static FlatForest of(CART... trees) {
+        if (trees.length == 0) {
+            throw new IllegalArgumentException("Empty tree set");
+        }
+
+        Node[] roots = new Node[trees.length];
+        for (int i = 0; i < trees.length; i++) {
+            roots[i] = trees[i].root();
+        }
+
+        return new FlatForest(trees[0].schema.length(), roots);
+    }
+
+    /** Returns the number of trees. */
+    public int size() {
+        return ntrees;
+    }
+
+    /**
+     * Returns the dimension of leaf outputs, i.e. 1 for regression
+     * trees and the number of classes for decision trees.
+     */
+    public int k() {
+        return k;
+    }
+
+    /** Returns the leaf reached by a sample in a tree. */
+    private int leaf(int tree, double[][] x, int i) {
+        int node = root[tree];
+        int j;
+        while ((j = feature[node]) >= 0) {
+            double xj = x[j][i];
+            boolean branch = nominal[node] ? (int) xj == (int) value[node] : xj <= value[node];
+            node = branch ? child[node] : child[node] + 1;
+        }
+        return child[node];
+    }
+
+    /**
+     * Returns the columns of data used by the trees. The data frame
+     * must have the same layout as the training data of trees.
+     */
+    private double[][] columns(DataFrame data) {
+        if (data.ncols() != p) {
+            throw new IllegalArgumentException(String.format("Invalid number of columns: %d, expected: %d", data.ncols(), p));
+        }
+
+        double[][] x = new double[p][];
+        for (int j : features) {
+            x[j] = data.column(j).toDoubleArray();
+        }
+        return x;
+    }
+
+    /** Returns the columns of a block of samples used by the trees. */
+    private double[][] columns(double[][] data, int from, int to) {
+        double[][] x = new double[p][];
+        for (int j : features) {
+            double[] xj = new double[to - from];
+            for (int i = from; i < to; i++) {
+                xj[i - from] = data[i][j];
+            }
+            x[j] = xj;
+        }
+        return x;
+    }
+
+    /**
+     * Accumulates the weighted leaf outputs of a block of samples.
+     * @param x the columns of samples.
+     * @param from the inclusive index of first sample in x.
+     * @param to the exclusive index of last sample in x.
+     * @param offset the index of first sample in y.
+     */
+    private void sum(double[][] x, int from, int to, double[] weight, double[] y, int offset) {
+        for (int t = 0; t < ntrees; t++) {
+            double w = weight == null ? 1.0 : weight[t];
+            for (int i = from, l = offset * k; i < to; i++, l += k) {
+                int leaf = leaf(t, x, i) * k;
+                for (int c = 0; c < k; c++) {
+                    y[l + c] += w * output[leaf + c];
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the votes of trees on a block of samples.
+     * @param x the columns of samples.
+     * @param from the inclusive index of first sample in x.
+     * @param to the exclusive index of last sample in x.
+     * @param offset the index of first sample in y.
+     */
+    private void vote(double[][] x, int from, int to, int[] y, int offset) {
+        for (int t = 0; t < ntrees; t++) {
+            for (int i = from, l = offset * k; i < to; i++, l += k) {
+                y[l + label[leaf(t, x, i)]]++;
+            }
+        }
+    }
+
+    /** Returns the number of blocks. */
+    private static int blocks(int n) {
+        return (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Returns the (weighted) sum of leaf outputs of all trees.
+     * @param data the data frame of predictors, which has the same
+     *             layout as the training data of trees.
+     * @param weight the optional weights of trees. If null, all trees
+     *               have weight 1.
+     * @return the sum of leaf outputs of all trees. The outputs of
+     *         sample i are in [i*k, (i+1)*k).
+     */
+    public double[] sum(DataFrame data, double[] weight) {
+        checkWeight(weight);
+        int n = data.size();
+        double[][] x = columns(data);
+        double[] y = new double[n * k];
+        IntStream.range(0, blocks(n)).parallel().forEach(b -> {
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            sum(x, from, to, weight, y, from);
+        });
+        return y;
+    }
+
+    /**
+     * Returns the (weighted) sum of leaf outputs of all trees.
+     * @param data the samples of predictors, which have the same
+     *             layout as the training data of trees.
+     * @param weight the optional weights of trees. If null, all trees
+     *               have weight 1.
+     * @return the sum of leaf outputs of all trees. The outputs of
+     *         sample i are in [i*k, (i+1)*k).
+     */
+    public double[] sum(double[][] data, double[] weight) {
+        checkWeight(weight);
+        int n = data.length;
+        double[] y = new double[n * k];
+        IntStream.range(0, blocks(n)).parallel().forEach(b -> {
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            double[][] x = columns(data, from, to);
+            sum(x, 0, to - from, weight, y, from);
+        });
+        return y;
+    }
+
+    /**
+     * Returns the votes of decision trees.
+     * @param data the data frame of predictors, which has the same
+     *             layout as the training data of trees.
+     * @return the votes of trees. The votes for sample i are
+     *         in [i*k, (i+1)*k).
+     * @throws IllegalStateException if the trees are regression trees.
+     */
+    public int[] vote(DataFrame data) {
+        checkLabel();
+        int n = data.size();
+        double[][] x = columns(data);
+        int[] y = new int[n * k];
+        IntStream.range(0, blocks(n)).parallel().forEach(b -> {
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            vote(x, from, to, y, from);
+        });
+        return y;
+    }
+
+    /**
+     * Returns the votes of decision trees.
+     * @param data the samples of predictors, which have the same
+     *             layout as the training data of trees.
+     * @return the votes of trees. The votes for sample i are
+     *         in [i*k, (i+1)*k).
+     * @throws IllegalStateException if the trees are regression trees.
+     */
+    public int[] vote(double[][] data) {
+        checkLabel();
+        int n = data.length;
+        int[] y = new int[n * k];
+        IntStream.range(0, blocks(n)).parallel().forEach(b -> {
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            double[][] x = columns(data, from, to);
+            vote(x, 0, to - from, y, from);
+        });
+        return y;
+    }
+
+    /** Checks the size of tree weights. */
+    private void checkWeight(double[] weight) {
+        if (weight != null && weight.length != ntrees) {
+            throw new IllegalArgumentException(String.format("Invalid weight vector size: %d, expected: %d", weight.length, ntrees));
+        }
+    }
+
+    /** Checks if the trees are decision trees. */
+    private void checkLabel() {
+        if (label == null) {
+            throw new IllegalStateException("Regression trees cannot vote");
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.cart;
+
+import java.io.Serializable;
+import java.util.stream.IntStream;
+import smile.data.DataFrame;
+
+/**
+ * A set of trees compiled for fast batch SHAP explanation. The exact
+ * SHAP values are computed with the path tables of Fast TreeSHAP v2.
+ * For each leaf, let the unique features on its path be d. Whether an
+ * instance satisfies all the splits of a feature on the path is a bit,
+ * so that there are only 2<sup>d</sup> patterns of the path. The SHAP
+ * weights of path features for every pattern are computed once when
+ * the trees are compiled, and reused by all instances. Explaining an
+ * instance is then a single traverse of the tree without the polynomial
+ * path algebra of TreeSHAP.
+ * <p>
+ * As the size of path tables grows exponentially with the path depth,
+ * the trees whose tables exceed the memory budget are explained by the
+ * exact recursive TreeSHAP algorithm instead.
+ * <p>
+ * The approximate Saabas method is also supported, which attributes
+ * the change of expected value along the decision path to the split
+ * features. It is much faster but not consistent.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li>Jilei Yang. Fast TreeSHAP: Accelerating SHAP Value Computation for Trees. arXiv:2109.09847, 2021.</li>
+ * <li>Ando Saabas. Interpreting random forests. 2014.</li>
+ * </ol>
+ *
+ * @author Haifeng Li
+ */
+public class ForestSHAP implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    /** The number of samples in a block of batch explanation. */
+    private static final int BLOCK_SIZE = 256;
+    /** The maximum number of path table entries of a tree. */
+    private static final int MAX_TABLE_SIZE = 1 << 18;
+
+    /** The number of trees. */
+    private final int ntrees;
+    /** The dimension of leaf outputs. */
+    private final int k;
+    /** The number of features. */
+    private final int p;
+    /** The node offset of tree roots. */
+    private final int[] root;
+    /** The split feature of internal nodes, or -1 for leaf nodes. */
+    private final int[] feature;
+    /** The split value of internal nodes. */
+    private final double[] value;
+    /** True if the internal node splits on a nominal feature. */
+    private final boolean[] nominal;
+    /** The offset of true child of internal nodes. */
+    private final int[] trueChild;
+    /** The offset of false child of internal nodes. */
+    private final int[] falseChild;
+    /**
+     * The position of split feature in the unique features of path
+     * for internal nodes, or the index of leaf for leaf nodes.
+     */
+    private final int[] slot;
+    /** True if the split feature doesn't occur in the upper path. */
+    private final boolean[] fresh;
+    /** The expected value of nodes, k values per node. */
+    private final double[] expected;
+    /** The number of unique features on the path of leaves. */
+    private final int[] depth;
+    /** The offset of path features of leaves. */
+    private final int[] pathOffset;
+    /** The unique features on the path of leaves. */
+    private final int[] path;
+    /** The offset of path table of leaves in the table of tree. */
+    private final int[] tableOffset;
+    /** The path tables of trees, or null if too large. */
+    private final double[][] table;
+    /** The trees explained by the recursive algorithm. */
+    private final CART[] exact;
+    /** The features used by the trees. */
+    private final int[] features;
+
+    /**
+     * Constructor.
+     * @param p the number of features.
+     * @param trees the trees.
+     */
+    private ForestSHAP(int p, CART[] trees) {
+        this.ntrees = trees.length;
+        this.p = p;
+
+        int nodes = 0;
+        int leaves = 0;
+        for (CART tree : trees) {
+            int l = tree.root().leafs();
+            leaves += l;
+            nodes += 2 * l - 1;
+        }
+
+        Node node = trees[0].root();
+        while (node instanceof InternalNode) {
+            node = ((InternalNode) node).trueChild;
+        }
+        this.k = node instanceof DecisionNode ? ((DecisionNode) node).count().length : 1;
+
+        root = new int[ntrees];
+        feature = new int[nodes];
+        value = new double[nodes];
+        nominal = new boolean[nodes];
+        trueChild = new int[nodes];
+        falseChild = new int[nodes];
+        slot = new int[nodes];
+        fresh = new boolean[nodes];
+        expected = new double[nodes * k];
+        depth = new int[leaves];
+        pathOffset = new int[leaves + 1];
+        tableOffset = new int[leaves];
+        table = new double[ntrees][];
+        exact = new CART[ntrees];
+
+        Builder builder = new Builder(p);
+        int maxDepth = 0;
+        for (int t = 0; t < ntrees; t++) {
+            int firstLeaf = builder.leaf;
+            root[t] = builder.add(trees[t].root(), 0);
+
+            long size = 0;
+            for (int l = firstLeaf; l < builder.leaf; l++) {
+                maxDepth = Math.max(maxDepth, depth[l]);
+                size += depth[l] > 20 ? Integer.MAX_VALUE : (long) depth[l] << depth[l];
+            }
+
+            if (size <= MAX_TABLE_SIZE) {
+                table[t] = new double[(int) size];
+            } else {
+                exact[t] = trees[t];
+            }
+        }
+
+        path = builder.paths.toArray();
+
+        double[] z = new double[maxDepth + 1];
+        double[] o = new double[maxDepth + 1];
+        double[] w = new double[maxDepth + 1];
+        for (int t = 0, leaf = 0; t < ntrees; t++) {
+            int lastLeaf = leaf + trees[t].root().leafs();
+            if (table[t] != null) {
+                for (int offset = 0; leaf < lastLeaf; leaf++) {
+                    tableOffset[leaf] = offset;
+                    offset += table(builder.zeros, leaf, table[t], offset, z, o, w);
+                }
+            }
+            leaf = lastLeaf;
+        }
+
+        boolean[] used = new boolean[p];
+        for (int f : feature) {
+            if (f >= 0) used[f] = true;
+        }
+        features = IntStream.range(0, p).filter(j -> used[j]).toArray();
+    }
+
+    /**
+     * Compiles a set of trees.
+     * @param trees the trees, which must be all regression trees
+     *              or all decision trees of the same classes.
+     * @return the compiled trees.
+     */
+    public static ForestSHAP of(CART... trees) {
+        if (trees.length == 0) {
+            throw new IllegalArgumentException("Empty tree set");
+        }
+
+        return new ForestSHAP(trees[0].schema.length(), trees);
+    }
+
+    /** Returns the number of trees. */
+    public int size() {
+        return ntrees;
+    }
+
+    /**
+     * Returns the dimension of leaf outputs, i.e. 1 for regression
+     * trees and the number of classes for decision trees.
+     */
+    public int k() {
+        return k;
+    }
+
+    /**
+     * Returns the (weighted) sum of expected values of trees, which is
+     * the base value that the SHAP values explain the output from.
+     * @param weight the optional weights of trees. If null, all trees
+     *               have weight 1.
+     * @return the base value of dimension k.
+     */
+    public double[] base(double[] weight) {
+        checkWeight(weight);
+        double[] base = new double[k];
+        for (int t = 0; t < ntrees; t++) {
+            double w = weight == null ? 1.0 : weight[t];
+            for (int c = 0; c < k; c++) {
+                base[c] += w * expected[root[t] * k + c];
+            }
+        }
+        return base;
+    }
+
+    /**
+     * Returns the exact SHAP values of samples.
+     * @param data the data frame of predictors, which has the same
+     *             layout as the training data of trees.
+     * @param weight the optional weights of trees. If null, all trees
+     *               have weight 1.
+     * @return the (weighted) sum of SHAP values of trees. The SHAP value
+     *         of feature j for class c of sample i is in [i][j*k + c].
+     */
+    public double[][] shap(DataFrame data, double[] weight) {
+        return explain(data, weight, false);
+    }
+
+    /**
+     * Returns the approximate SHAP values of samples by Saabas method.
+     * @param data the data frame of predictors, which has the same
+     *             layout as the training data of trees.
+     * @param weight the optional weights of trees. If null, all trees
+     *               have weight 1.
+     * @return the (weighted) sum of Saabas values of trees. The value
+     *         of feature j for class c of sample i is in [i][j*k + c].
+     */
+    public double[][] saabas(DataFrame data, double[] weight) {
+        return explain(data, weight, true);
+    }
+
+    /** Explains the samples in blocks in parallel. */
+    private double[][] explain(DataFrame data, double[] weight, boolean approximate) {
+        checkWeight(weight);
+        if (data.ncols() != p) {
+            throw new IllegalArgumentException(String.format("Invalid number of columns: %d, expected: %d", data.ncols(), p));
+        }
+
+        int n = data.size();
+        double[][] x = new double[p][];
+        for (int j : features) {
+            x[j] = data.column(j).toDoubleArray();
+        }
+
+        double[][] phi = new double[n][p * k];
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = b * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            for (int t = 0; t < ntrees; t++) {
+                double w = weight == null ? 1.0 : weight[t];
+                for (int i = from; i < to; i++) {
+                    if (approximate) {
+                        saabas(root[t], x, i, w, phi[i]);
+                    } else if (exact[t] == null) {
+                        shap(root[t], table[t], 0, x, i, w, phi[i]);
+                    } else {
+                        double[] phii = exact[t].shap(data.get(i));
+                        for (int j = 0; j < phii.length; j++) {
+                            phi[i][j] += w * phii[j];
+                        }
+                    }
+                }
+            }
+        });
+
+        return phi;
+    }
+
+    /** Returns true if the sample goes to the true child of node. */
+    private boolean branch(int node, double[][] x, int i) {
+        double xj = x[feature[node]][i];
+        return nominal[node] ? (int) xj == (int) value[node] : xj <= value[node];
+    }
+
+    /**
+     * Accumulates the SHAP values of a sample with the path tables.
+     * @param pattern the bits of path features that the sample satisfies.
+     */
+    private void shap(int node, double[] table, int pattern, double[][] x, int i, double w, double[] phi) {
+        int f = feature[node];
+        if (f < 0) {
+            int leaf = slot[node];
+            int d = depth[leaf];
+            int base = tableOffset[leaf] + pattern * d;
+            int offset = pathOffset[leaf];
+            for (int j = 0; j < d; j++) {
+                double s = w * table[base + j];
+                int pj = path[offset + j] * k;
+                for (int c = 0; c < k; c++) {
+                    phi[pj + c] += s * expected[node * k + c];
+                }
+            }
+        } else {
+            int bit = 1 << slot[node];
+            if (fresh[node]) pattern |= bit;
+            if (branch(node, x, i)) {
+                shap(trueChild[node], table, pattern, x, i, w, phi);
+                shap(falseChild[node], table, pattern & ~bit, x, i, w, phi);
+            } else {
+                shap(trueChild[node], table, pattern & ~bit, x, i, w, phi);
+                shap(falseChild[node], table, pattern, x, i, w, phi);
+            }
+        }
+    }
+
+    /** Accumulates the Saabas values of a sample along its decision path. */
+    private void saabas(int node, double[][] x, int i, double w, double[] phi) {
+        int f;
+        while ((f = feature[node]) >= 0) {
+            int next = branch(node, x, i) ? trueChild[node] : falseChild[node];
+            for (int c = 0; c < k; c++) {
+                phi[f * k + c] += w * (expected[next * k + c] - expected[node * k + c]);
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * Computes the path table of a leaf. For each pattern of path, the
+     * table stores the SHAP weight of each path feature, which will be
+     * multiplied by the leaf output.
+     * @param zeros the fraction of zero paths of leaf path features.
+     * @return the size of table.
+     */
+    private int table(double[] zeros, int leaf, double[] table, int offset, double[] z, double[] o, double[] w) {
+        int d = depth[leaf];
+        int from = pathOffset[leaf];
+        for (int pattern = 0; pattern < (1 << d); pattern++) {
+            // The root of path is the dummy feature with z = o = 1.
+            extend(z, o, w, 0, 1, 1);
+            for (int j = 0; j < d; j++) {
+                extend(z, o, w, j + 1, zeros[from + j], (pattern >>> j) & 1);
+            }
+
+            for (int j = 0; j < d; j++) {
+                table[offset++] = unwoundSum(z, o, w, d + 1, j + 1) * (o[j + 1] - z[j + 1]);
+            }
+        }
+        return d << d;
+    }
+
+    /**
+     * Grows all the subsets on the path according to a given fraction
+     * of ones and zeros.
+     * @param l the length of path before extension.
+     */
+    private static void extend(double[] z, double[] o, double[] w, int l, double pz, double po) {
+        z[l] = pz;
+        o[l] = po;
+        w[l] = l == 0 ? 1 : 0;
+
+        for (int i = l-1; i >= 0; i--) {
+            w[i+1] += po * w[i] * (i+1) / (l+1);
+            w[i] = pz * w[i] * (l - i) / (l+1);
+        }
+    }
+
+    /**
+     * Returns the total permutation weight if we unwind a previous
+     * extension in the path.
+     * @param length the length of path.
+     */
+    private static double unwoundSum(double[] z, double[] o, double[] w, int length, int i) {
+        double po = o[i];
+        double pz = z[i];
+        int l = length - 1;
+        double sum = 0.0;
+
+        double n = w[l];
+        if (po != 0) {
+            for (int j = l - 1; j >= 0; j--) {
+                double t = n / ((j+1) * po);
+                sum += t;
+                n = w[j] - t * pz * (l - j);
+            }
+        } else {
+            for (int j = l - 1; j >= 0; j--) {
+                sum += w[j] / (pz * (l - j));
+            }
+        }
+
+        return sum * (l + 1);
+    }
+
+    /** Checks the size of tree weights. */
+    private void checkWeight(double[] weight) {
+        if (weight != null && weight.length != ntrees) {
+            throw new IllegalArgumentException(String.format("Invalid weight vector size: %d, expected: %d", weight.length, ntrees));
+        }
+    }
+
+    /**
+     * Lays out the nodes in depth-first order and collects the unique
+     * features on the path of leaves.
+     */
+    private class Builder {
+        /** The next node offset. */
+        int next = 0;
+        /** The next leaf index. */
+        int leaf = 0;
+        /** The unique features on the current path. */
+        final int[] pathFeature;
+        /** The fraction of zero paths of the unique features on the current path. */
+        final double[] pathZero;
+        /** The unique features on the path of leaves. */
+        final smile.util.IntArrayList paths = new smile.util.IntArrayList();
+        /** The fraction of zero paths of the unique features on the path of leaves. */
+        double[] zeros = new double[64];
+
+        /** Constructor. */
+        Builder(int p) {
+            pathFeature = new int[p];
+            pathZero = new double[p];
+        }
+
+        /**
+         * Adds a subtree.
+         * @param node the root of subtree.
+         * @param d the number of unique features on the path.
+         * @return the offset of node.
+         */
+        int add(Node node, int d) {
+            int i = next++;
+            if (node instanceof InternalNode) {
+                InternalNode split = (InternalNode) node;
+                int f = split.feature;
+                feature[i] = f;
+                if (split instanceof OrdinalNode) {
+                    value[i] = ((OrdinalNode) split).value;
+                } else {
+                    value[i] = ((NominalNode) split).value;
+                    nominal[i] = true;
+                }
+
+                int s = 0;
+                while (s < d && pathFeature[s] != f) s++;
+                slot[i] = s;
+                fresh[i] = s == d;
+                double z = fresh[i] ? 1.0 : pathZero[s];
+                int depth = fresh[i] ? d + 1 : d;
+                pathFeature[s] = f;
+
+                double size = split.size();
+                pathZero[s] = z * split.trueChild.size() / size;
+                trueChild[i] = add(split.trueChild, depth);
+                pathZero[s] = z * split.falseChild.size() / size;
+                falseChild[i] = add(split.falseChild, depth);
+                pathZero[s] = z;
+
+                Node t = split.trueChild;
+                Node e = split.falseChild;
+                for (int c = 0; c < k; c++) {
+                    expected[i * k + c] = (t.size() * expected[trueChild[i] * k + c] + e.size() * expected[falseChild[i] * k + c]) / size;
+                }
+            } else {
+                feature[i] = -1;
+                slot[i] = leaf;
+                if (node instanceof DecisionNode) {
+                    double[] prob = new double[k];
+                    ((DecisionNode) node).posteriori(prob);
+                    System.arraycopy(prob, 0, expected, i * k, k);
+                } else {
+                    expected[i] = ((RegressionNode) node).output();
+                }
+
+                depth[leaf] = d;
+                int from = paths.size();
+                if (zeros.length < from + d) {
+                    zeros = java.util.Arrays.copyOf(zeros, Math.max(from + d, 2 * zeros.length));
+                }
+                for (int j = 0; j < d; j++) {
+                    paths.add(pathFeature[j]);
+                    zeros[from + j] = pathZero[j];
+                }
+                pathOffset[++leaf] = paths.size();
+            }
+            return i;
+        }
+    }
+}
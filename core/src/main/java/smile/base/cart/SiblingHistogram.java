@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.cart;
+
+/**
+ * The histograms shared by the sibling nodes that wait to be split in
+ * histogram-based split finding. It holds the histograms of their parent
+ * until one of the siblings is split. At that time, the histograms of
+ * both siblings are derived from the parent's, and only those of the
+ * other sibling are kept. Therefore, a pair of pending siblings keeps
+ * one set of histograms instead of two.
+ *
+ * @author Haifeng Li
+ */
+class SiblingHistogram {
+    /**
+     * The inclusive lower bound of the parent partition in the reordered
+     * sample index array, which is also that of the true child.
+     */
+    final int lo;
+    /**
+     * The boundary of children partitions in the reordered sample index
+     * array, i.e. the exclusive upper bound of the true child and the
+     * inclusive lower bound of the false child.
+     */
+    final int mid;
+    /**
+     * The exclusive upper bound of the parent partition in the reordered
+     * sample index array, which is also that of the false child.
+     */
+    final int hi;
+    /**
+     * The histograms of parent, or those of the remaining sibling
+     * if derived is true.
+     */
+    double[][] histogram;
+    /** True if the histograms are of the remaining sibling. */
+    boolean derived;
+    /** The number of siblings waiting to be split. */
+    int pending;
+
+    /**
+     * Constructor.
+     * @param lo the inclusive lower bound of the parent partition.
+     * @param mid the boundary of children partitions.
+     * @param hi the exclusive upper bound of the parent partition.
+     * @param histogram the histograms of parent.
+     */
+    SiblingHistogram(int lo, int mid, int hi, double[][] histogram) {
+        this.lo = lo;
+        this.mid = mid;
+        this.hi = hi;
+        this.histogram = histogram;
+    }
+}
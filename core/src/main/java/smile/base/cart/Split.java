@@ -81,6 +81,20 @@ public abstract class Split {
      */
     boolean[] unsplittable;
 
+    /**
+     * The histograms of node in histogram-based split finding,
+     * which are used to derive those of children by subtraction.
+     * It is set only for the root. The other nodes share the
+     * histograms of parent with their sibling.
+     */
+    double[][] histogram;
+
+    /**
+     * The histograms shared with the sibling in histogram-based split
+     * finding, from which those of node are derived when it is split.
+     */
+    SiblingHistogram sibling;
+
     /** The depth of node in the tree. */
     int depth = 1;
 
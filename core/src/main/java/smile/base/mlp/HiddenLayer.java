@@ -17,6 +17,11 @@
 
 package smile.base.mlp;
 
+import smile.math.matrix.Matrix;
+
+import static smile.math.blas.Transpose.NO_TRANSPOSE;
+import static smile.math.blas.Transpose.TRANSPOSE;
+
 /**
  * A hidden layer in the neural network.
  *
@@ -59,4 +64,25 @@ public class HiddenLayer extends Layer {
             weight.tv(outputGradient, lowerLayerGradient);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void backpropagate(Matrix output, Matrix gradient, Matrix lowerLayerGradient) {
+        int m = output.ncols();
+        double[] y = new double[n];
+        double[] g = new double[n];
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < n; i++) {
+                y[i] = output.get(i, j);
+                g[i] = gradient.get(i, j);
+            }
+            f.g(g, y);
+            for (int i = 0; i < n; i++) {
+                gradient.set(i, j, g[i]);
+            }
+        }
+
+        if (lowerLayerGradient != null) {
+            weight.mm(TRANSPOSE, NO_TRANSPOSE, 1.0, gradient, 0.0, lowerLayerGradient);
+        }
+    }
+}
@@ -23,6 +23,9 @@ import java.util.Arrays;
 import smile.math.MathEx;
 import smile.math.matrix.Matrix;
 
+import static smile.math.blas.Transpose.NO_TRANSPOSE;
+import static smile.math.blas.Transpose.TRANSPOSE;
+
 /**
  * A layer in the neural network.
  *
@@ -188,6 +191,33 @@ public abstract class Layer implements Serializable {
         f(output);
     }
 
+    /**
+     * Propagates the signals of a mini-batch from a lower layer to this layer.
+     * @param x the lower layer signals, of which each column is a sample.
+     * @param output the output signals, of which each column is a sample.
+     */
+    public void propagate(Matrix x, Matrix output) {
+        int m = output.ncols();
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < n; i++) {
+                output.set(i, j, bias[i]);
+            }
+        }
+
+        weight.mm(NO_TRANSPOSE, NO_TRANSPOSE, 1.0, x, 1.0, output);
+
+        double[] y = new double[n];
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < n; i++) {
+                y[i] = output.get(i, j);
+            }
+            f(y);
+            for (int i = 0; i < n; i++) {
+                output.set(i, j, y[i]);
+            }
+        }
+    }
+
     /**
      * The activation or output function.
      * @param x the input and output values.
@@ -200,6 +230,47 @@ public abstract class Layer implements Serializable {
      */
     public abstract void backpropagate(double[] lowerLayerGradient);
 
+    /**
+     * Propagates the errors of a mini-batch back to a lower layer.
+     * The default implementation calls {@link #backpropagate(double[])}
+     * on each sample, i.e. each column of matrices, with the workspace
+     * of output signals and gradient of this layer. Subclasses should
+     * override it with matrix operations for better performance.
+     *
+     * @param output the output signals of this layer.
+     * @param gradient the gradient of this layer. On input, it holds W'*g,
+     *                 where W and g are the weight matrix and gradient of
+     *                 upper layer, respectively. On output, it is the
+     *                 gradient of this layer.
+     * @param lowerLayerGradient the gradient of lower layer. It may be
+     *                           null for the first hidden layer.
+     */
+    public void backpropagate(Matrix output, Matrix gradient, Matrix lowerLayerGradient) {
+        double[] y = this.output.get();
+        double[] g = this.outputGradient.get();
+        double[] lower = lowerLayerGradient == null ? null : new double[p];
+
+        int m = output.ncols();
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < n; i++) {
+                y[i] = output.get(i, j);
+                g[i] = gradient.get(i, j);
+            }
+
+            backpropagate(lower);
+
+            for (int i = 0; i < n; i++) {
+                gradient.set(i, j, g[i]);
+            }
+
+            if (lower != null) {
+                for (int i = 0; i < p; i++) {
+                    lowerLayerGradient.set(i, j, lower[i]);
+                }
+            }
+        }
+    }
+
     /**
      * Computes the parameter gradient and update the weights.
      *
@@ -252,6 +323,37 @@ public abstract class Layer implements Serializable {
         }
     }
 
+    /**
+     * Computes the parameter gradient of a mini-batch.
+     *
+     * @param x the input signals, of which each column is a sample.
+     * @param gradient the gradient of this layer.
+     * @param weightGradient the accumulated weight gradient.
+     * @param biasGradient the accumulated bias gradient.
+     */
+    public void computeGradient(Matrix x, Matrix gradient, Matrix weightGradient, double[] biasGradient) {
+        gradient.mm(NO_TRANSPOSE, TRANSPOSE, 1.0, x, 1.0, weightGradient);
+
+        int m = gradient.ncols();
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < n; i++) {
+                biasGradient[i] += gradient.get(i, j);
+            }
+        }
+    }
+
+    /**
+     * Adds the parameter gradient accumulated by other threads,
+     * e.g. in the data-parallel training.
+     *
+     * @param weightGradient the weight gradient.
+     * @param biasGradient the bias gradient.
+     */
+    public void addGradient(Matrix weightGradient, double[] biasGradient) {
+        this.weightGradient.get().add(1.0, weightGradient);
+        MathEx.add(this.biasGradient.get(), biasGradient);
+    }
+
     /**
      * Adjust network weights by back-propagation algorithm.
      *
@@ -328,6 +430,57 @@ public abstract class Layer implements Serializable {
         Arrays.fill(biasGradient, 0.0);
     }
 
+    /**
+     * Adjust network weights with Adam optimizer.
+     *
+     * @param m the size of mini-batch.
+     * @param t the number of updates, starting from 1, for bias correction.
+     * @param learningRate the learning rate.
+     * @param decay weight decay factor
+     * @param beta1 the exponential decay rate for the first moment estimates.
+     * @param beta2 the exponential decay rate for the second moment estimates.
+     * @param epsilon a small constant for numerical stability.
+     */
+    public void update(int m, int t, double learningRate, double decay, double beta1, double beta2, double epsilon) {
+        Matrix weightGradient = this.weightGradient.get();
+        double[] biasGradient = this.biasGradient.get();
+        // The first moment estimates share the momentum buffer
+        // and the second moment estimates share the RMSProp buffer.
+        Matrix weightMoment = this.weightUpdate.get();
+        double[] biasMoment = this.biasUpdate.get();
+        Matrix rmsWeightGradient = this.rmsWeightGradient.get();
+        double[] rmsBiasGradient = this.rmsBiasGradient.get();
+
+        double beta11 = 1.0 - beta1;
+        double beta21 = 1.0 - beta2;
+        double eta = learningRate * Math.sqrt(1.0 - Math.pow(beta2, t)) / (1.0 - Math.pow(beta1, t));
+
+        for (int j = 0; j < p; j++) {
+            for (int i = 0; i < n; i++) {
+                double g = weightGradient.get(i, j) / m;
+                double mij = beta1 * weightMoment.get(i, j) + beta11 * g;
+                double vij = beta2 * rmsWeightGradient.get(i, j) + beta21 * g * g;
+                weightMoment.set(i, j, mij);
+                rmsWeightGradient.set(i, j, vij);
+                weight.add(i, j, eta * mij / (Math.sqrt(vij) + epsilon));
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            double g = biasGradient[i] / m;
+            biasMoment[i] = beta1 * biasMoment[i] + beta11 * g;
+            rmsBiasGradient[i] = beta2 * rmsBiasGradient[i] + beta21 * g * g;
+            bias[i] += eta * biasMoment[i] / (Math.sqrt(rmsBiasGradient[i]) + epsilon);
+        }
+
+        if (decay > 0.9 && decay < 1.0) {
+            weight.mul(decay);
+        }
+
+        weightGradient.fill(0.0);
+        Arrays.fill(biasGradient, 0.0);
+    }
+
     /**
      * Returns a hidden layer with linear activation function.
      * @param n the number of neurons.
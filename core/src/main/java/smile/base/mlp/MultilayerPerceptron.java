@@ -18,11 +18,13 @@
 package smile.base.mlp;
 
 import smile.math.TimeFunction;
+import smile.math.matrix.Matrix;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Fully connected multilayer perceptron neural network.
@@ -35,11 +37,23 @@ import java.util.stream.Collectors;
  * acting as a trainable bias connected to a constant input. The
  * transformation, called activation function, is a bounded non-decreasing
  * (non-linear) function.
+ * <p>
+ * A mini-batch is propagated through the network as a whole so that
+ * the layers are computed by matrix-matrix multiplication. A large
+ * mini-batch is split into shards that are processed in parallel and
+ * their gradients are summed up before the weights are updated. The
+ * weights may be updated by stochastic gradient descent with momentum,
+ * RMSProp, or Adam.
  *
  * @author Haifeng Li
  */
 public abstract class MultilayerPerceptron implements Serializable {
     private static final long serialVersionUID = 2L;
+    /**
+     * The minimum number of samples in a shard of mini-batch
+     * for data-parallel training.
+     */
+    private static final int SHARD_SIZE = 64;
     /**
      * The dimensionality of input data.
      */
@@ -69,9 +83,18 @@ public abstract class MultilayerPerceptron implements Serializable {
      */
     protected double rho = 0.0;
     /**
-     * A small constant for numerical stability in RMSProp.
+     * A small constant for numerical stability in RMSProp and Adam.
      */
     protected double epsilon = 1E-07;
+    /**
+     * The exponential decay rate for the first moment estimates in Adam.
+     */
+    protected double beta1 = 0.0;
+    /**
+     * The exponential decay rate for the second moment estimates in Adam.
+     * Adam is disabled if it is 0.
+     */
+    protected double beta2 = 0.0;
     /**
      * The L2 regularization factor, which is also the weight decay factor.
      */
@@ -168,6 +191,33 @@ public abstract class MultilayerPerceptron implements Serializable {
 
         this.rho = rho;
         this.epsilon = epsilon;
+        this.beta2 = 0.0;
+    }
+
+    /**
+     * Sets Adam parameters. Adam replaces RMSProp and momentum
+     * in the mini-batch training.
+     * @param beta1 The exponential decay rate for the first moment estimates.
+     * @param beta2 The exponential decay rate for the second moment estimates.
+     * @param epsilon A small constant for numerical stability.
+     */
+    public void setAdam(double beta1, double beta2, double epsilon) {
+        if (beta1 < 0.0 || beta1 >= 1.0) {
+            throw new IllegalArgumentException("Invalid beta1 = " + beta1);
+        }
+
+        if (beta2 <= 0.0 || beta2 >= 1.0) {
+            throw new IllegalArgumentException("Invalid beta2 = " + beta2);
+        }
+
+        if (epsilon <= 0.0) {
+            throw new IllegalArgumentException("Invalid epsilon = " + epsilon);
+        }
+
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+        this.rho = 0.0;
     }
 
     /**
@@ -264,6 +314,122 @@ public abstract class MultilayerPerceptron implements Serializable {
         }
     }
 
+    /**
+     * Propagates a mini-batch forward and backward through the network,
+     * and accumulates the parameter gradients. A large mini-batch is
+     * split into shards, which are processed in parallel.
+     *
+     * @param x the mini-batch.
+     * @param target the desired output of samples.
+     */
+    protected void backpropagate(double[][] x, double[][] target) {
+        int m = x.length;
+        if (target.length != m) {
+            throw new IllegalArgumentException(String.format("The sizes of X and Y don't match: %d != %d", m, target.length));
+        }
+
+        int l = net.length;
+        int shards = Math.max(1, Math.min(m / SHARD_SIZE, Runtime.getRuntime().availableProcessors()));
+        if (shards == 1) {
+            Matrix[] weightGradient = new Matrix[l + 1];
+            double[][] biasGradient = new double[l + 1][];
+            for (int i = 0; i < l; i++) {
+                weightGradient[i] = net[i].weightGradient.get();
+                biasGradient[i] = net[i].biasGradient.get();
+            }
+            weightGradient[l] = output.weightGradient.get();
+            biasGradient[l] = output.biasGradient.get();
+
+            backpropagate(x, target, 0, m, weightGradient, biasGradient);
+            return;
+        }
+
+        Matrix[][] weightGradient = new Matrix[shards][l + 1];
+        double[][][] biasGradient = new double[shards][l + 1][];
+        IntStream.range(0, shards).parallel().forEach(shard -> {
+            for (int i = 0; i < l; i++) {
+                weightGradient[shard][i] = new Matrix(net[i].n, net[i].p);
+                biasGradient[shard][i] = new double[net[i].n];
+            }
+            weightGradient[shard][l] = new Matrix(output.n, output.p);
+            biasGradient[shard][l] = new double[output.n];
+
+            int from = (int) ((long) m * shard / shards);
+            int to = (int) ((long) m * (shard + 1) / shards);
+            backpropagate(x, target, from, to, weightGradient[shard], biasGradient[shard]);
+        });
+
+        for (int shard = 0; shard < shards; shard++) {
+            for (int i = 0; i < l; i++) {
+                net[i].addGradient(weightGradient[shard][i], biasGradient[shard][i]);
+            }
+            output.addGradient(weightGradient[shard][l], biasGradient[shard][l]);
+        }
+    }
+
+    /**
+     * Propagates a shard of mini-batch forward and backward through the
+     * network, and accumulates the parameter gradients.
+     *
+     * @param x the mini-batch.
+     * @param target the desired output of samples.
+     * @param from the index of first sample in the shard.
+     * @param to the index after the last sample in the shard.
+     * @param weightGradient the weight gradient of layers.
+     * @param biasGradient the bias gradient of layers.
+     */
+    private void backpropagate(double[][] x, double[][] target, int from, int to, Matrix[] weightGradient, double[][] biasGradient) {
+        int m = to - from;
+        int l = net.length;
+
+        // Each column of matrices is a sample.
+        Matrix input = new Matrix(p, m);
+        Matrix y = new Matrix(output.n, m);
+        for (int j = 0; j < m; j++) {
+            double[] xj = x[from + j];
+            for (int i = 0; i < p; i++) {
+                input.set(i, j, xj[i]);
+            }
+
+            double[] tj = target[from + j];
+            for (int i = 0; i < output.n; i++) {
+                y.set(i, j, tj[i]);
+            }
+        }
+
+        Matrix[] signal = new Matrix[l + 1];
+        Matrix[] gradient = new Matrix[l + 1];
+        for (int i = 0; i < l; i++) {
+            signal[i] = new Matrix(net[i].n, m);
+            gradient[i] = new Matrix(net[i].n, m);
+        }
+        signal[l] = new Matrix(output.n, m);
+        gradient[l] = new Matrix(output.n, m);
+
+        Matrix lower = input;
+        for (int i = 0; i < l; i++) {
+            net[i].propagate(lower, signal[i]);
+            lower = signal[i];
+        }
+        output.propagate(lower, signal[l]);
+
+        output.computeOutputGradient(y, signal[l], gradient[l]);
+        Layer upper = output;
+        for (int i = l - 1; i >= 0; i--) {
+            upper.backpropagate(signal[i + 1], gradient[i + 1], gradient[i]);
+            upper = net[i];
+        }
+        // first hidden layer
+        upper.backpropagate(signal[0], gradient[0], null);
+
+        lower = input;
+        for (int i = 0; i < l; i++) {
+            net[i].computeGradient(lower, gradient[i], weightGradient[i], biasGradient[i]);
+            lower = signal[i];
+        }
+        output.computeGradient(lower, gradient[l], weightGradient[l], biasGradient[l]);
+    }
+
     /**
      * Updates the weights for mini-batch training.
      *
@@ -285,6 +451,15 @@ public abstract class MultilayerPerceptron implements Serializable {
             throw new IllegalStateException(String.format("Invalid learning rate (eta = %.2f) and/or decay (lambda = %.2f)", eta, lambda));
         }
 
+        if (beta2 > 0.0) {
+            for (Layer layer : net) {
+                layer.update(m, t + 1, eta, decay, beta1, beta2, epsilon);
+            }
+
+            output.update(m, t + 1, eta, decay, beta1, beta2, epsilon);
+            return;
+        }
+
         for (Layer layer : net) {
             layer.update(m, eta, alpha, decay, rho, epsilon);
         }
@@ -17,6 +17,11 @@
 
 package smile.base.mlp;
 
+import smile.math.matrix.Matrix;
+
+import static smile.math.blas.Transpose.NO_TRANSPOSE;
+import static smile.math.blas.Transpose.TRANSPOSE;
+
 /**
  * The output layer in the neural network.
  *
@@ -80,6 +85,11 @@ public class OutputLayer extends Layer {
         weight.tv(outputGradient.get(), lowerLayerGradient);
     }
 
+    @Override
+    public void backpropagate(Matrix output, Matrix gradient, Matrix lowerLayerGradient) {
+        weight.mm(TRANSPOSE, NO_TRANSPOSE, 1.0, gradient, 0.0, lowerLayerGradient);
+    }
+
     /**
      * Compute the network output gradient.
      * @param target the desired output.
@@ -106,4 +116,30 @@ public class OutputLayer extends Layer {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Compute the network output gradient of a mini-batch.
+     * @param target the desired output, of which each column is a sample.
+     * @param output the network output, of which each column is a sample.
+     * @param gradient the output gradient.
+     */
+    public void computeOutputGradient(Matrix target, Matrix output, Matrix gradient) {
+        if (target.nrows() != n) {
+            throw new IllegalArgumentException(String.format("Invalid target vector size: %d, expected: %d", target.nrows(), n));
+        }
+
+        int m = output.ncols();
+        double[] y = new double[n];
+        double[] g = new double[n];
+        for (int j = 0; j < m; j++) {
+            for (int i = 0; i < n; i++) {
+                y[i] = output.get(i, j);
+                g[i] = target.get(i, j) - y[i];
+            }
+            f.g(cost, g, y);
+            for (int i = 0; i < n; i++) {
+                gradient.set(i, j, g[i]);
+            }
+        }
+    }
+}
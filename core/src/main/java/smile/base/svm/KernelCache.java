@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.svm;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The least recently used (LRU) cache of kernel matrix rows with
+ * a memory budget. The rows are indexed by the training samples.
+ * The entries of a row are evaluated lazily and NaN denotes
+ * a missing entry. When the cache is full, the row of least recently
+ * used sample is evicted and its storage is reused. At least two rows
+ * are always kept so that the rows of the working set of SMO are
+ * available at the same time.
+ * <p>
+ * By default, all live caches share one memory budget of 1024 MB,
+ * which can be changed by the system property
+ * <code>smile.svm.cache.size</code> in MB. Therefore, the memory
+ * footprint is bounded even if several SVMs are trained concurrently,
+ * e.g. the binary classifiers of one-vs-one strategy. A cache
+ * releases its rows back to the budget by {@link #clear()}.
+ *
+ * @author Haifeng Li
+ */
+class KernelCache {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(KernelCache.class);
+
+    /** The memory budget in bytes shared by the caches of default constructor. */
+    private static final long BUDGET = Long.parseLong(System.getProperty("smile.svm.cache.size", "1024")) * 1024 * 1024;
+    /** The bytes allocated from the shared budget. */
+    private static final AtomicLong allocated = new AtomicLong();
+
+    /** The length of rows. */
+    private final int n;
+    /** The maximum number of cached rows. */
+    private final int capacity;
+    /** The memory budget in bytes. */
+    private final long budget;
+    /** The bytes allocated from the budget, which may be shared with other caches. */
+    private final AtomicLong pool;
+    /** The cached rows in access order. */
+    private final LinkedHashMap<Integer, double[]> rows;
+    /** The number of cache hits. */
+    private long hits;
+    /** The number of cache misses. */
+    private long misses;
+
+    /**
+     * Constructor with the memory budget shared by all live caches.
+     * @param n the length of rows, i.e. the number of training samples.
+     */
+    public KernelCache(int n) {
+        this(n, BUDGET, allocated);
+    }
+
+    /**
+     * Constructor with a private memory budget.
+     * @param n the length of rows, i.e. the number of training samples.
+     * @param bytes the memory budget in bytes.
+     */
+    public KernelCache(int n, long bytes) {
+        this(n, bytes, new AtomicLong());
+    }
+
+    /**
+     * Constructor.
+     * @param n the length of rows, i.e. the number of training samples.
+     * @param bytes the memory budget in bytes.
+     * @param pool the bytes allocated from the budget.
+     */
+    private KernelCache(int n, long bytes, AtomicLong pool) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Invalid kernel cache size: " + bytes);
+        }
+
+        this.n = n;
+        this.budget = bytes;
+        this.pool = pool;
+        this.capacity = (int) Math.max(2, Math.min(n, bytes / rowBytes()));
+        this.rows = new LinkedHashMap<>(16, 0.75f, true);
+        logger.debug("Kernel cache of at most {} rows", capacity);
+    }
+
+    /** Returns the size of a row in bytes. */
+    private long rowBytes() {
+        return Double.BYTES * (long) n;
+    }
+
+    /**
+     * Allocates a row from the budget.
+     * @return false if the budget is exhausted.
+     */
+    private boolean allocate() {
+        long bytes = rowBytes();
+        // Always allow two rows, which are required by SMO.
+        if (rows.size() < 2) {
+            pool.addAndGet(bytes);
+            return true;
+        }
+
+        long used = pool.get();
+        while (used + bytes <= budget) {
+            if (pool.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+            used = pool.get();
+        }
+        return false;
+    }
+
+    /** Returns the maximum number of cached rows. */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** Returns the number of cached rows. */
+    public int size() {
+        return rows.size();
+    }
+
+    /** Returns the bytes allocated from the (possibly shared) budget. */
+    public long allocated() {
+        return pool.get();
+    }
+
+    /** Returns the ratio of cache hits. */
+    public double hitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Returns the cached row of a sample, or null if it is not cached.
+     * @param i the index of sample.
+     */
+    public double[] get(int i) {
+        double[] row = rows.get(i);
+        if (row != null) hits++; else misses++;
+        return row;
+    }
+
+    /**
+     * Returns the row of a sample. If the row is not cached, a row
+     * of missing values is allocated, which may evict the least
+     * recently used row.
+     * @param i the index of sample.
+     */
+    public double[] row(int i) {
+        double[] row = get(i);
+        if (row == null) {
+            if (rows.size() < capacity && allocate()) {
+                row = new double[n];
+            } else {
+                Iterator<Map.Entry<Integer, double[]>> iter = rows.entrySet().iterator();
+                row = iter.next().getValue();
+                iter.remove();
+            }
+
+            Arrays.fill(row, Double.NaN);
+            rows.put(i, row);
+        }
+        return row;
+    }
+
+    /**
+     * Removes the row of a sample, e.g. when it is no longer
+     * a support vector.
+     * @param i the index of sample.
+     */
+    public void remove(int i) {
+        if (rows.remove(i) != null) {
+            pool.addAndGet(-rowBytes());
+        }
+    }
+
+    /** Removes all the rows and releases their memory to the budget. */
+    public void clear() {
+        pool.addAndGet(-rowBytes() * rows.size());
+        rows.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("KernelCache(%d/%d rows, hit ratio = %.2f%%)", rows.size(), capacity, 100 * hitRatio());
+    }
+}
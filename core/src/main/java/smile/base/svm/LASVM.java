@@ -18,7 +18,6 @@
 package smile.base.svm;
 
 import java.io.Serializable;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import smile.math.MathEx;
@@ -32,6 +31,12 @@ import smile.math.kernel.MercerKernel;
  * choose which example should be considered next.
  * LASVM requires considerably less memory than a regular SVM solver.
  * This becomes a considerable speed advantage for large training sets.
+ * <p>
+ * The kernel matrix rows of support vectors are kept in a least recently
+ * used cache with a memory budget, which is shared by concurrent trainings
+ * and can be set by the system property <code>smile.svm.cache.size</code>
+ * in MB. The kernel rows are evaluated in parallel. The rows of the
+ * support vectors removed from the kernel expansion are released right away.
  *
  * @author Haifeng Li
  */
@@ -90,9 +95,9 @@ public class LASVM<T> implements Serializable {
      */
     private T[] x;
     /**
-     * The kernel matrix.
+     * The cache of kernel matrix rows.
      */
-    private double[][] K;
+    private transient KernelCache cache;
 
     /**
      * Constructor.
@@ -133,29 +138,36 @@ public class LASVM<T> implements Serializable {
      */
     public KernelMachine<T>  fit(T[] x, int[] y, int epoch) {
         this.x = x;
-        this.K = new double[x.length][];
+        this.cache = new KernelCache(x.length);
 
-        // pick initial support vectors.
-        init(x, y);
+        try {
+            // pick initial support vectors.
+            init(x, y);
 
-        // stochastic training
-        int phase = Math.min(x.length, 1000);
-        for (int e = 0, iter = 0; e < epoch; e++) {
-            for (int i : MathEx.permutate(x.length)) {
-                process(i, x[i], y[i]);
+            // stochastic training
+            int phase = Math.min(x.length, 1000);
+            for (int e = 0, iter = 0; e < epoch; e++) {
+                for (int i : MathEx.permutate(x.length)) {
+                    process(i, x[i], y[i]);
 
-                do {
-                    reprocess(tol); // at least one call to reprocess
-                    minmax();
-                } while (gmax - gmin > 1000);
+                    do {
+                        reprocess(tol); // at least one call to reprocess
+                        minmax();
+                    } while (gmax - gmin > 1000);
 
-                if (++iter % phase == 0) {
-                    logger.info("{} iterations, {} support vectors", iter, sv.size());
+                    if (++iter % phase == 0) {
+                        logger.info("{} iterations, {} support vectors", iter, sv.size());
+                    }
                 }
             }
-        }
 
-        finish();
+            finish();
+            logger.info("{}", cache);
+        } finally {
+            // Release the rows to the shared memory budget.
+            cache.clear();
+            cache = null;
+        }
 
         int n = sv.size();
         @SuppressWarnings("unchecked")
@@ -218,17 +230,50 @@ public class LASVM<T> implements Serializable {
      * @param j the index of support vector.
      */
     private double k(int i, int j) {
-        double k = Double.NaN;
-        double[] ki = K[i];
-        if (ki != null) {
-            k = ki[j];
+        double[] ki = cache.get(i);
+        if (ki != null && !Double.isNaN(ki[j])) {
+            return ki[j];
         }
 
-        if (Double.isNaN(k)) {
-            k = kernel.k(x[i], x[j]);
-            if (ki != null) ki[j] = k;
+        double[] kj = cache.get(j);
+        if (kj != null && !Double.isNaN(kj[i])) {
+            return kj[i];
+        }
+
+        double k = kernel.k(x[i], x[j]);
+        if (ki != null) ki[j] = k;
+        return k;
+    }
+
+    /**
+     * Returns the kernel matrix row of a support vector. If the row
+     * is not cached, the entries of all support vectors are evaluated
+     * in parallel. Otherwise, the missing entries (NaN) of new support
+     * vectors are evaluated lazily by k(row, v, u).
+     * @param v the support vector.
+     */
+    private double[] row(SupportVector<T> v) {
+        double[] ki = cache.get(v.i);
+        if (ki == null) {
+            double[] row = cache.row(v.i);
+            sv.stream().parallel().forEach(u -> row[u.i] = kernel.k(v.x, u.x));
+            return row;
         }
+        return ki;
+    }
 
+    /**
+     * Returns the kernel value from the kernel matrix row of a support vector.
+     * @param row the kernel matrix row of v.
+     * @param v the support vector.
+     * @param u the other support vector.
+     */
+    private double k(double[] row, SupportVector<T> v, SupportVector<T> u) {
+        double k = row[u.i];
+        if (Double.isNaN(k)) {
+            k = kernel.k(v.x, u.x);
+            row[u.i] = k;
+        }
         return k;
     }
 
@@ -259,9 +304,10 @@ public class LASVM<T> implements Serializable {
             double km = v1.k;
             double gm = v1.g;
             double best = 0.0;
+            double[] k1 = row(v1);
             for (SupportVector<T> v : sv) {
                 double Z = v.g - gm;
-                double k = k(v1.i, v.i);
+                double k = k(k1, v1, v);
                 double curv = km + v.k - 2.0 * k;
                 if (curv <= 0.0) curv = TAU;
                 double mu = Z / curv;
@@ -281,9 +327,10 @@ public class LASVM<T> implements Serializable {
             double km = v2.k;
             double gm = v2.g;
             double best = 0.0;
+            double[] k2 = row(v2);
             for (SupportVector<T> v : sv) {
                 double Z = gm - v.g;
-                double k = k(v2.i, v.i);
+                double k = k(k2, v2, v);
                 double curv = km + v.k - 2.0 * k;
                 if (curv <= 0.0) curv = TAU;
 
@@ -304,7 +351,7 @@ public class LASVM<T> implements Serializable {
         }
 
         if (Double.isNaN(k12)) {
-            k12 = kernel.k(v1.x, v2.x);
+            k12 = k(v1.i, v2.i);
         }
 
         // Determine curvature
@@ -337,8 +384,10 @@ public class LASVM<T> implements Serializable {
         // Perform update
         v1.alpha -= step;
         v2.alpha += step;
-        for (SupportVector v : sv) {
-            v.g -= step * (k(v2.i, v.i) - k(v1.i, v.i));
+        double[] k1 = row(v1);
+        double[] k2 = row(v2);
+        for (SupportVector<T> v : sv) {
+            v.g -= step * (k(k2, v2, v) - k(k1, v1, v));
         }
 
         // optimality test
@@ -365,11 +414,10 @@ public class LASVM<T> implements Serializable {
         // Compute gradient
         double g = y;
 
-        double[] cache = new double[K.length];
-        Arrays.fill(cache, Double.NaN);
+        double[] ki = cache.row(i);
         g -= sv.stream().parallel().mapToDouble(v -> {
             double k = kernel.k(v.x, x);
-            cache[v.i] = k;
+            ki[v.i] = k;
             return v.alpha * k;
         }).sum();
 
@@ -377,14 +425,16 @@ public class LASVM<T> implements Serializable {
         minmax();
         if (gmin < gmax) {
             if ((y > 0 && g < gmin) || (y < 0 && g > gmax)) {
+                cache.remove(i);
                 return false;
             }
         }
 
         // Insert
-        SupportVector<T> v = new SupportVector<>(i, x, y, 0.0, g, Cp, Cn, kernel.k(x, x));
+        double kii = kernel.k(x, x);
+        ki[i] = kii;
+        SupportVector<T> v = new SupportVector<>(i, x, y, 0.0, g, Cp, Cn, kii);
         sv.addFirst(v);
-        K[i] = cache;
 
         // Process
         if (y > 0) {
@@ -456,7 +506,7 @@ public class LASVM<T> implements Serializable {
             SupportVector v = iter.next();
             if (v.alpha == 0) {
                 if ((v.g >= gmax && 0 >= v.cmax) || (v.g <= gmin && 0 <= v.cmin)) {
-                    K[v.i] = null;
+                    cache.remove(v.i);
                     iter.remove();
                 }
             }
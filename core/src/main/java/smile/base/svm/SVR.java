@@ -28,6 +28,15 @@ import smile.regression.KernelMachine;
  * by SVR depends only on a subset of the training data, because the cost
  * function ignores any training data close to the model prediction (within
  * a threshold &epsilon;).
+ * <p>
+ * The kernel matrix rows are kept in a least recently used cache with
+ * a memory budget, which is shared by concurrent trainings and can be
+ * set by the system property <code>smile.svm.cache.size</code> in MB. The kernel rows are evaluated
+ * in parallel. The samples that are bounded and unlikely to violate
+ * the optimality condition are periodically shrunk from the working set.
+ * When the working set converges, the gradients of shrunk samples are
+ * reconstructed and the optimization continues on all samples until
+ * the optimality condition holds for all of them.
  *
  * <h2>References</h2>
  * <ol>
@@ -67,10 +76,18 @@ public class SVR<T> {
      * The tolerance of convergence test.
      */
     private double tol = 1E-3;
+    /**
+     * If true, shrink the working set periodically.
+     */
+    private boolean shrinking = true;
     /**
      * Support vectors.
      */
     private List<SupportVector> sv;
+    /**
+     * The active support vectors that are not shrunk.
+     */
+    private List<SupportVector> active;
     /**
      * Threshold of decision function.
      */
@@ -90,9 +107,9 @@ public class SVR<T> {
     private int gmaxindex;
 
     /**
-     * The kernel matrix.
+     * The cache of kernel matrix rows.
      */
-    private double[][] K;
+    private KernelCache cache;
 
     /**
      * Support vector.
@@ -106,6 +123,10 @@ public class SVR<T> {
          * Support vector.
          */
         final T x;
+        /**
+         * The response variable.
+         */
+        final double y;
         /**
          * Lagrangian multipliers of support vector.
          */
@@ -122,6 +143,7 @@ public class SVR<T> {
         SupportVector(int i, T x, double y) {
             this.i = i;
             this.x = x;
+            this.y = y;
             g[0] = eps + y;
             g[1] = eps - y;
             k = kernel.k(x, x);
@@ -131,8 +153,25 @@ public class SVR<T> {
     /**
      * Constructor.
      * @param kernel the kernel function.
+     * @param eps the loss function error threshold.
+     * @param C the soft margin penalty parameter.
+     * @param tol the tolerance of convergence test.
      */
     public SVR(MercerKernel<T> kernel, double eps, double C, double tol) {
+        this(kernel, eps, C, tol, true);
+    }
+
+    /**
+     * Constructor.
+     * @param kernel the kernel function.
+     * @param eps the loss function error threshold.
+     * @param C the soft margin penalty parameter.
+     * @param tol the tolerance of convergence test.
+     * @param shrinking if true, the samples that are unlikely to violate
+     *                  the optimality condition are periodically shrunk
+     *                  from the working set.
+     */
+    public SVR(MercerKernel<T> kernel, double eps, double C, double tol, boolean shrinking) {
         if (eps <= 0) {
             throw new IllegalArgumentException("Invalid error threshold: " + eps);
         }
@@ -149,6 +188,7 @@ public class SVR<T> {
         this.eps = eps;
         this.C = C;
         this.tol = tol;
+        this.shrinking = shrinking;
     }
 
     /**
@@ -162,20 +202,39 @@ public class SVR<T> {
         }
 
         int n = x.length;
-        K = new double[n][];
+        cache = new KernelCache(n);
 
-        // Initialize support vectors.
-        sv = new ArrayList<>(n);
-        for (int i = 0; i < n; i++) {
-            sv.add(new SupportVector(i, x[i], y[i]));
-        }
+        try {
+            // Initialize support vectors.
+            sv = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                sv.add(new SupportVector(i, x[i], y[i]));
+            }
+            active = new ArrayList<>(sv);
 
-        minmax();
-        int phase = Math.min(n, 1000);
-        for (int count = 1; smo(tol); count++) {
-            if (count % phase == 0) {
-                logger.info("{} SMO iterations", count);
+            minmax();
+            int phase = Math.min(n, 1000);
+            for (int count = 1; ; count++) {
+                if (!smo(tol)) {
+                    if (active.size() == n) break;
+
+                    // Check the optimality on all samples.
+                    unshrink();
+                    if (gmax - gmin <= tol) break;
+                }
+
+                if (count % phase == 0) {
+                    logger.info("{} SMO iterations, {} active samples", count, active.size());
+                    if (shrinking) shrink();
+                }
             }
+
+            logger.info("{}", cache);
+        } finally {
+            // Release the rows to the shared memory budget.
+            cache.clear();
+            cache = null;
+            active = null;
         }
 
         int nsv = 0;
@@ -217,7 +276,7 @@ public class SVR<T> {
         gmin = Double.MAX_VALUE;
         gmax = -Double.MAX_VALUE;
 
-        for (SupportVector v : sv) {
+        for (SupportVector v : active) {
             double g = -v.g[0];
             double a = v.alpha[0];
             if (g < gmin && a > 0.0) {
@@ -246,17 +305,82 @@ public class SVR<T> {
         }
     }
 
+    /**
+     * Removes the samples from the working set, which are bounded
+     * and won't be selected into the working set by the current
+     * gradients.
+     */
+    private void shrink() {
+        active.removeIf(v ->
+                isShrinkable(-v.g[0], v.alpha[0] < C, v.alpha[0] > 0.0) &&
+                isShrinkable(v.g[1], v.alpha[1] > 0.0, v.alpha[1] < C));
+    }
+
+    /**
+     * Returns true if a variable can be shrunk.
+     * @param g the gradient of variable.
+     * @param up true if the variable may be the candidate of gmax.
+     * @param down true if the variable may be the candidate of gmin.
+     */
+    private boolean isShrinkable(double g, boolean up, boolean down) {
+        if (up && down) return false;
+        if (up) return g < gmin;
+        if (down) return g > gmax;
+        return true;
+    }
+
+    /**
+     * Reconstructs the gradients of shrunk samples and
+     * restores all samples into the working set.
+     */
+    private void unshrink() {
+        List<SupportVector> svs = new ArrayList<>();
+        for (SupportVector v : sv) {
+            if (v.alpha[1] != v.alpha[0]) {
+                svs.add(v);
+            }
+        }
+
+        int shrunk = sv.size() - active.size();
+        boolean[] flag = new boolean[sv.size()];
+        for (SupportVector v : active) {
+            flag[v.i] = true;
+        }
+
+        sv.stream().parallel().filter(v -> !flag[v.i]).forEach(v -> {
+            double f = 0.0;
+            for (SupportVector u : svs) {
+                f += (u.alpha[1] - u.alpha[0]) * kernel.k(u.x, v.x);
+            }
+            v.g[0] = eps + v.y - f;
+            v.g[1] = eps - v.y + f;
+        });
+
+        active = new ArrayList<>(sv);
+        minmax();
+        b = -(gmax + gmin) / 2;
+        logger.info("Reconstruct the gradients of {} shrunk samples", shrunk);
+    }
+
     /**
      * Calculate the row of kernel matrix for a vector i.
+     * The entries of active samples are available.
      * @param v data vector to evaluate kernel matrix.
      */
     private double[] gram(SupportVector v) {
-        if (K[v.i] == null) {
-            double[] ki = new double[sv.size()];
-            sv.stream().parallel().forEach(vi -> ki[vi.i] = kernel.k(v.x, vi.x));
-            K[v.i] = ki;
+        double[] ki = cache.get(v.i);
+        if (ki == null) {
+            double[] row = cache.row(v.i);
+            active.stream().parallel().forEach(vi -> row[vi.i] = kernel.k(v.x, vi.x));
+            return row;
+        }
+
+        for (SupportVector vi : active) {
+            if (Double.isNaN(ki[vi.i])) {
+                ki[vi.i] = kernel.k(v.x, vi.x);
+            }
         }
-        return K[v.i];
+        return ki;
     }
 
     /**
@@ -276,7 +400,7 @@ public class SVR<T> {
         // Second order working set selection.
         double best = 0.0;
         double gi = i == 0 ? -v1.g[0] : v1.g[1];
-        for (SupportVector v : sv) {
+        for (SupportVector v : active) {
             double curv = v1.k + v.k - 2 * k1[v.i];
             if (curv <= 0.0) curv = TAU;
 
@@ -379,7 +503,7 @@ public class SVR<T> {
 
         int si = 2 * i - 1;
         int sj = 2 * j - 1;
-        for (SupportVector v : sv) {
+        for (SupportVector v : active) {
             v.g[0] -= si * k1[v.i] * delta_alpha_i + sj * k2[v.i] * delta_alpha_j;
             v.g[1] += si * k1[v.i] * delta_alpha_i + sj * k2[v.i] * delta_alpha_j;
         }
@@ -239,6 +239,73 @@ public class DecisionTree extends CART implements SoftClassifier<Tuple>, DataFra
         return Optional.ofNullable(split);
     }
 
+    @Override
+    protected double[] histogram(int j, int lo, int hi) {
+        // The class counts of samples in each bin.
+        double[] histogram = new double[bins.size(j) * k];
+        for (int i = lo; i < hi; i++) {
+            int o = index[i];
+            histogram[bins.bin(o, j) * k + y[o]] += samples[o];
+        }
+        return histogram;
+    }
+
+    @Override
+    protected Optional<Split> findBestSplit(LeafNode leaf, int j, double impurity, int lo, int hi, double[] histogram) {
+        DecisionNode node = (DecisionNode) leaf;
+        int[] trueCount = new int[k];
+        int[] falseCount = new int[k];
+
+        int splitBin = -1;
+        double splitScore = 0.0;
+        int splitTrueCount = 0;
+        int splitFalseCount = 0;
+
+        int tc = 0;
+        int m = bins.size(j) - 1;
+        for (int b = 0; b < m; b++) {
+            int count = 0;
+            for (int l = 0, offset = b * k; l < k; l++) {
+                int c = (int) histogram[offset + l];
+                trueCount[l] += c;
+                count += c;
+            }
+
+            // empty bin has the same split as the previous one.
+            if (count == 0) continue;
+
+            tc += count;
+            int fc = node.size() - tc;
+
+            // If either side is too small, skip this value.
+            if (tc < nodeSize || fc < nodeSize) {
+                continue;
+            }
+
+            for (int l = 0; l < k; l++) {
+                falseCount[l] = node.count()[l] - trueCount[l];
+            }
+
+            double gain = impurity - (double) tc / node.size() * DecisionNode.impurity(rule, tc, trueCount) - (double) fc / node.size() * DecisionNode.impurity(rule, fc, falseCount);
+
+            // new best split
+            if (gain > splitScore) {
+                splitBin = b;
+                splitTrueCount = tc;
+                splitFalseCount = fc;
+                splitScore = gain;
+            }
+        }
+
+        Split split = null;
+        if (splitScore > 0.0) {
+            final int bin = splitBin;
+            split = new OrdinalSplit(leaf, j, bins.cut(j, bin), splitScore, lo, hi, splitTrueCount, splitFalseCount, (int o) -> bins.bin(o, j) <= bin);
+        }
+
+        return Optional.ofNullable(split);
+    }
+
     /**
      * Constructor. Learns a classification tree for AdaBoost and Random Forest.
      * @param x the data frame of the explanatory variable.
@@ -258,7 +325,32 @@ public class DecisionTree extends CART implements SoftClassifier<Tuple>, DataFra
      *              that only numeric attributes need be sorted.
      */
     public DecisionTree(DataFrame x, int[] y, StructField response, int k, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order) {
-        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order);
+        this(x, y, response, k, rule, maxDepth, maxNodes, nodeSize, mtry, samples, order, null);
+    }
+
+    /**
+     * Constructor. Learns a classification tree for AdaBoost and Random Forest.
+     * @param x the data frame of the explanatory variable.
+     * @param y the response variables.
+     * @param response the metadata of response variable.
+     * @param k the number of classes.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param rule the splitting rule.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted.
+     * @param bins the quantized training data for histogram-based split
+     *             finding. If not null, order is needed only for the
+     *             columns of which the histograms are not available.
+     */
+    public DecisionTree(DataFrame x, int[] y, StructField response, int k, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, Bins bins) {
+        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order, bins);
         this.k = k;
         this.y = y;
         this.rule = rule;
@@ -309,6 +401,7 @@ public class DecisionTree extends CART implements SoftClassifier<Tuple>, DataFra
      * <li><code>smile.cart.split.rule</code>
      * <li><code>smile.cart.node.size</code>
      * <li><code>smile.cart.max.nodes</code>
+     * <li><code>smile.cart.max.bins</code>
      * </ul>
      * @param formula a symbolic description of the model to be fitted.
      * @param data the data frame of the explanatory and response variables.
@@ -319,7 +412,8 @@ public class DecisionTree extends CART implements SoftClassifier<Tuple>, DataFra
         int maxDepth = Integer.valueOf(prop.getProperty("smile.cart.max.depth", "20"));
         int maxNodes = Integer.valueOf(prop.getProperty("smile.cart.max.nodes", String.valueOf(data.size() / 5)));
         int nodeSize = Integer.valueOf(prop.getProperty("smile.cart.node.size", "5"));
-        return fit(formula, data, rule, maxDepth, maxNodes, nodeSize);
+        int maxBins = Integer.valueOf(prop.getProperty("smile.cart.max.bins", "0"));
+        return fit(formula, data, rule, maxDepth, maxNodes, nodeSize, maxBins);
     }
 
     /**
@@ -332,12 +426,29 @@ public class DecisionTree extends CART implements SoftClassifier<Tuple>, DataFra
      * @param nodeSize the minimum size of leaf nodes.
      */
     public static DecisionTree fit(Formula formula, DataFrame data, SplitRule rule, int maxDepth, int maxNodes, int nodeSize) {
+        return fit(formula, data, rule, maxDepth, maxNodes, nodeSize, 0);
+    }
+
+    /**
+     * Learns a classification tree.
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param rule the splitting rule.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param maxBins the maximum number of bins of numeric variables in
+     *                histogram-based split finding, at most 256. If 0,
+     *                the exact split finding on pre-sorted values is used.
+     */
+    public static DecisionTree fit(Formula formula, DataFrame data, SplitRule rule, int maxDepth, int maxNodes, int nodeSize, int maxBins) {
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
         BaseVector y = formula.y(data);
         ClassLabels codec = ClassLabels.fit(y);
 
-        DecisionTree tree = new DecisionTree(x, codec.y, y.field(), codec.k, rule, maxDepth, maxNodes, nodeSize, -1, null, null);
+        Bins bins = maxBins > 0 ? Bins.of(x, maxBins) : null;
+        DecisionTree tree = new DecisionTree(x, codec.y, y.field(), codec.k, rule, maxDepth, maxNodes, nodeSize, -1, null, null, bins);
         tree.formula = formula;
         tree.labels = codec.labels;
         return tree;
@@ -19,6 +19,7 @@ package smile.classification;
 
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 
 import smile.base.cart.*;
@@ -128,6 +129,11 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
      * Forest of regression trees for multi-class classification.
      */
     private RegressionTree[][] forest;
+    /**
+     * The trees compiled into flat arrays for batch inference,
+     * one for each class in case of multi-class classification.
+     */
+    private transient FlatForest[] compiled;
     /**
      * Variable importance. Every time a split of a node is made on variable
      * the impurity criterion for the two descendent nodes is less than the
@@ -230,7 +236,9 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
         int nodeSize = Integer.valueOf(prop.getProperty("smile.gbt.node.size", "5"));
         double shrinkage = Double.valueOf(prop.getProperty("smile.gbt.shrinkage", "0.05"));
         double subsample = Double.valueOf(prop.getProperty("smile.gbt.sample.rate", "0.7"));
-        return fit(formula, data, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample);
+        int maxBins = Integer.valueOf(prop.getProperty("smile.gbt.max.bins", "0"));
+        int threads = Integer.valueOf(prop.getProperty("smile.gbt.threads", "0"));
+        return fit(formula, data, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, maxBins, threads);
     }
 
     /**
@@ -248,6 +256,54 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
      */
     public static GradientTreeBoost fit(Formula formula, DataFrame data, int ntrees, int maxDepth,
                                         int maxNodes, int nodeSize, double shrinkage, double subsample) {
+        return fit(formula, data, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, 0);
+    }
+
+    /**
+     * Fits a gradient tree boosting for classification.
+     *
+     * @param formula   a symbolic description of the model to be fitted.
+     * @param data      the data frame of the explanatory and response variables.
+     * @param ntrees    the number of iterations (trees).
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize  the number of instances in a node below which the tree will
+     *                  not split, setting nodeSize = 5 generally gives good results.
+     * @param shrinkage the shrinkage parameter in (0, 1] controls the learning rate of procedure.
+     * @param subsample the sampling fraction for stochastic tree boosting.
+     * @param maxBins   the maximum number of bins of numeric variables in
+     *                  histogram-based split finding, at most 256. If 0,
+     *                  the exact split finding on pre-sorted values is used.
+     */
+    public static GradientTreeBoost fit(Formula formula, DataFrame data, int ntrees, int maxDepth,
+                                        int maxNodes, int nodeSize, double shrinkage, double subsample, int maxBins) {
+        return fit(formula, data, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, maxBins, 0);
+    }
+
+    /**
+     * Fits a gradient tree boosting for classification. Although the
+     * boosting iterations are sequential, each tree is grown in parallel
+     * by searching the splits of features and sibling nodes concurrently.
+     * In case of multi-class classification, the trees of all classes
+     * in an iteration are also trained concurrently.
+     *
+     * @param formula   a symbolic description of the model to be fitted.
+     * @param data      the data frame of the explanatory and response variables.
+     * @param ntrees    the number of iterations (trees).
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize  the number of instances in a node below which the tree will
+     *                  not split, setting nodeSize = 5 generally gives good results.
+     * @param shrinkage the shrinkage parameter in (0, 1] controls the learning rate of procedure.
+     * @param subsample the sampling fraction for stochastic tree boosting.
+     * @param maxBins   the maximum number of bins of numeric variables in
+     *                  histogram-based split finding, at most 256. If 0,
+     *                  the exact split finding on pre-sorted values is used.
+     * @param threads   the number of threads to train the trees. If 0,
+     *                  the common fork/join pool is used.
+     */
+    public static GradientTreeBoost fit(Formula formula, DataFrame data, int ntrees, int maxDepth,
+                                        int maxNodes, int nodeSize, double shrinkage, double subsample, int maxBins, int threads) {
         if (ntrees < 1) {
             throw new IllegalArgumentException("Invalid number of trees: " + ntrees);
         }
@@ -260,17 +316,29 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
             throw new IllegalArgumentException("Invalid sampling fraction: " + subsample);
         }
 
+        if (threads < 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
         BaseVector y = formula.y(data);
 
-        int[][] order = CART.order(x);
+        Bins bins = maxBins > 0 ? Bins.of(x, maxBins) : null;
+        int[][] order = bins == null ? CART.order(x) : null;
         ClassLabels codec = ClassLabels.fit(y);
 
-        if (codec.k == 2) {
-            return train2(formula, x, codec, order, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample);
-        } else {
-            return traink(formula, x, codec, order, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample);
+        ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : ForkJoinPool.commonPool();
+        try {
+            if (codec.k == 2) {
+                return train2(formula, x, codec, order, bins, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, pool);
+            } else {
+                return traink(formula, x, codec, order, bins, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, pool);
+            }
+        } finally {
+            if (threads > 0) {
+                pool.shutdown();
+            }
         }
     }
 
@@ -303,7 +371,7 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
     /**
      * Train L2 tree boost.
      */
-    private static GradientTreeBoost train2(Formula formula, DataFrame x, ClassLabels codec, int[][] order, int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample) {
+    private static GradientTreeBoost train2(Formula formula, DataFrame x, ClassLabels codec, int[][] order, Bins bins, int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample, ForkJoinPool pool) {
         int n = x.nrows();
         int k = codec.k;
         int[] y = codec.y;
@@ -325,12 +393,12 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
             sampling(samples, permutation, nc, y, subsample);
 
             logger.info("Training {} tree", Strings.ordinal(t+1));
-            RegressionTree tree = new RegressionTree(x, loss, field, maxDepth, maxNodes, nodeSize, x.ncols(), samples, order);
-            trees[t] = tree;
-
-            for (int i = 0; i < n; i++) {
-                h[i] += shrinkage * tree.predict(x.get(i));
-            }
+            // The sampling stays in the caller thread for repeatable results.
+            trees[t] = pool.submit(() -> {
+                RegressionTree tree = new RegressionTree(x, loss, field, maxDepth, maxNodes, nodeSize, x.ncols(), samples, order, bins);
+                IntStream.range(0, n).parallel().forEach(i -> h[i] += shrinkage * tree.predict(x.get(i)));
+                return tree;
+            }).join();
         }
 
         double[] importance = new double[x.ncols()];
@@ -347,9 +415,9 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
     /**
      * Train L-k tree boost.
      */
-    private static GradientTreeBoost traink(Formula formula, DataFrame x, ClassLabels codec, int[][] order,
+    private static GradientTreeBoost traink(Formula formula, DataFrame x, ClassLabels codec, int[][] order, Bins bins,
                                             int ntrees, int maxDepth, int maxNodes, int nodeSize,
-                                            double shrinkage, double subsample) {
+                                            double shrinkage, double subsample, ForkJoinPool pool) {
         int n = x.nrows();
         int k = codec.k;
         int[] y = codec.y;
@@ -369,7 +437,7 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
         }
 
         int[] permutation = IntStream.range(0, n).toArray();
-        int[] samples = new int[n];
+        int[][] samples = new int[k][n];
 
         for (int t = 0; t < ntrees; t++) {
             logger.info("Training {} tree", Strings.ordinal(t+1));
@@ -380,16 +448,24 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
                 MathEx.softmax(p[i]);
             }
 
+            // The sampling stays in the caller thread for repeatable results.
             for (int j = 0; j < k; j++) {
-                sampling(samples, permutation, nc, y, subsample);
-
-                RegressionTree tree = new RegressionTree(x, loss[j], field, maxDepth, maxNodes, nodeSize, x.ncols(), samples, order);
-                forest[j][t] = tree;
+                sampling(samples[j], permutation, nc, y, subsample);
+            }
 
+            // The trees of classes are independent given the posteriori
+            // probabilities so that they are trained concurrently.
+            RegressionTree[] trees = pool.submit(() -> IntStream.range(0, k).parallel().mapToObj(j -> {
+                RegressionTree tree = new RegressionTree(x, loss[j], field, maxDepth, maxNodes, nodeSize, x.ncols(), samples[j], order, bins);
                 double[] hj = h[j];
                 for (int i = 0; i < n; i++) {
                     hj[i] += shrinkage * tree.predict(x.get(i));
                 }
+                return tree;
+            }).toArray(RegressionTree[]::new)).join();
+
+            for (int j = 0; j < k; j++) {
+                forest[j][t] = trees[j];
             }
         }
 
@@ -460,6 +536,7 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
             throw new IllegalArgumentException("Invalid new model size: " + ntrees);
         }
 
+        compiled = null;
         if (k == 2) {
             if (ntrees > trees.length) {
                 throw new IllegalArgumentException("The new model size is larger than the current size.");
@@ -510,6 +587,45 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
         }
     }
 
+    /**
+     * Predicts the class labels of a data frame. The trees are compiled
+     * into flat arrays on first use, and the batch is scored column-wise
+     * without creating a tuple for each row.
+     *
+     * @param data the data frame.
+     * @return the predicted class labels.
+     */
+    @Override
+    public int[] predict(DataFrame data) {
+        if (compiled == null) {
+            if (k == 2) {
+                compiled = new FlatForest[]{FlatForest.of(trees)};
+            } else {
+                compiled = Arrays.stream(forest).map(FlatForest::of).toArray(FlatForest[]::new);
+            }
+        }
+
+        DataFrame x = formula.x(data);
+        int n = x.size();
+        int[] y = new int[n];
+        if (k == 2) {
+            double[] h = compiled[0].sum(x, null);
+            for (int i = 0; i < n; i++) {
+                y[i] = labels.valueOf(b + shrinkage * h[i] > 0 ? 1 : 0);
+            }
+        } else {
+            double[][] h = Arrays.stream(compiled).map(trees -> trees.sum(x, null)).toArray(double[][]::new);
+            for (int i = 0; i < n; i++) {
+                int max = 0;
+                for (int j = 1; j < k; j++) {
+                    if (h[j][i] > h[max][i]) max = j;
+                }
+                y[i] = labels.valueOf(max);
+            }
+        }
+        return y;
+    }
+
     @Override
     public int predict(Tuple x, double[] posteriori) {
         if (posteriori.length != k) {
@@ -600,17 +716,83 @@ public class GradientTreeBoost implements SoftClassifier<Tuple>, DataFrameClassi
      * Returns the average of absolute SHAP values over a data frame.
      */
     public double[] shap(DataFrame data) {
+        double[][] phi = explain(data);
+        for (double[] phii : phi) {
+            for (int j = 0; j < phii.length; j++) {
+                phii[j] = Math.abs(phii[j]);
+            }
+        }
+        return MathEx.colMeans(phi);
+    }
+
+    /**
+     * Returns the SHAP values of each instance in a data frame.
+     * @param data the data frame.
+     * @return the SHAP values, of which row i is the SHAP values
+     *         of i-th instance in the layout of shap(Tuple).
+     */
+    public double[][] explain(DataFrame data) {
+        return explain(data, false);
+    }
+
+    /**
+     * Returns the SHAP values of each instance in a data frame. The trees
+     * of each class are compiled into the path tables once and reused
+     * across instances. For binary classification, the SHAP value of
+     * feature j is in [i][j]. For multi-class classification, the SHAP
+     * value of feature j for class l is in [i][j*k + l].
+     *
+     * @param data the data frame.
+     * @param approximate if true, returns the approximate Saabas values,
+     *                    which attribute the change of expected value
+     *                    along the decision path to the split features.
+     * @return the SHAP values, of which row i is the SHAP values
+     *         of i-th instance in the layout of shap(Tuple).
+     */
+    public double[][] explain(DataFrame data, boolean approximate) {
         // Binds the formula to the data frame's schema in case that
         // it is different from that of training data.
         formula.bind(data.schema());
-        return shap(data.stream().parallel());
+        DataFrame x = formula.x(data);
+
+        if (trees != null) {
+            return explain(trees, x, approximate);
+        }
+
+        int n = x.size();
+        int p = x.ncols();
+        double[][] phi = new double[n][p * k];
+        for (int l = 0; l < k; l++) {
+            double[][] phil = explain(forest[l], x, approximate);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < p; j++) {
+                    phi[i][j*k + l] = phil[i][j];
+                }
+            }
+        }
+
+        return phi;
     }
 
+    /** Returns the average SHAP values of regression trees. */
+    private static double[][] explain(RegressionTree[] trees, DataFrame x, boolean approximate) {
+        double[] weight = new double[trees.length];
+        Arrays.fill(weight, 1.0 / trees.length);
+
+        ForestSHAP explainer = ForestSHAP.of(trees);
+        return approximate ? explainer.saabas(x, weight) : explainer.shap(x, weight);
+    }
+
+    /**
+     * Returns the SHAP values of an instance. For binary classification,
+     * the SHAP value of feature j is in [j]. For multi-class classification,
+     * the SHAP value of feature j for class l is in [j*k + l].
+     */
     @Override
     public double[] shap(Tuple x) {
         Tuple xt = formula.x(x);
         int p = xt.length();
-        double[] phi = new double[p * k];
+        double[] phi = new double[trees != null ? p : p * k];
         int ntrees;
 
         if (trees != null) {
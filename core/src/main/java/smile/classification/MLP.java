@@ -184,36 +184,39 @@ public class MLP extends MultilayerPerceptron implements OnlineClassifier<double
         }
     }
 
-    /** Updates the model with a single sample. RMSProp is not applied. */
+    /** Updates the model with a single sample. RMSProp and Adam are not applied. */
     @Override
     public void update(double[] x, int y) {
         propagate(x);
-        setTarget(labels.indexOf(y));
+        setTarget(labels.indexOf(y), target.get());
         backpropagate(x, true);
         t++;
     }
 
-    /** Updates the model with a mini-batch. RMSProp is applied if rho > 0. */
+    /**
+     * Updates the model with a mini-batch, which is propagated through
+     * the network as a whole. RMSProp is applied if rho &gt; 0.
+     * Adam is applied if beta2 &gt; 0.
+     */
     @Override
     public void update(double[][] x, int[] y) {
-        for (int i = 0; i < x.length; i++) {
-            propagate(x[i]);
-            setTarget(labels.indexOf(y[i]));
-            backpropagate(x[i], false);
+        double[][] target = new double[y.length][output.getOutputSize()];
+        for (int i = 0; i < y.length; i++) {
+            setTarget(labels.indexOf(y[i]), target[i]);
         }
 
+        backpropagate(x, target);
         update(x.length);
         t++;
     }
 
     /** Sets the target vector. */
-    private void setTarget(int y) {
+    private void setTarget(int y, double[] target) {
         int n = output.getOutputSize();
 
         double t = output.cost() == Cost.LIKELIHOOD ? 1.0 : 0.9;
         double f = 1.0 - t;
 
-        double[] target = this.target.get();
         if (n == 1) {
             target[0] = y == 1 ? t : f;
         } else {
@@ -19,6 +19,7 @@ package smile.classification;
 
 import java.util.Arrays;
 import java.util.function.BiFunction;
+import java.util.stream.IntStream;
 import static java.lang.Math.abs;
 import static java.lang.Math.max;
 
@@ -92,14 +93,31 @@ public class OneVersusOne<T> implements SoftClassifier<T> {
 
     /**
      * Fits a multi-class model with binary classifiers.
+     * The binary classifiers are trained sequentially.
      * @param x the training samples.
      * @param y the training labels.
      * @param pos the class label for one case.
      * @param neg the class label for rest cases.
      * @param trainer the lambda to train binary classifiers.
      */
-    @SuppressWarnings("unchecked")
     public static <T> OneVersusOne<T> fit(T[] x, int[] y, int pos, int neg, BiFunction<T[], int[], Classifier<T>> trainer) {
+        return fit(x, y, pos, neg, trainer, false);
+    }
+
+    /**
+     * Fits a multi-class model with binary classifiers.
+     * @param x the training samples.
+     * @param y the training labels.
+     * @param pos the class label for one case.
+     * @param neg the class label for rest cases.
+     * @param trainer the lambda to train binary classifiers.
+     * @param parallel if true, the binary classifiers are trained in
+     *                 parallel. In this case, the trainer must be thread
+     *                 safe and the results may not be reproducible with
+     *                 MathEx.setSeed if the trainer draws random numbers.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> OneVersusOne<T> fit(T[] x, int[] y, int pos, int neg, BiFunction<T[], int[], Classifier<T>> trainer, boolean parallel) {
         if (x.length != y.length) {
             throw new IllegalArgumentException(String.format("The sizes of X and Y don't match: %d != %d", x.length, y.length));
         }
@@ -114,50 +132,74 @@ public class OneVersusOne<T> implements SoftClassifier<T> {
         int[] ni = codec.ni;
         y = codec.y;
 
+        // The pairs of classes.
+        int m = k * (k - 1) / 2;
+        int[] first = new int[m];
+        int[] second = new int[m];
+        for (int i = 1, l = 0; i < k; i++) {
+            for (int j = 0; j < i; j++, l++) {
+                first[l] = i;
+                second[l] = j;
+            }
+        }
+
+        // The binary classifiers are independent and may be trained in parallel.
+        // The training data of each binary classifier is created in its task
+        // and released after the classifier and its Platt scaling are fit.
         Classifier<T>[][] classifiers = new Classifier[k][];
-        PlattScaling[][] platts = null;
+        PlattScaling[][] scaling = new PlattScaling[k][];
         for (int i = 1; i < k; i++) {
             classifiers[i] = new Classifier[i];
-            for (int j = 0; j < i; j++) {
-                int n = ni[i] + ni[j];
-
-                @SuppressWarnings("unchecked")
-                T[] xij = (T[]) java.lang.reflect.Array.newInstance(x.getClass().getComponentType(), n);
-                int[] yij = new int[n];
-
-                for (int l = 0, q = 0; l < y.length; l++) {
-                    if (y[l] == i) {
-                        xij[q] = x[l];
-                        yij[q] = pos;
-                        q++;
-                    } else if (y[l] == j) {
-                        xij[q] = x[l];
-                        yij[q] = neg;
-                        q++;
-                    }
-                }
-
-                classifiers[i][j] = trainer.apply(xij, yij);
+            scaling[i] = new PlattScaling[i];
+        }
 
-                if (j == 0 && i == 1) {
-                    try {
-                        classifiers[i][j].score(xij[0]);
-                        platts = new PlattScaling[k][];
-                    } catch (UnsupportedOperationException ex) {
-                        logger.info("The classifier doesn't support score function. Don't fit Platt scaling.");
-                    }
+        int[] label = y;
+        stream(m, parallel).forEach(l -> {
+            int i = first[l];
+            int j = second[l];
+            int n = ni[i] + ni[j];
+
+            T[] xij = (T[]) java.lang.reflect.Array.newInstance(x.getClass().getComponentType(), n);
+            int[] yij = new int[n];
+
+            for (int q = 0, r = 0; q < label.length; q++) {
+                if (label[q] == i) {
+                    xij[r] = x[q];
+                    yij[r] = pos;
+                    r++;
+                } else if (label[q] == j) {
+                    xij[r] = x[q];
+                    yij[r] = neg;
+                    r++;
                 }
+            }
 
-                if (platts != null) {
-                    if (platts[i] == null) platts[i] = new PlattScaling[i];
-                    platts[i][j] = PlattScaling.fit(classifiers[i][j], xij, yij);
-                }
+            classifiers[i][j] = trainer.apply(xij, yij);
+            try {
+                scaling[i][j] = PlattScaling.fit(classifiers[i][j], xij, yij);
+            } catch (UnsupportedOperationException ex) {
+                // The classifier doesn't support score function.
+            }
+        });
+
+        PlattScaling[][] platts = scaling;
+        for (int l = 0; l < m; l++) {
+            if (scaling[first[l]][second[l]] == null) {
+                logger.info("The classifier doesn't support score function. Don't fit Platt scaling.");
+                platts = null;
+                break;
             }
         }
 
         return new OneVersusOne<>(classifiers, platts);
     }
 
+    /** Returns the stream of classifier indices. */
+    private static IntStream stream(int n, boolean parallel) {
+        IntStream stream = IntStream.range(0, n);
+        return parallel ? stream.parallel() : stream;
+    }
+
     /**
      * Fits a multi-class model with binary data frame classifiers.
      * @param formula a symbolic description of the model to be fitted.
@@ -19,6 +19,7 @@ package smile.classification;
 
 import java.util.Arrays;
 import java.util.function.BiFunction;
+import java.util.stream.IntStream;
 import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.formula.Formula;
@@ -95,14 +96,31 @@ public class OneVersusRest<T> implements SoftClassifier<T> {
 
     /**
      * Fits a multi-class model with binary classifiers.
+     * The binary classifiers are trained sequentially.
      * @param x the training samples.
      * @param y the training labels.
      * @param pos the class label for one case.
      * @param neg the class label for rest cases.
      * @param trainer the lambda to train binary classifiers.
      */
-    @SuppressWarnings("unchecked")
     public static <T> OneVersusRest<T> fit(T[] x, int[] y, int pos, int neg, BiFunction<T[], int[], Classifier<T>> trainer) {
+        return fit(x, y, pos, neg, trainer, false);
+    }
+
+    /**
+     * Fits a multi-class model with binary classifiers.
+     * @param x the training samples.
+     * @param y the training labels.
+     * @param pos the class label for one case.
+     * @param neg the class label for rest cases.
+     * @param trainer the lambda to train binary classifiers.
+     * @param parallel if true, the binary classifiers are trained in
+     *                 parallel. In this case, the trainer must be thread
+     *                 safe and the results may not be reproducible with
+     *                 MathEx.setSeed if the trainer draws random numbers.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> OneVersusRest<T> fit(T[] x, int[] y, int pos, int neg, BiFunction<T[], int[], Classifier<T>> trainer, boolean parallel) {
         if (x.length != y.length) {
             throw new IllegalArgumentException(String.format("The sizes of X and Y don't match: %d != %d", x.length, y.length));
         }
@@ -116,33 +134,40 @@ public class OneVersusRest<T> implements SoftClassifier<T> {
         int n = x.length;
         y = codec.y;
 
-        Classifier<T>[] classifiers = new Classifier[k];
-        PlattScaling[] platts = null;
+        int[][] ys = new int[k][n];
         for (int i = 0; i < k; i++) {
-            int[] yi = new int[n];
+            int[] yi = ys[i];
             for (int j = 0; j < n; j++) {
                 yi[j] = y[j] == i ? pos : neg;
             }
+        }
 
-            classifiers[i] = trainer.apply(x, yi);
+        // The binary classifiers are independent and may be trained in parallel.
+        Classifier<T>[] classifiers = new Classifier[k];
+        stream(k, parallel).forEach(i -> classifiers[i] = trainer.apply(x, ys[i]));
 
-            if (i == 0) {
-                try {
-                    classifiers[0].score(x[0]);
-                    platts = new PlattScaling[k];
-                } catch (UnsupportedOperationException ex) {
-                    logger.info("The classifier doesn't support score function. Don't fit Platt scaling.");
-                }
-            }
+        PlattScaling[] platts = null;
+        try {
+            classifiers[0].score(x[0]);
+            platts = new PlattScaling[k];
+        } catch (UnsupportedOperationException ex) {
+            logger.info("The classifier doesn't support score function. Don't fit Platt scaling.");
+        }
 
-            if (platts != null) {
-                platts[i] = PlattScaling.fit(classifiers[i], x, yi);
-            }
+        if (platts != null) {
+            PlattScaling[] scaling = platts;
+            stream(k, parallel).forEach(i -> scaling[i] = PlattScaling.fit(classifiers[i], x, ys[i]));
         }
 
         return new OneVersusRest<>(classifiers, platts);
     }
 
+    /** Returns the stream of classifier indices. */
+    private static IntStream stream(int n, boolean parallel) {
+        IntStream stream = IntStream.range(0, n);
+        return parallel ? stream.parallel() : stream;
+    }
+
     /**
      * Fits a multi-class model with binary data frame classifiers.
      * @param formula a symbolic description of the model to be fitted.
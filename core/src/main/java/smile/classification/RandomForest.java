@@ -22,7 +22,9 @@ import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 
+import smile.base.cart.Bins;
 import smile.base.cart.CART;
+import smile.base.cart.FlatForest;
 import smile.base.cart.SplitRule;
 import smile.data.DataFrame;
 import smile.data.Tuple;
@@ -104,6 +106,11 @@ public class RandomForest implements SoftClassifier<Tuple>, DataFrameClassifier,
      */
     private List<Tree> trees;
 
+    /**
+     * The trees compiled into flat arrays for batch inference.
+     */
+    private transient FlatForest compiled;
+
     /**
      * The number of classes.
      */
@@ -188,7 +195,8 @@ public class RandomForest implements SoftClassifier<Tuple>, DataFrameClassifier,
         int nodeSize = Integer.valueOf(prop.getProperty("smile.random.forest.node.size", "5"));
         double subsample = Double.valueOf(prop.getProperty("smile.random.forest.sample.rate", "1.0"));
         int[] classWeight = Strings.parseIntArray(prop.getProperty("smile.random.forest.class.weight"));
-        return fit(formula, data, ntrees, mtry, rule, maxDepth, maxNodes, nodeSize, subsample, classWeight, null);
+        int maxBins = Integer.valueOf(prop.getProperty("smile.random.forest.max.bins", "0"));
+        return fit(formula, data, ntrees, mtry, rule, maxDepth, maxNodes, nodeSize, subsample, classWeight, maxBins, null);
     }
 
     /**
@@ -273,6 +281,41 @@ public class RandomForest implements SoftClassifier<Tuple>, DataFrameClassifier,
     public static RandomForest fit(Formula formula, DataFrame data, int ntrees, int mtry,
                                    SplitRule rule, int maxDepth, int maxNodes, int nodeSize,
                                    double subsample, int[] classWeight, LongStream seeds) {
+        return fit(formula, data, ntrees, mtry, rule, maxDepth, maxNodes, nodeSize, subsample, classWeight, 0, seeds);
+    }
+
+    /**
+     * Fits a random forest for classification.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param ntrees the number of trees.
+     * @param mtry the number of input variables to be used to determine the
+     *             decision at a node of the tree. floor(sqrt(p)) generally
+     *             gives good performance, where p is the number of variables
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the number of instances in a node below which the tree
+     *                 will not split, nodeSize = 5 generally gives good
+     *                 results.
+     * @param subsample the sampling rate for training tree. 1.0 means sampling
+     *                  with replacement. &lt; 1.0 means sampling without
+     *                  replacement.
+     * @param rule Decision tree split rule.
+     * @param classWeight Priors of the classes. The weight of each class
+     *                    is roughly the ratio of samples in each class.
+     *                    For example, if there are 400 positive samples
+     *                    and 100 negative samples, the classWeight should
+     *                    be [1, 4] (assuming label 0 is of negative, label 1 is of
+     *                    positive).
+     * @param maxBins the maximum number of bins of numeric variables in
+     *                histogram-based split finding, at most 256. If 0,
+     *                the exact split finding on pre-sorted values is used.
+     * @param seeds optional RNG seeds for each regression tree.
+     */
+    public static RandomForest fit(Formula formula, DataFrame data, int ntrees, int mtry,
+                                   SplitRule rule, int maxDepth, int maxNodes, int nodeSize,
+                                   double subsample, int[] classWeight, int maxBins, LongStream seeds) {
         if (ntrees < 1) {
             throw new IllegalArgumentException("Invalid number of trees: " + ntrees);
         }
@@ -297,7 +340,9 @@ public class RandomForest implements SoftClassifier<Tuple>, DataFrameClassifier,
 
         final int[] weight = classWeight != null ? classWeight : Collections.nCopies(k, 1).stream().mapToInt(i -> i).toArray();
 
-        final int[][] order = CART.order(x);
+        // The quantized data are shared by all trees.
+        final Bins bins = maxBins > 0 ? Bins.of(x, maxBins) : null;
+        final int[][] order = bins == null ? CART.order(x) : null;
         final int[][] prediction = new int[n][k]; // out-of-bag prediction
 
         // generate seeds with sequential stream
@@ -357,7 +402,7 @@ public class RandomForest implements SoftClassifier<Tuple>, DataFrameClassifier,
                 }
             }
 
-            DecisionTree tree = new DecisionTree(x, codec.y, y.field(), k, rule, maxDepth, maxNodes, nodeSize, mtryFinal, samples, order);
+            DecisionTree tree = new DecisionTree(x, codec.y, y.field(), k, rule, maxDepth, maxNodes, nodeSize, mtryFinal, samples, order, bins);
 
             // estimate OOB error
             int oob = 0;
@@ -486,6 +531,7 @@ public class RandomForest implements SoftClassifier<Tuple>, DataFrameClassifier,
         }
         
         trees = model;
+        compiled = null;
     }
     
     @Override
@@ -499,6 +545,33 @@ public class RandomForest implements SoftClassifier<Tuple>, DataFrameClassifier,
         
         return labels.valueOf(MathEx.whichMax(y));
     }
+
+    /**
+     * Predicts the class labels of a data frame by voting. The trees are
+     * compiled into flat arrays on first use, and the batch is scored
+     * column-wise without creating a tuple for each row.
+     *
+     * @param data the data frame.
+     * @return the predicted class labels.
+     */
+    @Override
+    public int[] predict(DataFrame data) {
+        if (compiled == null) {
+            compiled = FlatForest.of(trees());
+        }
+
+        int[] votes = compiled.vote(formula.x(data));
+        int n = data.size();
+        int[] y = new int[n];
+        for (int i = 0, l = 0; i < n; i++, l += k) {
+            int max = 0;
+            for (int j = 1; j < k; j++) {
+                if (votes[l + j] > votes[l + max]) max = j;
+            }
+            y[i] = labels.valueOf(max);
+        }
+        return y;
+    }
     
     @Override
     public int predict(Tuple x, double[] posteriori) {
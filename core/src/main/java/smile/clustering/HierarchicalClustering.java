@@ -18,12 +18,21 @@
 package smile.clustering;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.stream.IntStream;
+import smile.clustering.linkage.CompleteLinkage;
 import smile.clustering.linkage.Linkage;
+import smile.clustering.linkage.SingleLinkage;
+import smile.clustering.linkage.UPGMALinkage;
 import smile.clustering.linkage.UPGMCLinkage;
+import smile.clustering.linkage.WPGMALinkage;
 import smile.clustering.linkage.WPGMCLinkage;
 import smile.clustering.linkage.WardLinkage;
+import smile.math.MathEx;
+import smile.math.distance.Distance;
 import smile.sort.IntHeapSelect;
 
 /**
@@ -43,10 +52,18 @@ import smile.sort.IntHeapSelect;
  * Hierarchical clustering has the distinct advantage that any valid measure
  * of distance can be used. In fact, the observations themselves are not
  * required: all that is used is a matrix of distances.
+ * <p>
+ * The reducible linkages (single, complete, UPGMA, WPGMA and Ward) are
+ * fitted by the nearest-neighbor chain algorithm in O(n<sup>2</sup>) time.
+ * As the proximity matrix takes O(n<sup>2</sup>) space, the single and
+ * Ward linkages can also be fitted on the data directly, which computes
+ * the distances on the fly in O(n) space for large data sets.
  * 
  * <h2>References</h2>
  * <ol>
  * <li>David Eppstein. Fast hierarchical clustering and other applications of dynamic closest pairs. SODA 1998.</li>
+ * <li>Daniel Mullner. Modern hierarchical, agglomerative clustering algorithms. arXiv:1109.2378, 2011.</li>
+ * <li>F. James Rohlf. Hierarchical clustering using the minimum spanning tree. The Computer Journal, 16(1):93-95, 1973.</li>
  * </ol>
  * 
  * @see Linkage
@@ -55,6 +72,8 @@ import smile.sort.IntHeapSelect;
  */
 public class HierarchicalClustering implements Serializable {
     private static final long serialVersionUID = 2L;
+    /** The number of clusters above which the nearest neighbor is searched in parallel. */
+    private static final int PARALLEL_SIZE = 4096;
 
     /**
      * An n-1 by 2 matrix of which row i describes the merging of clusters at
@@ -90,6 +109,19 @@ public class HierarchicalClustering implements Serializable {
     public static HierarchicalClustering fit(Linkage linkage) {
         int n = linkage.size();
 
+        if (linkage instanceof SingleLinkage || linkage instanceof CompleteLinkage ||
+            linkage instanceof UPGMALinkage || linkage instanceof WPGMALinkage ||
+            linkage instanceof WardLinkage) {
+            HierarchicalClustering model = nnChain(n, linkage::d, linkage::merge);
+            if (linkage instanceof WardLinkage) {
+                double[] height = model.height;
+                for (int i = 0; i < height.length; i++) {
+                    height[i] = Math.sqrt(height[i]);
+                }
+            }
+            return model;
+        }
+
         int[][] merge = new int[n - 1][2];
         int[] id = new int[n];
         double[] height = new double[n - 1];
@@ -114,7 +146,7 @@ public class HierarchicalClustering implements Serializable {
             id[p] = n + i;
         }
 
-        if (linkage instanceof UPGMCLinkage || linkage instanceof WPGMCLinkage || linkage instanceof WardLinkage) {
+        if (linkage instanceof UPGMCLinkage || linkage instanceof WPGMCLinkage) {
             for (int i = 0; i < height.length; i++) {
                 height[i] = Math.sqrt(height[i]);
             }
@@ -123,6 +155,299 @@ public class HierarchicalClustering implements Serializable {
         return new HierarchicalClustering(merge, height);
     }
 
+    /**
+     * Fits the single linkage clustering on the data directly. The
+     * clustering is derived from the minimum spanning tree, which is
+     * computed by Prim's algorithm with the distances on the fly.
+     * It takes O(n<sup>2</sup>) time and O(n) space.
+     *
+     * @param data the data.
+     * @param distance the distance function.
+     * @param <T> the data type.
+     * @return the model.
+     */
+    public static <T> HierarchicalClustering single(T[] data, Distance<T> distance) {
+        int n = data.length;
+        if (n < 2) {
+            throw new IllegalArgumentException("Too few samples: " + n);
+        }
+
+        double[] dist = new double[n];
+        int[] parent = new int[n];
+        boolean[] tree = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+
+        int[] a = new int[n - 1];
+        int[] b = new int[n - 1];
+        double[] h = new double[n - 1];
+
+        int blocks = Math.max(1, Math.min(n / 256, 4 * Runtime.getRuntime().availableProcessors()));
+        int block = (n + blocks - 1) / blocks;
+
+        int v = 0;
+        tree[v] = true;
+        for (int step = 0; step < n - 1; step++) {
+            // Updates the distances to the tree and finds the closest vertex.
+            final int u = v;
+            IntStream stream = IntStream.range(0, blocks);
+            if (n >= PARALLEL_SIZE) stream = stream.parallel();
+            v = stream.map(k -> {
+                int best = -1;
+                for (int i = k * block, end = Math.min(n, i + block); i < end; i++) {
+                    if (tree[i]) continue;
+
+                    double d = distance.d(data[u], data[i]);
+                    if (d < dist[i]) {
+                        dist[i] = d;
+                        parent[i] = u;
+                    }
+
+                    if (best < 0 || dist[i] < dist[best]) {
+                        best = i;
+                    }
+                }
+                return best;
+            }).reduce(-1, (i, j) -> i < 0 ? j : (j < 0 || dist[i] <= dist[j] ? i : j));
+
+            tree[v] = true;
+            a[step] = parent[v];
+            b[step] = v;
+            h[step] = dist[v];
+        }
+
+        return of(n, a, b, h);
+    }
+
+    /**
+     * Fits the single linkage clustering with Euclidean distance
+     * on the data directly.
+     *
+     * @param data the data.
+     * @return the model.
+     */
+    public static HierarchicalClustering single(double[][] data) {
+        return single(data, MathEx::distance);
+    }
+
+    /**
+     * Fits Ward's linkage clustering on the data directly. The
+     * dissimilarity between clusters is computed on the fly from
+     * their centroids and sizes, which is equivalent to the Lance-Williams
+     * update of WardLinkage. It takes O(n<sup>2</sup>d) time and O(nd) space.
+     *
+     * @param data the data.
+     * @return the model.
+     */
+    public static HierarchicalClustering ward(double[][] data) {
+        int n = data.length;
+        if (n < 2) {
+            throw new IllegalArgumentException("Too few samples: " + n);
+        }
+
+        double[][] centroid = new double[n][];
+        for (int i = 0; i < n; i++) {
+            centroid[i] = data[i].clone();
+        }
+
+        int[] size = new int[n];
+        Arrays.fill(size, 1);
+
+        HierarchicalClustering model = nnChain(n, (i, j) -> {
+            double ni = size[i];
+            double nj = size[j];
+            return 2 * ni * nj / (ni + nj) * MathEx.squaredDistance(centroid[i], centroid[j]);
+        }, (i, j) -> {
+            double[] ci = centroid[i];
+            double[] cj = centroid[j];
+            double ni = size[i];
+            double nj = size[j];
+            for (int k = 0; k < ci.length; k++) {
+                ci[k] = (ni * ci[k] + nj * cj[k]) / (ni + nj);
+            }
+            size[i] += size[j];
+            centroid[j] = null;
+        });
+
+        double[] height = model.height;
+        for (int i = 0; i < height.length; i++) {
+            height[i] = Math.sqrt(height[i]);
+        }
+        return model;
+    }
+
+    /** The dissimilarity between active clusters. */
+    private interface Dissimilarity {
+        /** Returns the dissimilarity between clusters i and j. */
+        double d(int i, int j);
+    }
+
+    /** The merger of clusters. */
+    private interface Merger {
+        /** Merges cluster j into cluster i, where i &lt; j. */
+        void merge(int i, int j);
+    }
+
+    /**
+     * The nearest-neighbor chain algorithm for reducible linkages.
+     * It follows a chain of nearest neighbors until it reaches a pair
+     * of reciprocal nearest neighbors, which are merged. The merges are
+     * found in a different order from the greedy algorithm but result
+     * in the same dendrogram after being sorted by height.
+     *
+     * @param n the number of samples.
+     * @param dissimilarity the dissimilarity between active clusters.
+     * @param merger the callback to merge clusters.
+     * @return the model.
+     */
+    private static HierarchicalClustering nnChain(int n, Dissimilarity dissimilarity, Merger merger) {
+        int[] a = new int[n - 1];
+        int[] b = new int[n - 1];
+        double[] h = new double[n - 1];
+
+        // The active clusters, which are identified by their smallest sample.
+        int[] active = new int[n];
+        int[] position = new int[n];
+        for (int i = 0; i < n; i++) {
+            active[i] = i;
+            position[i] = i;
+        }
+
+        int size = n;
+        int[] chain = new int[n];
+        int top = 0;
+        for (int step = 0; step < n - 1; step++) {
+            if (top == 0) {
+                chain[top++] = active[0];
+            }
+
+            int x, y;
+            double d;
+            while (true) {
+                x = chain[top - 1];
+                int prev = top > 1 ? chain[top - 2] : -1;
+
+                int nearest = nearest(x, active, size, dissimilarity);
+                double dist = dissimilarity.d(x, nearest);
+
+                // Prefer the previous element of chain in case of ties.
+                if (prev >= 0 && dissimilarity.d(x, prev) <= dist) {
+                    y = prev;
+                    d = dissimilarity.d(x, prev);
+                    break;
+                }
+
+                chain[top++] = nearest;
+            }
+
+            top -= 2;
+            int i = Math.min(x, y);
+            int j = Math.max(x, y);
+            a[step] = i;
+            b[step] = j;
+            h[step] = d;
+            merger.merge(i, j);
+
+            // Removes j from the active clusters.
+            int pj = position[j];
+            active[pj] = active[--size];
+            position[active[pj]] = pj;
+        }
+
+        return of(n, a, b, h);
+    }
+
+    /**
+     * Returns the nearest active cluster of a cluster. The active clusters
+     * are searched in parallel blocks if there are many of them.
+     *
+     * @param x the cluster.
+     * @param active the active clusters.
+     * @param size the number of active clusters.
+     * @param dissimilarity the dissimilarity between active clusters.
+     * @return the nearest active cluster.
+     */
+    private static int nearest(int x, int[] active, int size, Dissimilarity dissimilarity) {
+        int blocks = size < PARALLEL_SIZE ? 1 : Math.min(size / 1024, 4 * Runtime.getRuntime().availableProcessors());
+        int block = (size + blocks - 1) / blocks;
+
+        double[] dist = new double[blocks];
+        int[] nearest = new int[blocks];
+        IntStream stream = IntStream.range(0, blocks);
+        if (blocks > 1) stream = stream.parallel();
+        stream.forEach(k -> {
+            double best = Double.POSITIVE_INFINITY;
+            int y = -1;
+            for (int i = k * block, end = Math.min(size, i + block); i < end; i++) {
+                int c = active[i];
+                if (c == x) continue;
+
+                double d = dissimilarity.d(x, c);
+                if (y < 0 || d < best) {
+                    best = d;
+                    y = c;
+                }
+            }
+            dist[k] = best;
+            nearest[k] = y;
+        });
+
+        int y = -1;
+        for (int k = 0; k < blocks; k++) {
+            if (nearest[k] >= 0 && (y < 0 || dist[k] < dist[y])) {
+                y = k;
+            }
+        }
+        return nearest[y];
+    }
+
+    /**
+     * Returns the model from the merges in any order, which are sorted
+     * by height and relabeled with union-find.
+     *
+     * @param n the number of samples.
+     * @param a the sample in one of merged clusters.
+     * @param b the sample in the other merged cluster.
+     * @param h the height of merges.
+     * @return the model.
+     */
+    private static HierarchicalClustering of(int n, int[] a, int[] b, double[] h) {
+        int[] order = IntStream.range(0, n - 1).boxed()
+                .sorted(Comparator.comparingDouble(i -> h[i]))
+                .mapToInt(Integer::intValue).toArray();
+
+        int[] parent = new int[n];
+        int[] id = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            id[i] = i;
+        }
+
+        int[][] merge = new int[n - 1][2];
+        double[] height = new double[n - 1];
+        for (int step = 0; step < n - 1; step++) {
+            int k = order[step];
+            int p = find(parent, a[k]);
+            int q = find(parent, b[k]);
+            merge[step][0] = Math.min(id[p], id[q]);
+            merge[step][1] = Math.max(id[p], id[q]);
+            height[step] = h[k];
+
+            parent[q] = p;
+            id[p] = n + step;
+        }
+
+        return new HierarchicalClustering(merge, height);
+    }
+
+    /** Returns the root of union-find tree with path halving. */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
     /**
      * Returns an n-1 by 2 matrix of which row i describes the merging of clusters at
      * step i of the clustering. If an element j in the row is less than n, then
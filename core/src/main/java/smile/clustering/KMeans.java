@@ -17,6 +17,7 @@
 
 package smile.clustering;
 
+import java.util.stream.IntStream;
 import smile.math.MathEx;
 
 /**
@@ -50,7 +51,16 @@ import smile.math.MathEx;
  * that is O(log k) competitive to the optimal k-means solution.
  * <p>
  * We also use k-d trees to speed up each k-means step as described in the filter
- * algorithm by Kanungo, et al.
+ * algorithm by Kanungo, et al. As the filtering loses most of its benefit
+ * in high dimensional space (say more than 20 dimensions), we also provide
+ * the algorithms of Elkan and Hamerly, which skip most distance calculations
+ * by maintaining the bounds of distance between observations and centroids
+ * with the triangle inequality. Elkan's algorithm keeps a lower bound for
+ * every pair of observation and centroid and prunes more distance
+ * calculations for large k. Hamerly's algorithm keeps only one lower bound
+ * per observation and is often faster for small to medium k. Both of them
+ * give the same results as Lloyd's algorithm. For data too large to fit in
+ * the memory, see {@link MiniBatchKMeans}.
  * <p>
  * K-means is a hard clustering method, i.e. each observation is assigned to
  * a specific cluster. In contrast, soft clustering, e.g. the
@@ -62,8 +72,11 @@ import smile.math.MathEx;
  * <li> Tapas Kanungo, David M. Mount, Nathan S. Netanyahu, Christine D. Piatko, Ruth Silverman, and Angela Y. Wu. An Efficient k-Means Clustering Algorithm: Analysis and Implementation. IEEE TRANS. PAMI, 2002.</li>
  * <li> D. Arthur and S. Vassilvitskii. "K-means++: the advantages of careful seeding". ACM-SIAM symposium on Discrete algorithms, 1027-1035, 2007.</li>
  * <li> Anna D. Peterson, Arka P. Ghosh and Ranjan Maitra. A systematic evaluation of different methods for initializing the K-means clustering algorithm. 2010.</li>
+ * <li> Charles Elkan. Using the Triangle Inequality to Accelerate k-Means. ICML, 2003.</li>
+ * <li> Greg Hamerly. Making k-means even faster. SIAM International Conference on Data Mining, 2010.</li>
  * </ol>
  * 
+ * @see MiniBatchKMeans
  * @see XMeans
  * @see GMeans
  * @see CLARANS
@@ -222,4 +235,287 @@ public class KMeans extends CentroidClustering<double[], double[]> {
             }
         };
     }
+
+    /**
+     * Partitions data into k clusters by Elkan's algorithm up to 100 iterations.
+     * @param data the input data of which each row is an observation.
+     * @param k the number of clusters.
+     */
+    public static KMeans elkan(double[][] data, int k) {
+        return elkan(data, k, 100, 1E-4);
+    }
+
+    /**
+     * Partitions data into k clusters by Elkan's algorithm, which accelerates
+     * Lloyd's algorithm with the triangle inequality. It maintains an upper
+     * bound of distance between each observation and its centroid, and
+     * a lower bound of distance between each observation and each centroid.
+     * A distance is calculated only if the bounds cannot rule out that
+     * the centroid is closer to the observation than its current one.
+     * The algorithm takes O(nk) extra memory for the lower bounds.
+     *
+     * @param data the input data of which each row is an observation.
+     * @param k the number of clusters.
+     * @param maxIter the maximum number of iterations.
+     * @param tol the tolerance of convergence test.
+     */
+    public static KMeans elkan(double[][] data, int k, int maxIter, double tol) {
+        if (k < 2) {
+            throw new IllegalArgumentException("Invalid number of clusters: " + k);
+        }
+
+        if (maxIter <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of iterations: " + maxIter);
+        }
+
+        int n = data.length;
+        int d = data[0].length;
+
+        int[] y = new int[n];
+        double[][] medoids = new double[k][];
+
+        double distortion = MathEx.sum(seed(data, medoids, y, MathEx::squaredDistance));
+        logger.info(String.format("Distortion after initialization: %.4f", distortion));
+
+        int[] size = new int[k];
+        double[][] centroids = new double[k][d];
+        updateCentroids(centroids, data, y, size);
+
+        // The upper bound of distance between each observation and its centroid.
+        double[] upper = new double[n];
+        // The lower bounds of distance between each observation and each centroid.
+        double[][] lower = new double[n][k];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = 0; j < k; j++) {
+                lower[i][j] = MathEx.distance(data[i], centroids[j]);
+            }
+            upper[i] = lower[i][y[i]];
+        });
+
+        double[][] cc = new double[k][k];
+        double[] s = new double[k];
+        double[] move = new double[k];
+
+        double diff = Double.MAX_VALUE;
+        for (int iter = 1; iter <= maxIter && diff > tol; iter++) {
+            centroidDistance(centroids, cc, s);
+
+            IntStream.range(0, n).parallel().forEach(i -> {
+                int yi = y[i];
+                double ui = upper[i];
+                if (ui <= s[yi]) return;
+
+                double[] xi = data[i];
+                double[] li = lower[i];
+                boolean tight = false;
+                for (int j = 0; j < k; j++) {
+                    if (j == yi || ui <= li[j] || ui <= 0.5 * cc[yi][j]) continue;
+
+                    if (!tight) {
+                        ui = MathEx.distance(xi, centroids[yi]);
+                        li[yi] = ui;
+                        tight = true;
+                        if (ui <= li[j] || ui <= 0.5 * cc[yi][j]) continue;
+                    }
+
+                    double dist = MathEx.distance(xi, centroids[j]);
+                    li[j] = dist;
+                    if (dist < ui) {
+                        ui = dist;
+                        yi = j;
+                    }
+                }
+
+                y[i] = yi;
+                upper[i] = ui;
+            });
+
+            double wcss = distortion(data, centroids, y);
+            logger.info(String.format("Distortion after %3d iterations: %.4f", iter, wcss));
+
+            diff = distortion - wcss;
+            distortion = wcss;
+
+            moveCentroids(centroids, data, y, size, move);
+            IntStream.range(0, n).parallel().forEach(i -> {
+                upper[i] += move[y[i]];
+                double[] li = lower[i];
+                for (int j = 0; j < k; j++) {
+                    li[j] = Math.max(0.0, li[j] - move[j]);
+                }
+            });
+        }
+
+        return new KMeans(distortion, centroids, y);
+    }
+
+    /**
+     * Partitions data into k clusters by Hamerly's algorithm up to 100 iterations.
+     * @param data the input data of which each row is an observation.
+     * @param k the number of clusters.
+     */
+    public static KMeans hamerly(double[][] data, int k) {
+        return hamerly(data, k, 100, 1E-4);
+    }
+
+    /**
+     * Partitions data into k clusters by Hamerly's algorithm, which accelerates
+     * Lloyd's algorithm with the triangle inequality. Different from Elkan's
+     * algorithm, it maintains only one lower bound of distance between each
+     * observation and its second closest centroid. The distances to all
+     * centroids are calculated only if the upper bound of distance to
+     * its centroid exceeds both this lower bound and the half distance
+     * from its centroid to the closest other centroid.
+     *
+     * @param data the input data of which each row is an observation.
+     * @param k the number of clusters.
+     * @param maxIter the maximum number of iterations.
+     * @param tol the tolerance of convergence test.
+     */
+    public static KMeans hamerly(double[][] data, int k, int maxIter, double tol) {
+        if (k < 2) {
+            throw new IllegalArgumentException("Invalid number of clusters: " + k);
+        }
+
+        if (maxIter <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of iterations: " + maxIter);
+        }
+
+        int n = data.length;
+        int d = data[0].length;
+
+        int[] y = new int[n];
+        double[][] medoids = new double[k][];
+
+        double distortion = MathEx.sum(seed(data, medoids, y, MathEx::squaredDistance));
+        logger.info(String.format("Distortion after initialization: %.4f", distortion));
+
+        int[] size = new int[k];
+        double[][] centroids = new double[k][d];
+        updateCentroids(centroids, data, y, size);
+
+        // The upper bound of distance between each observation and its centroid.
+        double[] upper = new double[n];
+        // The lower bound of distance between each observation and its second closest centroid.
+        double[] lower = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double second = Double.MAX_VALUE;
+            for (int j = 0; j < k; j++) {
+                double dist = MathEx.distance(data[i], centroids[j]);
+                if (j == y[i]) {
+                    upper[i] = dist;
+                } else if (dist < second) {
+                    second = dist;
+                }
+            }
+            lower[i] = second;
+        });
+
+        double[][] cc = new double[k][k];
+        double[] s = new double[k];
+        double[] move = new double[k];
+
+        double diff = Double.MAX_VALUE;
+        for (int iter = 1; iter <= maxIter && diff > tol; iter++) {
+            centroidDistance(centroids, cc, s);
+
+            IntStream.range(0, n).parallel().forEach(i -> {
+                double bound = Math.max(s[y[i]], lower[i]);
+                if (upper[i] <= bound) return;
+
+                double[] xi = data[i];
+                upper[i] = MathEx.distance(xi, centroids[y[i]]);
+                if (upper[i] <= bound) return;
+
+                double nearest = Double.MAX_VALUE;
+                double second = Double.MAX_VALUE;
+                for (int j = 0; j < k; j++) {
+                    double dist = MathEx.distance(xi, centroids[j]);
+                    if (dist < nearest) {
+                        second = nearest;
+                        nearest = dist;
+                        y[i] = j;
+                    } else if (dist < second) {
+                        second = dist;
+                    }
+                }
+
+                upper[i] = nearest;
+                lower[i] = second;
+            });
+
+            double wcss = distortion(data, centroids, y);
+            logger.info(String.format("Distortion after %3d iterations: %.4f", iter, wcss));
+
+            diff = distortion - wcss;
+            distortion = wcss;
+
+            moveCentroids(centroids, data, y, size, move);
+
+            // The largest and second largest movements of centroids.
+            int r = MathEx.whichMax(move);
+            double max = move[r];
+            double max2 = 0.0;
+            for (int j = 0; j < k; j++) {
+                if (j != r && move[j] > max2) max2 = move[j];
+            }
+
+            final double secondMove = max2;
+            IntStream.range(0, n).parallel().forEach(i -> {
+                upper[i] += move[y[i]];
+                lower[i] -= y[i] == r ? secondMove : max;
+            });
+        }
+
+        return new KMeans(distortion, centroids, y);
+    }
+
+    /**
+     * Calculates the distance between centroids.
+     * @param cc the distance between each pair of centroids on output.
+     * @param s the half distance between each centroid and its closest
+     *          other centroid on output.
+     */
+    private static void centroidDistance(double[][] centroids, double[][] cc, double[] s) {
+        int k = centroids.length;
+        IntStream.range(0, k).parallel().forEach(i -> {
+            for (int j = i + 1; j < k; j++) {
+                double dist = MathEx.distance(centroids[i], centroids[j]);
+                cc[i][j] = dist;
+                cc[j][i] = dist;
+            }
+        });
+
+        for (int i = 0; i < k; i++) {
+            double nearest = Double.MAX_VALUE;
+            for (int j = 0; j < k; j++) {
+                if (j != i && cc[i][j] < nearest) nearest = cc[i][j];
+            }
+            s[i] = 0.5 * nearest;
+        }
+    }
+
+    /**
+     * Calculates the new centroids in the new clusters.
+     * @param move the distance that each centroid moves on output.
+     */
+    private static void moveCentroids(double[][] centroids, double[][] data, int[] y, int[] size, double[] move) {
+        int k = centroids.length;
+        double[][] prev = new double[k][];
+        for (int j = 0; j < k; j++) {
+            prev[j] = centroids[j].clone();
+        }
+
+        updateCentroids(centroids, data, y, size);
+        for (int j = 0; j < k; j++) {
+            move[j] = MathEx.distance(prev[j], centroids[j]);
+        }
+    }
+
+    /** Returns the total distortion of the clustering. */
+    private static double distortion(double[][] data, double[][] centroids, int[] y) {
+        return IntStream.range(0, data.length).parallel()
+                .mapToDouble(i -> MathEx.squaredDistance(data[i], centroids[y[i]]))
+                .sum();
+    }
 }
@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.clustering;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import smile.math.MathEx;
+import smile.util.Strings;
+
+/**
+ * Mini-batch K-Means clustering. Instead of the whole data set, each
+ * iteration of mini-batch k-means takes a small random batch of samples,
+ * assigns them to the nearest centroids, and then moves the centroids
+ * towards the samples by gradient steps with per-centroid learning rate,
+ * which is the inverse of the number of samples that the centroid has
+ * seen so far. Therefore, each centroid is the running average of all
+ * samples assigned to it.
+ * <p>
+ * As the memory and computation of each iteration depend only on the batch
+ * size, mini-batch k-means scales to very large data sets, which may not
+ * even fit in the memory and be streamed from the disk or network. It
+ * converges much faster than the online (stochastic gradient descent)
+ * k-means with a slightly worse solution than the batch k-means.
+ * <p>
+ * The centroids are initialized by k-means++ on the first batch.
+ * <p>
+ * For the data streams of which the distribution drifts over time,
+ * the counts of centroids may be exponentially decayed by a factor
+ * for each new observation so that the centroids forget the old
+ * observations. With the decay factor &alpha; &lt; 1, the learning
+ * rate of centroids is at least 1 - &alpha;, i.e. each centroid is
+ * the exponentially weighted moving average of its recent samples.
+ * The model can be updated with an observation at a time or with
+ * a batch of observations.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li> D. Sculley. Web-scale k-means clustering. WWW, 2010.</li>
+ * </ol>
+ *
+ * @see KMeans
+ *
+ * @author Haifeng Li
+ */
+public class MiniBatchKMeans implements Serializable {
+    private static final long serialVersionUID = 2L;
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(MiniBatchKMeans.class);
+
+    /**
+     * The number of clusters.
+     */
+    public final int k;
+    /**
+     * The centroids of each cluster.
+     */
+    public final double[][] centroids;
+    /**
+     * The decay factor of counts for each new observation.
+     */
+    public final double decay;
+    /**
+     * The (decayed) number of samples that each centroid has seen,
+     * which determines its learning rate.
+     */
+    private final double[] count;
+
+    /**
+     * Constructor.
+     * @param centroids the initial centroids of each cluster.
+     */
+    public MiniBatchKMeans(double[][] centroids) {
+        this(centroids, 1.0);
+    }
+
+    /**
+     * Constructor.
+     * @param centroids the initial centroids of each cluster.
+     * @param decay the decay factor of counts for each new observation,
+     *              in (0, 1]. No decay if it is 1.
+     */
+    public MiniBatchKMeans(double[][] centroids, double decay) {
+        if (centroids.length < 2) {
+            throw new IllegalArgumentException("Invalid number of clusters: " + centroids.length);
+        }
+
+        if (decay <= 0.0 || decay > 1.0) {
+            throw new IllegalArgumentException("Invalid decay factor: " + decay);
+        }
+
+        this.k = centroids.length;
+        this.centroids = centroids;
+        this.decay = decay;
+        this.count = new double[k];
+    }
+
+    /**
+     * Partitions a stream of observations into k clusters. The stream is
+     * consumed in one pass by batches so that the whole data set needs
+     * not be loaded in the memory.
+     *
+     * @param data the stream of observations.
+     * @param k the number of clusters.
+     * @param batchSize the number of observations in a batch, which should
+     *                  be at least k.
+     */
+    public static MiniBatchKMeans fit(Stream<double[]> data, int k, int batchSize) {
+        return fit(data, k, batchSize, 1.0);
+    }
+
+    /**
+     * Partitions a stream of observations into k clusters. The stream is
+     * consumed in one pass by batches so that the whole data set needs
+     * not be loaded in the memory.
+     *
+     * @param data the stream of observations.
+     * @param k the number of clusters.
+     * @param batchSize the number of observations in a batch, which should
+     *                  be at least k.
+     * @param decay the decay factor of counts for each new observation,
+     *              in (0, 1]. No decay if it is 1.
+     */
+    public static MiniBatchKMeans fit(Stream<double[]> data, int k, int batchSize, double decay) {
+        if (k < 2) {
+            throw new IllegalArgumentException("Invalid number of clusters: " + k);
+        }
+
+        if (batchSize < k) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        Iterator<double[]> iter = data.iterator();
+        double[][] batch = next(iter, batchSize);
+        if (batch.length < k) {
+            throw new IllegalArgumentException("The first batch has fewer observations than the number of clusters: " + batch.length);
+        }
+
+        MiniBatchKMeans model = new MiniBatchKMeans(seed(batch, k), decay);
+        for (int t = 1; batch.length > 0; t++) {
+            double distortion = model.update(batch);
+            logger.info(String.format("Distortion of %s batch: %.4f", Strings.ordinal(t), distortion));
+            batch = next(iter, batchSize);
+        }
+
+        return model;
+    }
+
+    /**
+     * Partitions data into k clusters by the batches of random samples.
+     *
+     * @param data the input data of which each row is an observation.
+     * @param k the number of clusters.
+     * @param batchSize the number of observations in a batch, which should
+     *                  be at least k.
+     * @param maxIter the number of iterations (batches).
+     */
+    public static MiniBatchKMeans fit(double[][] data, int k, int batchSize, int maxIter) {
+        if (k < 2) {
+            throw new IllegalArgumentException("Invalid number of clusters: " + k);
+        }
+
+        if (batchSize < k || batchSize > data.length) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        if (maxIter <= 0) {
+            throw new IllegalArgumentException("Invalid maximum number of iterations: " + maxIter);
+        }
+
+        int n = data.length;
+        double[][] batch = new double[batchSize][];
+        int[] index = MathEx.permutate(n);
+        for (int i = 0; i < batchSize; i++) {
+            batch[i] = data[index[i]];
+        }
+
+        MiniBatchKMeans model = new MiniBatchKMeans(seed(batch, k));
+        for (int iter = 1; iter <= maxIter; iter++) {
+            double distortion = model.update(batch);
+            logger.info(String.format("Distortion after %3d iterations: %.4f", iter, distortion));
+
+            for (int i = 0; i < batchSize; i++) {
+                batch[i] = data[MathEx.randomInt(n)];
+            }
+        }
+
+        return model;
+    }
+
+    /**
+     * Returns the next batch of stream, which is empty at the end of stream.
+     */
+    private static double[][] next(Iterator<double[]> iter, int batchSize) {
+        double[][] batch = new double[batchSize][];
+        int size = 0;
+        while (size < batchSize && iter.hasNext()) {
+            batch[size++] = iter.next();
+        }
+
+        return size == batchSize ? batch : Arrays.copyOf(batch, size);
+    }
+
+    /**
+     * Returns the initial centroids by k-means++.
+     */
+    private static double[][] seed(double[][] batch, int k) {
+        double[][] medoids = new double[k][];
+        PartitionClustering.seed(batch, medoids, new int[batch.length], MathEx::squaredDistance);
+
+        // The medoids are the references of samples, which should not be modified.
+        double[][] centroids = new double[k][];
+        for (int j = 0; j < k; j++) {
+            centroids[j] = medoids[j].clone();
+        }
+        return centroids;
+    }
+
+    /**
+     * Updates the centroids with a batch of observations.
+     * @param batch the batch of observations.
+     * @return the average distortion of the batch before the update.
+     */
+    public double update(double[][] batch) {
+        int n = batch.length;
+        int[] y = new int[n];
+        double distortion = IntStream.range(0, n).parallel().mapToDouble(i -> {
+            double nearest = Double.MAX_VALUE;
+            for (int j = 0; j < k; j++) {
+                double dist = MathEx.squaredDistance(batch[i], centroids[j]);
+                if (nearest > dist) {
+                    nearest = dist;
+                    y[i] = j;
+                }
+            }
+            return nearest;
+        }).sum();
+
+        for (int i = 0; i < n; i++) {
+            move(y[i], batch[i]);
+        }
+
+        return distortion / n;
+    }
+
+    /**
+     * Updates the centroids with a new observation.
+     * @param x the new observation.
+     * @return the squared distance between the observation and
+     *         its nearest centroid before the update.
+     */
+    public double update(double[] x) {
+        double nearest = Double.MAX_VALUE;
+        int y = 0;
+        for (int j = 0; j < k; j++) {
+            double dist = MathEx.squaredDistance(x, centroids[j]);
+            if (nearest > dist) {
+                nearest = dist;
+                y = j;
+            }
+        }
+
+        move(y, x);
+        return nearest;
+    }
+
+    /**
+     * Moves a centroid towards an observation assigned to it.
+     * @param j the index of centroid.
+     * @param x the observation.
+     */
+    private void move(int j, double[] x) {
+        if (decay < 1.0) {
+            for (int l = 0; l < k; l++) {
+                count[l] *= decay;
+            }
+        }
+
+        double eta = 1.0 / ++count[j];
+        double[] centroid = centroids[j];
+        for (int l = 0; l < centroid.length; l++) {
+            centroid[l] += eta * (x[l] - centroid[l]);
+        }
+    }
+
+    /**
+     * Classifies a new observation.
+     * @param x a new observation.
+     * @return the cluster label.
+     */
+    public int predict(double[] x) {
+        double nearest = Double.MAX_VALUE;
+        int label = 0;
+
+        for (int i = 0; i < k; i++) {
+            double dist = MathEx.squaredDistance(centroids[i], x);
+            if (dist < nearest) {
+                nearest = dist;
+                label = i;
+            }
+        }
+
+        return label;
+    }
+}
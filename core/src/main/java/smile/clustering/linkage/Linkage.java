@@ -17,6 +17,7 @@
 
 package smile.clustering.linkage;
 
+import java.util.stream.IntStream;
 import smile.math.MathEx;
 import smile.math.distance.Distance;
 
@@ -49,7 +50,7 @@ public abstract class Linkage {
     /** Initialize the linkage with the lower triangular proximity matrix. */
     public Linkage(double[][] proximity) {
         this.size = proximity.length;
-        this.proximity = new float[size * (size+1) / 2];
+        this.proximity = new float[length(size)];
 
         // row wise
         /*
@@ -79,8 +80,8 @@ public abstract class Linkage {
      *                  without copy. The elements may be modified.
      */
     public Linkage(int size, float[] proximity) {
-        if (proximity.length != size * (size+1) / 2) {
-            throw new IllegalArgumentException(String.format("The length of proximity is %d, expected %d", proximity.length, size * (size+1) / 2));
+        if (proximity.length != length(size)) {
+            throw new IllegalArgumentException(String.format("The length of proximity is %d, expected %d", proximity.length, length(size)));
         }
 
         this.size = size;
@@ -91,7 +92,21 @@ public abstract class Linkage {
         // row wise
         // return i > j ? i*(i+1)/2 + j : j*(j+1)/2 + i;
         // column wise
-        return i > j ? proximity.length - (size-j)*(size-j+1)/2 + i - j : proximity.length - (size-i)*(size-i+1)/2 + j - i;
+        return i > j ? proximity.length - (int) ((long) (size-j)*(size-j+1)/2) + i - j : proximity.length - (int) ((long) (size-i)*(size-i+1)/2) + j - i;
+    }
+
+    /**
+     * Returns the length of linearized proximity matrix.
+     * @param n the data size.
+     * @throws IllegalArgumentException if the proximity matrix is
+     *         too large for an array.
+     */
+    static int length(int n) {
+        long length = (long) n * (n+1) / 2;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("The proximity matrix of %d samples is too large. Use HierarchicalClustering.single() or ward() on the data instead.", n));
+        }
+        return (int) length;
     }
 
     /** Returns the proximity matrix size. */
@@ -117,15 +132,15 @@ public abstract class Linkage {
     /** Calculate the proximity matrix (linearized in column major) with Euclidean distance. */
     public static float[] proximity(double[][] data) {
         int n = data.length;
-        int length = n * (n+1) / 2;
+        int length = length(n);
 
         float[] proximity = new float[length];
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < i; j++) {
-                int k = length - (n-j)*(n-j+1)/2 + i - j;
-                proximity[k] = (float) MathEx.distance(data[i], data[j]);
+        IntStream.range(0, n).parallel().forEach(j -> {
+            int k = length - (int) ((long) (n-j)*(n-j+1)/2);
+            for (int i = j + 1; i < n; i++) {
+                proximity[k + i - j] = (float) MathEx.distance(data[i], data[j]);
             }
-        }
+        });
 
         return proximity;
     }
@@ -133,15 +148,15 @@ public abstract class Linkage {
     /** Calculate the proximity matrix (linearized in column major). */
     public static <T> float[] proximity(T[] data, Distance<T> distance) {
         int n = data.length;
-        int length = n * (n+1) / 2;
+        int length = length(n);
 
         float[] proximity = new float[length];
-        for (int i = 0; i < n; i++) {
-            for (int j = 0; j < i; j++) {
-                int k = length - (n-j)*(n-j+1)/2 + i - j;
-                proximity[k] = (float) distance.d(data[i], data[j]);
+        IntStream.range(0, n).parallel().forEach(j -> {
+            int k = length - (int) ((long) (n-j)*(n-j+1)/2);
+            for (int i = j + 1; i < n; i++) {
+                proximity[k + i - j] = (float) distance.d(data[i], data[j]);
             }
-        }
+        });
 
         return proximity;
     }
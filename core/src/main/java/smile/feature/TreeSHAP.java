@@ -17,7 +17,9 @@
 
 package smile.feature;
 
+import java.util.Arrays;
 import smile.base.cart.CART;
+import smile.base.cart.ForestSHAP;
 import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.formula.Formula;
@@ -26,6 +28,11 @@ import smile.data.formula.Formula;
  * SHAP of ensemble tree methods. TreeSHAP is a fast and exact method to
  * estimate SHAP values for tree models and ensembles of trees, under
  * several different possible assumptions about feature dependence.
+ * <p>
+ * To explain a large number of instances, the batch method
+ * <code>explain</code> compiles the trees into the path tables of
+ * Fast TreeSHAP v2 once and reuses them across instances. It may
+ * also compute the approximate Saabas values, which are much faster.
  *
  * @author Haifeng Li
  */
@@ -68,9 +75,45 @@ public interface TreeSHAP extends SHAP<Tuple> {
      * Returns the average of absolute SHAP values over a data frame.
      */
     default double[] shap(DataFrame data) {
+        double[][] phi = explain(data);
+        for (double[] phii : phi) {
+            for (int j = 0; j < phii.length; j++) {
+                phii[j] = Math.abs(phii[j]);
+            }
+        }
+        return smile.math.MathEx.colMeans(phi);
+    }
+
+    /**
+     * Returns the SHAP values of each instance in a data frame.
+     * @param data the data frame.
+     * @return the SHAP values, of which row i is the SHAP values
+     *         of i-th instance in the layout of shap(Tuple).
+     */
+    default double[][] explain(DataFrame data) {
+        return explain(data, false);
+    }
+
+    /**
+     * Returns the SHAP values of each instance in a data frame.
+     * @param data the data frame.
+     * @param approximate if true, returns the approximate Saabas values,
+     *                    which attribute the change of expected value
+     *                    along the decision path to the split features.
+     * @return the SHAP values, of which row i is the SHAP values
+     *         of i-th instance in the layout of shap(Tuple).
+     */
+    default double[][] explain(DataFrame data, boolean approximate) {
         // Binds the formula to the data frame's schema in case that
         // it is different from that of training data.
         formula().bind(data.schema());
-        return shap(data.stream().parallel());
+        DataFrame x = formula().x(data);
+
+        CART[] forest = trees();
+        double[] weight = new double[forest.length];
+        Arrays.fill(weight, 1.0 / forest.length);
+
+        ForestSHAP explainer = ForestSHAP.of(forest);
+        return approximate ? explainer.saabas(x, weight) : explainer.shap(x, weight);
     }
 }
@@ -18,7 +18,9 @@
 package smile.manifold;
 
 import java.io.Serializable;
+import java.util.function.Function;
 import smile.graph.AdjacencyList;
+import smile.graph.CSRGraph;
 import smile.graph.Graph.Edge;
 import smile.math.MathEx;
 import smile.math.blas.UPLO;
@@ -26,6 +28,7 @@ import smile.math.distance.Distance;
 import smile.math.distance.EuclideanDistance;
 import smile.math.matrix.ARPACK;
 import smile.math.matrix.Matrix;
+import smile.neighbor.KNNSearch;
 
 /**
  * Isometric feature mapping. Isomap is a widely used low-dimensional embedding methods,
@@ -138,13 +141,35 @@ public class IsoMap implements Serializable {
      * @param conformal C-Isomap algorithm if true, otherwise standard algorithm.
      */
     public static <T> IsoMap of(T[] data, Distance<T> distance, int k, int d, boolean conformal) {
+        return of(data.length, k, d, conformal, consumer -> NearestNeighborGraph.of(data, distance, k, false, consumer));
+    }
+
+    /**
+     * Runs the Isomap algorithm.
+     * @param data the input data.
+     * @param knn the k-nearest neighbor search algorithm on the data,
+     *            e.g. an approximate nearest neighbor search for
+     *            large data sets.
+     * @param k k-nearest neighbor.
+     * @param d the dimension of the manifold.
+     * @param conformal C-Isomap algorithm if true, otherwise standard algorithm.
+     */
+    public static <T> IsoMap ofKnn(T[] data, KNNSearch<T, T> knn, int k, int d, boolean conformal) {
+        return of(data.length, k, d, conformal, consumer -> NearestNeighborGraph.ofKnn(data, knn, k, false, consumer));
+    }
+
+    /**
+     * Runs the Isomap algorithm on the nearest neighbor graph.
+     * @param n the number of samples.
+     * @param nng the builder of nearest neighbor graph with an optional edge consumer.
+     */
+    private static IsoMap of(int n, int k, int d, boolean conformal, Function<NearestNeighborGraph.EdgeConsumer, AdjacencyList> nng) {
         AdjacencyList graph;
         if (!conformal) {
-            graph = NearestNeighborGraph.of(data, distance, k, false, null);
+            graph = nng.apply(null);
         } else {
-            int n = data.length;
             double[] M = new double[n];
-            graph = NearestNeighborGraph.of(data, distance, k, false, (v1, v2, weight, j) -> {
+            graph = nng.apply((v1, v2, weight, j) -> {
                 M[v1] += weight;
             });
 
@@ -158,13 +183,14 @@ public class IsoMap implements Serializable {
         }
 
         // Use largest connected component of nearest neighbor graph.
-        NearestNeighborGraph nng = NearestNeighborGraph.largest(graph);
+        NearestNeighborGraph largest = NearestNeighborGraph.largest(graph);
 
-        int[] index = nng.index;
-        int n = index.length;
-        graph = nng.graph;
+        int[] index = largest.index;
+        n = index.length;
+        graph = largest.graph;
 
-        double[][] D = graph.dijkstra();
+        // Geodesic distances by parallel Dijkstra on the compact CSR graph.
+        double[][] D = CSRGraph.of(graph).dijkstra();
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < i; j++) {
                 D[i][j] = -0.5 * D[i][j] * D[i][j];
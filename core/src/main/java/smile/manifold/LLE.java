@@ -19,6 +19,7 @@ package smile.manifold;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.function.Function;
 import smile.graph.AdjacencyList;
 import smile.math.MathEx;
 import smile.math.blas.Transpose;
@@ -26,6 +27,7 @@ import smile.math.matrix.ARPACK;
 import smile.math.matrix.DMatrix;
 import smile.math.matrix.Matrix;
 import smile.math.matrix.SparseMatrix;
+import smile.neighbor.KNNSearch;
 
 /**
  * Locally Linear Embedding. It has several advantages over Isomap, including
@@ -96,6 +98,27 @@ public class LLE implements Serializable {
      * @param k k-nearest neighbor.
      */
     public static LLE of(double[][] data, int k, int d) {
+        return of(data, k, d, consumer -> NearestNeighborGraph.of(data, k, false, consumer));
+    }
+
+    /**
+     * Runs the LLE algorithm.
+     * @param data the input data.
+     * @param knn the k-nearest neighbor search algorithm on the data,
+     *            e.g. an approximate nearest neighbor search for
+     *            large data sets.
+     * @param d the dimension of the manifold.
+     * @param k k-nearest neighbor.
+     */
+    public static LLE of(double[][] data, KNNSearch<double[], double[]> knn, int k, int d) {
+        return of(data, k, d, consumer -> NearestNeighborGraph.ofKnn(data, knn, k, false, consumer));
+    }
+
+    /**
+     * Runs the LLE algorithm on the nearest neighbor graph.
+     * @param nng the builder of nearest neighbor graph with an edge consumer.
+     */
+    private static LLE of(double[][] data, int k, int d, Function<NearestNeighborGraph.EdgeConsumer, AdjacencyList> nng) {
         int D = data[0].length;
 
         double tol = 0.0;
@@ -106,14 +129,14 @@ public class LLE implements Serializable {
 
         // Use largest connected component of nearest neighbor graph.
         int[][] N = new int[data.length][k];
-        AdjacencyList graph = NearestNeighborGraph.of(data, k, false, (v1, v2, weight, j) -> {
+        AdjacencyList graph = nng.apply((v1, v2, weight, j) -> {
             N[v1][j] = v2;
         });
-        NearestNeighborGraph nng = NearestNeighborGraph.largest(graph);
+        NearestNeighborGraph largest = NearestNeighborGraph.largest(graph);
 
-        int[] index = nng.index;
+        int[] index = largest.index;
         int n = index.length;
-        graph = nng.graph;
+        graph = largest.graph;
 
         // The reverse index maps the original data to the largest connected component
         // in case that the graph is disconnected.
@@ -28,6 +28,7 @@ import smile.math.distance.EuclideanDistance;
 import smile.math.matrix.ARPACK;
 import smile.math.matrix.Matrix;
 import smile.math.matrix.SparseMatrix;
+import smile.neighbor.KNNSearch;
 import smile.util.SparseArray;
 
 /**
@@ -138,8 +139,32 @@ public class LaplacianEigenmap implements Serializable {
      *          Non-positive value means discrete weights.
      */
     public static <T> LaplacianEigenmap of(T[] data, Distance<T> distance, int k, int d, double t) {
+        return of(NearestNeighborGraph.of(data, distance, k, false, null), d, t);
+    }
+
+    /**
+     * Laplacian Eigenmap with Gaussian kernel.
+     * @param data the input data.
+     * @param knn the k-nearest neighbor search algorithm on the data,
+     *            e.g. an approximate nearest neighbor search for
+     *            large data sets.
+     * @param k k-nearest neighbor.
+     * @param d the dimension of the manifold.
+     * @param t the smooth/width parameter of heat kernel e<sup>-||x-y||<sup>2</sup> / t</sup>.
+     *          Non-positive value means discrete weights.
+     */
+    public static <T> LaplacianEigenmap ofKnn(T[] data, KNNSearch<T, T> knn, int k, int d, double t) {
+        return of(NearestNeighborGraph.ofKnn(data, knn, k, false, null), d, t);
+    }
+
+    /**
+     * Laplacian Eigenmap on the nearest neighbor graph.
+     * @param graph the nearest neighbor graph.
+     * @param d the dimension of the manifold.
+     * @param t the smooth/width parameter of heat kernel.
+     */
+    private static LaplacianEigenmap of(AdjacencyList graph, int d, double t) {
         // Use largest connected component of nearest neighbor graph.
-        AdjacencyList graph = NearestNeighborGraph.of(data, distance, k, false, null);
         NearestNeighborGraph nng = NearestNeighborGraph.largest(graph);
 
         int[] index = nng.index;
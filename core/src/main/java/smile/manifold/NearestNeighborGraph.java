@@ -21,6 +21,7 @@ import smile.graph.AdjacencyList;
 import smile.graph.Graph;
 import smile.math.distance.Distance;
 import smile.math.distance.EuclideanDistance;
+import smile.neighbor.KNNSearch;
 import smile.neighbor.LinearSearch;
 import smile.neighbor.Neighbor;
 
@@ -114,6 +115,41 @@ class NearestNeighborGraph {
         return graph;
     }
 
+    /**
+     * Creates a nearest neighbor graph with a k-nearest neighbor search
+     * algorithm, e.g. an approximate nearest neighbor search for large
+     * data sets. The neighbors of all samples are searched by batch.
+     *
+     * @param data the dataset.
+     * @param knn the k-nearest neighbor search algorithm on the dataset.
+     * @param k k-nearest neighbor.
+     * @param digraph flag to create a directed graph.
+     * @param consumer an optional lambda to perform some side effect operations.
+     */
+    public static <T> AdjacencyList ofKnn(T[] data, KNNSearch<T, T> knn, int k, boolean digraph, EdgeConsumer consumer) {
+        int n = data.length;
+        int[] index = new int[n * k];
+        double[] distance = new double[n * k];
+        knn.knn(data, k, index, distance);
+
+        AdjacencyList graph = new AdjacencyList(n, digraph);
+        for (int i = 0, offset = 0; i < n; i++, offset += k) {
+            for (int j = 0; j < k; j++) {
+                int v2 = index[offset + j];
+                // Fewer than k neighbors are found.
+                if (v2 < 0) break;
+
+                double weight = distance[offset + j];
+                graph.setWeight(i, v2, weight);
+                if (consumer != null) {
+                    consumer.accept(i, v2, weight, j);
+                }
+            }
+        }
+
+        return graph;
+    }
+
     /**
      * Finds the largest connected components of a nearest neighbor graph.
      * If the graph has multiple connected components, keep the
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.manifold;
+
+import java.util.Arrays;
+
+/**
+ * Space-partitioning tree for the Barnes-Hut approximation of t-SNE
+ * gradient, i.e. a quadtree in 2D, an octree in 3D, and so on. Each cell
+ * is split into 2<sup>d</sup> children at its center until it contains
+ * at most one point. Every cell keeps the number of points and the center
+ * of mass in it. The repulsive forces of the points in a cell are summarized
+ * by the center of mass if the cell is small and far enough from the
+ * point. The tree is stored in flat arrays, and the children of a cell
+ * are contiguous. It is built sequentially and can be queried in parallel.
+ *
+ * @author Haifeng Li
+ */
+class SPTree {
+    /** The maximum depth of tree to stop splitting the duplicate points. */
+    private static final int MAX_DEPTH = 48;
+
+    /** The embedding coordinates. */
+    private final double[][] Y;
+    /** The dimension of embedding space. */
+    private final int d;
+    /** The number of children of a cell. */
+    private final int nchild;
+    /** The point indices, which are sorted so that each cell is a contiguous range. */
+    private final int[] index;
+    /** The quadrant code of points during the construction. */
+    private final int[] code;
+    /** The buffer of point indices during the construction. */
+    private final int[] buffer;
+    /** The number of cells. */
+    private int size;
+    /** The center of mass of cells. */
+    private double[] center;
+    /** The width of cells. */
+    private double[] width;
+    /** The number of points in cells. */
+    private int[] count;
+    /** The first point of cells in the index array. */
+    private int[] begin;
+    /** The first child of cells, or -1 for leaf. */
+    private int[] child;
+
+    /**
+     * Constructor.
+     * @param Y the embedding coordinates of dimension no more than 3.
+     */
+    public SPTree(double[][] Y) {
+        this.Y = Y;
+        int n = Y.length;
+        d = Y[0].length;
+        if (d > 3) {
+            throw new IllegalArgumentException("Invalid dimension of embedding space: " + d);
+        }
+
+        nchild = 1 << d;
+        index = new int[n];
+        code = new int[n];
+        buffer = new int[n];
+        for (int i = 0; i < n; i++) {
+            index[i] = i;
+        }
+
+        int capacity = 2 * n + nchild;
+        center = new double[capacity * d];
+        width = new double[capacity];
+        count = new int[capacity];
+        begin = new int[capacity];
+        child = new int[capacity];
+
+        double[] lo = new double[d];
+        double[] hi = new double[d];
+        Arrays.fill(lo, Double.POSITIVE_INFINITY);
+        Arrays.fill(hi, Double.NEGATIVE_INFINITY);
+        for (double[] y : Y) {
+            for (int k = 0; k < d; k++) {
+                lo[k] = Math.min(lo[k], y[k]);
+                hi[k] = Math.max(hi[k], y[k]);
+            }
+        }
+
+        double half = 0.0;
+        double[] corner = new double[d];
+        for (int k = 0; k < d; k++) {
+            corner[k] = (lo[k] + hi[k]) / 2;
+            half = Math.max(half, (hi[k] - lo[k]) / 2);
+        }
+
+        size = 1;
+        build(0, 0, n, corner, half + 1E-5, 0);
+    }
+
+    /**
+     * Builds a cell.
+     * @param node the cell index.
+     * @param from the first point of cell.
+     * @param to the end (exclusive) of points of cell.
+     * @param mid the center (not mass) of cell.
+     * @param half the half width of cell.
+     * @param depth the depth of cell.
+     */
+    private void build(int node, int from, int to, double[] mid, double half, int depth) {
+        int n = to - from;
+        count[node] = n;
+        begin[node] = from;
+        width[node] = 2 * half;
+        child[node] = -1;
+
+        int offset = node * d;
+        for (int p = from; p < to; p++) {
+            double[] y = Y[index[p]];
+            for (int k = 0; k < d; k++) {
+                center[offset + k] += y[k];
+            }
+        }
+
+        if (n > 0) {
+            for (int k = 0; k < d; k++) {
+                center[offset + k] /= n;
+            }
+        }
+
+        if (n <= 1 || depth >= MAX_DEPTH) return;
+
+        // Counting sort of points by the children.
+        int[] start = new int[nchild + 1];
+        for (int p = from; p < to; p++) {
+            double[] y = Y[index[p]];
+            int c = 0;
+            for (int k = 0; k < d; k++) {
+                if (y[k] > mid[k]) c |= 1 << k;
+            }
+            code[p] = c;
+            start[c + 1]++;
+        }
+
+        for (int c = 0; c < nchild; c++) {
+            start[c + 1] += start[c];
+        }
+
+        int[] pos = Arrays.copyOf(start, nchild);
+        for (int p = from; p < to; p++) {
+            buffer[from + pos[code[p]]++] = index[p];
+        }
+        System.arraycopy(buffer, from, index, from, n);
+
+        int first = allocate();
+        child[node] = first;
+        double quarter = half / 2;
+        double[] corner = new double[d];
+        for (int c = 0; c < nchild; c++) {
+            for (int k = 0; k < d; k++) {
+                corner[k] = (c & (1 << k)) != 0 ? mid[k] + quarter : mid[k] - quarter;
+            }
+            build(first + c, from + start[c], from + start[c + 1], corner, quarter, depth + 1);
+        }
+    }
+
+    /** Allocates the cells of children and returns the first one. */
+    private int allocate() {
+        if (size + nchild > count.length) {
+            int capacity = Math.max(2 * count.length, size + nchild);
+            center = Arrays.copyOf(center, capacity * d);
+            width = Arrays.copyOf(width, capacity);
+            count = Arrays.copyOf(count, capacity);
+            begin = Arrays.copyOf(begin, capacity);
+            child = Arrays.copyOf(child, capacity);
+        }
+
+        int first = size;
+        size += nchild;
+        return first;
+    }
+
+    /**
+     * Computes the (unnormalized) repulsive force on a point.
+     * @param i the point index.
+     * @param theta the accuracy/speed trade-off parameter. A cell is
+     *              summarized by its center of mass if its width is
+     *              less than theta times its distance to the point.
+     * @param force the output repulsive force, which should be
+     *              divided by the sum of q.
+     * @return the sum of unnormalized q between the point and others.
+     */
+    public double repulsive(int i, double theta, double[] force) {
+        double[] yi = Y[i];
+        Arrays.fill(force, 0.0);
+        double theta2 = theta * theta;
+        double sum = 0.0;
+
+        int[] stack = new int[MAX_DEPTH * nchild + 1];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            int n = count[node];
+            if (n == 0) continue;
+
+            if (child[node] < 0) {
+                // Leaf: exact forces of the points.
+                for (int p = begin[node]; p < begin[node] + n; p++) {
+                    int j = index[p];
+                    if (j == i) continue;
+
+                    double[] yj = Y[j];
+                    double dist = 0.0;
+                    for (int k = 0; k < d; k++) {
+                        double diff = yi[k] - yj[k];
+                        dist += diff * diff;
+                    }
+
+                    double q = 1.0 / (1.0 + dist);
+                    sum += q;
+                    double mult = q * q;
+                    for (int k = 0; k < d; k++) {
+                        force[k] += mult * (yi[k] - yj[k]);
+                    }
+                }
+            } else {
+                int offset = node * d;
+                double dist = 0.0;
+                for (int k = 0; k < d; k++) {
+                    double diff = yi[k] - center[offset + k];
+                    dist += diff * diff;
+                }
+
+                double w = width[node];
+                if (w * w < theta2 * dist) {
+                    double q = 1.0 / (1.0 + dist);
+                    sum += n * q;
+                    double mult = n * q * q;
+                    for (int k = 0; k < d; k++) {
+                        force[k] += mult * (yi[k] - center[offset + k]);
+                    }
+                } else {
+                    int first = child[node];
+                    for (int c = 0; c < nchild; c++) {
+                        stack[top++] = first + c;
+                    }
+                }
+            }
+        }
+
+        return sum;
+    }
+}
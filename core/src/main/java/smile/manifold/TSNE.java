@@ -21,6 +21,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.stream.IntStream;
 import smile.math.MathEx;
+import smile.neighbor.NNDescent;
 import smile.stat.distribution.GaussianDistribution;
 
 /**
@@ -42,6 +43,15 @@ import smile.stat.distribution.GaussianDistribution;
  * of the points in the map. Note that while the original algorithm uses
  * the Euclidean distance between objects as the base of its similarity
  * metric, this should be changed as appropriate.
+ * <p>
+ * The exact gradient takes O(n<sup>2</sup>) time and memory per iteration,
+ * which limits t-SNE to tens of thousands of samples. With the Barnes-Hut
+ * approximation, the input similarities are computed only between each
+ * sample and its 3 * perplexity nearest neighbors, which are found by
+ * NN-Descent, and the repulsive forces are approximated by a
+ * space-partitioning tree (quadtree in 2D and octree in 3D). It takes
+ * O(n log n) time and O(n) memory per iteration, and scales to millions
+ * of samples.
  *
  * <h2>References</h2>
  * <ol>
@@ -85,6 +95,24 @@ public class TSNE implements Serializable {
     private double[][] Q;
     private double     Qsum;
 
+    /**
+     * The accuracy/speed trade-off parameter of Barnes-Hut
+     * approximation. The gradient is exact if theta is 0.
+     */
+    private double theta;
+    /**
+     * The row pointers of sparse P in the Barnes-Hut mode.
+     */
+    private int[] Prow;
+    /**
+     * The column indices of sparse P in the Barnes-Hut mode.
+     */
+    private int[] Pcol;
+    /**
+     * The nonzero values of sparse P in the Barnes-Hut mode.
+     */
+    private double[] Pval;
+
     /** Constructor. Train t-SNE for 1000 iterations, perplexity = 20 and learning rate = 200.
      *
      * @param X the input data. If X is a square matrix, it is assumed to be
@@ -105,10 +133,43 @@ public class TSNE implements Serializable {
      * @param iterations the number of iterations.
      */
     public TSNE(double[][] X, int d, double perplexity, double eta, int iterations) {
+        this(X, d, perplexity, eta, iterations, 0.0);
+    }
+
+    /** Constructor. Train t-SNE for given number of iterations.
+     *
+     * @param X the input data. If X is a square matrix, it is assumed to be
+     *         the squared distance/dissimilarity matrix.
+     * @param d the dimension of embedding space.
+     * @param perplexity the perplexity of the conditional distribution.
+     * @param eta the learning rate.
+     * @param iterations the number of iterations.
+     * @param theta the accuracy/speed trade-off parameter of Barnes-Hut
+     *              approximation, usually 0.5. A cell of space-partitioning
+     *              tree is summarized by its center of mass if its width
+     *              is less than theta times its distance to the point.
+     *              If theta is 0, the exact gradient is computed.
+     *              As the space-partitioning tree splits a cell into
+     *              2<sup>d</sup> children, Barnes-Hut approximation
+     *              supports only the embedding space of dimension
+     *              no more than 3.
+     */
+    public TSNE(double[][] X, int d, double perplexity, double eta, int iterations, double theta) {
+        if (theta < 0.0) {
+            throw new IllegalArgumentException("Invalid theta: " + theta);
+        }
+
+        if (theta > 0.0 && d > 3) {
+            throw new IllegalArgumentException("Invalid dimension of embedding space for Barnes-Hut approximation: " + d);
+        }
+
         this.eta = eta;
+        this.theta = theta;
         int n = X.length;
 
-        if (X.length == X[0].length) {
+        if (theta > 0.0) {
+            initSparseP(X, perplexity);
+        } else if (X.length == X[0].length) {
             D = X;
         } else {
             D = new double[n][n];
@@ -129,21 +190,23 @@ public class TSNE implements Serializable {
             }
         }
 
-        // Large tolerance to speed up the search of Gaussian kernel width
-        // A small difference of kernel width is not important.
-        P = expd(D, perplexity, 1E-3);
-        Q = new double[n][n];
-
-        // Make P symmetric
-        // sum(P) = 2 * n as each row of P is normalized
-        double Psum = 2 * n;
-        for (int i = 0; i < n; i++) {
-            double[] Pi = P[i];
-            for (int j = 0; j < i; j++) {
-                double p = 12.0 * (Pi[j] + P[j][i]) / Psum;
-                if (Double.isNaN(p) || p < 1E-16) p = 1E-16;
-                Pi[j] = p;
-                P[j][i] = p;
+        if (theta == 0.0) {
+            // Large tolerance to speed up the search of Gaussian kernel width
+            // A small difference of kernel width is not important.
+            P = expd(D, perplexity, 1E-3);
+            Q = new double[n][n];
+
+            // Make P symmetric
+            // sum(P) = 2 * n as each row of P is normalized
+            double Psum = 2 * n;
+            for (int i = 0; i < n; i++) {
+                double[] Pi = P[i];
+                for (int j = 0; j < i; j++) {
+                    double p = 12.0 * (Pi[j] + P[j][i]) / Psum;
+                    if (Double.isNaN(p) || p < 1E-16) p = 1E-16;
+                    Pi[j] = p;
+                    P[j][i] = p;
+                }
             }
         }
 
@@ -159,9 +222,12 @@ public class TSNE implements Serializable {
         double[][] dC = new double[n][d];
 
         for (int iter = 1; iter <= iterations; iter++, totalIter++) {
-            Qsum = computeQ(Y, Q);
-
-            IntStream.range(0, n).parallel().forEach(i -> sne(i, dY[i], dC[i]));
+            if (theta > 0.0) {
+                Qsum = bhsne(new SPTree(Y), dY, dC);
+            } else {
+                Qsum = computeQ(Y, Q);
+                IntStream.range(0, n).parallel().forEach(i -> sne(i, dY[i], dC[i]));
+            }
 
             // gradient update with momentum and gains
             IntStream.range(0, n).parallel().forEach(i -> {
@@ -177,16 +243,35 @@ public class TSNE implements Serializable {
 
             if (totalIter == momentumSwitchIter) {
                 momentum = finalMomentum;
-                for (int i = 0; i < n; i++) {
-                    double[] Pi = P[i];
-                    for (int j = 0; j < n; j++) {
-                        Pi[j] /= 12.0;
+                if (theta > 0.0) {
+                    for (int i = 0; i < Pval.length; i++) {
+                        Pval[i] /= 12.0;
+                    }
+                } else {
+                    for (int i = 0; i < n; i++) {
+                        double[] Pi = P[i];
+                        for (int j = 0; j < n; j++) {
+                            Pi[j] /= 12.0;
+                        }
                     }
                 }
             }
 
             // Compute current value of cost function
-            if (iter % 100 == 0)   {
+            if (iter % 100 == 0 && theta > 0.0) {
+                double C = IntStream.range(0, n).parallel().mapToDouble(i -> {
+                    double[] Yi = Y[i];
+                    double Ci = 0.0;
+                    for (int l = Prow[i]; l < Prow[i+1]; l++) {
+                        double p = Pval[l];
+                        double q = 1.0 / (1.0 + MathEx.squaredDistance(Yi, Y[Pcol[l]])) / Qsum;
+                        if (Double.isNaN(q) || q < 1E-16) q = 1E-16;
+                        Ci += p * MathEx.log2(p / q);
+                    }
+                    return Ci;
+                }).sum();
+                logger.info("Error after {} iterations: {}", totalIter, C);
+            } else if (iter % 100 == 0)   {
                 double C = IntStream.range(0, n).parallel().mapToDouble(i -> {
                     double[] Pi = P[i];
                     double[] Qi = Q[i];
@@ -238,13 +323,170 @@ public class TSNE implements Serializable {
             }
         }
 
-        // Update gains
-        for (int k = 0; k < d; k++) {
+        updateGains(g, dY, dC);
+    }
+
+    /** Updates the gains of learning rate. */
+    private void updateGains(double[] g, double[] dY, double[] dC) {
+        for (int k = 0; k < g.length; k++) {
             g[k] = (Math.signum(dC[k]) != Math.signum(dY[k])) ? (g[k] + .2) : (g[k] * .8);
             if (g[k] < minGain) g[k] = minGain;
         }
     }
 
+    /**
+     * Computes the gradients by Barnes-Hut approximation.
+     * @return the sum of unnormalized q.
+     */
+    private double bhsne(SPTree tree, double[][] dY, double[][] dC) {
+        double[][] Y = coordinates;
+        int n = Y.length;
+        int d = Y[0].length;
+
+        // The repulsive forces are stored in dC temporarily.
+        double Z = IntStream.range(0, n).parallel().mapToDouble(i -> tree.repulsive(i, theta, dC[i])).sum();
+
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double[] Yi = Y[i];
+            double[] dCi = dC[i];
+            double[] attractive = new double[d];
+            for (int l = Prow[i]; l < Prow[i+1]; l++) {
+                double[] Yj = Y[Pcol[l]];
+                double z = Pval[l] / (1.0 + MathEx.squaredDistance(Yi, Yj));
+                for (int k = 0; k < d; k++) {
+                    attractive[k] += z * (Yi[k] - Yj[k]);
+                }
+            }
+
+            for (int k = 0; k < d; k++) {
+                dCi[k] = 4.0 * (attractive[k] - dCi[k] / Z);
+            }
+
+            updateGains(gains[i], dY[i], dCi);
+        });
+
+        return Z;
+    }
+
+    /**
+     * Computes the sparse symmetric P on the nearest neighbors
+     * for Barnes-Hut approximation.
+     */
+    private void initSparseP(double[][] X, double perplexity) {
+        int n = X.length;
+        int k = Math.min(n - 1, (int) (3 * perplexity));
+        if (k < 1) {
+            throw new IllegalArgumentException("Invalid perplexity: " + perplexity);
+        }
+
+        int[] index = new int[n * k];
+        double[] D = new double[n * k];
+        if (X.length == X[0].length) {
+            // Select the nearest neighbors from the squared distance matrix.
+            IntStream.range(0, n).parallel().forEach(i -> {
+                int offset = i * k;
+                int size = 0;
+                double[] Xi = X[i];
+                for (int j = 0; j < n; j++) {
+                    if (i == j || (size == k && Xi[j] >= D[offset + k - 1])) continue;
+                    int l = size < k ? size++ : k - 1;
+                    for (; l > 0 && D[offset + l - 1] > Xi[j]; l--) {
+                        D[offset + l] = D[offset + l - 1];
+                        index[offset + l] = index[offset + l - 1];
+                    }
+                    D[offset + l] = Xi[j];
+                    index[offset + l] = j;
+                }
+            });
+        } else {
+            NNDescent.of(X, k).knn(X, k, index, D);
+            for (int i = 0; i < D.length; i++) {
+                D[i] *= D[i];
+            }
+        }
+
+        // Large tolerance to speed up the search of Gaussian kernel width
+        // A small difference of kernel width is not important.
+        double[] p = expd(D, k, perplexity, 1E-3);
+
+        // The reverse neighbors in the ascending order.
+        int[] rrow = new int[n + 1];
+        for (int j : index) {
+            rrow[j + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            rrow[i + 1] += rrow[i];
+        }
+
+        int[] rcol = new int[n * k];
+        double[] rval = new double[n * k];
+        int[] pos = Arrays.copyOf(rrow, n);
+        for (int i = 0; i < n; i++) {
+            for (int l = i * k; l < (i + 1) * k; l++) {
+                int j = index[l];
+                rcol[pos[j]] = i;
+                rval[pos[j]++] = p[l];
+            }
+        }
+
+        // Sort the neighbors of each row by the index.
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int offset = i * k;
+            for (int l = offset + 1; l < offset + k; l++) {
+                int j = index[l];
+                double v = p[l];
+                int m = l;
+                for (; m > offset && index[m - 1] > j; m--) {
+                    index[m] = index[m - 1];
+                    p[m] = p[m - 1];
+                }
+                index[m] = j;
+                p[m] = v;
+            }
+        });
+
+        // P = 12 * (P + P') / 2n, where 12 is the early exaggeration.
+        double Psum = 2 * n;
+        Prow = new int[n + 1];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < n; i++) {
+                int a = i * k, aend = a + k;
+                int b = rrow[i], bend = rrow[i + 1];
+                int m = pass == 0 ? 0 : Prow[i];
+                while (a < aend || b < bend) {
+                    int j;
+                    double v;
+                    if (b == bend || (a < aend && index[a] < rcol[b])) {
+                        j = index[a];
+                        v = p[a++];
+                    } else if (a == aend || rcol[b] < index[a]) {
+                        j = rcol[b];
+                        v = rval[b++];
+                    } else {
+                        j = index[a];
+                        v = p[a++] + rval[b++];
+                    }
+
+                    if (pass == 1) {
+                        Pcol[m] = j;
+                        Pval[m] = 12.0 * v / Psum;
+                    }
+                    m++;
+                }
+
+                if (pass == 0) Prow[i + 1] = m;
+            }
+
+            if (pass == 0) {
+                for (int i = 0; i < n; i++) {
+                    Prow[i + 1] += Prow[i];
+                }
+                Pcol = new int[Prow[n]];
+                Pval = new double[Prow[n]];
+            }
+        }
+    }
+
     /** Compute the Gaussian kernel (search the width for given perplexity. */
     private double[][] expd(double[][] D, double perplexity, double tol) {
         int n          = D.length;
@@ -308,6 +550,73 @@ public class TSNE implements Serializable {
         return P;
     }
 
+    /**
+     * Compute the Gaussian kernel on the nearest neighbors (search the width
+     * for given perplexity).
+     * @param D the squared distances to the k nearest neighbors of each sample.
+     * @param k the number of nearest neighbors.
+     * @return the conditional probabilities of neighbors.
+     */
+    private double[] expd(double[] D, int k, double perplexity, double tol) {
+        int n = D.length / k;
+        double[] P = new double[D.length];
+
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double logU = MathEx.log2(perplexity);
+            int offset = i * k;
+
+            double DiSum = 0.0;
+            for (int j = 0; j < k; j++) {
+                DiSum += D[offset + j];
+            }
+
+            // Use sqrt(1 / avg of distance) to initialize beta
+            double beta = DiSum > 0.0 ? Math.sqrt(k / DiSum) : 1.0;
+            double betamin = 0.0;
+            double betamax = Double.POSITIVE_INFINITY;
+
+            // Evaluate whether the perplexity is within tolerance
+            double Hdiff = Double.MAX_VALUE;
+            double Pisum = 0.0;
+            for (int iter = 0; Math.abs(Hdiff) > tol && iter < 50; iter++) {
+                Pisum = 0.0;
+                double H = 0.0;
+                for (int j = 0; j < k; j++) {
+                    double d = beta * D[offset + j];
+                    double p = Math.exp(-d);
+                    P[offset + j] = p;
+                    Pisum += p;
+                    H += p * d;
+                }
+
+                // All neighbors may underflow with a large beta.
+                if (Pisum < Double.MIN_NORMAL) Pisum = Double.MIN_NORMAL;
+                H = MathEx.log2(Pisum) + H / Pisum;
+                Hdiff = H - logU;
+
+                if (Math.abs(Hdiff) > tol) {
+                    if (Hdiff > 0) {
+                        betamin = beta;
+                        if (Double.isInfinite(betamax))
+                            beta *= 2.0;
+                        else
+                            beta = (beta + betamax) / 2;
+                    } else {
+                        betamax = beta;
+                        beta = (beta + betamin) / 2;
+                    }
+                }
+            }
+
+            // normalize by row
+            for (int j = 0; j < k; j++) {
+                P[offset + j] /= Pisum;
+            }
+        });
+
+        return P;
+    }
+
     /**
      * Compute the Q matrix.
      */
@@ -19,8 +19,10 @@ package smile.manifold;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 import smile.graph.AdjacencyList;
+import smile.graph.CSRGraph;
 import smile.graph.Graph.Edge;
 import smile.math.DifferentiableMultivariateFunction;
 import smile.math.LevenbergMarquardt;
@@ -30,6 +32,7 @@ import smile.math.distance.EuclideanDistance;
 import smile.math.matrix.ARPACK;
 import smile.math.matrix.Matrix;
 import smile.math.matrix.SparseMatrix;
+import smile.neighbor.KNNSearch;
 import smile.stat.distribution.GaussianDistribution;
 
 /**
@@ -208,6 +211,59 @@ public class UMAP implements Serializable {
      *                           greater weight being given to negative samples, default 1.0.
      */
     public static <T> UMAP of(T[] data, Distance<T> distance, int k, int d, int iterations, double learningRate, double minDist, double spread, int negativeSamples, double repulsionStrength) {
+        return of(k, d, iterations, learningRate, minDist, spread, negativeSamples, repulsionStrength,
+                () -> NearestNeighborGraph.of(data, distance, k, true, null));
+    }
+
+    /**
+     * Runs the UMAP algorithm.
+     *
+     * @param data               the input data.
+     * @param knn                the k-nearest neighbor search algorithm on the data,
+     *                           e.g. an approximate nearest neighbor search for
+     *                           large data sets.
+     * @param k                  k-nearest neighbor. Larger values result in more global views
+     *                           of the manifold, while smaller values result in more local data
+     *                           being preserved. Generally in the range 2 to 100.
+     * @param d                  The target embedding dimensions. defaults to 2 to provide easy
+     *                           visualization, but can reasonably be set to any integer value
+     *                           in the range 2 to 100.
+     * @param iterations         The number of iterations to optimize the
+     *                           low-dimensional representation. Larger values result in more
+     *                           accurate embedding. Muse be at least 10. Choose wise value
+     *                           based on the size of the input data, e.g, 200 for large
+     *                           data (1000+ samples), 500 for small.
+     * @param learningRate       The initial learning rate for the embedding optimization,
+     *                           default 1.
+     * @param minDist            The desired separation between close points in the embedding
+     *                           space. Smaller values will result in a more clustered/clumped
+     *                           embedding where nearby points on the manifold are drawn closer
+     *                           together, while larger values will result on a more even
+     *                           disperse of points. The value should be set no-greater than
+     *                           and relative to the spread value, which determines the scale
+     *                           at which embedded points will be spread out. default 0.1.
+     * @param spread             The effective scale of embedded points. In combination with
+     *                           minDist, this determines how clustered/clumped the embedded
+     *                           points are. default 1.0.
+     * @param negativeSamples    The number of negative samples to select per positive sample
+     *                           in the optimization process. Increasing this value will result
+     *                           in greater repulsive force being applied, greater optimization
+     *                           cost, but slightly more accuracy, default 5.
+     * @param repulsionStrength  Weighting applied to negative samples in low dimensional
+     *                           embedding optimization. Values higher than one will result in
+     *                           greater weight being given to negative samples, default 1.0.
+     */
+    public static <T> UMAP ofKnn(T[] data, KNNSearch<T, T> knn, int k, int d, int iterations, double learningRate, double minDist, double spread, int negativeSamples, double repulsionStrength) {
+        return of(k, d, iterations, learningRate, minDist, spread, negativeSamples, repulsionStrength,
+                () -> NearestNeighborGraph.ofKnn(data, knn, k, true, null));
+    }
+
+    /**
+     * Runs the UMAP algorithm on the nearest neighbor graph.
+     * @param nng the builder of nearest neighbor graph, which is
+     *            called after the validation of hyperparameters.
+     */
+    private static UMAP of(int k, int d, int iterations, double learningRate, double minDist, double spread, int negativeSamples, double repulsionStrength, Supplier<AdjacencyList> nng) {
         if (d < 2) {
             throw new IllegalArgumentException("d must be greater than 1: " + d);
         }
@@ -233,10 +289,9 @@ public class UMAP implements Serializable {
         // Construct the local fuzzy simplicial set by locally approximating
         // geodesic distance at each point, and then combining all the local
         // fuzzy simplicial sets into a global one via a fuzzy union.
-        AdjacencyList graph = NearestNeighborGraph.of(data, distance, k, true,null);
-        NearestNeighborGraph nng = NearestNeighborGraph.largest(graph);
+        NearestNeighborGraph largest = NearestNeighborGraph.largest(nng.get());
 
-        graph = computeFuzzySimplicialSet(nng.graph, k, 64);
+        AdjacencyList graph = computeFuzzySimplicialSet(largest.graph, k, 64);
         SparseMatrix conorm = graph.toMatrix();
 
         // Spectral embedding initialization
@@ -252,7 +307,7 @@ public class UMAP implements Serializable {
         SparseMatrix epochs = computeEpochPerSample(conorm, iterations);
         logger.info("Start optimizing the layout");
         optimizeLayout(coordinates, curve, epochs, iterations, learningRate, negativeSamples, repulsionStrength);
-        return new UMAP(nng.index, coordinates, graph);
+        return new UMAP(largest.index, coordinates, graph);
     }
 
     /**
@@ -406,12 +461,18 @@ public class UMAP implements Serializable {
         }
 
         // probabilistic t-conorm: (a + a' - a .* a')
+        // The reverse arcs are looked up by binary search in CSR graph.
+        CSRGraph csr = CSRGraph.of(nng);
         AdjacencyList G = new AdjacencyList(n, false);
         for (int i = 0; i < n; i++) {
             for (Edge edge : nng.getEdges(i)) {
+                // The mutual arcs are added once by the smaller vertex.
+                boolean mutual = csr.hasEdge(edge.v2, edge.v1);
+                if (mutual && edge.v2 < edge.v1) continue;
+
                 double w = edge.weight;
-                double w2 = nng.getWeight(edge.v2, edge.v1); // weight of reverse arc.
-                G.setWeight(edge.v1, edge.v2, w + w2 - w * w2);
+                double w2 = csr.getWeight(edge.v2, edge.v1); // weight of reverse arc.
+                G.addEdge(edge.v1, edge.v2, w + w2 - w * w2);
             }
         }
 
@@ -0,0 +1,715 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.neighbor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import smile.math.MathEx;
+import smile.math.distance.Distance;
+import smile.math.distance.EuclideanDistance;
+
+/**
+ * Hierarchical Navigable Small World (HNSW) graph for approximate nearest
+ * neighbor search. HNSW is a multi-layer proximity graph. The bottom layer
+ * contains all the elements, and each upper layer contains a subset of
+ * the elements in the layer below, where the maximum layer of an element
+ * is randomly selected with an exponentially decaying probability. The
+ * search starts from the top layer, greedily goes down to the layer below
+ * at the nearest element found so far, and finishes with a best-first
+ * search on the bottom layer. The links of an element are selected by
+ * a heuristic that prefers the diverse directions, which keeps the graph
+ * navigable on clustered data. The search complexity scales
+ * logarithmically with the number of elements.
+ * <p>
+ * The parameter M is the number of links of an element per layer (2M on
+ * the bottom layer). Larger M gives better recall on high dimensional data
+ * at the cost of memory and slower construction, typically 12 to 48. The
+ * parameter efConstruction is the size of dynamic candidate list during
+ * the construction, and ef is the one during the search. Larger values
+ * give better recall but slower speed. The ef may be tuned anytime after
+ * the construction.
+ * <p>
+ * The elements can be added concurrently from multiple threads, and the
+ * search can run concurrently with the insertion. Unlike the exact search
+ * methods, the results are approximate. The distance function does not
+ * need to be a metric.
+ * <p>
+ * By default, the query object (reference equality) is excluded from the
+ * neighborhood.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li> Yu. A. Malkov and D. A. Yashunin. Efficient and robust approximate nearest neighbor search using Hierarchical Navigable Small World graphs. IEEE TPAMI, 42(4):824-836, 2020.</li>
+ * </ol>
+ *
+ * @param <E> the type of data objects.
+ *
+ * @author Haifeng Li
+ */
+public class HNSW<E> implements NearestNeighborSearch<E, E>, KNNSearch<E, E>, RNNSearch<E, E>, Serializable {
+    private static final long serialVersionUID = 2L;
+
+    /** The number of bits of element index within a page. */
+    private static final int PAGE_BITS = 16;
+    /** The number of elements in a page. */
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    /** The maximum number of pages. */
+    private static final int MAX_PAGES = 1 << (31 - PAGE_BITS);
+    /** The maximum layer of elements. */
+    private static final int MAX_LEVEL = 32;
+
+    /**
+     * The distance function.
+     */
+    private final Distance<E> distance;
+    /**
+     * The number of links of an element on the upper layers.
+     */
+    private final int M;
+    /**
+     * The number of links of an element on the bottom layer.
+     */
+    private final int M0;
+    /**
+     * The size of dynamic candidate list during the construction.
+     */
+    private final int efConstruction;
+    /**
+     * The normalization factor of level generation.
+     */
+    private final double mL;
+    /**
+     * The size of dynamic candidate list during the search.
+     */
+    private volatile int ef;
+    /**
+     * The elements in pages, which are allocated on demand
+     * so that the elements can be added concurrently.
+     */
+    private final AtomicReferenceArray<Node<E>[]> pages = new AtomicReferenceArray<>(MAX_PAGES);
+    /**
+     * The number of elements.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+    /**
+     * The index of entry point on the top layer.
+     */
+    private volatile int entry = -1;
+    /**
+     * The top layer.
+     */
+    private volatile int top = -1;
+    /**
+     * The per-thread visited flags of search.
+     */
+    private transient volatile ThreadLocal<Visited> visited;
+
+    /**
+     * An element of graph.
+     */
+    private static class Node<E> implements Serializable {
+        private static final long serialVersionUID = 2L;
+
+        /** The data object. */
+        final E key;
+        /**
+         * The links of each layer. The first element of each list is the
+         * number of links. The lists are guarded by the node lock.
+         */
+        final int[][] links;
+
+        /**
+         * Constructor.
+         * @param key the data object.
+         * @param level the maximum layer of element.
+         * @param M the number of links on the upper layers.
+         * @param M0 the number of links on the bottom layer.
+         */
+        Node(E key, int level, int M, int M0) {
+            this.key = key;
+            links = new int[level + 1][];
+            links[0] = new int[M0 + 1];
+            for (int l = 1; l <= level; l++) {
+                links[l] = new int[M + 1];
+            }
+        }
+
+        /**
+         * Copies the links of a layer to the buffer.
+         * @return the number of links.
+         */
+        synchronized int links(int level, int[] buffer) {
+            int[] list = links[level];
+            int n = list[0];
+            System.arraycopy(list, 1, buffer, 0, n);
+            return n;
+        }
+
+        /** Sets the links of a layer. */
+        synchronized void setLinks(int level, int[] neighbors, int n) {
+            int[] list = links[level];
+            System.arraycopy(neighbors, 0, list, 1, n);
+            list[0] = n;
+        }
+    }
+
+    /**
+     * The visited flags of a search, which are reused by the searches
+     * of a thread to avoid clearing an array per search.
+     */
+    static class Visited {
+        /** The tag of visited elements. */
+        int[] tag = new int[1024];
+        /** The tag of current search. */
+        int current;
+
+        /** Starts a new search. */
+        void clear() {
+            if (++current == Integer.MAX_VALUE) {
+                Arrays.fill(tag, 0);
+                current = 1;
+            }
+        }
+
+        /**
+         * Marks an element visited.
+         * @return false if the element has been visited.
+         */
+        boolean visit(int i) {
+            if (i >= tag.length) {
+                tag = Arrays.copyOf(tag, Math.max(i + 1, 2 * tag.length));
+            }
+
+            if (tag[i] == current) return false;
+            tag[i] = current;
+            return true;
+        }
+    }
+
+    /**
+     * The binary heap of elements with the distances, which grows as needed.
+     */
+    static class Heap {
+        /** The element index. */
+        int[] index;
+        /** The distance. */
+        double[] distance;
+        /** The number of elements. */
+        int size;
+        /** The max heap if true, otherwise min heap. */
+        final boolean max;
+
+        /**
+         * Constructor.
+         * @param capacity the initial capacity.
+         * @param max the max heap if true, otherwise min heap.
+         */
+        Heap(int capacity, boolean max) {
+            index = new int[capacity];
+            distance = new double[capacity];
+            this.max = max;
+        }
+
+        /** Returns true if a should be above b. */
+        private boolean above(double a, double b) {
+            return max ? a > b : a < b;
+        }
+
+        /** Adds an element. */
+        void push(int i, double d) {
+            if (size == index.length) {
+                index = Arrays.copyOf(index, 2 * size);
+                distance = Arrays.copyOf(distance, 2 * size);
+            }
+
+            int k = size++;
+            while (k > 0) {
+                int parent = (k - 1) >> 1;
+                if (!above(d, distance[parent])) break;
+                index[k] = index[parent];
+                distance[k] = distance[parent];
+                k = parent;
+            }
+            index[k] = i;
+            distance[k] = d;
+        }
+
+        /** Removes the top element. */
+        void pop() {
+            int i = index[--size];
+            double d = distance[size];
+            int k = 0;
+            int half = size >> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                if (child + 1 < size && above(distance[child + 1], distance[child])) child++;
+                if (!above(distance[child], d)) break;
+                index[k] = index[child];
+                distance[k] = distance[child];
+                k = child;
+            }
+            index[k] = i;
+            distance[k] = d;
+        }
+
+        /**
+         * Sorts the elements in the ascending order of distances.
+         * A max heap is not a valid heap anymore after sorting.
+         */
+        void sort() {
+            int n = size;
+            int[] sortedIndex = new int[n];
+            double[] sortedDistance = new double[n];
+            for (int j = 0; j < n; j++) {
+                int k = max ? n - 1 - j : j;
+                sortedIndex[k] = index[0];
+                sortedDistance[k] = distance[0];
+                pop();
+            }
+
+            index = sortedIndex;
+            distance = sortedDistance;
+            size = n;
+        }
+
+        /** Returns the index of top element. */
+        int peek() {
+            return index[0];
+        }
+
+        /** Returns the distance of top element. */
+        double peekDistance() {
+            return distance[0];
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param distance the distance function.
+     * @param M the number of links of an element on the upper layers.
+     *          The bottom layer has 2M links per element.
+     * @param efConstruction the size of dynamic candidate list during
+     *                       the construction.
+     */
+    public HNSW(Distance<E> distance, int M, int efConstruction) {
+        if (M < 2) {
+            throw new IllegalArgumentException("Invalid number of links: " + M);
+        }
+
+        if (efConstruction < M) {
+            throw new IllegalArgumentException("Invalid efConstruction: " + efConstruction);
+        }
+
+        this.distance = distance;
+        this.M = M;
+        this.M0 = 2 * M;
+        this.efConstruction = efConstruction;
+        this.mL = 1.0 / Math.log(M);
+        this.ef = Math.max(50, M);
+    }
+
+    /**
+     * Builds an HNSW graph of Euclidean distance with M = 16 and
+     * efConstruction = 200.
+     * @param data the data objects.
+     */
+    public static HNSW<double[]> of(double[][] data) {
+        return of(data, new EuclideanDistance(), 16, 200);
+    }
+
+    /**
+     * Builds an HNSW graph in parallel. The index of elements
+     * in the graph is same as the index in the array.
+     *
+     * @param data the data objects.
+     * @param distance the distance function.
+     * @param M the number of links of an element on the upper layers.
+     *          The bottom layer has 2M links per element.
+     * @param efConstruction the size of dynamic candidate list during
+     *                       the construction.
+     */
+    public static <E> HNSW<E> of(E[] data, Distance<E> distance, int M, int efConstruction) {
+        HNSW<E> hnsw = new HNSW<>(distance, M, efConstruction);
+        int n = data.length;
+        hnsw.size.set(n);
+        // Start with a few elements sequentially for a better connected graph.
+        int head = Math.min(n, 1000);
+        for (int i = 0; i < head; i++) {
+            hnsw.insert(i, data[i]);
+        }
+        IntStream.range(head, n).parallel().forEach(i -> hnsw.insert(i, data[i]));
+        return hnsw;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HNSW(M = %d, efConstruction = %d, ef = %d, %s)", M, efConstruction, ef, distance);
+    }
+
+    /**
+     * Sets the size of dynamic candidate list during the search.
+     * Larger ef gives better recall at the cost of speed.
+     * @param ef the size of dynamic candidate list.
+     */
+    public void setEf(int ef) {
+        if (ef <= 0) {
+            throw new IllegalArgumentException("Invalid ef: " + ef);
+        }
+        this.ef = ef;
+    }
+
+    /**
+     * Returns the size of dynamic candidate list during the search.
+     */
+    public int getEf() {
+        return ef;
+    }
+
+    /**
+     * Returns the number of elements.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns the data object of an element.
+     * @param i the index of element.
+     */
+    public E get(int i) {
+        return node(i).key;
+    }
+
+    /**
+     * Adds an element. This method is thread-safe.
+     * @param key the data object.
+     * @return the index of element.
+     */
+    public int add(E key) {
+        int i = size.getAndIncrement();
+        insert(i, key);
+        return i;
+    }
+
+    /** Returns the element. */
+    private Node<E> node(int i) {
+        return pages.get(i >>> PAGE_BITS)[i & (PAGE_SIZE - 1)];
+    }
+
+    /** Returns the visited flags of current thread. */
+    private Visited visited() {
+        ThreadLocal<Visited> local = visited;
+        if (local == null) {
+            synchronized (this) {
+                local = visited;
+                if (local == null) {
+                    local = ThreadLocal.withInitial(Visited::new);
+                    visited = local;
+                }
+            }
+        }
+        return local.get();
+    }
+
+    /**
+     * Inserts an element.
+     * @param i the index of element.
+     * @param key the data object.
+     */
+    @SuppressWarnings("unchecked")
+    private void insert(int i, E key) {
+        if (i < 0) {
+            throw new IllegalStateException("Too many elements");
+        }
+
+        int level = Math.min(MAX_LEVEL, (int) (-Math.log(1.0 - MathEx.random()) * mL));
+        Node<E> node = new Node<>(key, level, M, M0);
+
+        int p = i >>> PAGE_BITS;
+        if (pages.get(p) == null) {
+            pages.compareAndSet(p, null, (Node<E>[]) new Node[PAGE_SIZE]);
+        }
+        pages.get(p)[i & (PAGE_SIZE - 1)] = node;
+
+        int ep, L;
+        synchronized (this) {
+            if (entry < 0) {
+                entry = i;
+                top = level;
+                return;
+            }
+            ep = entry;
+            L = top;
+        }
+
+        Visited visited = visited();
+        int[] buffer = new int[M0 + 1];
+        Heap W = new Heap(1, true);
+        W.push(ep, distance.d(key, node(ep).key));
+        for (int l = L; l > level; l--) {
+            W = search(key, W, 1, l, visited, buffer);
+        }
+
+        for (int l = Math.min(L, level); l >= 0; l--) {
+            W = search(key, W, efConstruction, l, visited, buffer);
+            W.sort();
+            int[] neighbors = Arrays.copyOf(W.index, W.size);
+            double[] dist = Arrays.copyOf(W.distance, W.size);
+            int n = select(neighbors, dist, W.size, M);
+            node.setLinks(l, neighbors, n);
+            for (int j = 0; j < n; j++) {
+                connect(neighbors[j], i, l);
+            }
+        }
+
+        if (level > L) {
+            synchronized (this) {
+                if (level > top) {
+                    entry = i;
+                    top = level;
+                }
+            }
+        }
+    }
+
+    /**
+     * Selects the links by the heuristic of diverse directions. A candidate
+     * is selected only if it is closer to the base element than to any
+     * selected one.
+     *
+     * @param candidates the candidates in the ascending order of distances
+     *                   to the base element. The selected links are moved
+     *                   to the front.
+     * @param dist the distances of candidates to the base element.
+     * @param n the number of candidates.
+     * @param max the maximum number of links.
+     * @return the number of selected links.
+     */
+    private int select(int[] candidates, double[] dist, int n, int max) {
+        if (n <= max) {
+            // Keep all the candidates if there are not too many.
+            return n;
+        }
+
+        int m = 0;
+        for (int j = 0; j < n && m < max; j++) {
+            E key = node(candidates[j]).key;
+            boolean diverse = true;
+            for (int l = 0; l < m; l++) {
+                if (distance.d(key, node(candidates[l]).key) < dist[j]) {
+                    diverse = false;
+                    break;
+                }
+            }
+
+            if (diverse) {
+                candidates[m] = candidates[j];
+                dist[m] = dist[j];
+                m++;
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Adds a link from an element to the new element. If the element
+     * has too many links, the links are reselected.
+     *
+     * @param i the index of element.
+     * @param j the index of new element.
+     * @param level the layer.
+     */
+    private void connect(int i, int j, int level) {
+        Node<E> node = node(i);
+        int max = level == 0 ? M0 : M;
+        synchronized (node) {
+            int[] list = node.links[level];
+            int n = list[0];
+            if (n < max) {
+                list[++n] = j;
+                list[0] = n;
+                return;
+            }
+
+            Heap heap = new Heap(n + 1, false);
+            for (int l = 1; l <= n; l++) {
+                heap.push(list[l], distance.d(node.key, node(list[l]).key));
+            }
+            heap.push(j, distance.d(node.key, node(j).key));
+
+            heap.sort();
+            int m = select(heap.index, heap.distance, heap.size, max);
+            System.arraycopy(heap.index, 0, list, 1, m);
+            list[0] = m;
+        }
+    }
+
+    /**
+     * Searches a layer for the nearest elements of the query.
+     *
+     * @param q the query.
+     * @param ep the entry points.
+     * @param ef the size of dynamic candidate list.
+     * @param level the layer.
+     * @param visited the visited flags.
+     * @param buffer the buffer of links.
+     * @return the max heap of nearest elements.
+     */
+    private Heap search(E q, Heap ep, int ef, int level, Visited visited, int[] buffer) {
+        visited.clear();
+        Heap candidates = new Heap(Math.max(ef, ep.size) + 1, false);
+        Heap W = new Heap(Math.max(ef, ep.size) + 1, true);
+        for (int j = 0; j < ep.size; j++) {
+            int i = ep.index[j];
+            double d = ep.distance[j];
+            visited.visit(i);
+            candidates.push(i, d);
+            W.push(i, d);
+        }
+
+        while (W.size > ef) W.pop();
+
+        while (candidates.size > 0) {
+            int c = candidates.peek();
+            double cd = candidates.peekDistance();
+            if (cd > W.peekDistance() && W.size >= ef) break;
+            candidates.pop();
+
+            int n = node(c).links(level, buffer);
+            for (int j = 0; j < n; j++) {
+                int e = buffer[j];
+                if (visited.visit(e)) {
+                    double d = distance.d(q, node(e).key);
+                    if (W.size < ef || d < W.peekDistance()) {
+                        candidates.push(e, d);
+                        W.push(e, d);
+                        if (W.size > ef) W.pop();
+                    }
+                }
+            }
+        }
+
+        return W;
+    }
+
+    /**
+     * Searches the bottom layer for the nearest elements of the query.
+     * @param q the query.
+     * @param ef the size of dynamic candidate list.
+     * @return the max heap of nearest elements, or null if the graph is empty.
+     */
+    private Heap search(E q, int ef) {
+        int ep, L;
+        synchronized (this) {
+            if (entry < 0) return null;
+            ep = entry;
+            L = top;
+        }
+
+        Visited visited = visited();
+        int[] buffer = new int[M0 + 1];
+        Heap W = new Heap(1, true);
+        W.push(ep, distance.d(q, node(ep).key));
+        for (int l = L; l > 0; l--) {
+            W = search(q, W, 1, l, visited, buffer);
+        }
+        return search(q, W, ef, 0, visited, buffer);
+    }
+
+    @Override
+    public Neighbor<E, E> nearest(E q) {
+        Neighbor<E, E>[] neighbors = knn(q, 1);
+        return neighbors.length == 0 ? null : neighbors[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Neighbor<E, E>[] knn(E q, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+
+        // one more to exclude the query object itself.
+        Heap W = search(q, Math.max(ef, k + 1));
+        if (W == null) return new Neighbor[0];
+
+        W.sort();
+        List<Neighbor<E, E>> neighbors = new ArrayList<>(k);
+        for (int j = 0; j < W.size && neighbors.size() < k; j++) {
+            E key = node(W.index[j]).key;
+            if (key != q) {
+                neighbors.add(new Neighbor<>(key, key, W.index[j], W.distance[j]));
+            }
+        }
+        return neighbors.toArray(new Neighbor[neighbors.size()]);
+    }
+
+    /**
+     * Searches the neighbors in the given radius. The search starts from
+     * the nearest elements on the bottom layer and expands through the
+     * links of elements in the range. The result is approximate as the
+     * elements in the range may not be connected in the graph.
+     */
+    @Override
+    public void range(E q, double radius, List<Neighbor<E, E>> neighbors) {
+        if (radius <= 0.0) {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+
+        Heap W = search(q, ef);
+        if (W == null) return;
+
+        Visited visited = visited();
+        visited.clear();
+        int[] buffer = new int[M0 + 1];
+        Heap queue = new Heap(W.size, false);
+        for (int j = 0; j < W.size; j++) {
+            visited.visit(W.index[j]);
+            if (W.distance[j] <= radius) {
+                queue.push(W.index[j], W.distance[j]);
+            }
+        }
+
+        while (queue.size > 0) {
+            int i = queue.peek();
+            double d = queue.peekDistance();
+            queue.pop();
+
+            Node<E> node = node(i);
+            if (node.key != q) {
+                neighbors.add(new Neighbor<>(node.key, node.key, i, d));
+            }
+
+            int n = node.links(0, buffer);
+            for (int j = 0; j < n; j++) {
+                int e = buffer[j];
+                if (visited.visit(e)) {
+                    double de = distance.d(q, node(e).key);
+                    if (de <= radius) {
+                        queue.push(e, de);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ package smile.neighbor;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import smile.math.MathEx;
 import smile.sort.HeapSelect;
@@ -55,6 +56,8 @@ import smile.sort.HeapSelect;
  */
 public class KDTree <E> implements NearestNeighborSearch<double[], E>, KNNSearch<double[], E>, RNNSearch<double[], E>, Serializable {
     private static final long serialVersionUID = 2L;
+    /** The number of queries in a block of batch search. */
+    private static final int BATCH_BLOCK_SIZE = 64;
 
     /**
      * The root in the KD-tree.
@@ -393,6 +396,34 @@ public class KDTree <E> implements NearestNeighborSearch<double[], E>, KNNSearch
                 }).toArray(Neighbor[]::new);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void knn(double[][] q, int k, int[] index, double[] distance) {
+        KNNSearch.checkBatch(q.length, k, index, distance);
+
+        if (k > keys.length) {
+            throw new IllegalArgumentException("Neighbor array length is larger than the dataset size");
+        }
+
+        int n = q.length;
+        int blocks = (n + BATCH_BLOCK_SIZE - 1) / BATCH_BLOCK_SIZE;
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            // The neighbor objects are reused by the queries in the block.
+            NeighborBuilder<double[], E>[] neighbors = new NeighborBuilder[k];
+            for (int j = 0; j < k; j++) {
+                neighbors[j] = new NeighborBuilder<>();
+            }
+
+            int end = Math.min(n, (b + 1) * BATCH_BLOCK_SIZE);
+            for (int i = b * BATCH_BLOCK_SIZE; i < end; i++) {
+                HeapSelect<NeighborBuilder<double[], E>> heap = NeighborBuilder.heap(neighbors);
+                search(q[i], root, heap);
+                heap.sort();
+                NeighborBuilder.copy(heap, index, distance, i * k);
+            }
+        });
+    }
+
     @Override
     public void range(double[] q, double radius, List<Neighbor<double[], E>> neighbors) {
         if (radius <= 0.0) {
@@ -17,6 +17,9 @@
 
 package smile.neighbor;
 
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
 /**
  * K-nearest neighbor search identifies the top k nearest neighbors to the
  * query. This technique is commonly used in predictive analytics to
@@ -37,4 +40,62 @@ public interface KNNSearch<K, V> {
      * @param k the number of nearest neighbors to search for.
      */
     Neighbor<K,V>[] knn(K q, int k);
+
+    /**
+     * Search the k nearest neighbors to a batch of queries in parallel.
+     * The results are stored in the flat arrays without creating the
+     * Neighbor objects. The neighbors of q[i] are in the range
+     * [i*k, (i+1)*k) of the arrays in the ascending order of distance.
+     * If fewer than k neighbors are found, the rest of range is filled
+     * with the index -1 and the distance Double.MAX_VALUE.
+     *
+     * @param q the query keys.
+     * @param k the number of nearest neighbors to search for.
+     * @param index the output indices of neighbors in the dataset,
+     *              of which the length is at least q.length * k.
+     * @param distance the output distances between the queries and
+     *                 the neighbors, of which the length is at least
+     *                 q.length * k.
+     */
+    @SuppressWarnings("unchecked")
+    default void knn(K[] q, int k, int[] index, double[] distance) {
+        checkBatch(q.length, k, index, distance);
+
+        IntStream.range(0, q.length).parallel().forEach(i -> {
+            Neighbor<K,V>[] neighbors = Arrays.stream(knn(q[i], k))
+                    .filter(neighbor -> neighbor != null)
+                    .sorted()
+                    .toArray(Neighbor[]::new);
+
+            int offset = i * k;
+            Arrays.fill(index, offset, offset + k, -1);
+            Arrays.fill(distance, offset, offset + k, Double.MAX_VALUE);
+            for (int j = 0; j < neighbors.length; j++) {
+                index[offset + j] = neighbors[j].index;
+                distance[offset + j] = neighbors[j].distance;
+            }
+        });
+    }
+
+    /**
+     * Checks the arguments of batch k-nearest neighbor search.
+     * @param n the number of queries.
+     * @param k the number of nearest neighbors to search for.
+     * @param index the output indices of neighbors.
+     * @param distance the output distances of neighbors.
+     */
+    static void checkBatch(int n, int k, int[] index, double[] distance) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+
+        long size = (long) n * k;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Too many neighbors: %d queries x %d", n, k));
+        }
+
+        if (index.length < size || distance.length < size) {
+            throw new IllegalArgumentException(String.format("Output array length is less than %d: index[%d], distance[%d]", size, index.length, distance.length));
+        }
+    }
 }
@@ -20,8 +20,12 @@ package smile.neighbor;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
+import smile.math.MathEx;
 import smile.math.distance.Distance;
+import smile.math.distance.EuclideanDistance;
+import smile.math.matrix.Matrix;
 import smile.sort.HeapSelect;
 
 /**
@@ -44,6 +48,15 @@ import smile.sort.HeapSelect;
  * type explicitly in the code, this will cause problems. Fortunately, the data would be
  * read from secondary storage in production.
  * </p>
+ * <p>
+ * The batch search processes the queries in blocks in parallel. For the
+ * (unweighted) Euclidean distance on double arrays without missing values,
+ * the squared distances are computed as <code>||q||<sup>2</sup> +
+ * ||x||<sup>2</sup> - 2 q'x</code>, of which the inner products between
+ * a block of queries and a block of samples are computed by the matrix
+ * multiplication of BLAS. The distances of k nearest neighbors are then
+ * recomputed exactly. It keeps a copy of dataset in the matrix blocks.
+ * </p>
  *
  * @param <T> the type of data objects.
  *
@@ -51,6 +64,10 @@ import smile.sort.HeapSelect;
  */
 public class LinearSearch<T> implements NearestNeighborSearch<T,T>, KNNSearch<T,T>, RNNSearch<T,T>, Serializable {
     private static final long serialVersionUID = 2L;
+    /** The number of queries in a block of batch search. */
+    private static final int QUERY_BLOCK_SIZE = 256;
+    /** The number of samples in a matrix block of batch search. */
+    private static final int DATA_BLOCK_SIZE = 2048;
 
     /**
      * The dataset of search space.
@@ -60,6 +77,17 @@ public class LinearSearch<T> implements NearestNeighborSearch<T,T>, KNNSearch<T,
      * The distance function used to determine nearest neighbors.
      */
     private Distance<T> distance;
+    /**
+     * The dataset in matrix blocks for the batch search of Euclidean
+     * distance, created on demand. It is an empty array if the batch
+     * search cannot use the matrix multiplication.
+     */
+    private transient Matrix[] blocks;
+    /**
+     * The squared norms of samples for the batch search of Euclidean
+     * distance.
+     */
+    private transient double[] norm;
 
     /**
      * Constructor. By default, query object self will be excluded from search.
@@ -123,6 +151,148 @@ public class LinearSearch<T> implements NearestNeighborSearch<T,T>, KNNSearch<T,
         return Arrays.stream(heap.toArray()).map(NeighborBuilder::toNeighbor).toArray(Neighbor[]::new);
     }
 
+    @Override
+    public void knn(T[] q, int k, int[] index, double[] dist) {
+        KNNSearch.checkBatch(q.length, k, index, dist);
+
+        if (k > data.length) {
+            throw new IllegalArgumentException("Neighbor array length is larger than the data size");
+        }
+
+        int n = q.length;
+        boolean euclidean = q instanceof double[][] && blocks().length > 0;
+        int blocks = (n + QUERY_BLOCK_SIZE - 1) / QUERY_BLOCK_SIZE;
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            int from = b * QUERY_BLOCK_SIZE;
+            int to = Math.min(n, from + QUERY_BLOCK_SIZE);
+            if (euclidean) {
+                euclidean((double[][]) q, from, to, k, index, dist);
+            } else {
+                knn(q, from, to, k, index, dist);
+            }
+        });
+    }
+
+    /**
+     * Returns the dataset in matrix blocks for the batch search
+     * of Euclidean distance.
+     */
+    private synchronized Matrix[] blocks() {
+        if (blocks == null) {
+            blocks = new Matrix[0];
+            if (distance instanceof EuclideanDistance && !((EuclideanDistance) distance).isWeighted() && data instanceof double[][]) {
+                double[][] x = (double[][]) data;
+                boolean missing = Arrays.stream(x).parallel().anyMatch(xi -> Arrays.stream(xi).anyMatch(Double::isNaN));
+                if (!missing) {
+                    norm = Arrays.stream(x).parallel().mapToDouble(xi -> MathEx.dot(xi, xi)).toArray();
+                    blocks = IntStream.range(0, (x.length + DATA_BLOCK_SIZE - 1) / DATA_BLOCK_SIZE).parallel()
+                            .mapToObj(b -> new Matrix(Arrays.copyOfRange(x, b * DATA_BLOCK_SIZE, Math.min(x.length, (b + 1) * DATA_BLOCK_SIZE))))
+                            .toArray(Matrix[]::new);
+                }
+            }
+        }
+        return blocks;
+    }
+
+    /** Returns the neighbor objects to be reused by a block of queries. */
+    @SuppressWarnings("unchecked")
+    private NeighborBuilder<T,T>[] neighbors(int k) {
+        NeighborBuilder<T,T>[] neighbors = new NeighborBuilder[k];
+        for (int i = 0; i < k; i++) {
+            neighbors[i] = new NeighborBuilder<>();
+        }
+        return neighbors;
+    }
+
+    /** Searches the k nearest neighbors of a block of queries. */
+    private void knn(T[] q, int from, int to, int k, int[] index, double[] dist) {
+        NeighborBuilder<T,T>[] neighbors = neighbors(k);
+        for (int i = from; i < to; i++) {
+            T query = q[i];
+            HeapSelect<NeighborBuilder<T,T>> heap = NeighborBuilder.heap(neighbors);
+            for (int j = 0; j < data.length; j++) {
+                if (query != data[j]) {
+                    double d = distance.d(query, data[j]);
+                    NeighborBuilder<T,T> datum = heap.peek();
+                    if (d < datum.distance) {
+                        datum.distance = d;
+                        datum.index = j;
+                        heap.heapify();
+                    }
+                }
+            }
+
+            heap.sort();
+            NeighborBuilder.copy(heap, index, dist, i * k);
+        }
+    }
+
+    /**
+     * Searches the k nearest neighbors of a block of queries in
+     * Euclidean space with the matrix multiplication.
+     */
+    @SuppressWarnings("unchecked")
+    private void euclidean(double[][] q, int from, int to, int k, int[] index, double[] dist) {
+        int m = to - from;
+        double[] qnorm = new double[m];
+        boolean[] missing = new boolean[m];
+        for (int i = 0; i < m; i++) {
+            double[] qi = q[from + i];
+            qnorm[i] = MathEx.dot(qi, qi);
+            missing[i] = Double.isNaN(qnorm[i]);
+        }
+
+        Matrix Q = new Matrix(Arrays.copyOfRange(q, from, to));
+        NeighborBuilder<T,T>[][] neighbors = new NeighborBuilder[m][];
+        HeapSelect<NeighborBuilder<T,T>>[] heap = new HeapSelect[m];
+        for (int i = 0; i < m; i++) {
+            neighbors[i] = neighbors(k);
+            heap[i] = NeighborBuilder.heap(neighbors[i]);
+        }
+
+        for (int b = 0; b < blocks.length; b++) {
+            Matrix G = Q.mt(blocks[b]);
+            int offset = b * DATA_BLOCK_SIZE;
+            int size = G.ncols();
+            for (int l = 0; l < size; l++) {
+                int j = offset + l;
+                for (int i = 0; i < m; i++) {
+                    // the squared distance, which is compared with the squared distances in heap.
+                    double d = qnorm[i] + norm[j] - 2 * G.get(i, l);
+                    NeighborBuilder<T,T> datum = heap[i].peek();
+                    if (d < datum.distance && q[from + i] != data[j]) {
+                        datum.distance = d;
+                        datum.index = j;
+                        heap[i].heapify();
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < m; i++) {
+            double[] qi = q[from + i];
+            if (missing[i]) {
+                // the missing values are handled by the distance function.
+                knn((T[]) q, from + i, from + i + 1, k, index, dist);
+                continue;
+            }
+
+            // recomputes the distances exactly.
+            for (NeighborBuilder<T,T> neighbor : neighbors[i]) {
+                if (neighbor.index >= 0) {
+                    neighbor.distance = distance.d((T) qi, data[neighbor.index]);
+                }
+            }
+
+            Arrays.sort(neighbors[i]);
+            int offset = (from + i) * k;
+            for (int j = 0; j < k; j++) {
+                index[offset + j] = neighbors[i][j].index;
+                dist[offset + j] = neighbors[i][j].distance;
+            }
+        }
+    }
+
     @Override
     public void range(T q, double radius, List<Neighbor<T, T>> neighbors) {
         if (radius <= 0.0) {
@@ -0,0 +1,515 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.neighbor;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import smile.math.MathEx;
+import smile.math.distance.Distance;
+import smile.math.distance.EuclideanDistance;
+import smile.util.Strings;
+
+/**
+ * Approximate k-nearest neighbor graph by NN-Descent. NN-Descent is based
+ * on a simple principle: a neighbor of a neighbor is also likely to be
+ * a neighbor. Starting from a random graph, each iteration joins the
+ * neighbors and reverse neighbors of every point, i.e. computes the
+ * distances between the pairs of them, to improve their k-nearest neighbor
+ * lists. Only the pairs of which at least one is new since the last
+ * iteration are joined, and the joined neighbors of each point are
+ * sampled to bound the cost of an iteration. NN-Descent stops when
+ * few neighbor lists are updated in an iteration. Its empirical cost is
+ * around O(n<sup>1.14</sup>) distance computations and the recall is
+ * usually higher than 90%. Besides, it works with any distance measure.
+ * <p>
+ * The graph is stored in the compressed sparse row form with the fixed
+ * degree k, i.e. the neighbors of i-th point are in the range
+ * [i*k, (i+1)*k) of flat arrays in the ascending order of distance.
+ * The k-nearest neighbors of the data themselves are obtained from
+ * the batch search {@link #knn(Object[], int, int[], double[])} on
+ * the same data array without any more distance computations, which
+ * makes NN-Descent a fast nearest neighbor graph builder for manifold
+ * learning on large data sets. The nearest neighbors of other queries
+ * are searched by a best-first search on the graph from random
+ * entry points.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li> W. Dong, C. Moses and K. Li. Efficient k-nearest neighbor graph construction for generic similarity measures. WWW, 2011.</li>
+ * </ol>
+ *
+ * @param <E> the type of data objects.
+ *
+ * @author Haifeng Li
+ */
+public class NNDescent<E> implements KNNSearch<E, E>, Serializable {
+    private static final long serialVersionUID = 2L;
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(NNDescent.class);
+
+    /** The number of locks to update the neighbor lists. */
+    private static final int LOCKS = 4096;
+
+    /**
+     * The data objects.
+     */
+    private final E[] data;
+    /**
+     * The distance function.
+     */
+    private final Distance<E> distance;
+    /**
+     * The number of neighbors of each point in the graph.
+     */
+    private final int k;
+    /**
+     * The neighbors of each point.
+     */
+    private final int[] neighbors;
+    /**
+     * The distances to the neighbors.
+     */
+    private final double[] distances;
+    /**
+     * The size of dynamic candidate list in the search.
+     */
+    private volatile int ef;
+    /**
+     * The visited flags of searches per thread.
+     */
+    private transient volatile ThreadLocal<HNSW.Visited> visited;
+
+    /**
+     * Constructor.
+     * @param data the data objects.
+     * @param distance the distance function.
+     * @param k the number of neighbors of each point.
+     * @param neighbors the neighbors of each point in the ascending order
+     *                  of distance.
+     * @param distances the distances to the neighbors.
+     */
+    private NNDescent(E[] data, Distance<E> distance, int k, int[] neighbors, double[] distances) {
+        this.data = data;
+        this.distance = distance;
+        this.k = k;
+        this.neighbors = neighbors;
+        this.distances = distances;
+        this.ef = Math.max(50, k);
+    }
+
+    /**
+     * Builds the approximate k-nearest neighbor graph with Euclidean distance.
+     * @param data the data objects.
+     * @param k the number of neighbors of each point.
+     */
+    public static NNDescent<double[]> of(double[][] data, int k) {
+        return of(data, new EuclideanDistance(), k);
+    }
+
+    /**
+     * Builds the approximate k-nearest neighbor graph.
+     * @param data the data objects.
+     * @param distance the distance function.
+     * @param k the number of neighbors of each point.
+     * @param <E> the type of data objects.
+     */
+    public static <E> NNDescent<E> of(E[] data, Distance<E> distance, int k) {
+        int maxIter = Math.max(5, (int) Math.round(MathEx.log2(data.length)));
+        return of(data, distance, k, Math.min(60, k), maxIter, 0.001);
+    }
+
+    /**
+     * Builds the approximate k-nearest neighbor graph.
+     * @param data the data objects.
+     * @param distance the distance function.
+     * @param k the number of neighbors of each point.
+     * @param maxCandidates the maximum number of new and old candidates
+     *                      of each point to join in an iteration.
+     * @param maxIter the maximum number of iterations.
+     * @param delta the early termination threshold. It stops when the
+     *              number of updates in an iteration is less than
+     *              delta * n * k.
+     * @param <E> the type of data objects.
+     */
+    public static <E> NNDescent<E> of(E[] data, Distance<E> distance, int k, int maxCandidates, int maxIter, double delta) {
+        int n = data.length;
+        if (k < 1 || k >= n) {
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+
+        if ((long) n * Math.max(k, maxCandidates) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Too many neighbors: %d x %d", n, Math.max(k, maxCandidates)));
+        }
+
+        if (maxCandidates < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of candidates: " + maxCandidates);
+        }
+
+        if (maxIter < 1) {
+            throw new IllegalArgumentException("Invalid maximum number of iterations: " + maxIter);
+        }
+
+        if (delta < 0.0) {
+            throw new IllegalArgumentException("Invalid delta: " + delta);
+        }
+
+        int[] neighbors = new int[n * k];
+        double[] distances = new double[n * k];
+        boolean[] flags = new boolean[n * k];
+        Object[] locks = new Object[Math.min(n, LOCKS)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        // Start with random neighbors. The sampling is sequential
+        // to get repeatable results with the same random seed.
+        for (int i = 0; i < n; i++) {
+            int offset = i * k;
+            for (int j = 0; j < k; j++) {
+                int l;
+                do {
+                    l = MathEx.randomInt(n);
+                } while (l == i || contains(neighbors, offset, j, l));
+                neighbors[offset + j] = l;
+            }
+        }
+
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int offset = i * k;
+            for (int j = 0; j < k; j++) {
+                distances[offset + j] = distance.d(data[i], data[neighbors[offset + j]]);
+                flags[offset + j] = true;
+            }
+
+            for (int j = k / 2 - 1; j >= 0; j--) {
+                siftDown(neighbors, distances, flags, offset, j, k);
+            }
+        });
+
+        int c = maxCandidates;
+        int[] newCandidates = new int[n * c];
+        int[] oldCandidates = new int[n * c];
+        double[] newPriority = new double[n * c];
+        double[] oldPriority = new double[n * c];
+        int[] newSize = new int[n];
+        int[] oldSize = new int[n];
+
+        for (int iter = 1; iter <= maxIter; iter++) {
+            // Samples the new and old neighbors and reverse neighbors
+            // of each point with random priorities.
+            Arrays.fill(newSize, 0);
+            Arrays.fill(oldSize, 0);
+            for (int i = 0; i < n; i++) {
+                int offset = i * k;
+                for (int j = 0; j < k; j++) {
+                    int l = neighbors[offset + j];
+                    double priority = MathEx.random();
+                    if (flags[offset + j]) {
+                        addCandidate(newCandidates, newPriority, newSize, c, i, l, priority);
+                        addCandidate(newCandidates, newPriority, newSize, c, l, i, priority);
+                    } else {
+                        addCandidate(oldCandidates, oldPriority, oldSize, c, i, l, priority);
+                        addCandidate(oldCandidates, oldPriority, oldSize, c, l, i, priority);
+                    }
+                }
+            }
+
+            // The sampled new neighbors become old.
+            IntStream.range(0, n).parallel().forEach(i -> {
+                int offset = i * k;
+                for (int j = 0; j < k; j++) {
+                    if (flags[offset + j] && contains(newCandidates, i * c, newSize[i], neighbors[offset + j])) {
+                        flags[offset + j] = false;
+                    }
+                }
+            });
+
+            // Local join: a neighbor of a neighbor is also likely to be a neighbor.
+            int updates = IntStream.range(0, n).parallel().map(i -> {
+                int count = 0;
+                int offset = i * c;
+                int ns = newSize[i];
+                int os = oldSize[i];
+                for (int a = 0; a < ns; a++) {
+                    int p = newCandidates[offset + a];
+                    for (int b = a + 1; b < ns; b++) {
+                        int q = newCandidates[offset + b];
+                        count += join(data, distance, k, neighbors, distances, flags, locks, p, q);
+                    }
+
+                    for (int b = 0; b < os; b++) {
+                        int q = oldCandidates[offset + b];
+                        if (p != q) {
+                            count += join(data, distance, k, neighbors, distances, flags, locks, p, q);
+                        }
+                    }
+                }
+                return count;
+            }).sum();
+
+            logger.info(String.format("NN-Descent updates %d neighbors in the %s iteration", updates, Strings.ordinal(iter)));
+            if (updates <= delta * n * k) break;
+        }
+
+        // Sorts the neighbors in the ascending order of distance.
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int offset = i * k;
+            for (int size = k - 1; size > 0; size--) {
+                swap(neighbors, distances, flags, offset, offset + size);
+                siftDown(neighbors, distances, flags, offset, 0, size);
+            }
+        });
+
+        return new NNDescent<>(data, distance, k, neighbors, distances);
+    }
+
+    /**
+     * Computes the distance between p and q, and updates their neighbors.
+     * @return the number of updated neighbor lists.
+     */
+    private static <E> int join(E[] data, Distance<E> distance, int k, int[] neighbors, double[] distances, boolean[] flags, Object[] locks, int p, int q) {
+        double d = distance.d(data[p], data[q]);
+        int count = 0;
+        synchronized (locks[p % locks.length]) {
+            if (push(neighbors, distances, flags, p * k, k, q, d)) count++;
+        }
+        synchronized (locks[q % locks.length]) {
+            if (push(neighbors, distances, flags, q * k, k, p, d)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Adds a new neighbor to the max heap of neighbors if it is closer
+     * than the farthest one.
+     * @return true if the neighbor is added.
+     */
+    private static boolean push(int[] neighbors, double[] distances, boolean[] flags, int offset, int k, int j, double d) {
+        if (d >= distances[offset]) return false;
+        if (contains(neighbors, offset, k, j)) return false;
+
+        neighbors[offset] = j;
+        distances[offset] = d;
+        flags[offset] = true;
+        siftDown(neighbors, distances, flags, offset, 0, k);
+        return true;
+    }
+
+    /**
+     * Adds a candidate to the max heap of priorities of a point,
+     * which keeps the candidates of smallest priorities.
+     */
+    private static void addCandidate(int[] candidates, double[] priority, int[] size, int c, int i, int j, double p) {
+        int offset = i * c;
+        int s = size[i];
+        if (contains(candidates, offset, s, j)) return;
+
+        if (s < c) {
+            // Sifts up the new candidate.
+            int child = s;
+            while (child > 0) {
+                int parent = (child - 1) >> 1;
+                if (priority[offset + parent] >= p) break;
+                candidates[offset + child] = candidates[offset + parent];
+                priority[offset + child] = priority[offset + parent];
+                child = parent;
+            }
+            candidates[offset + child] = j;
+            priority[offset + child] = p;
+            size[i]++;
+        } else if (p < priority[offset]) {
+            candidates[offset] = j;
+            priority[offset] = p;
+            siftDown(candidates, priority, null, offset, 0, c);
+        }
+    }
+
+    /** Returns true if the range [offset, offset+size) of array contains j. */
+    private static boolean contains(int[] a, int offset, int size, int j) {
+        for (int l = offset; l < offset + size; l++) {
+            if (a[l] == j) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sifts down an element of max heap in the range [offset, offset+size).
+     * @param flags the optional flags that move with the elements.
+     * @param k the position of element relative to the offset.
+     */
+    private static void siftDown(int[] index, double[] key, boolean[] flags, int offset, int k, int size) {
+        int half = size >> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            if (child + 1 < size && key[offset + child + 1] > key[offset + child]) child++;
+            if (key[offset + k] >= key[offset + child]) break;
+            swap(index, key, flags, offset + k, offset + child);
+            k = child;
+        }
+    }
+
+    /** Swaps two elements of heap. */
+    private static void swap(int[] index, double[] key, boolean[] flags, int i, int j) {
+        int a = index[i];
+        index[i] = index[j];
+        index[j] = a;
+
+        double b = key[i];
+        key[i] = key[j];
+        key[j] = b;
+
+        if (flags != null) {
+            boolean c = flags[i];
+            flags[i] = flags[j];
+            flags[j] = c;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NN-Descent(%s, k = %d)", distance, k);
+    }
+
+    /**
+     * Returns the number of neighbors of each point in the graph.
+     * @return the number of neighbors of each point in the graph.
+     */
+    public int k() {
+        return k;
+    }
+
+    /**
+     * Returns the neighbors of a point in the ascending order of distance.
+     * @param i the index of point.
+     * @return the neighbors of point.
+     */
+    public int[] neighbors(int i) {
+        return Arrays.copyOfRange(neighbors, i * k, (i + 1) * k);
+    }
+
+    /**
+     * Sets the size of dynamic candidate list in the search.
+     * Larger ef improves the recall at the cost of speed.
+     * @param ef the size of dynamic candidate list.
+     */
+    public void setEf(int ef) {
+        if (ef <= 0) {
+            throw new IllegalArgumentException("Invalid ef: " + ef);
+        }
+        this.ef = ef;
+    }
+
+    /**
+     * Returns the size of dynamic candidate list in the search.
+     * @return the size of dynamic candidate list in the search.
+     */
+    public int getEf() {
+        return ef;
+    }
+
+    /** Returns the visited flags of current thread. */
+    private HNSW.Visited visited() {
+        ThreadLocal<HNSW.Visited> local = visited;
+        if (local == null) {
+            synchronized (this) {
+                local = visited;
+                if (local == null) {
+                    local = ThreadLocal.withInitial(HNSW.Visited::new);
+                    visited = local;
+                }
+            }
+        }
+        return local.get();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Neighbor<E, E>[] knn(E q, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid k: " + k);
+        }
+
+        int n = data.length;
+        // one more to exclude the query object itself.
+        int ef = Math.min(n, Math.max(this.ef, k + 1));
+
+        HNSW.Visited visited = visited();
+        visited.clear();
+        HNSW.Heap candidates = new HNSW.Heap(ef + 1, false);
+        HNSW.Heap W = new HNSW.Heap(ef + 1, true);
+        for (int j = 0; j < ef; j++) {
+            int i = MathEx.randomInt(n);
+            if (visited.visit(i)) {
+                double d = distance.d(q, data[i]);
+                candidates.push(i, d);
+                W.push(i, d);
+            }
+        }
+
+        while (candidates.size > 0) {
+            int c = candidates.peek();
+            if (candidates.peekDistance() > W.peekDistance() && W.size >= ef) break;
+            candidates.pop();
+
+            int offset = c * this.k;
+            for (int j = 0; j < this.k; j++) {
+                int e = neighbors[offset + j];
+                if (visited.visit(e)) {
+                    double d = distance.d(q, data[e]);
+                    if (W.size < ef || d < W.peekDistance()) {
+                        candidates.push(e, d);
+                        W.push(e, d);
+                        if (W.size > ef) W.pop();
+                    }
+                }
+            }
+        }
+
+        W.sort();
+        List<Neighbor<E, E>> list = new ArrayList<>(k);
+        for (int j = 0; j < W.size && list.size() < k; j++) {
+            E key = data[W.index[j]];
+            if (key != q) {
+                list.add(new Neighbor<>(key, key, W.index[j], W.distance[j]));
+            }
+        }
+        return list.toArray(new Neighbor[list.size()]);
+    }
+
+    /**
+     * Search the k nearest neighbors to a batch of queries in parallel.
+     * If the queries are the data array of graph and k is not larger
+     * than the degree of graph, the neighbors are copied from the graph
+     * without any distance computation.
+     */
+    @Override
+    public void knn(E[] q, int k, int[] index, double[] distance) {
+        if (q != data || k > this.k) {
+            KNNSearch.super.knn(q, k, index, distance);
+            return;
+        }
+
+        KNNSearch.checkBatch(q.length, k, index, distance);
+        IntStream.range(0, q.length).parallel().forEach(i -> {
+            System.arraycopy(neighbors, i * this.k, index, i * k, k);
+            System.arraycopy(distances, i * this.k, distance, i * k, k);
+        });
+    }
+}
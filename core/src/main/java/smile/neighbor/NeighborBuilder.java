@@ -17,6 +17,8 @@
 
 package smile.neighbor;
 
+import smile.sort.HeapSelect;
+
 /**
  * The mutable object as a template to create a Neighbor object.
  *
@@ -70,6 +72,45 @@ class NeighborBuilder<K, V> implements Comparable<NeighborBuilder<K,V>> {
         return new Neighbor<>(key, value, index, distance);
     }
 
+    /**
+     * Returns a heap of k empty neighbors for the k-nearest neighbor
+     * search. The heap reuses the given neighbor objects so that a
+     * batch of queries does not create new objects per query.
+     *
+     * @param neighbors the neighbor objects, of which the length is k.
+     */
+    static <K, V> HeapSelect<NeighborBuilder<K,V>> heap(NeighborBuilder<K,V>[] neighbors) {
+        HeapSelect<NeighborBuilder<K,V>> heap = new HeapSelect<>(neighbors);
+        for (NeighborBuilder<K,V> neighbor : neighbors) {
+            neighbor.key = null;
+            neighbor.value = null;
+            neighbor.index = -1;
+            neighbor.distance = Double.MAX_VALUE;
+            heap.add(neighbor);
+        }
+        return heap;
+    }
+
+    /**
+     * Copies the neighbors in a sorted heap to the flat arrays
+     * in the ascending order of distance.
+     *
+     * @param heap the sorted heap.
+     * @param index the output indices of neighbors.
+     * @param distance the output distances of neighbors.
+     * @param offset the offset of neighbors in the output arrays.
+     */
+    static void copy(HeapSelect<? extends NeighborBuilder<?,?>> heap, int[] index, double[] distance, int offset) {
+        // The sorted heap is in the descending order.
+        NeighborBuilder<?,?>[] neighbors = heap.toArray();
+        int k = neighbors.length;
+        for (int j = 0; j < k; j++) {
+            NeighborBuilder<?,?> neighbor = neighbors[k - 1 - j];
+            index[offset + j] = neighbor.index;
+            distance[offset + j] = neighbor.distance;
+        }
+    }
+
     @Override
     public int compareTo(NeighborBuilder<K,V> o) {
         int d = Double.compare(distance, o.distance);
@@ -17,10 +17,17 @@
 
 package smile.regression;
 
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.stream.IntStream;
 import smile.math.MathEx;
+import smile.math.blas.Transpose;
+import smile.math.blas.UPLO;
 import smile.math.kernel.MercerKernel;
+import smile.math.matrix.ConjugateGradient;
+import smile.math.matrix.DMatrix;
 import smile.math.matrix.Matrix;
+import smile.math.matrix.Preconditioner;
 import smile.stat.distribution.MultivariateGaussianDistribution;
 import smile.util.Strings;
 
@@ -64,6 +71,14 @@ import smile.util.Strings;
  * poor. Also embarrassments can occur like the approximated predictive
  * variance being negative. For these reasons we do not recommend the
  * Nystrom method over the SR method.
+ * <p>
+ * The fully independent training conditional (FITC) method corrects the
+ * diagonal of the low rank approximation of SR so that the predictive
+ * variances far from the inducing inputs don't collapse to zero. It is
+ * trained block by block in O(nm<sup>2</sup>) time and O(m<sup>2</sup>)
+ * memory. When the exact model is desired but the kernel matrix doesn't
+ * fit in memory, the linear system may be solved by the preconditioned
+ * conjugate gradient method with matrix-free kernel matrix-vector products.
  *
  * <h2>References</h2>
  * <ol>
@@ -71,12 +86,18 @@ import smile.util.Strings;
  * <li> Joaquin Quinonero-candela,  Carl Edward Ramussen,  Christopher K. I. Williams. Approximation Methods for Gaussian Process Regression. 2007. </li>
  * <li> T. Poggio and F. Girosi. Networks for approximation and learning. Proc. IEEE 78(9):1484-1487, 1990. </li>
  * <li> Kai Zhang and James T. Kwok. Clustered Nystrom Method for Large Scale Manifold Learning and Dimension Reduction. IEEE Transactions on Neural Networks, 2010. </li>
- * <li> </li>
+ * <li> Edward Snelson and Zoubin Ghahramani. Sparse Gaussian Processes using Pseudo-inputs. NIPS, 2006. </li>
  * </ol>
  * @author Haifeng Li
  */
 public class GaussianProcessRegression<T> implements Regression<T> {
     private static final long serialVersionUID = 2L;
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(GaussianProcessRegression.class);
+
+    /** The rank of pivoted Cholesky preconditioner in conjugate gradient method. */
+    private static final int PRECONDITIONER_RANK = 100;
+    /** The block size of kernel matrix computation. */
+    private static final int BLOCK_SIZE = 1024;
 
     /**
      * The covariance/kernel function.
@@ -220,10 +241,12 @@ public class GaussianProcessRegression<T> implements Regression<T> {
      * @param x an instance.
      * @param estimation an output array of the estimated mean and standard deviation.
      * @return the estimated mean value.
+     * @throws UnsupportedOperationException if the model is approximate,
+     *         e.g. fitted by conjugate gradient or FITC.
      */
     public double predict(T x, double[] estimation) {
         if (cholesky == null) {
-            throw new UnsupportedOperationException("The Cholesky decomposition of kernel matrix is not available.");
+            throw new UnsupportedOperationException("The predictive variance is not available for the approximate model.");
         }
 
         int n = regressors.length;
@@ -249,10 +272,12 @@ public class GaussianProcessRegression<T> implements Regression<T> {
      * Evaluates the Gaussian Process at some query points.
      * @param samples query points.
      * @return The mean, standard deviation and covariances of GP at query points.
+     * @throws UnsupportedOperationException if the model is approximate,
+     *         e.g. fitted by conjugate gradient or FITC.
      */
     public JointPrediction eval(T[] samples) {
         if (cholesky == null) {
-            throw new UnsupportedOperationException("The Cholesky decomposition of kernel matrix is not available.");
+            throw new UnsupportedOperationException("The predictive variance is not available for the approximate model.");
         }
 
         Matrix Kx = kernel.K(samples);
@@ -299,6 +324,11 @@ public class GaussianProcessRegression<T> implements Regression<T> {
     public static <T> GaussianProcessRegression<T> fit(T[] x, double[] y, MercerKernel<T> kernel, Properties prop) {
         double noise = Double.valueOf(prop.getProperty("smile.gaussian.process.noise"));
         boolean normalize = Boolean.valueOf(prop.getProperty("smile.gaussian.process.normalize"));
+        String tol = prop.getProperty("smile.gaussian.process.tolerance");
+        if (tol != null) {
+            int maxIter = Integer.valueOf(prop.getProperty("smile.gaussian.process.iterations", "1000"));
+            return fit(x, y, kernel, noise, normalize, Double.valueOf(tol), maxIter);
+        }
         return fit(x, y, kernel, noise, normalize);
     }
 
@@ -357,6 +387,58 @@ public class GaussianProcessRegression<T> implements Regression<T> {
         return new GaussianProcessRegression<>(kernel, x, w, noise, mean, sd, cholesky, L);
     }
 
+    /**
+     * Fits a regular Gaussian process model by the preconditioned conjugate
+     * gradient method. The kernel matrix is never materialized. Instead,
+     * the matrix-vector products are computed block by block in parallel
+     * on the fly. The preconditioner is the low rank pivoted Cholesky
+     * decomposition of kernel matrix plus the noise. It takes O(n) memory
+     * but each iteration still evaluates O(n<sup>2</sup>) kernel functions.
+     * The predictive variance and the log marginal likelihood are not
+     * available.
+     *
+     * @param x the training dataset.
+     * @param y the response variable.
+     * @param kernel the Mercer kernel.
+     * @param noise the noise variance, which also works as a regularization parameter.
+     * @param normalize the option to normalize the response variable.
+     * @param tol the tolerance of relative residual to stop the iterations.
+     * @param maxIter the maximum number of iterations.
+     */
+    public static <T> GaussianProcessRegression<T> fit(T[] x, double[] y, MercerKernel<T> kernel, double noise, boolean normalize, double tol, int maxIter) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException(String.format("The sizes of X and Y don't match: %d != %d", x.length, y.length));
+        }
+
+        if (noise <= 0.0) {
+            throw new IllegalArgumentException("Invalid noise variance = " + noise);
+        }
+
+        int n = x.length;
+        double mean = 0.0;
+        double sd = 1.0;
+        if (normalize) {
+            mean = MathEx.mean(y);
+            sd = MathEx.sd(y);
+
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++) {
+                target[i] = (y[i] - mean) / sd;
+            }
+            y = target;
+        }
+
+        KernelMatrix<T> K = new KernelMatrix<>(x, kernel, noise);
+        Preconditioner P = pivotedCholesky(x, kernel, noise, Math.min(n, PRECONDITIONER_RANK));
+        double[] w = new double[n];
+        double error = ConjugateGradient.solve(K, y, w, P, tol, maxIter);
+        if (error > tol) {
+            logger.warn(String.format("CG doesn't converge after %d iterations: %.5g", maxIter, error));
+        }
+
+        return new GaussianProcessRegression<>(kernel, x, w, noise, mean, sd);
+    }
+
     /**
      * Fits an approximate Gaussian process model by the method of subset of regressors.
      * @param x the training dataset.
@@ -431,6 +513,339 @@ public class GaussianProcessRegression<T> implements Regression<T> {
         return new GaussianProcessRegression<>(kernel, t, w, noise, mean, sd);
     }
 
+    /**
+     * Fits an approximate Gaussian process model by the method of fully
+     * independent training conditional (FITC).
+     * @param x the training dataset.
+     * @param y the response variable.
+     * @param t the inducing input.
+     * @param kernel the Mercer kernel.
+     * @param prop Training algorithm hyper-parameters and properties.
+     */
+    public static <T> GaussianProcessRegression<T> fitc(T[] x, double[] y, T[] t, MercerKernel<T> kernel, Properties prop) {
+        double noise = Double.valueOf(prop.getProperty("smile.gaussian.process.noise"));
+        boolean normalize = Boolean.valueOf(prop.getProperty("smile.gaussian.process.normalize"));
+        return fitc(x, y, t, kernel, noise, normalize);
+    }
+
+    /**
+     * Fits an approximate Gaussian process model by the method of fully
+     * independent training conditional (FITC).
+     * @param x the training dataset.
+     * @param y the response variable.
+     * @param t the inducing input.
+     * @param kernel the Mercer kernel.
+     * @param noise the noise variance.
+     */
+    public static <T> GaussianProcessRegression<T> fitc(T[] x, double[] y, T[] t, MercerKernel<T> kernel, double noise) {
+        return fitc(x, y, t, kernel, noise, true);
+    }
+
+    /**
+     * Fits an approximate Gaussian process model by the method of fully
+     * independent training conditional (FITC). Different from the subset
+     * of regressors, FITC keeps the exact prior variance of training samples
+     * with a heteroscedastic diagonal correction
+     * &Lambda; = diag(K - Q) + &sigma;<sup>2</sup>I, where
+     * Q = K<sub>nm</sub>K<sub>mm</sub><sup>-1</sup>K<sub>mn</sub>
+     * is the Nystrom approximation with inducing inputs. The training samples
+     * are processed block by block in parallel so that the n x m cross
+     * kernel matrix is never materialized. It takes O(nm<sup>2</sup>) time
+     * and O(m<sup>2</sup>) memory, which scales to hundreds of thousands
+     * of samples. The model predicts only the mean. The predictive variance
+     * is not available, and {@link #predict(Object, double[])} and
+     * {@link #eval(Object[])} throw UnsupportedOperationException.
+     *
+     * @param x the training dataset.
+     * @param y the response variable.
+     * @param t the inducing input, which are pre-selected or inducing samples
+     *          acting as active set of regressors. In simple case, these can
+     *          be chosen randomly from the training set or as the centers of
+     *          k-means clustering.
+     * @param kernel the Mercer kernel.
+     * @param noise the noise variance.
+     * @param normalize the option to normalize the response variable.
+     */
+    public static <T> GaussianProcessRegression<T> fitc(T[] x, double[] y, T[] t, MercerKernel<T> kernel, double noise, boolean normalize) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException(String.format("The sizes of X and Y don't match: %d != %d", x.length, y.length));
+        }
+
+        if (noise <= 0.0) {
+            throw new IllegalArgumentException("Invalid noise variance = " + noise);
+        }
+
+        int n = x.length;
+        double mean = 0.0;
+        double sd = 1.0;
+        if (normalize) {
+            mean = MathEx.mean(y);
+            sd = MathEx.sd(y);
+
+            double[] target = new double[n];
+            for (int i = 0; i < n; i++) {
+                target[i] = (y[i] - mean) / sd;
+            }
+            y = target;
+        }
+
+        // A small jitter for the numerical stability of Cholesky decomposition.
+        Matrix Kmm = kernel.K(t);
+        int m = t.length;
+        double jitter = 1E-8 * MathEx.max(Kmm.diag());
+        for (int i = 0; i < m; i++) {
+            Kmm.add(i, i, jitter);
+        }
+        Matrix.Cholesky cholesky = Kmm.cholesky(false);
+
+        final double[] response = y;
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        FITC fitc = IntStream.range(0, blocks).parallel().mapToObj(block -> {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            T[] xb = Arrays.copyOfRange(x, from, to);
+            Matrix G = kernel.K(xb, t);
+            Matrix V = G.transpose().clone();
+            cholesky.solve(V);
+
+            FITC partial = new FITC(m);
+            Matrix D = new Matrix(to - from, m);
+            double[] yb = new double[to - from];
+            for (int i = 0; i < yb.length; i++) {
+                double q = 0.0;
+                for (int j = 0; j < m; j++) {
+                    q += G.get(i, j) * V.get(j, i);
+                }
+
+                double lambda = Math.max(kernel.k(xb[i], xb[i]) - q, 0.0) + noise;
+                for (int j = 0; j < m; j++) {
+                    D.set(i, j, G.get(i, j) / lambda);
+                }
+
+                double yi = response[from + i];
+                yb[i] = yi;
+                partial.yLy += yi * yi / lambda;
+                partial.logdet += Math.log(lambda);
+            }
+
+            partial.A.add(G.tm(D));
+            partial.c = D.tv(yb);
+            return partial;
+        }).reduce(FITC::add).orElseThrow(() -> new IllegalArgumentException("Empty training data"));
+
+        // A = Kmm + Kmn * Lambda^-1 * Knm
+        Matrix A = Kmm.clone();
+        A.add(fitc.A);
+        Matrix.Cholesky chol = A.cholesky(true);
+        double[] w = chol.solve(fitc.c);
+
+        // The matrix determinant lemma and Woodbury identity of Q + Lambda.
+        double logdet = chol.logdet() - cholesky.logdet() + fitc.logdet;
+        double L = -0.5 * (fitc.yLy - MathEx.dot(fitc.c, w) + logdet + n * Math.log(2.0 * Math.PI));
+
+        return new GaussianProcessRegression<>(kernel, t, w, noise, mean, sd, null, L);
+    }
+
+    /** The partial sums of FITC over a block of training samples. */
+    private static class FITC {
+        /** Kmn * Lambda^-1 * Knm */
+        Matrix A;
+        /** Kmn * Lambda^-1 * y */
+        double[] c;
+        /** y' * Lambda^-1 * y */
+        double yLy;
+        /** log |Lambda| */
+        double logdet;
+
+        /** Constructor. */
+        FITC(int m) {
+            A = new Matrix(m, m);
+            c = new double[m];
+        }
+
+        /** Merges the partial sums of another block. */
+        FITC add(FITC other) {
+            A.add(other.A);
+            for (int i = 0; i < c.length; i++) {
+                c[i] += other.c[i];
+            }
+            yLy += other.yLy;
+            logdet += other.logdet;
+            return this;
+        }
+    }
+
+    /**
+     * The matrix-free kernel matrix plus the noise, K + &sigma;<sup>2</sup>I.
+     * The matrix-vector multiplication is computed block by block in parallel.
+     */
+    private static class KernelMatrix<T> extends DMatrix {
+        /** The samples. */
+        private final T[] x;
+        /** The kernel function. */
+        private final MercerKernel<T> kernel;
+        /** The variance of noise. */
+        private final double noise;
+
+        /** Constructor. */
+        KernelMatrix(T[] x, MercerKernel<T> kernel, double noise) {
+            this.x = x;
+            this.kernel = kernel;
+            this.noise = noise;
+        }
+
+        @Override
+        public int nrows() {
+            return x.length;
+        }
+
+        @Override
+        public int ncols() {
+            return x.length;
+        }
+
+        @Override
+        public long size() {
+            return (long) x.length * x.length;
+        }
+
+        @Override
+        public double get(int i, int j) {
+            double k = kernel.k(x[i], x[j]);
+            return i == j ? k + noise : k;
+        }
+
+        @Override
+        public DMatrix set(int i, int j, double x) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void mv(Transpose trans, double alpha, double[] v, double beta, double[] y) {
+            // The matrix is symmetric so that the transpose is ignored.
+            int n = x.length;
+            int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            IntStream.range(0, blocks).parallel().forEach(block -> {
+                int from = block * BLOCK_SIZE;
+                int to = Math.min(n, from + BLOCK_SIZE);
+                double[] sum = new double[to - from];
+                // The column blocks keep the samples in cache.
+                for (int start = 0; start < n; start += BLOCK_SIZE) {
+                    int end = Math.min(n, start + BLOCK_SIZE);
+                    for (int i = from; i < to; i++) {
+                        T xi = x[i];
+                        double s = 0.0;
+                        for (int j = start; j < end; j++) {
+                            s += kernel.k(xi, x[j]) * v[j];
+                        }
+                        sum[i - from] += s;
+                    }
+                }
+
+                for (int i = from; i < to; i++) {
+                    double Kv = sum[i - from] + noise * v[i];
+                    y[i] = beta == 0.0 ? alpha * Kv : alpha * Kv + beta * y[i];
+                }
+            });
+        }
+
+        @Override
+        public void mv(double[] work, int inputOffset, int outputOffset) {
+            int n = x.length;
+            double[] v = Arrays.copyOfRange(work, inputOffset, inputOffset + n);
+            double[] y = new double[n];
+            mv(Transpose.NO_TRANSPOSE, 1.0, v, 0.0, y);
+            System.arraycopy(y, 0, work, outputOffset, n);
+        }
+
+        @Override
+        public void tv(double[] work, int inputOffset, int outputOffset) {
+            mv(work, inputOffset, outputOffset);
+        }
+    }
+
+    /**
+     * Returns the preconditioner of K + &sigma;<sup>2</sup>I based on the
+     * low rank pivoted Cholesky decomposition K &asymp; UU'. The
+     * preconditioner system is solved by the Woodbury identity
+     * (UU' + &sigma;<sup>2</sup>I)<sup>-1</sup> = (I - U(&sigma;<sup>2</sup>I + U'U)<sup>-1</sup>U') / &sigma;<sup>2</sup>.
+     *
+     * @param x the samples.
+     * @param kernel the kernel function.
+     * @param noise the variance of noise.
+     * @param rank the maximum rank of decomposition.
+     */
+    private static <T> Preconditioner pivotedCholesky(T[] x, MercerKernel<T> kernel, double noise, int rank) {
+        int n = x.length;
+        double[] d = new double[n];
+        for (int i = 0; i < n; i++) {
+            d[i] = kernel.k(x[i], x[i]);
+        }
+
+        double tol = 1E-10 * MathEx.max(d);
+        double[][] U = new double[rank][];
+        int r = 0;
+        while (r < rank) {
+            int p = MathEx.whichMax(d);
+            if (d[p] <= tol) break;
+
+            double s = Math.sqrt(d[p]);
+            T xp = x[p];
+            int k = r;
+            double[] u = new double[n];
+            IntStream.range(0, n).parallel().forEach(i -> {
+                double v = kernel.k(x[i], xp);
+                for (int l = 0; l < k; l++) {
+                    v -= U[l][i] * U[l][p];
+                }
+                u[i] = v / s;
+            });
+
+            for (int i = 0; i < n; i++) {
+                d[i] = Math.max(d[i] - u[i] * u[i], 0.0);
+            }
+            d[p] = 0.0;
+            U[r++] = u;
+        }
+
+        int rk = r;
+        if (rk == 0) {
+            return (b, z) -> {
+                for (int i = 0; i < n; i++) {
+                    z[i] = b[i] / noise;
+                }
+            };
+        }
+
+        Matrix S = new Matrix(rk, rk);
+        for (int i = 0; i < rk; i++) {
+            for (int j = 0; j <= i; j++) {
+                double v = MathEx.dot(U[i], U[j]);
+                S.set(i, j, v);
+                S.set(j, i, v);
+            }
+            S.add(i, i, noise);
+        }
+        S.uplo(UPLO.LOWER);
+        Matrix.Cholesky cholesky = S.cholesky(true);
+
+        return (b, z) -> {
+            double[] c = new double[rk];
+            for (int i = 0; i < rk; i++) {
+                c[i] = MathEx.dot(U[i], b);
+            }
+
+            c = cholesky.solve(c);
+            for (int i = 0; i < n; i++) {
+                double v = b[i];
+                for (int l = 0; l < rk; l++) {
+                    v -= U[l][i] * c[l];
+                }
+                z[i] = v / noise;
+            }
+        };
+    }
+
     /**
      * Fits an approximate Gaussian process model with Nystrom approximation of kernel matrix.
      * @param x the training dataset.
@@ -19,6 +19,7 @@ package smile.regression;
 
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 import smile.base.cart.*;
 import smile.data.DataFrame;
@@ -118,6 +119,11 @@ public class GradientTreeBoost implements Regression<Tuple>, DataFrameRegression
      */
     private RegressionTree[] trees;
 
+    /**
+     * The trees compiled into flat arrays for batch inference.
+     */
+    private transient FlatForest compiled;
+
     /**
      * The intercept.
      */
@@ -176,7 +182,9 @@ public class GradientTreeBoost implements Regression<Tuple>, DataFrameRegression
         int nodeSize = Integer.valueOf(prop.getProperty("smile.gbt.node.size", "5"));
         double shrinkage = Double.valueOf(prop.getProperty("smile.gbt.shrinkage", "0.05"));
         double subsample = Double.valueOf(prop.getProperty("smile.gbt.sample.rate", "0.7"));
-        return fit(formula, data, loss, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample);
+        int maxBins = Integer.valueOf(prop.getProperty("smile.gbt.max.bins", "0"));
+        int threads = Integer.valueOf(prop.getProperty("smile.gbt.threads", "0"));
+        return fit(formula, data, loss, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, maxBins, threads);
     }
 
     /**
@@ -195,6 +203,54 @@ public class GradientTreeBoost implements Regression<Tuple>, DataFrameRegression
      * @param subsample the sampling fraction for stochastic tree boosting.
      */
     public static GradientTreeBoost fit(Formula formula, DataFrame data, Loss loss, int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample) {
+        return fit(formula, data, loss, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, 0);
+    }
+
+    /**
+     * Fits a gradient tree boosting for regression.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param loss loss function for regression. By default, least absolute
+     * deviation is employed for robust regression.
+     * @param ntrees the number of iterations (trees).
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the number of instances in a node below which the tree will
+     *                 not split, setting nodeSize = 5 generally gives good results.
+     * @param shrinkage the shrinkage parameter in (0, 1] controls the learning rate of procedure.
+     * @param subsample the sampling fraction for stochastic tree boosting.
+     * @param maxBins the maximum number of bins of numeric variables in
+     *                histogram-based split finding, at most 256. If 0,
+     *                the exact split finding on pre-sorted values is used.
+     */
+    public static GradientTreeBoost fit(Formula formula, DataFrame data, Loss loss, int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample, int maxBins) {
+        return fit(formula, data, loss, ntrees, maxDepth, maxNodes, nodeSize, shrinkage, subsample, maxBins, 0);
+    }
+
+    /**
+     * Fits a gradient tree boosting for regression. Although the boosting
+     * iterations are sequential, each tree is grown in parallel by searching
+     * the splits of features and sibling nodes concurrently.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param loss loss function for regression. By default, least absolute
+     * deviation is employed for robust regression.
+     * @param ntrees the number of iterations (trees).
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the number of instances in a node below which the tree will
+     *                 not split, setting nodeSize = 5 generally gives good results.
+     * @param shrinkage the shrinkage parameter in (0, 1] controls the learning rate of procedure.
+     * @param subsample the sampling fraction for stochastic tree boosting.
+     * @param maxBins the maximum number of bins of numeric variables in
+     *                histogram-based split finding, at most 256. If 0,
+     *                the exact split finding on pre-sorted values is used.
+     * @param threads the number of threads to train the trees. If 0,
+     *                the common fork/join pool is used.
+     */
+    public static GradientTreeBoost fit(Formula formula, DataFrame data, Loss loss, int ntrees, int maxDepth, int maxNodes, int nodeSize, double shrinkage, double subsample, int maxBins, int threads) {
         if (ntrees < 1) {
             throw new IllegalArgumentException("Invalid number of trees: " + ntrees);
         }
@@ -207,13 +263,18 @@ public class GradientTreeBoost implements Regression<Tuple>, DataFrameRegression
             throw new IllegalArgumentException("Invalid sampling fraction: " + subsample);
         }
 
+        if (threads < 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
         double[] y = formula.y(data).toDoubleArray();
 
         final int n = x.nrows();
         final int N = (int) Math.round(n * subsample);
-        final int[][] order = CART.order(x);
+        final Bins bins = maxBins > 0 ? Bins.of(x, maxBins) : null;
+        final int[][] order = bins == null ? CART.order(x) : null;
 
         int[] permutation = IntStream.range(0, n).toArray();
         int[] samples = new int[n];
@@ -224,18 +285,26 @@ public class GradientTreeBoost implements Regression<Tuple>, DataFrameRegression
 
         RegressionTree[] trees = new RegressionTree[ntrees];
 
-        for (int t = 0; t < ntrees; t++) {
-            Arrays.fill(samples, 0);
-            MathEx.permutate(permutation);
-            for (int i = 0; i < N; i++) {
-                samples[permutation[i]]++;
+        ForkJoinPool pool = threads > 0 ? new ForkJoinPool(threads) : ForkJoinPool.commonPool();
+        try {
+            for (int t = 0; t < ntrees; t++) {
+                // The sampling stays in the caller thread for repeatable results.
+                Arrays.fill(samples, 0);
+                MathEx.permutate(permutation);
+                for (int i = 0; i < N; i++) {
+                    samples[permutation[i]]++;
+                }
+
+                logger.info("Training {} tree", Strings.ordinal(t+1));
+                trees[t] = pool.submit(() -> {
+                    RegressionTree tree = new RegressionTree(x, loss, field, maxDepth, maxNodes, nodeSize, x.ncols(), samples, order, bins);
+                    IntStream.range(0, n).parallel().forEach(i -> residual[i] -= shrinkage * tree.predict(x.get(i)));
+                    return tree;
+                }).join();
             }
-
-            logger.info("Training {} tree", Strings.ordinal(t+1));
-            trees[t] = new RegressionTree(x, loss, field, maxDepth, maxNodes, nodeSize, x.ncols(), samples, order);
-
-            for (int i = 0; i < n; i++) {
-                residual[i] -= shrinkage * trees[t].predict(x.get(i));
+        } finally {
+            if (threads > 0) {
+                pool.shutdown();
             }
         }
         
@@ -305,6 +374,7 @@ public class GradientTreeBoost implements Regression<Tuple>, DataFrameRegression
         }
         
         trees = Arrays.copyOf(trees, ntrees);
+        compiled = null;
     }
     
     @Override
@@ -318,6 +388,27 @@ public class GradientTreeBoost implements Regression<Tuple>, DataFrameRegression
         return y;
     }
 
+    /**
+     * Predicts the dependent variable of a data frame. The trees are
+     * compiled into flat arrays on first use, and the batch is scored
+     * column-wise without creating a tuple for each row.
+     *
+     * @param data the data frame.
+     * @return the predicted values.
+     */
+    @Override
+    public double[] predict(DataFrame data) {
+        if (compiled == null) {
+            compiled = FlatForest.of(trees);
+        }
+
+        double[] y = compiled.sum(formula.x(data), null);
+        for (int i = 0; i < y.length; i++) {
+            y[i] = b + shrinkage * y[i];
+        }
+        return y;
+    }
+
     /**
      * Test the model on a validation dataset.
      *
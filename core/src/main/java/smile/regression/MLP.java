@@ -66,7 +66,7 @@ import smile.base.mlp.*;
         return output.output()[0];
     }
 
-    /** Updates the model with a single sample. RMSProp is not applied. */
+    /** Updates the model with a single sample. RMSProp and Adam are not applied. */
     @Override
     public void update(double[] x, double y) {
         propagate(x);
@@ -75,16 +75,19 @@ import smile.base.mlp.*;
         t++;
     }
 
-    /** Updates the model with a mini-batch. RMSProp is applied if rho > 0. */
+    /**
+     * Updates the model with a mini-batch, which is propagated through
+     * the network as a whole. RMSProp is applied if rho &gt; 0.
+     * Adam is applied if beta2 &gt; 0.
+     */
     @Override
     public void update(double[][] x, double[] y) {
-        double[] target = this.target.get();
-        for (int i = 0; i < x.length; i++) {
-            propagate(x[i]);
-            target[0] = y[i];
-            backpropagate(x[i], false);
+        double[][] target = new double[y.length][1];
+        for (int i = 0; i < y.length; i++) {
+            target[i][0] = y[i];
         }
 
+        backpropagate(x, target);
         update(x.length);
         t++;
     }
@@ -21,7 +21,9 @@ import java.util.Arrays;
 import java.util.Properties;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
+import smile.base.cart.Bins;
 import smile.base.cart.CART;
+import smile.base.cart.FlatForest;
 import smile.base.cart.Loss;
 import smile.data.DataFrame;
 import smile.data.Tuple;
@@ -84,6 +86,11 @@ public class RandomForest implements Regression<Tuple>, DataFrameRegression, Tre
      */
     private RegressionTree[] trees;
 
+    /**
+     * The trees compiled into flat arrays for batch inference.
+     */
+    private transient FlatForest compiled;
+
     /**
      * Out-of-bag estimation of RMSE, which is quite accurate given that
      * enough trees have been grown (otherwise the OOB estimate can
@@ -137,7 +144,8 @@ public class RandomForest implements Regression<Tuple>, DataFrameRegression, Tre
         int maxNodes = Integer.valueOf(prop.getProperty("smile.random.forest.max.nodes", String.valueOf(data.size() / 5)));
         int nodeSize = Integer.valueOf(prop.getProperty("smile.random.forest.node.size", "5"));
         double subsample = Double.valueOf(prop.getProperty("smile.random.forest.sample.rate", "1.0"));
-        return fit(formula, data, ntrees, mtry, maxDepth, maxNodes, nodeSize, subsample);
+        int maxBins = Integer.valueOf(prop.getProperty("smile.random.forest.max.bins", "0"));
+        return fit(formula, data, ntrees, mtry, maxDepth, maxNodes, nodeSize, subsample, maxBins, null);
     }
 
     /**
@@ -178,6 +186,30 @@ public class RandomForest implements Regression<Tuple>, DataFrameRegression, Tre
      * @param seeds optional RNG seeds for each regression tree.
      */
     public static RandomForest fit(Formula formula, DataFrame data, int ntrees, int mtry, int maxDepth, int maxNodes, int nodeSize, double subsample, LongStream seeds) {
+        return fit(formula, data, ntrees, mtry, maxDepth, maxNodes, nodeSize, subsample, 0, seeds);
+    }
+
+    /**
+     * Learns a random forest for regression.
+     *
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param ntrees the number of trees.
+     * @param mtry the number of input variables to be used to determine the
+     *             decision at a node of the tree. p/3 generally give good
+     *             performance, where p is the number of variables.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the number of instances in a node below which the tree will
+     *                 not split, nodeSize = 5 generally gives good results.
+     * @param subsample the sampling rate for training tree. 1.0 means sampling with
+     *                  replacement. &lt; 1.0 means sampling without replacement.
+     * @param maxBins the maximum number of bins of numeric variables in
+     *                histogram-based split finding, at most 256. If 0,
+     *                the exact split finding on pre-sorted values is used.
+     * @param seeds optional RNG seeds for each regression tree.
+     */
+    public static RandomForest fit(Formula formula, DataFrame data, int ntrees, int mtry, int maxDepth, int maxNodes, int nodeSize, double subsample, int maxBins, LongStream seeds) {
         if (ntrees < 1) {
             throw new IllegalArgumentException("Invalid number of trees: " + ntrees);
         }
@@ -201,7 +233,9 @@ public class RandomForest implements Regression<Tuple>, DataFrameRegression, Tre
         final int n = x.nrows();
         double[] prediction = new double[n];
         int[] oob = new int[n];
-        final int[][] order = CART.order(x);
+        // The quantized data are shared by all trees.
+        final Bins bins = maxBins > 0 ? Bins.of(x, maxBins) : null;
+        final int[][] order = bins == null ? CART.order(x) : null;
 
         // generate seeds with sequential stream
         long[] seedArray = (seeds != null ? seeds : LongStream.range(-ntrees, 0)).sequential().distinct().limit(ntrees).toArray();
@@ -229,7 +263,7 @@ public class RandomForest implements Regression<Tuple>, DataFrameRegression, Tre
                 }
             }
 
-            RegressionTree tree = new RegressionTree(x, Loss.ls(y), field, maxDepth, maxNodes, nodeSize, mtryFinal, samples, order);
+            RegressionTree tree = new RegressionTree(x, Loss.ls(y), field, maxDepth, maxNodes, nodeSize, mtryFinal, samples, order, bins);
 
             IntStream.range(0, n).filter(i -> samples[i] == 0).forEach(i -> {
                 double pred = tree.predict(x.get(i));
@@ -360,6 +394,7 @@ public class RandomForest implements Regression<Tuple>, DataFrameRegression, Tre
         RegressionTree[] model = new RegressionTree[ntrees];
         System.arraycopy(trees, 0, model, 0, ntrees);
         trees = model;
+        compiled = null;
     }
     
     @Override
@@ -373,6 +408,27 @@ public class RandomForest implements Regression<Tuple>, DataFrameRegression, Tre
         return y / trees.length;
     }
 
+    /**
+     * Predicts the dependent variable of a data frame. The trees are
+     * compiled into flat arrays on first use, and the batch is scored
+     * column-wise without creating a tuple for each row.
+     *
+     * @param data the data frame.
+     * @return the predicted values.
+     */
+    @Override
+    public double[] predict(DataFrame data) {
+        if (compiled == null) {
+            compiled = FlatForest.of(trees);
+        }
+
+        double[] y = compiled.sum(formula.x(data), null);
+        for (int i = 0; i < y.length; i++) {
+            y[i] /= trees.length;
+        }
+        return y;
+    }
+
     /**
      * Test the model on a validation dataset.
      *
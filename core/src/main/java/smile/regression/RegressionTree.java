@@ -228,6 +228,75 @@ public class RegressionTree extends CART implements Regression<Tuple>, DataFrame
         return Optional.ofNullable(split);
     }
 
+    @Override
+    protected double[] histogram(int j, int lo, int hi) {
+        // The sample count and sum of response in each bin.
+        double[] histogram = new double[2 * bins.size(j)];
+        for (int i = lo; i < hi; i++) {
+            int o = index[i];
+            int b = 2 * bins.bin(o, j);
+            histogram[b] += samples[o];
+            histogram[b + 1] += y[o] * samples[o];
+        }
+        return histogram;
+    }
+
+    @Override
+    protected Optional<Split> findBestSplit(LeafNode leaf, int j, double impurity, int lo, int hi, double[] histogram) {
+        RegressionNode node = (RegressionNode) leaf;
+
+        int m = bins.size(j);
+        double sum = 0.0;
+        for (int b = 0; b < m; b++) {
+            sum += histogram[2 * b + 1];
+        }
+        double nodeMeanSquared = node.size() * node.mean() * node.mean();
+
+        int splitBin = -1;
+        double splitScore = 0.0;
+        int splitTrueCount = 0;
+        int splitFalseCount = 0;
+
+        int tc = 0;
+        double trueSum = 0.0;
+        for (int b = 0; b < m - 1; b++) {
+            int count = (int) histogram[2 * b];
+
+            // empty bin has the same split as the previous one.
+            if (count == 0) continue;
+
+            tc += count;
+            trueSum += histogram[2 * b + 1];
+            int fc = node.size() - tc;
+
+            // If either side is too small, skip this value.
+            if (tc < nodeSize || fc < nodeSize) {
+                continue;
+            }
+
+            double trueMean = trueSum / tc;
+            double falseMean = (sum - trueSum) / fc;
+
+            double gain = (tc * trueMean * trueMean + fc * falseMean * falseMean) - nodeMeanSquared;
+
+            // new best split
+            if (gain > splitScore) {
+                splitBin = b;
+                splitTrueCount = tc;
+                splitFalseCount = fc;
+                splitScore = gain;
+            }
+        }
+
+        Split split = null;
+        if (splitScore > 0.0) {
+            final int bin = splitBin;
+            split = new OrdinalSplit(leaf, j, bins.cut(j, bin), splitScore, lo, hi, splitTrueCount, splitFalseCount, (int o) -> bins.bin(o, j) <= bin);
+        }
+
+        return Optional.ofNullable(split);
+    }
+
     /**
      * Constructor. Learns a regression tree for AdaBoost and Random Forest.
      * @param x the data frame of the explanatory variable.
@@ -245,7 +314,30 @@ public class RegressionTree extends CART implements Regression<Tuple>, DataFrame
      *              that only numeric attributes need be sorted.
      */
     public RegressionTree(DataFrame x, Loss loss, StructField response, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order) {
-        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order);
+        this(x, loss, response, maxDepth, maxNodes, nodeSize, mtry, samples, order, null);
+    }
+
+    /**
+     * Constructor. Learns a regression tree for AdaBoost and Random Forest.
+     * @param x the data frame of the explanatory variable.
+     * @param loss the loss function.
+     * @param response the metadata of response variable.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param mtry the number of input variables to pick to split on at each
+     *             node. It seems that sqrt(p) give generally good performance,
+     *             where p is the number of variables.
+     * @param samples the sample set of instances for stochastic learning.
+     *               samples[i] is the number of sampling for instance i.
+     * @param order the index of training values in ascending order. Note
+     *              that only numeric attributes need be sorted.
+     * @param bins the quantized training data for histogram-based split
+     *             finding. If not null, order is needed only for the
+     *             columns of which the histograms are not available.
+     */
+    public RegressionTree(DataFrame x, Loss loss, StructField response, int maxDepth, int maxNodes, int nodeSize, int mtry, int[] samples, int[][] order, Bins bins) {
+        super(x, response, maxDepth, maxNodes, nodeSize, mtry, samples, order, bins);
         this.loss = loss;
         this.y = loss.response();
 
@@ -288,6 +380,7 @@ public class RegressionTree extends CART implements Regression<Tuple>, DataFrame
      * <ul>
      * <li><code>smile.cart.node.size</code>
      * <li><code>smile.cart.max.nodes</code>
+     * <li><code>smile.cart.max.bins</code>
      * </ul>
      * @param formula a symbolic description of the model to be fitted.
      * @param data the data frame of the explanatory and response variables.
@@ -297,7 +390,8 @@ public class RegressionTree extends CART implements Regression<Tuple>, DataFrame
         int maxDepth = Integer.valueOf(prop.getProperty("smile.cart.max.depth", "20"));
         int maxNodes = Integer.valueOf(prop.getProperty("smile.cart.max.nodes", String.valueOf(data.size() / 5)));
         int nodeSize = Integer.valueOf(prop.getProperty("smile.cart.node.size", "5"));
-        return fit(formula, data, maxDepth, maxNodes, nodeSize);
+        int maxBins = Integer.valueOf(prop.getProperty("smile.cart.max.bins", "0"));
+        return fit(formula, data, maxDepth, maxNodes, nodeSize, maxBins);
     }
 
     /**
@@ -309,10 +403,26 @@ public class RegressionTree extends CART implements Regression<Tuple>, DataFrame
      * @param nodeSize the minimum size of leaf nodes.
      */
     public static RegressionTree fit(Formula formula, DataFrame data, int maxDepth, int maxNodes, int nodeSize) {
+        return fit(formula, data, maxDepth, maxNodes, nodeSize, 0);
+    }
+
+    /**
+     * Learns a regression tree.
+     * @param formula a symbolic description of the model to be fitted.
+     * @param data the data frame of the explanatory and response variables.
+     * @param maxDepth the maximum depth of the tree.
+     * @param maxNodes the maximum number of leaf nodes in the tree.
+     * @param nodeSize the minimum size of leaf nodes.
+     * @param maxBins the maximum number of bins of numeric variables in
+     *                histogram-based split finding, at most 256. If 0,
+     *                the exact split finding on pre-sorted values is used.
+     */
+    public static RegressionTree fit(Formula formula, DataFrame data, int maxDepth, int maxNodes, int nodeSize, int maxBins) {
         formula = formula.expand(data.schema());
         DataFrame x = formula.x(data);
         BaseVector y = formula.y(data);
-        RegressionTree tree = new RegressionTree(x, Loss.ls(y.toDoubleArray()), y.field(), maxDepth, maxNodes, nodeSize, -1, null, null);
+        Bins bins = maxBins > 0 ? Bins.of(x, maxBins) : null;
+        RegressionTree tree = new RegressionTree(x, Loss.ls(y.toDoubleArray()), y.field(), maxDepth, maxNodes, nodeSize, -1, null, null, bins);
         tree.formula = formula;
         return tree;
     }
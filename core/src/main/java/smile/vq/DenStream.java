@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.vq;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import smile.math.MathEx;
+
+/**
+ * Density-based clustering over an evolving data stream with noise.
+ * DenStream summarizes the stream by micro-clusters, which are the
+ * clustering features (CF) of BIRCH with damped weights. The weight
+ * of each observation decays by the fading function
+ * 2<sup>-&lambda;t</sup> over the time t, which is the number of
+ * observations seen since then. A potential micro-cluster of which
+ * the weight is at least &beta;&mu; may become a core micro-cluster.
+ * An outlier micro-cluster, of which the weight is below &beta;&mu;,
+ * may grow into a potential micro-cluster or fade away.
+ * <p>
+ * A new observation is merged into the nearest potential micro-cluster
+ * if the radius of merged micro-cluster is not greater than &epsilon;.
+ * Otherwise, it is merged into the nearest outlier micro-cluster with
+ * the same radius condition, or starts a new outlier micro-cluster.
+ * The faded micro-clusters are pruned periodically so that the memory
+ * is bounded. In addition, the number of micro-clusters is limited by
+ * the capacity, beyond which the micro-cluster with the least weight
+ * is dropped.
+ * <p>
+ * On demand, the potential micro-clusters are clustered by DBSCAN, i.e.
+ * the micro-clusters of weight at least &mu; are the core and those
+ * within the distance 2&epsilon; are connected. A new observation is
+ * labeled by the cluster of its nearest potential micro-cluster if it
+ * is within the radius &epsilon;, otherwise it is an outlier.
+ *
+ * <h2>References</h2>
+ * <ol>
+ * <li>Feng Cao, Martin Ester, Weining Qian, and Aoying Zhou. Density-Based Clustering over an Evolving Data Stream with Noise. SDM, 2006.</li>
+ * </ol>
+ *
+ * @see BIRCH
+ * @see smile.clustering.DBSCAN
+ *
+ * @author Haifeng Li
+ */
+public class DenStream implements VectorQuantizer {
+    private static final long serialVersionUID = 2L;
+
+    /**
+     * The dimensionality of data.
+     */
+    public final int d;
+    /**
+     * The maximum radius of a micro-cluster.
+     */
+    public final double epsilon;
+    /**
+     * The minimum weight of a core micro-cluster.
+     */
+    public final double mu;
+    /**
+     * The factor of the minimum weight of a potential micro-cluster.
+     */
+    public final double beta;
+    /**
+     * The decay rate of the fading function.
+     */
+    public final double lambda;
+    /**
+     * The maximum number of micro-clusters.
+     */
+    public final int capacity;
+    /**
+     * The period of pruning, i.e. the minimum time span for a potential
+     * micro-cluster to fade into an outlier micro-cluster.
+     */
+    private final long period;
+    /**
+     * The current time, i.e. the number of observations.
+     */
+    private long time = 0;
+    /**
+     * The potential micro-clusters.
+     */
+    private final List<MicroCluster> potential = new ArrayList<>();
+    /**
+     * The outlier micro-clusters.
+     */
+    private final List<MicroCluster> outliers = new ArrayList<>();
+    /**
+     * The number of clusters by the last offline clustering.
+     */
+    private int k = 0;
+    /**
+     * True if the micro-clusters are changed after the last
+     * offline clustering.
+     */
+    private boolean dirty = true;
+
+    /**
+     * The micro-cluster, i.e. the clustering feature (CF) vector
+     * with damped weights: CF = (w, LS, SS) at the time of last update.
+     */
+    private class MicroCluster implements Serializable {
+        /** The weight, i.e. the faded number of observations. */
+        private double w;
+        /** The faded sum of observations. */
+        private final double[] sum = new double[d];
+        /** The faded square sum of observations. */
+        private final double[] ss = new double[d];
+        /** The time of creation. */
+        private final long created;
+        /** The time of last update. */
+        private long updated;
+        /** The cluster label by the last offline clustering. */
+        private int label = OUTLIER;
+
+        /**
+         * Constructor.
+         * @param x the first observation added to this micro-cluster.
+         */
+        MicroCluster(double[] x) {
+            w = 1.0;
+            created = time;
+            updated = time;
+            for (int i = 0; i < d; i++) {
+                sum[i] = x[i];
+                ss[i] = x[i] * x[i];
+            }
+        }
+
+        /** Fades the micro-cluster to the current time. */
+        void fade() {
+            if (updated < time) {
+                double decay = Math.pow(2.0, -lambda * (time - updated));
+                w *= decay;
+                for (int i = 0; i < d; i++) {
+                    sum[i] *= decay;
+                    ss[i] *= decay;
+                }
+                updated = time;
+            }
+        }
+
+        /** Returns the weight at the current time. */
+        double weight() {
+            return w * Math.pow(2.0, -lambda * (time - updated));
+        }
+
+        /**
+         * Returns the squared distance between x and the center. As the
+         * fading scales all components of CF, the center is invariant
+         * to fading.
+         */
+        double distance(double[] x) {
+            double dist = 0.0;
+            for (int i = 0; i < d; i++) {
+                double diff = sum[i] / w - x[i];
+                dist += diff * diff;
+            }
+            return dist;
+        }
+
+        /** Returns the squared distance between the centers. */
+        double distance(MicroCluster o) {
+            double dist = 0.0;
+            for (int i = 0; i < d; i++) {
+                double diff = sum[i] / w - o.sum[i] / o.w;
+                dist += diff * diff;
+            }
+            return dist;
+        }
+
+        /** Returns the center. */
+        double[] center() {
+            double[] center = new double[d];
+            for (int i = 0; i < d; i++) {
+                center[i] = sum[i] / w;
+            }
+            return center;
+        }
+
+        /** Returns the radius with an additional observation at the current time. */
+        double radius(double[] x) {
+            double decay = Math.pow(2.0, -lambda * (time - updated));
+            double w1 = w * decay + 1.0;
+            double r = 0.0;
+            for (int i = 0; i < d; i++) {
+                double mu = (sum[i] * decay + x[i]) / w1;
+                r += (ss[i] * decay + x[i] * x[i]) / w1 - mu * mu;
+            }
+            return Math.sqrt(Math.max(r, 0.0));
+        }
+
+        /** Adds an observation at the current time. */
+        void add(double[] x) {
+            fade();
+            w += 1.0;
+            for (int i = 0; i < d; i++) {
+                sum[i] += x[i];
+                ss[i] += x[i] * x[i];
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param d the dimensionality of data.
+     * @param epsilon the maximum radius of a micro-cluster.
+     * @param mu the minimum weight of a core micro-cluster.
+     * @param beta the factor of the minimum weight &beta;&mu; of a
+     *             potential micro-cluster, in (0, 1]. It should be
+     *             that &beta;&mu; &gt; 1.
+     * @param lambda the decay rate of the fading function, e.g. 0.001
+     *               for halving the weights every 1000 observations.
+     * @param capacity the maximum number of micro-clusters.
+     */
+    public DenStream(int d, double epsilon, double mu, double beta, double lambda, int capacity) {
+        if (d <= 0) {
+            throw new IllegalArgumentException("Invalid dimension: " + d);
+        }
+
+        if (epsilon <= 0.0) {
+            throw new IllegalArgumentException("Invalid epsilon: " + epsilon);
+        }
+
+        if (beta <= 0.0 || beta > 1.0) {
+            throw new IllegalArgumentException("Invalid beta: " + beta);
+        }
+
+        if (beta * mu <= 1.0) {
+            throw new IllegalArgumentException(String.format("Invalid beta * mu = %f, which should be greater than 1", beta * mu));
+        }
+
+        if (lambda <= 0.0) {
+            throw new IllegalArgumentException("Invalid lambda: " + lambda);
+        }
+
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        this.d = d;
+        this.epsilon = epsilon;
+        this.mu = mu;
+        this.beta = beta;
+        this.lambda = lambda;
+        this.capacity = capacity;
+        this.period = (long) Math.ceil(MathEx.log2(beta * mu / (beta * mu - 1.0)) / lambda);
+    }
+
+    @Override
+    public void update(double[] x) {
+        time++;
+        dirty = true;
+
+        if (merge(potential, x) == null) {
+            MicroCluster cluster = merge(outliers, x);
+            if (cluster != null) {
+                // Promotes the outlier micro-cluster to a potential one.
+                if (cluster.w > beta * mu) {
+                    outliers.remove(cluster);
+                    potential.add(cluster);
+                }
+            } else {
+                outliers.add(new MicroCluster(x));
+                if (potential.size() + outliers.size() > capacity) {
+                    evict();
+                }
+            }
+        }
+
+        if (time % period == 0) {
+            prune();
+        }
+    }
+
+    /**
+     * Updates the micro-clusters with a batch of observations.
+     * @param batch the batch of observations.
+     */
+    public void update(double[][] batch) {
+        for (double[] x : batch) {
+            update(x);
+        }
+    }
+
+    /**
+     * Merges an observation into the nearest micro-cluster if the radius
+     * of merged micro-cluster is not greater than epsilon.
+     * @return the merged micro-cluster, or null if not merged.
+     */
+    private MicroCluster merge(List<MicroCluster> clusters, double[] x) {
+        MicroCluster nearest = nearest(clusters, x);
+        if (nearest != null && nearest.radius(x) <= epsilon) {
+            nearest.add(x);
+            return nearest;
+        }
+        return null;
+    }
+
+    /** Returns the micro-cluster nearest to x, or null if the list is empty. */
+    private MicroCluster nearest(List<MicroCluster> clusters, double[] x) {
+        MicroCluster nearest = null;
+        double dist = Double.MAX_VALUE;
+        for (MicroCluster cluster : clusters) {
+            double di = cluster.distance(x);
+            if (di < dist) {
+                dist = di;
+                nearest = cluster;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Removes the micro-cluster with the least weight, preferring
+     * the outlier micro-clusters.
+     */
+    private void evict() {
+        List<MicroCluster> clusters = outliers.size() > 1 ? outliers : potential;
+        // The last outlier micro-cluster is the new one that should be kept.
+        int n = clusters == outliers ? clusters.size() - 1 : clusters.size();
+        int lightest = 0;
+        double weight = clusters.get(0).weight();
+        for (int i = 1; i < n; i++) {
+            double wi = clusters.get(i).weight();
+            if (wi < weight) {
+                weight = wi;
+                lightest = i;
+            }
+        }
+        clusters.remove(lightest);
+    }
+
+    /**
+     * Removes the potential micro-clusters of which the weight fades
+     * below beta * mu, and the outlier micro-clusters of which the weight
+     * is below the lower limit of the expected weight since creation.
+     */
+    private void prune() {
+        double threshold = beta * mu;
+        potential.removeIf(cluster -> cluster.weight() < threshold);
+
+        double denominator = Math.pow(2.0, -lambda * period) - 1.0;
+        outliers.removeIf(cluster -> {
+            double xi = (Math.pow(2.0, -lambda * (time - cluster.created + period)) - 1.0) / denominator;
+            return cluster.weight() < xi;
+        });
+    }
+
+    @Override
+    public double[] quantize(double[] x) {
+        MicroCluster nearest = nearest(potential, x);
+        return nearest == null ? null : nearest.center();
+    }
+
+    /** Returns the current time, i.e. the number of observations. */
+    public long time() {
+        return time;
+    }
+
+    /** Returns the centers of potential micro-clusters. */
+    public double[][] centroids() {
+        return potential.stream().map(MicroCluster::center).toArray(double[][]::new);
+    }
+
+    /** Returns the current weights of potential micro-clusters. */
+    public double[] weights() {
+        return potential.stream().mapToDouble(MicroCluster::weight).toArray();
+    }
+
+    /** Returns the number of outlier micro-clusters. */
+    public int outliers() {
+        return outliers.size();
+    }
+
+    /**
+     * Clusters the potential micro-clusters by DBSCAN. The potential
+     * micro-clusters of weight at least mu are the core micro-clusters.
+     * The core micro-clusters within the distance 2 * epsilon are
+     * density-connected. A non-core potential micro-cluster is assigned
+     * to the cluster of its nearest core micro-cluster within the distance
+     * 2 * epsilon, otherwise it is noise.
+     *
+     * @return the number of clusters.
+     */
+    public int cluster() {
+        if (!dirty) return k;
+
+        int n = potential.size();
+        MicroCluster[] clusters = potential.toArray(new MicroCluster[n]);
+        boolean[] core = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            core[i] = clusters[i].weight() >= mu;
+            clusters[i].label = OUTLIER;
+        }
+
+        double r2 = 4 * epsilon * epsilon;
+        int[] queue = new int[n];
+        k = 0;
+        for (int i = 0; i < n; i++) {
+            if (!core[i] || clusters[i].label != OUTLIER) continue;
+
+            clusters[i].label = k;
+            int head = 0, tail = 0;
+            queue[tail++] = i;
+            while (head < tail) {
+                MicroCluster p = clusters[queue[head++]];
+                for (int j = 0; j < n; j++) {
+                    if (core[j] && clusters[j].label == OUTLIER && p.distance(clusters[j]) <= r2) {
+                        clusters[j].label = k;
+                        queue[tail++] = j;
+                    }
+                }
+            }
+            k++;
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (core[i]) continue;
+
+            double nearest = r2;
+            for (int j = 0; j < n; j++) {
+                if (core[j]) {
+                    double dist = clusters[i].distance(clusters[j]);
+                    if (dist <= nearest) {
+                        nearest = dist;
+                        clusters[i].label = clusters[j].label;
+                    }
+                }
+            }
+        }
+
+        dirty = false;
+        return k;
+    }
+
+    /**
+     * Classifies a new observation. The clusters are updated if the
+     * micro-clusters are changed after the last offline clustering.
+     * @param x a new observation.
+     * @return the cluster label, which is {@link #OUTLIER} if the nearest
+     *         potential micro-cluster is beyond the distance epsilon or
+     *         is noise.
+     */
+    public int predict(double[] x) {
+        cluster();
+        MicroCluster nearest = nearest(potential, x);
+        if (nearest == null || nearest.distance(x) > epsilon * epsilon) {
+            return OUTLIER;
+        }
+        return nearest.label;
+    }
+}
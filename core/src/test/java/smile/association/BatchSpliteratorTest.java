@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.association;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class BatchSpliteratorTest {
+
+    /** The number of created generators. */
+    AtomicInteger generators = new AtomicInteger();
+
+    public BatchSpliteratorTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+        generators.set(0);
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Returns the spliterator whose batch i has i copies of i.
+     * In particular, the batch 0 is empty.
+     */
+    private BatchSpliterator<Integer> spliterator(int from, int to) {
+        return new BatchSpliterator<>(from, to, () -> {
+            generators.incrementAndGet();
+            return (batch, sink) -> {
+                for (int i = 0; i < batch; i++) {
+                    sink.accept(batch);
+                }
+            };
+        });
+    }
+
+    @Test
+    public void testTryAdvance() {
+        System.out.println("tryAdvance");
+
+        BatchSpliterator<Integer> spliterator = spliterator(0, 4);
+        assertEquals(0, generators.get());
+
+        List<Integer> results = new ArrayList<>();
+        while (spliterator.tryAdvance(results::add)) {
+            assertTrue(results.size() <= 6);
+        }
+        assertEquals(Arrays.asList(1, 2, 2, 3, 3, 3), results);
+        assertFalse(spliterator.tryAdvance(results::add));
+        assertEquals(0, spliterator.estimateSize());
+        assertEquals(1, generators.get());
+    }
+
+    @Test
+    public void testEmpty() {
+        System.out.println("empty");
+
+        // The batches generate nothing.
+        BatchSpliterator<Integer> spliterator = spliterator(0, 1);
+        assertFalse(spliterator.tryAdvance(i -> fail()));
+        assertFalse(spliterator(3, 3).tryAdvance(i -> fail()));
+    }
+
+    @Test
+    public void testForEachRemaining() {
+        System.out.println("forEachRemaining");
+
+        BatchSpliterator<Integer> spliterator = spliterator(0, 4);
+        List<Integer> results = new ArrayList<>();
+        // Buffers the batch 2.
+        assertTrue(spliterator.tryAdvance(results::add));
+        assertTrue(spliterator.tryAdvance(results::add));
+        spliterator.forEachRemaining(results::add);
+        assertEquals(Arrays.asList(1, 2, 2, 3, 3, 3), results);
+        assertFalse(spliterator.tryAdvance(results::add));
+    }
+
+    @Test
+    public void testTrySplit() {
+        System.out.println("trySplit");
+
+        BatchSpliterator<Integer> spliterator = spliterator(0, 8);
+        assertEquals(8, spliterator.estimateSize());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(4, prefix.estimateSize());
+        assertEquals(4, spliterator.estimateSize());
+
+        List<Integer> head = new ArrayList<>();
+        prefix.forEachRemaining(head::add);
+        assertEquals(Arrays.asList(1, 2, 2, 3, 3, 3), head);
+
+        List<Integer> tail = new ArrayList<>();
+        spliterator.forEachRemaining(tail::add);
+        assertEquals(4 + 5 + 6 + 7, tail.size());
+        assertEquals(4, tail.get(0).intValue());
+        assertEquals(7, tail.get(tail.size() - 1).intValue());
+
+        // Each split has its own generator.
+        assertEquals(2, generators.get());
+    }
+
+    @Test
+    public void testTrySplitSingleBatch() {
+        System.out.println("trySplit single batch");
+
+        BatchSpliterator<Integer> spliterator = spliterator(0, 2);
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(1, prefix.estimateSize());
+        // A single batch cannot be split.
+        assertNull(prefix.trySplit());
+        assertNull(spliterator.trySplit());
+    }
+
+    @Test
+    public void testTrySplitBuffered() {
+        System.out.println("trySplit buffered");
+
+        BatchSpliterator<Integer> spliterator = spliterator(2, 10);
+        List<Integer> results = new ArrayList<>();
+        assertTrue(spliterator.tryAdvance(results::add));
+        // The rest of batch 2 is buffered and has to be consumed first.
+        assertNull(spliterator.trySplit());
+        assertTrue(spliterator.tryAdvance(results::add));
+        assertEquals(Arrays.asList(2, 2), results);
+
+        // Now the remaining batches 3, ..., 9 can be split.
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(3, prefix.estimateSize());
+        assertEquals(4, spliterator.estimateSize());
+    }
+
+    @Test
+    public void testParallel() {
+        System.out.println("parallel");
+
+        List<Integer> sequential = StreamSupport.stream(spliterator(0, 100), false).collect(Collectors.toList());
+        List<Integer> parallel = StreamSupport.stream(spliterator(0, 100), true).collect(Collectors.toList());
+        assertEquals(99 * 100 / 2, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+}
@@ -18,7 +18,9 @@
 package smile.association;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.junit.After;
@@ -113,6 +115,28 @@ public class FPGrowthTest {
         assertEquals(1803, FPGrowth.apply(tree).count());
     }
     
+    @Test(expected = Test.None.class)
+    public void testParallel() throws IOException {
+        System.out.println("parallel");
+
+        FPTree tree = FPTree.of(20, () -> ItemSetTestData.read("transaction/pima.D38.N768.C2"));
+        List<ItemSet> sequential = FPGrowth.apply(tree).collect(Collectors.toList());
+        List<ItemSet> parallel = FPGrowth.apply(tree).parallel().collect(Collectors.toList());
+        assertEquals(1803, sequential.size());
+        // The stream is ordered so that the item sets and their
+        // supports are in the same order.
+        assertEquals(sequential, parallel);
+
+        // Unordered parallel mining finds the same item sets too.
+        Set<ItemSet> unordered = FPGrowth.apply(tree).parallel().unordered().collect(Collectors.toSet());
+        assertEquals(new HashSet<>(sequential), unordered);
+
+        TotalSupportTree ttree = new TotalSupportTree(tree);
+        for (ItemSet itemset : sequential) {
+            assertEquals(itemset.support, ttree.getSupport(itemset.items));
+        }
+    }
+
     @Test(expected = Test.None.class)
     public void testKosarak() throws IOException {
         System.out.println("kosarak");
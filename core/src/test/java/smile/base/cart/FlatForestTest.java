@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.cart;
+
+import smile.classification.DecisionTree;
+import smile.data.CPU;
+import smile.data.DataFrame;
+import smile.data.Iris;
+import smile.regression.RegressionTree;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class FlatForestTest {
+
+    public FlatForestTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testVote() {
+        System.out.println("vote");
+        DecisionTree tree = DecisionTree.fit(Iris.formula, Iris.data);
+        DataFrame x = Iris.formula.x(Iris.data);
+        FlatForest forest = FlatForest.of(tree, tree);
+        assertEquals(3, forest.k());
+
+        int[] votes = forest.vote(x);
+        for (int i = 0; i < x.size(); i++) {
+            assertEquals(2, votes[i * 3 + tree.predict(Iris.data.get(i))]);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testVoteRegression() {
+        System.out.println("vote regression trees");
+        RegressionTree tree = RegressionTree.fit(CPU.formula, CPU.data);
+        FlatForest forest = FlatForest.of(tree);
+        assertEquals(1, forest.k());
+        forest.vote(CPU.formula.x(CPU.data));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMixedTrees() {
+        System.out.println("mixed trees");
+        FlatForest.of(DecisionTree.fit(Iris.formula, Iris.data), RegressionTree.fit(CPU.formula, CPU.data));
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.mlp;
+
+import smile.math.MathEx;
+import smile.math.matrix.Matrix;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class LayerTest {
+
+    public LayerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testBackpropagate() {
+        System.out.println("backpropagate");
+        MathEx.setSeed(19650218); // to get repeatable results.
+
+        ActivationFunction sigmoid = ActivationFunction.sigmoid();
+        HiddenLayer hidden = new HiddenLayer(5, 3, sigmoid);
+        // The layer implements only the back-propagation of single sample.
+        Layer layer = new Layer(hidden.weight, hidden.bias) {
+            @Override
+            public void f(double[] x) {
+                sigmoid.f(x);
+            }
+
+            @Override
+            public void backpropagate(double[] lowerLayerGradient) {
+                double[] gradient = outputGradient.get();
+                sigmoid.g(gradient, output.get());
+                if (lowerLayerGradient != null) {
+                    weight.tv(gradient, lowerLayerGradient);
+                }
+            }
+        };
+
+        Matrix output = Matrix.rand(5, 4, 0.1, 0.9);
+        Matrix gradient = Matrix.rand(5, 4, -1.0, 1.0);
+
+        Matrix expected = gradient.clone();
+        Matrix expectedLower = new Matrix(3, 4);
+        hidden.backpropagate(output, expected, expectedLower);
+
+        Matrix actual = gradient.clone();
+        Matrix actualLower = new Matrix(3, 4);
+        layer.backpropagate(output, actual, actualLower);
+
+        for (int j = 0; j < 4; j++) {
+            for (int i = 0; i < 5; i++) {
+                assertEquals(expected.get(i, j), actual.get(i, j), 1E-10);
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expectedLower.get(i, j), actualLower.get(i, j), 1E-10);
+            }
+        }
+
+        // The first hidden layer has no lower layer.
+        actual = gradient.clone();
+        layer.backpropagate(output, actual, null);
+        for (int j = 0; j < 4; j++) {
+            for (int i = 0; i < 5; i++) {
+                assertEquals(expected.get(i, j), actual.get(i, j), 1E-10);
+            }
+        }
+    }
+}
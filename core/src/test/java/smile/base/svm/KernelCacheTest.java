@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.base.svm;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class KernelCacheTest {
+
+    public KernelCacheTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testEviction() {
+        System.out.println("Eviction");
+        // The budget of three rows.
+        KernelCache cache = new KernelCache(10, 3 * 10 * Double.BYTES);
+        assertEquals(3, cache.capacity());
+
+        double[] r0 = cache.row(0);
+        assertEquals(10, r0.length);
+        assertTrue(Double.isNaN(r0[5]));
+        r0[5] = 1.0;
+        cache.row(1);
+        cache.row(2);
+        assertEquals(3, cache.size());
+        assertEquals(3 * 10 * Double.BYTES, cache.allocated());
+
+        // Touch row 0 so that row 1 is the least recently used.
+        assertSame(r0, cache.get(0));
+        double[] r3 = cache.row(3);
+        assertEquals(3, cache.size());
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(0));
+        assertNotNull(cache.get(2));
+        assertSame(r3, cache.get(3));
+        // The storage of evicted row is reused and reset.
+        assertTrue(Double.isNaN(r3[5]));
+        assertEquals(1.0, r0[5], 1E-15);
+        assertEquals(3 * 10 * Double.BYTES, cache.allocated());
+
+        cache.remove(0);
+        assertEquals(2, cache.size());
+        assertEquals(2 * 10 * Double.BYTES, cache.allocated());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.allocated());
+    }
+
+    @Test
+    public void testHits() {
+        System.out.println("Hits");
+        KernelCache cache = new KernelCache(10, 3 * 10 * Double.BYTES);
+        assertEquals(0.0, cache.hitRatio(), 1E-15);
+
+        cache.row(0); // miss
+        cache.row(0); // hit
+        cache.get(0); // hit
+        cache.get(1); // miss
+        assertEquals(0.5, cache.hitRatio(), 1E-15);
+    }
+
+    @Test
+    public void testMinimumRows() {
+        System.out.println("Minimum rows");
+        // The budget is less than one row but two rows are always kept.
+        KernelCache cache = new KernelCache(10, 8);
+        assertEquals(2, cache.capacity());
+        double[] r0 = cache.row(0);
+        double[] r1 = cache.row(1);
+        assertNotSame(r0, r1);
+        cache.row(2);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(0));
+    }
+
+    @Test
+    public void testSharedBudget() {
+        System.out.println("Shared budget");
+        KernelCache a = new KernelCache(10);
+        KernelCache b = new KernelCache(10);
+        long base = a.allocated();
+        a.row(0);
+        b.row(0);
+        b.row(1);
+        // The caches of default constructor allocate from the same budget.
+        assertEquals(base + 3 * 10 * Double.BYTES, a.allocated());
+        assertEquals(a.allocated(), b.allocated());
+
+        a.clear();
+        b.clear();
+        assertEquals(base, a.allocated());
+    }
+}
@@ -120,6 +120,24 @@ public class DecisionTreeTest {
         assertEquals(42, error);
     }
 
+    @Test
+    public void testHistogram() {
+        System.out.println("Breast Cancer with histogram");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int[] prediction = CrossValidation.classification(10, BreastCancer.formula, BreastCancer.data, (f, x) -> DecisionTree.fit(f, x, SplitRule.GINI, 20, 100, 5, 256));
+        int error = Error.of(BreastCancer.y, prediction);
+
+        System.out.println("Error = " + error);
+        assertEquals(37, error);
+
+        prediction = CrossValidation.classification(10, PenDigits.formula, PenDigits.data, (f, x) -> DecisionTree.fit(f, x, SplitRule.GINI, 20, 100, 5, 64));
+        error = Error.of(PenDigits.y, prediction);
+
+        System.out.println("Pen Digits Error = " + error);
+        assertEquals(362, error);
+    }
+
     @Test
     public void testSegment() {
         System.out.println("Segment");
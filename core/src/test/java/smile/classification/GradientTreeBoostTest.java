@@ -28,6 +28,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -120,6 +121,58 @@ public class GradientTreeBoostTest {
         assertEquals(21, error);
     }
 
+    @Test
+    public void testHistogram() {
+        System.out.println("Breast Cancer with histogram");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int[] prediction = CrossValidation.classification(10, BreastCancer.formula, BreastCancer.data, (f, x) -> GradientTreeBoost.fit(f, x, 100, 20, 6, 5, 0.05, 0.7, 256));
+        int error = Error.of(BreastCancer.y, prediction);
+
+        System.out.println("Error = " + error);
+        assertEquals(25, error);
+
+        prediction = CrossValidation.classification(10, Iris.formula, Iris.data, (f, x) -> GradientTreeBoost.fit(f, x, 100, 20, 6, 5, 0.05, 0.7, 64));
+        error = Error.of(Iris.y, prediction);
+
+        System.out.println("Iris Error = " + error);
+        assertEquals(9, error);
+    }
+
+    @Test
+    public void testBatch() {
+        System.out.println("Batch prediction");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        GradientTreeBoost model = GradientTreeBoost.fit(Iris.formula, Iris.data, 100, 20, 6, 5, 0.05, 0.7);
+        int[] prediction = Iris.data.stream().mapToInt(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(Iris.data));
+
+        model = GradientTreeBoost.fit(BreastCancer.formula, BreastCancer.data, 100, 20, 6, 5, 0.05, 0.7);
+        prediction = BreastCancer.data.stream().mapToInt(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(BreastCancer.data));
+
+        model.trim(50);
+        prediction = BreastCancer.data.stream().mapToInt(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(BreastCancer.data));
+    }
+
+    @Test
+    public void testThreads() {
+        System.out.println("Iris with dedicated thread pool");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int[] prediction = CrossValidation.classification(10, Iris.formula, Iris.data, (f, x) -> GradientTreeBoost.fit(f, x, 100, 20, 6, 5, 0.05, 0.7, 0, 4));
+        int error = Error.of(Iris.y, prediction);
+
+        System.out.println("Error = " + error);
+        assertEquals(9, error);
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        int[] expected = CrossValidation.classification(10, Iris.formula, Iris.data, (f, x) -> GradientTreeBoost.fit(f, x, 100, 20, 6, 5, 0.05, 0.7));
+        assertArrayEquals(expected, prediction);
+    }
+
     @Test
     public void testSegment() {
         System.out.println("Segment");
@@ -188,4 +241,36 @@ public class GradientTreeBoostTest {
             System.out.format("%-15s %.4f    %.4f    %.4f%n", fields[i], shap[2*i], shap[2*i+1], shap[2*i+2]);
         }
     }
+
+    @Test
+    public void testExplain() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        GradientTreeBoost model = GradientTreeBoost.fit(Iris.formula, Iris.data, 100, 20, 6, 5, 0.05, 0.7);
+        double[][] shap = model.explain(Iris.data);
+        double[][] saabas = model.explain(Iris.data, true);
+
+        int k = 3;
+        int p = model.schema().length();
+        assertEquals(Iris.data.size(), shap.length);
+        for (int i = 0; i < shap.length; i++) {
+            assertArrayEquals(model.shap(Iris.data.get(i)), shap[i], 1E-7);
+            // Both explain the difference between the output and the base value of each class.
+            for (int l = 0; l < k; l++) {
+                double a = 0.0, b = 0.0;
+                for (int j = 0; j < p; j++) {
+                    a += shap[i][j*k + l];
+                    b += saabas[i][j*k + l];
+                }
+                assertEquals(a, b, 1E-7);
+            }
+        }
+
+        model = GradientTreeBoost.fit(BreastCancer.formula, BreastCancer.data, 100, 20, 6, 5, 0.05, 0.7);
+        shap = model.explain(BreastCancer.data);
+        saabas = model.explain(BreastCancer.data, true);
+        for (int i = 0; i < shap.length; i++) {
+            assertArrayEquals(model.shap(BreastCancer.data.get(i)), shap[i], 1E-7);
+            assertEquals(MathEx.sum(shap[i]), MathEx.sum(saabas[i]), 1E-7);
+        }
+    }
 }
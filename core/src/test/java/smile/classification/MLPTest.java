@@ -201,6 +201,49 @@ public class MLPTest {
         assertEquals(28, error);
     }
 
+    @Test
+    public void testSegmentAdam() {
+        System.out.println("Segment Adam");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+
+        WinsorScaler scaler = WinsorScaler.fit(Segment.x, 0.01, 0.99);
+        double[][] x = scaler.transform(Segment.x);
+        double[][] testx = scaler.transform(Segment.testx);
+        int p = x[0].length;
+        int k = MathEx.max(Segment.y) + 1;
+
+        MLP model = new MLP(p,
+                Layer.rectifier(50),
+                Layer.mle(k, OutputFunction.SOFTMAX)
+        );
+
+        model.setLearningRate(TimeFunction.constant(0.01));
+        model.setAdam(0.9, 0.999, 1E-8);
+
+        int error = 0;
+        int batch = 32;
+        for (int epoch = 1; epoch <= 30; epoch++) {
+            int[] permutation = MathEx.permutate(x.length);
+            for (int i = 0; i < x.length; i += batch) {
+                int size = Math.min(batch, x.length - i);
+                double[][] batchx = new double[size][];
+                int[] batchy = new int[size];
+                for (int j = 0; j < size; j++) {
+                    batchx[j] = x[permutation[i + j]];
+                    batchy[j] = Segment.y[permutation[i + j]];
+                }
+                model.update(batchx, batchy);
+            }
+
+            int[] prediction = Validation.test(model, testx);
+            error = Error.of(Segment.testy, prediction);
+            System.out.format("Epoch %d test error = %d%n", epoch, error);
+        }
+
+        assertTrue(error < 50);
+    }
+
     @Test(expected = Test.None.class)
     public void testUSPS() throws Exception {
         System.out.println("USPS SGD");
@@ -156,6 +156,36 @@ public class RandomForestTest {
         assertEquals(27, error);
     }
 
+    @Test
+    public void testHistogram() {
+        System.out.println("Breast Cancer with histogram");
+
+        MathEx.setSeed(19650218); // to get repeatable results for cross validation.
+        int[] prediction = CrossValidation.classification(10, BreastCancer.formula, BreastCancer.data, (f, x) -> RandomForest.fit(f, x, 100, 5, SplitRule.GINI, 20, 100, 5, 1.0, null, 256, Arrays.stream(seeds)));
+        int error = Error.of(BreastCancer.y, prediction);
+
+        System.out.println("Error = " + error);
+        assertEquals(26, error);
+    }
+
+    @Test
+    public void testBatch() {
+        System.out.println("Batch prediction");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        RandomForest model = RandomForest.fit(Iris.formula, Iris.data, 100, 2, SplitRule.GINI, 20, 100, 5, 1.0, null, Arrays.stream(seeds));
+        int[] prediction = Iris.data.stream().mapToInt(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(Iris.data));
+
+        model = RandomForest.fit(BreastCancer.formula, BreastCancer.data, 100, 5, SplitRule.GINI, 20, 100, 5, 1.0, null, Arrays.stream(seeds));
+        prediction = BreastCancer.data.stream().mapToInt(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(BreastCancer.data));
+
+        model.trim(50);
+        prediction = BreastCancer.data.stream().mapToInt(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(BreastCancer.data));
+    }
+
     @Test
     public void testSegment() {
         System.out.println("Segment");
@@ -261,4 +291,18 @@ public class RandomForestTest {
             System.out.format("%-15s %.4f    %.4f    %.4f%n", fields[i], shap[2*i], shap[2*i+1], shap[2*i+2]);
         }
     }
+
+    @Test
+    public void testExplain() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        RandomForest model = RandomForest.fit(Iris.formula, Iris.data, 10, 2, SplitRule.GINI, 20, 100, 5, 1.0, null, Arrays.stream(seeds));
+        double[][] shap = model.explain(Iris.data);
+        double[][] saabas = model.explain(Iris.data, true);
+
+        assertEquals(Iris.data.size(), shap.length);
+        for (int i = 0; i < shap.length; i++) {
+            assertArrayEquals(model.shap(Iris.data.get(i)), shap[i], 1E-7);
+            assertEquals(MathEx.sum(shap[i]), MathEx.sum(saabas[i]), 1E-7);
+        }
+    }
 }
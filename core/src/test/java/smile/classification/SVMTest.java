@@ -24,8 +24,10 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import java.io.IOException;
+import java.util.function.BiFunction;
 import smile.data.Dataset;
 import smile.data.Instance;
+import smile.data.Iris;
 import smile.data.Segment;
 import smile.data.USPS;
 import smile.feature.Standardizer;
@@ -165,6 +167,52 @@ public class SVMTest {
         assertEquals(34, error);
     }
 
+    @Test
+    public void testOneVersusOneParallel() {
+        System.out.println("One-vs-one parallel");
+
+        double[][] x = Standardizer.fit(Iris.x).transform(Iris.x);
+        GaussianKernel kernel = new GaussianKernel(1.0);
+        // Reset the seed of the thread that trains a binary classifier
+        // so that the model doesn't depend on the thread.
+        BiFunction<double[][], int[], Classifier<double[]>> trainer = (xi, y) -> {
+            MathEx.setSeed(19650218);
+            return SVM.fit(xi, y, kernel, 10, 1E-3);
+        };
+
+        OneVersusOne<double[]> sequential = OneVersusOne.fit(x, Iris.y, +1, -1, trainer, false);
+        OneVersusOne<double[]> parallel = OneVersusOne.fit(x, Iris.y, +1, -1, trainer, true);
+
+        int[] prediction = Validation.test(sequential, x);
+        assertArrayEquals(prediction, Validation.test(parallel, x));
+        int error = Error.of(Iris.y, prediction);
+        System.out.println("Training Error = " + error);
+        assertTrue(error < 10);
+    }
+
+    @Test
+    public void testOneVersusRestParallel() {
+        System.out.println("One-vs-rest parallel");
+
+        double[][] x = Standardizer.fit(Iris.x).transform(Iris.x);
+        GaussianKernel kernel = new GaussianKernel(1.0);
+        // Reset the seed of the thread that trains a binary classifier
+        // so that the model doesn't depend on the thread.
+        BiFunction<double[][], int[], Classifier<double[]>> trainer = (xi, y) -> {
+            MathEx.setSeed(19650218);
+            return SVM.fit(xi, y, kernel, 10, 1E-3);
+        };
+
+        OneVersusRest<double[]> sequential = OneVersusRest.fit(x, Iris.y, +1, -1, trainer, false);
+        OneVersusRest<double[]> parallel = OneVersusRest.fit(x, Iris.y, +1, -1, trainer, true);
+
+        int[] prediction = Validation.test(sequential, x);
+        assertArrayEquals(prediction, Validation.test(parallel, x));
+        int error = Error.of(Iris.y, prediction);
+        System.out.println("Training Error = " + error);
+        assertTrue(error < 10);
+    }
+
     @Test(expected = Test.None.class)
     public void testUSPS() throws Exception {
         System.out.println("USPS");
@@ -19,6 +19,8 @@ package smile.clustering;
 
 import smile.clustering.linkage.*;
 import smile.data.USPS;
+import smile.math.MathEx;
+import smile.math.matrix.Matrix;
 import smile.validation.metric.*;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -171,4 +173,69 @@ public class HierarchicalClusteringTest {
         System.out.format("NMI.sum = %.2f%%%n", 100 * NormalizedMutualInformation.sum(y, label));
         System.out.format("NMI.sqrt = %.2f%%%n", 100 * NormalizedMutualInformation.sqrt(y, label));
     }
+
+    @Test
+    public void testNNChain() {
+        System.out.println("NN-chain");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] x = Matrix.randn(500, 5).toArray();
+
+        // The expected heights are of the greedy closest pair algorithm.
+        HierarchicalClustering model = HierarchicalClustering.fit(SingleLinkage.of(x));
+        double[] height = model.getHeight();
+        assertEquals(2.1118, height[498], 1E-4);
+        assertEquals(2.0503, height[497], 1E-4);
+        assertEquals(437.3914, MathEx.sum(height), 1E-4);
+
+        model = HierarchicalClustering.fit(CompleteLinkage.of(x));
+        height = model.getHeight();
+        assertEquals(8.1363, height[498], 1E-4);
+        assertEquals(7.3757, height[497], 1E-4);
+        assertEquals(780.1872, MathEx.sum(height), 1E-4);
+
+        model = HierarchicalClustering.fit(UPGMALinkage.of(x));
+        height = model.getHeight();
+        assertEquals(4.3989, height[498], 1E-4);
+        assertEquals(4.2116, height[497], 1E-4);
+        assertEquals(626.6809, MathEx.sum(height), 1E-4);
+
+        model = HierarchicalClustering.fit(WPGMALinkage.of(x));
+        height = model.getHeight();
+        assertEquals(5.3206, height[498], 1E-4);
+        assertEquals(4.9920, height[497], 1E-4);
+        assertEquals(639.0808, MathEx.sum(height), 1E-4);
+
+        model = HierarchicalClustering.fit(WardLinkage.of(x));
+        height = model.getHeight();
+        assertEquals(23.6381, height[498], 1E-4);
+        assertEquals(21.2034, height[497], 1E-4);
+        assertEquals(1005.4129, MathEx.sum(height), 1E-4);
+    }
+
+    @Test
+    public void testSingleAndWard() {
+        System.out.println("single and ward");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] x = Matrix.randn(1000, 10).toArray();
+
+        HierarchicalClustering model = HierarchicalClustering.single(x);
+        HierarchicalClustering reference = HierarchicalClustering.fit(SingleLinkage.of(x));
+        assertArrayEquals(reference.getHeight(), model.getHeight(), 1E-5);
+        for (int k = 2; k <= 10; k++) {
+            assertEquals(1.0, RandIndex.of(reference.partition(k), model.partition(k)), 1E-10);
+        }
+
+        model = HierarchicalClustering.ward(x);
+        reference = HierarchicalClustering.fit(WardLinkage.of(x));
+        double[] height = model.getHeight();
+        double[] expected = reference.getHeight();
+        for (int i = 0; i < height.length; i++) {
+            assertEquals(expected[i], height[i], 1E-4 * expected[i]);
+        }
+        for (int k = 2; k <= 10; k++) {
+            assertEquals(1.0, RandIndex.of(reference.partition(k), model.partition(k)), 1E-10);
+        }
+    }
 }
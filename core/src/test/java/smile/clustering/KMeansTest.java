@@ -141,6 +141,62 @@ public class KMeansTest {
         System.out.format("NMI.sqrt = %.2f%%%n", 100 * NormalizedMutualInformation.sqrt(y, model.y));
     }
 
+    @Test
+    public void testElkan4() {
+        System.out.println("Elkan 4");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        KMeans model = KMeans.elkan(x, 4);
+        System.out.println(model);
+
+        double r = RandIndex.of(y, model.y);
+        double r2 = AdjustedRandIndex.of(y, model.y);
+        System.out.format("Training rand index = %.2f%%, adjusted rand index = %.2f%%%n", 100.0 * r, 100.0 * r2);
+        assertEquals(0.6111, r, 1E-4);
+        assertEquals(0.2475, r2, 1E-4);
+    }
+
+    @Test
+    public void testElkan64() {
+        System.out.println("Elkan 64");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        KMeans model = KMeans.elkan(x, 64);
+        System.out.println(model);
+
+        double r = RandIndex.of(y, model.y);
+        double r2 = AdjustedRandIndex.of(y, model.y);
+        System.out.format("Training rand index = %.2f%%, adjusted rand index = %.2f%%%n", 100.0 * r, 100.0 * r2);
+        assertEquals(0.4714, r, 1E-4);
+        assertEquals(0.0185, r2, 1E-4);
+    }
+
+    @Test
+    public void testHamerly4() {
+        System.out.println("Hamerly 4");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        KMeans model = KMeans.hamerly(x, 4);
+        System.out.println(model);
+
+        double r = RandIndex.of(y, model.y);
+        double r2 = AdjustedRandIndex.of(y, model.y);
+        System.out.format("Training rand index = %.2f%%, adjusted rand index = %.2f%%%n", 100.0 * r, 100.0 * r2);
+        assertEquals(0.6111, r, 1E-4);
+        assertEquals(0.2475, r2, 1E-4);
+    }
+
+    @Test
+    public void testHamerly64() {
+        System.out.println("Hamerly 64");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        KMeans model = KMeans.hamerly(x, 64);
+        System.out.println(model);
+
+        double r = RandIndex.of(y, model.y);
+        double r2 = AdjustedRandIndex.of(y, model.y);
+        System.out.format("Training rand index = %.2f%%, adjusted rand index = %.2f%%%n", 100.0 * r, 100.0 * r2);
+        assertEquals(0.4714, r, 1E-4);
+        assertEquals(0.0185, r2, 1E-4);
+    }
+
     @Test(expected = Test.None.class)
     public void testUSPS() throws Exception {
         System.out.println("USPS");
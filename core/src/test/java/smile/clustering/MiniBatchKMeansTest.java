@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.clustering;
+
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import smile.data.GaussianMixture;
+import smile.math.MathEx;
+import smile.validation.metric.*;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class MiniBatchKMeansTest {
+    double[][] x = GaussianMixture.x;
+    int[] y = GaussianMixture.y;
+
+    public MiniBatchKMeansTest() {
+
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testStream() {
+        System.out.println("Stream");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        MiniBatchKMeans model = MiniBatchKMeans.fit(Arrays.stream(x), 4, 500);
+
+        int[] p = Arrays.stream(x).mapToInt(model::predict).toArray();
+        double r = RandIndex.of(y, p);
+        double r2 = AdjustedRandIndex.of(y, p);
+        System.out.format("Training rand index = %.2f%%, adjusted rand index = %.2f%%%n", 100.0 * r, 100.0 * r2);
+        assertEquals(0.6414, r, 1E-4);
+        assertEquals(0.3054, r2, 1E-4);
+    }
+
+    @Test(expected = Test.None.class)
+    public void testRandomBatch() throws Exception {
+        System.out.println("Random batch");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        MiniBatchKMeans model = MiniBatchKMeans.fit(x, 4, 500, 100);
+
+        int[] p = Arrays.stream(x).mapToInt(model::predict).toArray();
+        double r = RandIndex.of(y, p);
+        double r2 = AdjustedRandIndex.of(y, p);
+        System.out.format("Training rand index = %.2f%%, adjusted rand index = %.2f%%%n", 100.0 * r, 100.0 * r2);
+        assertEquals(0.6017, r, 1E-4);
+        assertEquals(0.2333, r2, 1E-4);
+
+        java.nio.file.Path temp = smile.data.Serialize.write(model);
+        smile.data.Serialize.read(temp);
+    }
+
+    @Test
+    public void testDecay() {
+        System.out.println("Decay");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] centroids = {{0.0, 0.0}, {10.0, 10.0}};
+        MiniBatchKMeans forget = new MiniBatchKMeans(MathEx.clone(centroids), 0.99);
+        MiniBatchKMeans remember = new MiniBatchKMeans(MathEx.clone(centroids));
+
+        // The second cluster drifts from (10, 10) to (20, 20).
+        for (int t = 0; t < 10000; t++) {
+            double shift = t < 5000 ? 10.0 : 20.0;
+            double[] x = t % 2 == 0 ?
+                    new double[]{MathEx.random() - 0.5, MathEx.random() - 0.5} :
+                    new double[]{shift + MathEx.random() - 0.5, shift + MathEx.random() - 0.5};
+            forget.update(x);
+            remember.update(x);
+        }
+
+        System.out.format("Centroids with decay: %s, without decay: %s%n", Arrays.toString(forget.centroids[1]), Arrays.toString(remember.centroids[1]));
+        assertEquals(20.0, forget.centroids[1][0], 0.2);
+        assertEquals(20.0, forget.centroids[1][1], 0.2);
+        assertEquals(15.0, remember.centroids[1][0], 0.2);
+        assertEquals(0.0, forget.centroids[0][0], 0.2);
+        assertEquals(1, forget.predict(new double[]{19.0, 19.0}));
+    }
+}
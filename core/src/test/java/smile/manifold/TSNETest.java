@@ -84,4 +84,54 @@ public class TSNETest {
         assertEquals(-5.046192009411943, tsne.coordinates[2000][0], 1E-7);
         assertEquals(30.328124791830007, tsne.coordinates[2000][1], 1E-7);
     }
+
+    @Test
+    public void testBarnesHut() {
+        System.out.println("Barnes-Hut tSNE");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+
+        // Gaussian clusters in 20 dimensional space.
+        int n = 5000;
+        int p = 20;
+        int k = 5;
+        double[][] centers = new double[k][p];
+        for (int c = 0; c < k; c++) {
+            for (int j = 0; j < p; j++) {
+                centers[c][j] = 5 * MathEx.random();
+            }
+        }
+
+        int[] y = new int[n];
+        double[][] X = new double[n][p];
+        for (int i = 0; i < n; i++) {
+            y[i] = i % k;
+            for (int j = 0; j < p; j++) {
+                X[i][j] = centers[y[i]][j] + MathEx.random() - 0.5;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        TSNE tsne = new TSNE(X, 2, 20, 200, 500, 0.5);
+        long end = System.currentTimeMillis();
+        System.out.format("Barnes-Hut t-SNE takes %.2f seconds\n", (end - start) / 1000.0);
+
+        double[][] Y = tsne.coordinates;
+        int error = 0;
+        for (int i = 0; i < n; i++) {
+            double nearest = Double.MAX_VALUE;
+            int label = -1;
+            for (int j = 0; j < n; j++) {
+                double d = MathEx.squaredDistance(Y[i], Y[j]);
+                if (i != j && d < nearest) {
+                    nearest = d;
+                    label = y[j];
+                }
+            }
+            if (label != y[i]) error++;
+        }
+
+        System.out.println("1-NN error in the embedding space: " + error);
+        assertTrue(error < 0.01 * n);
+    }
 }
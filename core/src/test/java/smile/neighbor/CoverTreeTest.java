@@ -235,4 +235,25 @@ public class CoverTreeTest {
         double time = (System.currentTimeMillis() - start) / 1000.0;
         System.out.format("String search: %.2fs%n", time);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testKnnBatch() {
+        System.out.println("knn batch");
+
+        double[][] data = Matrix.randn(1000, 10).toArray();
+        CoverTree<double[]> cover = new CoverTree<>(data, new EuclideanDistance());
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+
+        int k = 10;
+        int[] index = new int[data.length * k];
+        double[] distance = new double[data.length * k];
+        cover.knn(data, k, index, distance);
+
+        int[] index2 = new int[data.length * k];
+        double[] distance2 = new double[data.length * k];
+        naive.knn(data, k, index2, distance2);
+
+        assertArrayEquals(index2, index);
+        assertArrayEquals(distance2, distance, 1E-7);
+    }
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.neighbor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import smile.math.MathEx;
+import smile.math.distance.EuclideanDistance;
+import smile.math.matrix.Matrix;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class HNSWTest {
+
+    public HNSWTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /** Returns the recall of approximate k-nearest neighbors. */
+    private double recall(double[][] data, double[][] queries, HNSW<double[]> hnsw, int k) {
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+
+        int hit = 0;
+        for (double[] q : queries) {
+            Neighbor<double[], double[]>[] truth = naive.knn(q, k);
+            Neighbor<double[], double[]>[] neighbors = hnsw.knn(q, k);
+            assertEquals(k, neighbors.length);
+            for (int i = 1; i < k; i++) {
+                assertTrue(neighbors[i-1].distance <= neighbors[i].distance);
+            }
+
+            for (Neighbor<double[], double[]> x : neighbors) {
+                for (Neighbor<double[], double[]> y : truth) {
+                    if (x.index == y.index) {
+                        hit++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        return (double) hit / (k * queries.length);
+    }
+
+    @Test
+    public void testKnn() {
+        System.out.println("----- knn -----");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] data = Matrix.randn(10000, 16).toArray();
+        double[][] queries = Matrix.randn(200, 16).toArray();
+
+        long start = System.currentTimeMillis();
+        HNSW<double[]> hnsw = HNSW.of(data);
+        System.out.format("Building HNSW: %.2fs%n", (System.currentTimeMillis() - start) / 1000.0);
+        assertEquals(data.length, hnsw.size());
+
+        double recall = recall(data, queries, hnsw, 10);
+        System.out.format("Recall@10 with ef = %d: %.4f%n", hnsw.getEf(), recall);
+        assertTrue(recall > 0.9);
+
+        hnsw.setEf(200);
+        double better = recall(data, queries, hnsw, 10);
+        System.out.format("Recall@10 with ef = %d: %.4f%n", hnsw.getEf(), better);
+        assertTrue(better > 0.97);
+
+        // The query itself is excluded from the results.
+        for (int i = 0; i < 100; i++) {
+            Neighbor<double[], double[]> nearest = hnsw.nearest(data[i]);
+            assertNotEquals(i, nearest.index);
+            assertNotSame(data[i], nearest.key);
+        }
+    }
+
+    @Test
+    public void testKnnBatch() {
+        System.out.println("----- knn batch -----");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] data = Matrix.randn(2000, 8).toArray();
+        double[][] queries = Matrix.randn(100, 8).toArray();
+        HNSW<double[]> hnsw = HNSW.of(data);
+
+        int k = 5;
+        int[] index = new int[queries.length * k];
+        double[] distance = new double[queries.length * k];
+        hnsw.knn(queries, k, index, distance);
+
+        for (int i = 0; i < queries.length; i++) {
+            Neighbor<double[], double[]>[] neighbors = hnsw.knn(queries[i], k);
+            for (int j = 0; j < k; j++) {
+                assertEquals(neighbors[j].index, index[i * k + j]);
+                assertEquals(neighbors[j].distance, distance[i * k + j], 1E-10);
+            }
+        }
+    }
+
+    @Test
+    public void testRange() {
+        System.out.println("----- range -----");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] data = Matrix.randn(5000, 4).toArray();
+        HNSW<double[]> hnsw = HNSW.of(data);
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+
+        int hit = 0;
+        int total = 0;
+        for (int i = 0; i < 100; i++) {
+            List<Neighbor<double[], double[]>> truth = new ArrayList<>();
+            List<Neighbor<double[], double[]>> neighbors = new ArrayList<>();
+            naive.range(data[i], 0.5, truth);
+            hnsw.range(data[i], 0.5, neighbors);
+
+            for (Neighbor<double[], double[]> x : neighbors) {
+                assertTrue(x.distance <= 0.5);
+                assertNotEquals(i, x.index);
+                assertTrue(truth.stream().anyMatch(y -> y.index == x.index));
+            }
+
+            hit += neighbors.size();
+            total += truth.size();
+        }
+
+        System.out.format("Range recall: %.4f%n", (double) hit / total);
+        assertTrue(hit > 0.9 * total);
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        System.out.println("----- add -----");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] data = Matrix.randn(5000, 8).toArray();
+        double[][] queries = Matrix.randn(100, 8).toArray();
+
+        HNSW<double[]> hnsw = new HNSW<>(new EuclideanDistance(), 16, 100);
+        IntStream.range(0, data.length).parallel().forEach(i -> hnsw.add(data[i]));
+        assertEquals(data.length, hnsw.size());
+
+        // The indices are assigned concurrently in any order.
+        boolean[] found = new boolean[data.length];
+        for (int i = 0; i < data.length; i++) {
+            double[] x = hnsw.get(i);
+            int j = IntStream.range(0, data.length).filter(l -> data[l] == x).findFirst().getAsInt();
+            assertFalse(found[j]);
+            found[j] = true;
+        }
+
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+        int hit = 0;
+        for (double[] q : queries) {
+            if (hnsw.nearest(q).key == naive.nearest(q).key) hit++;
+        }
+        System.out.format("Recall@1: %.4f%n", hit / 100.0);
+        assertTrue(hit >= 90);
+
+        java.nio.file.Path temp = smile.data.Serialize.write(hnsw);
+        @SuppressWarnings("unchecked")
+        HNSW<double[]> copy = (HNSW<double[]>) smile.data.Serialize.read(temp);
+        assertEquals(hnsw.size(), copy.size());
+        for (double[] q : queries) {
+            Neighbor<double[], double[]>[] x = hnsw.knn(q, 5);
+            Neighbor<double[], double[]>[] y = copy.knn(q, 5);
+            for (int j = 0; j < 5; j++) {
+                assertEquals(x[j].index, y[j].index);
+                assertEquals(x[j].distance, y[j].distance, 1E-10);
+            }
+        }
+
+        // The index is still updatable after deserialization.
+        copy.add(queries[0]);
+        assertEquals(data.length + 1, copy.size());
+        assertSame(queries[0], copy.nearest(queries[0].clone()).key);
+    }
+}
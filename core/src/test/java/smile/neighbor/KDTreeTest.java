@@ -237,4 +237,25 @@ public class KDTreeTest {
         time = (System.currentTimeMillis() - start) / 1000.0;
         System.out.format("Range: %.2fs%n", time);
     }
+
+    @Test
+    public void testKnnBatch() {
+        System.out.println("knn batch");
+
+        double[][] data = Matrix.randn(1000, 10).toArray();
+        KDTree<double[]> kdtree = new KDTree<>(data, data);
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+
+        int k = 10;
+        int[] index = new int[data.length * k];
+        double[] distance = new double[data.length * k];
+        kdtree.knn(data, k, index, distance);
+
+        int[] index2 = new int[data.length * k];
+        double[] distance2 = new double[data.length * k];
+        naive.knn(data, k, index2, distance2);
+
+        assertArrayEquals(index2, index);
+        assertArrayEquals(distance2, distance, 1E-7);
+    }
 }
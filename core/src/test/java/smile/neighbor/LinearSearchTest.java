@@ -18,6 +18,7 @@
 package smile.neighbor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.After;
@@ -198,4 +199,38 @@ public class LinearSearchTest {
         time = (System.currentTimeMillis() - start) / 1000.0;
         System.out.format("Range: %.2fs%n", time);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testKnnBatch() {
+        System.out.println("----- Batch knn -----");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] data = Matrix.randn(5000, 10).toArray();
+        double[][] query = new double[600][];
+        for (int i = 0; i < query.length; i++) {
+            // half of queries are in the dataset, which exclude themselves.
+            query[i] = i % 2 == 0 ? data[i] : data[i].clone();
+        }
+        // missing values are handled by brute force.
+        query[1][3] = Double.NaN;
+
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+        int k = 10;
+        int[] index = new int[query.length * k];
+        double[] distance = new double[query.length * k];
+
+        long start = System.currentTimeMillis();
+        naive.knn(query, k, index, distance);
+        double time = (System.currentTimeMillis() - start) / 1000.0;
+        System.out.format("Batch 10-NN: %.2fs%n", time);
+
+        for (int i = 0; i < query.length; i++) {
+            Neighbor<double[], double[]>[] neighbors = naive.knn(query[i], k);
+            Arrays.sort(neighbors);
+            for (int j = 0; j < k; j++) {
+                assertEquals(neighbors[j].index, index[i * k + j]);
+                assertEquals(neighbors[j].distance, distance[i * k + j], 1E-10);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.neighbor;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import smile.math.MathEx;
+import smile.math.distance.EuclideanDistance;
+import smile.math.matrix.Matrix;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class NNDescentTest {
+
+    public NNDescentTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testGraph() {
+        System.out.println("----- graph -----");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] data = Matrix.randn(10000, 8).toArray();
+        int k = 10;
+
+        long start = System.currentTimeMillis();
+        NNDescent<double[]> graph = NNDescent.of(data, k);
+        System.out.format("Building NN-Descent: %.2fs%n", (System.currentTimeMillis() - start) / 1000.0);
+        assertEquals(k, graph.k());
+
+        int n = data.length;
+        int[] index = new int[n * k];
+        double[] distance = new double[n * k];
+        graph.knn(data, k, index, distance);
+
+        int[] truth = new int[n * k];
+        double[] exact = new double[n * k];
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+        naive.knn(data, k, truth, exact);
+
+        int hit = 0;
+        for (int i = 0; i < n; i++) {
+            int offset = i * k;
+            assertArrayEquals(graph.neighbors(i), Arrays.copyOfRange(index, offset, offset + k));
+            for (int j = 0; j < k; j++) {
+                assertNotEquals(i, index[offset + j]);
+                assertEquals(MathEx.distance(data[i], data[index[offset + j]]), distance[offset + j], 1E-10);
+                if (j > 0) assertTrue(distance[offset + j - 1] <= distance[offset + j]);
+
+                for (int l = 0; l < k; l++) {
+                    if (index[offset + j] == truth[offset + l]) {
+                        hit++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        double recall = (double) hit / (n * k);
+        System.out.format("Recall of graph: %.4f%n", recall);
+        assertTrue(recall > 0.95);
+    }
+
+    @Test
+    public void testKnn() {
+        System.out.println("----- knn -----");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[][] data = Matrix.randn(5000, 8).toArray();
+        double[][] queries = Matrix.randn(200, 8).toArray();
+        NNDescent<double[]> graph = NNDescent.of(data, 15);
+        LinearSearch<double[]> naive = new LinearSearch<>(data, new EuclideanDistance());
+
+        int k = 5;
+        int hit = 0;
+        for (double[] q : queries) {
+            Neighbor<double[], double[]>[] truth = naive.knn(q, k);
+            Neighbor<double[], double[]>[] neighbors = graph.knn(q, k);
+            assertEquals(k, neighbors.length);
+            for (Neighbor<double[], double[]> x : neighbors) {
+                for (Neighbor<double[], double[]> y : truth) {
+                    if (x.index == y.index) {
+                        hit++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        double recall = (double) hit / (k * queries.length);
+        System.out.format("Recall@%d: %.4f%n", k, recall);
+        assertTrue(recall > 0.9);
+
+        // The query itself is excluded from the results.
+        for (int i = 0; i < 100; i++) {
+            assertNotEquals(i, graph.knn(data[i], 1)[0].index);
+        }
+    }
+}
@@ -33,6 +33,7 @@ import smile.validation.LOOCV;
 import smile.validation.metric.RMSE;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 /**
  *
@@ -147,6 +148,48 @@ public class GaussianProcessRegressionTest {
         assertEquals(65.74555877623769, nystromRMSE, 1E-4);
     }
 
+    @Test
+    public void testConjugateGradientAndFITC() {
+        System.out.println("CG and FITC");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+
+        double[][] x = MathEx.clone(CPU.x);
+        MathEx.standardize(x);
+        GaussianKernel kernel = new GaussianKernel(47.02);
+
+        GaussianProcessRegression<double[]> exact = GaussianProcessRegression.fit(x, CPU.y, kernel, 0.1, true);
+        GaussianProcessRegression<double[]> cg = GaussianProcessRegression.fit(x, CPU.y, kernel, 0.1, true, 1E-10, 1000);
+        System.out.println(cg);
+        for (double[] xi : x) {
+            assertEquals(exact.predict(xi), cg.predict(xi), 1E-4);
+        }
+
+        // FITC with all training samples as inducing inputs is the exact GP.
+        GaussianProcessRegression<double[]> full = GaussianProcessRegression.fitc(x, CPU.y, x, kernel, 0.1, true);
+        System.out.println(full);
+        assertEquals(exact.L, full.L, 1E-2);
+        for (double[] xi : x) {
+            assertEquals(exact.predict(xi), full.predict(xi), 1E-4);
+        }
+
+        try {
+            full.predict(x[0], new double[2]);
+            fail("FITC doesn't support the predictive variance");
+        } catch (UnsupportedOperationException ex) {
+            System.out.println(ex.getMessage());
+        }
+
+        double[] prediction = CrossValidation.regression(10, x, CPU.y, (xi, yi) -> {
+            KMeans kmeans = KMeans.fit(xi, 30);
+            return GaussianProcessRegression.fitc(xi, yi, kmeans.centroids, kernel, 0.1);
+        });
+
+        double rmse = RMSE.of(CPU.y, prediction);
+        System.out.println("FITC 10-CV RMSE = " + rmse);
+        assertEquals(76.20606612394057, rmse, 1E-4);
+    }
+
     @Test(expected = Test.None.class)
     public void test2DPlanes() throws Exception {
         System.out.println("2dplanes");
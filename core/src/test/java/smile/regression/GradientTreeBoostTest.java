@@ -116,6 +116,31 @@ public class GradientTreeBoostTest {
         test(Loss.ls(), "kin8nm", Kin8nm.formula, Kin8nm.data, 0.1802);
     }
 
+    @Test
+    public void testHistogram() {
+        System.out.println("cal_housing with histogram");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[] prediction = CrossValidation.regression(10, CalHousing.formula, CalHousing.data, (f, x) -> GradientTreeBoost.fit(f, x, Loss.ls(), 100, 20, 6, 5, 0.05, 0.7, 256));
+        double rmse = RMSE.of(CalHousing.y, prediction);
+        System.out.format("10-CV RMSE = %.4f%n", rmse);
+        assertEquals(60581.9395, rmse, 1E-4);
+    }
+
+    @Test
+    public void testBatch() {
+        System.out.println("Batch prediction");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        GradientTreeBoost model = GradientTreeBoost.fit(Abalone.formula, Abalone.train);
+        double[] prediction = Abalone.test.stream().mapToDouble(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(Abalone.test), 1E-7);
+
+        model.trim(50);
+        prediction = Abalone.test.stream().mapToDouble(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(Abalone.test), 1E-7);
+    }
+
     @Test
     public void testLAD() {
         test(Loss.lad(), "CPU", CPU.formula, CPU.data, 89.6677);
@@ -179,4 +204,19 @@ public class GradientTreeBoostTest {
         String[] expected = {"CHAS", "ZN", "RAD", "INDUS", "B", "TAX", "AGE", "PTRATIO", "NOX", "CRIM", "DIS", "RM", "LSTAT"};
         assertArrayEquals(expected, fields);
     }
+
+    @Test
+    public void testExplain() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+        GradientTreeBoost model = GradientTreeBoost.fit(BostonHousing.formula, BostonHousing.data, Loss.ls(), 100, 20, 100, 5, 0.05, 0.7);
+        double[][] shap = model.explain(BostonHousing.data);
+        double[][] saabas = model.explain(BostonHousing.data, true);
+
+        assertEquals(BostonHousing.data.size(), shap.length);
+        for (int i = 0; i < shap.length; i++) {
+            assertArrayEquals(model.shap(BostonHousing.data.get(i)), shap[i], 1E-7);
+            // Both explain the difference between the output and the base value.
+            assertEquals(MathEx.sum(shap[i]), MathEx.sum(saabas[i]), 1E-7);
+        }
+    }
 }
@@ -156,6 +156,31 @@ public class RandomForestTest {
         test("kin8nm", Kin8nm.formula, Kin8nm.data, 0.1704);
     }
 
+    @Test
+    public void testHistogram() {
+        System.out.println("cal_housing with histogram");
+
+        MathEx.setSeed(19650218); // to get repeatable results for cross validation.
+        double[] prediction = CrossValidation.regression(3, CalHousing.formula, CalHousing.data, (f, x) -> RandomForest.fit(f, x, 100, 3, 20, 100, 5, 1.0, 256, Arrays.stream(seeds)));
+        double rmse = RMSE.of(CalHousing.y, prediction);
+        System.out.format("3-CV RMSE = %.4f%n", rmse);
+        assertEquals(58605.1888, rmse, 1E-4);
+    }
+
+    @Test
+    public void testBatch() {
+        System.out.println("Batch prediction");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        RandomForest model = RandomForest.fit(Abalone.formula, Abalone.train, 100, 3, 20, 100, 5, 1.0, Arrays.stream(seeds));
+        double[] prediction = Abalone.test.stream().mapToDouble(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(Abalone.test), 1E-7);
+
+        model.trim(50);
+        prediction = Abalone.test.stream().mapToDouble(model::predict).toArray();
+        assertArrayEquals(prediction, model.predict(Abalone.test), 1E-7);
+    }
+
     @Test
     public void testRandomForestMerging() throws Exception {
         System.out.println("Random forest merging");
@@ -22,8 +22,12 @@ import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import smile.base.cart.Bins;
+import smile.base.cart.CART;
+import smile.base.cart.Loss;
 import smile.data.*;
 import smile.data.formula.Formula;
+import smile.data.type.StructField;
 import smile.math.MathEx;
 import smile.validation.CrossValidation;
 import smile.validation.LOOCV;
@@ -115,6 +119,41 @@ public class RegressionTreeTest {
         test("kin8nm", Kin8nm.formula, Kin8nm.data, 0.1936);
     }
 
+    @Test
+    public void testHistogram() {
+        System.out.println("cal_housing with histogram");
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        double[] prediction = CrossValidation.regression(10, CalHousing.formula, CalHousing.data, (f, x) -> RegressionTree.fit(f, x, 20, x.size() / 5, 5, 256));
+        double rmse = RMSE.of(CalHousing.y, prediction);
+        System.out.format("10-CV RMSE = %.4f%n", rmse);
+        assertEquals(60204.7308, rmse, 1E-4);
+    }
+
+    @Test
+    public void testHistogramFallback() {
+        System.out.println("CPU without histogram");
+
+        Formula formula = CPU.formula.expand(CPU.data.schema());
+        DataFrame x = formula.x(CPU.data);
+        double[] y = formula.y(CPU.data).toDoubleArray();
+        StructField field = formula.y(CPU.data).field();
+
+        RegressionTree exact = new RegressionTree(x, Loss.ls(y), field, 20, 100, 5, -1, null, null, null);
+        // The split search falls back to the pre-sorted order if the tree doesn't compute histograms.
+        RegressionTree tree = new RegressionTree(x, Loss.ls(y), field, 20, 100, 5, -1, null, CART.order(x), Bins.of(x, 256)) {
+            @Override
+            protected double[] histogram(int column, int lo, int hi) {
+                return null;
+            }
+        };
+
+        assertEquals(exact.size(), tree.size());
+        for (int i = 0; i < x.size(); i++) {
+            assertEquals(exact.predict(x.get(i)), tree.predict(x.get(i)), 1E-10);
+        }
+    }
+
     @Test
     public void testShap() {
         MathEx.setSeed(19650218); // to get repeatable results.
@@ -100,6 +100,20 @@ public class SVRTest {
         assertEquals(0.9112183360712871, rmse, 1E-4);
     }
 
+    @Test
+    public void testShrinking() {
+        System.out.println("Shrinking");
+
+        GaussianKernel kernel = new GaussianKernel(6.0);
+        KernelMachine<double[]> shrinking = new smile.base.svm.SVR<>(kernel, 0.5, 5, 1E-3, true).fit(Prostate.x, Prostate.y);
+        KernelMachine<double[]> full = new smile.base.svm.SVR<>(kernel, 0.5, 5, 1E-3, false).fit(Prostate.x, Prostate.y);
+
+        // The decision functions agree up to the tolerance of convergence test.
+        for (double[] x : Prostate.testx) {
+            assertEquals(full.score(x), shrinking.score(x), 1E-2);
+        }
+    }
+
     @Test
     public void tesAbalone() {
         System.out.println("Abalone");
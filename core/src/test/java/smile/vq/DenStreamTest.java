@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.vq;
+
+import smile.math.MathEx;
+import smile.stat.distribution.GaussianDistribution;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class DenStreamTest {
+
+    public DenStreamTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Returns a batch of observations around the centers with 1% noise.
+     */
+    private double[][] batch(double[][] centers, int n) {
+        GaussianDistribution gaussian = new GaussianDistribution(0.0, 0.5);
+        double[][] batch = new double[n][];
+        for (int i = 0; i < n; i++) {
+            if (MathEx.random() < 0.01) {
+                batch[i] = new double[]{100 * MathEx.random() - 50, 100 * MathEx.random() - 50};
+            } else {
+                double[] center = centers[MathEx.randomInt(centers.length)];
+                batch[i] = new double[]{center[0] + gaussian.rand(), center[1] + gaussian.rand()};
+            }
+        }
+        return batch;
+    }
+
+    @Test(expected = Test.None.class)
+    public void testEvolvingStream() throws Exception {
+        System.out.println("Evolving stream");
+        MathEx.setSeed(19650218); // to get repeatable results.
+
+        DenStream model = new DenStream(2, 1.0, 10, 0.5, 0.001, 1000);
+        double[][] centers = {{0.0, 0.0}, {10.0, 0.0}, {0.0, 10.0}};
+        for (int i = 0; i < 20; i++) {
+            model.update(batch(centers, 1000));
+        }
+
+        System.out.format("%d potential micro-clusters, %d outlier micro-clusters%n", model.centroids().length, model.outliers());
+        assertEquals(20000, model.time());
+        assertTrue(model.centroids().length + model.outliers() <= model.capacity);
+        assertEquals(3, model.cluster());
+
+        int a = model.predict(new double[]{0.0, 0.0});
+        int b = model.predict(new double[]{10.0, 0.0});
+        int c = model.predict(new double[]{0.0, 10.0});
+        assertNotEquals(VectorQuantizer.OUTLIER, a);
+        assertNotEquals(VectorQuantizer.OUTLIER, b);
+        assertNotEquals(VectorQuantizer.OUTLIER, c);
+        assertNotEquals(a, b);
+        assertNotEquals(a, c);
+        assertNotEquals(b, c);
+        assertEquals(VectorQuantizer.OUTLIER, model.predict(new double[]{30.0, 30.0}));
+
+        // The cluster at (10, 0) moves to (20, 20).
+        centers = new double[][]{{0.0, 0.0}, {20.0, 20.0}, {0.0, 10.0}};
+        for (int i = 0; i < 20; i++) {
+            model.update(batch(centers, 1000));
+        }
+
+        System.out.format("%d potential micro-clusters, %d outlier micro-clusters%n", model.centroids().length, model.outliers());
+        assertEquals(3, model.cluster());
+        assertEquals(VectorQuantizer.OUTLIER, model.predict(new double[]{10.0, 0.0}));
+        assertNotEquals(VectorQuantizer.OUTLIER, model.predict(new double[]{20.0, 20.0}));
+
+        java.nio.file.Path temp = smile.data.Serialize.write(model);
+        smile.data.Serialize.read(temp);
+    }
+}
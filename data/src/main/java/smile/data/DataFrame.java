@@ -704,6 +704,97 @@ public interface DataFrame extends Dataset<Tuple>, Iterable<BaseVector> {
         return of(vectors);
     }
 
+    /**
+     * Returns a new data frame with the rows that the values of
+     * a numeric column satisfy the predicate. Missing values are
+     * tested as NaN. The mask is evaluated in parallel over
+     * the column array.
+     *
+     * @param column the numeric column name.
+     * @param predicate the predicate on column values.
+     * @return a new data frame with row indexing.
+     */
+    default DataFrame filter(String column, java.util.function.DoublePredicate predicate) {
+        BaseVector vector = column(column);
+        if (!vector.type().isNumeric()) {
+            throw new IllegalArgumentException(String.format("Filter on non-numeric column %s:%s", column, vector.type()));
+        }
+
+        double[] x = vector.toDoubleArray();
+        boolean[] mask = new boolean[x.length];
+        IntStream.range(0, x.length).parallel().forEach(i -> mask[i] = predicate.test(x[i]));
+        return of(mask);
+    }
+
+    /**
+     * Returns a new data frame sorted by the columns in ascending order.
+     * The sort is stable. Nulls are first and NaNs are last.
+     *
+     * @param columns the sort columns.
+     * @return a new data frame with row indexing.
+     */
+    default DataFrame sort(String... columns) {
+        boolean[] ascending = new boolean[columns.length];
+        Arrays.fill(ascending, true);
+        return sort(columns, ascending);
+    }
+
+    /**
+     * Returns a new data frame sorted by the columns. The columns
+     * are ranked in parallel and the composite ranks are sorted by
+     * parallel sort. The sort is stable. Nulls are first and
+     * NaNs are last in ascending order.
+     *
+     * @param columns the sort columns.
+     * @param ascending the sort order of each column.
+     * @return a new data frame with row indexing.
+     */
+    default DataFrame sort(String[] columns, boolean[] ascending) {
+        return of(Keys.order(this, columns, ascending));
+    }
+
+    /**
+     * Groups the rows by the key columns.
+     *
+     * @param keys the key columns.
+     * @return the grouped rows.
+     */
+    default GroupBy groupBy(String... keys) {
+        return new GroupBy(this, keys);
+    }
+
+    /**
+     * Returns the inner join of this data frame and another one on
+     * the key columns, which are in both data frames. The keys are
+     * hashed jointly over the rows of both data frames and the rows
+     * are matched in parallel. The result contains the columns of
+     * this data frame followed by the non-key columns of the other.
+     * The rows are in the order of this data frame and then the other.
+     *
+     * @param other the other data frame.
+     * @param keys the key columns.
+     * @return the joined data frame.
+     */
+    default DataFrame join(DataFrame other, String... keys) {
+        HashSet<String> keySet = new HashSet<>(Arrays.asList(keys));
+        HashSet<String> names = new HashSet<>(Arrays.asList(names()));
+        String[] columns = Arrays.stream(other.names()).filter(name -> !keySet.contains(name)).toArray(String[]::new);
+        for (String name : columns) {
+            if (names.contains(name)) {
+                throw new IllegalArgumentException("Duplicate column name in join: " + name);
+            }
+        }
+
+        int[][] rows = Keys.join(this, other, keys);
+        int ncol = ncols();
+        BaseVector[] vectors = new BaseVector[ncol + columns.length];
+        IntStream.range(0, vectors.length).parallel().forEach(j -> {
+            vectors[j] = j < ncol ? column(j).get(rows[0]) : other.column(columns[j - ncol]).get(rows[1]);
+        });
+
+        return of(vectors);
+    }
+
     /**
      * Return an array obtained by converting all the variables
      * in a data frame to numeric mode and then binding them together
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.data;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import smile.data.vector.BaseVector;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.IntVector;
+
+/**
+ * The rows of a data frame grouped by key columns. The groups are
+ * identified by hashing the primitive codes of key columns and are
+ * ordered by their first occurrence in the data frame. The rows of
+ * each group are stored contiguously so that the aggregations scan
+ * the columns in parallel over groups.
+ *
+ * @author Haifeng Li
+ */
+public class GroupBy {
+    /** The data frame. */
+    private final DataFrame data;
+    /** The key columns. */
+    private final String[] keys;
+    /** The number of groups. */
+    private final int size;
+    /** The start of rows of each group in the array rows. */
+    private final int[] offset;
+    /** The rows sorted by group. */
+    private final int[] rows;
+
+    /**
+     * Constructor.
+     * @param data the data frame.
+     * @param keys the key columns.
+     */
+    GroupBy(DataFrame data, String... keys) {
+        this.data = data;
+        this.keys = keys;
+
+        Keys.Ids ids = Keys.ids(new DataFrame[]{data}, keys);
+        int[] id = ids.id;
+        size = ids.size;
+
+        // Counting sort of rows by group, which keeps the row order.
+        offset = new int[size + 1];
+        for (int k : id) offset[k + 1]++;
+        for (int k = 0; k < size; k++) offset[k + 1] += offset[k];
+
+        rows = new int[id.length];
+        int[] pos = Arrays.copyOf(offset, size);
+        for (int i = 0; i < id.length; i++) {
+            rows[pos[id[i]]++] = i;
+        }
+    }
+
+    /** Returns the number of groups. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the rows of a group.
+     * @param k the group index.
+     */
+    public DataFrame get(int k) {
+        return data.of(Arrays.copyOfRange(rows, offset[k], offset[k + 1]));
+    }
+
+    /**
+     * Returns the key columns of groups, i.e. the keys of
+     * the first row of each group.
+     */
+    private BaseVector[] keys() {
+        int[] first = new int[size];
+        for (int k = 0; k < size; k++) {
+            first[k] = rows[offset[k]];
+        }
+
+        BaseVector[] vectors = new BaseVector[keys.length];
+        for (int j = 0; j < keys.length; j++) {
+            vectors[j] = data.column(keys[j]).get(first);
+        }
+        return vectors;
+    }
+
+    /**
+     * Returns the number of rows of each group in the column "count".
+     */
+    public DataFrame count() {
+        int[] count = new int[size];
+        for (int k = 0; k < size; k++) {
+            count[k] = offset[k + 1] - offset[k];
+        }
+
+        BaseVector[] vectors = Arrays.copyOf(keys(), keys.length + 1);
+        vectors[keys.length] = IntVector.of("count", count);
+        return DataFrame.of(vectors);
+    }
+
+    /**
+     * The aggregation of a group.
+     */
+    private interface Aggregation {
+        /**
+         * Returns the aggregate of a group.
+         * @param x the column values.
+         * @param rows the rows sorted by group.
+         * @param from the first row of group in the array rows, inclusive.
+         * @param to the last row of group in the array rows, exclusive.
+         */
+        double apply(double[] x, int[] rows, int from, int to);
+    }
+
+    /**
+     * Returns the aggregates of numeric columns. The aggregate
+     * column of x is named as name(x).
+     */
+    private DataFrame aggregate(String name, String[] columns, Aggregation aggregation) {
+        BaseVector[] vectors = Arrays.copyOf(keys(), keys.length + columns.length);
+        for (int j = 0; j < columns.length; j++) {
+            BaseVector column = data.column(columns[j]);
+            if (!column.type().isNumeric()) {
+                throw new IllegalArgumentException(String.format("Aggregate %s of non-numeric column %s:%s", name, columns[j], column.type()));
+            }
+
+            double[] x = column.toDoubleArray();
+            double[] y = new double[size];
+            IntStream.range(0, size).parallel().forEach(k -> y[k] = aggregation.apply(x, rows, offset[k], offset[k + 1]));
+            vectors[keys.length + j] = DoubleVector.of(String.format("%s(%s)", name, columns[j]), y);
+        }
+
+        return DataFrame.of(vectors);
+    }
+
+    /**
+     * Returns the sum of columns in each group. Missing values are ignored.
+     * @param columns the numeric columns.
+     */
+    public DataFrame sum(String... columns) {
+        return aggregate("sum", columns, (x, rows, from, to) -> {
+            double sum = 0.0;
+            for (int i = from; i < to; i++) {
+                double xi = x[rows[i]];
+                if (!Double.isNaN(xi)) sum += xi;
+            }
+            return sum;
+        });
+    }
+
+    /**
+     * Returns the mean of columns in each group. Missing values are ignored.
+     * @param columns the numeric columns.
+     */
+    public DataFrame mean(String... columns) {
+        return aggregate("mean", columns, (x, rows, from, to) -> {
+            double sum = 0.0;
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                double xi = x[rows[i]];
+                if (!Double.isNaN(xi)) {
+                    sum += xi;
+                    n++;
+                }
+            }
+            return n == 0 ? Double.NaN : sum / n;
+        });
+    }
+
+    /**
+     * Returns the minimum of columns in each group. Missing values are ignored.
+     * @param columns the numeric columns.
+     */
+    public DataFrame min(String... columns) {
+        return aggregate("min", columns, (x, rows, from, to) -> {
+            double min = Double.NaN;
+            for (int i = from; i < to; i++) {
+                double xi = x[rows[i]];
+                if (!(xi >= min)) {
+                    if (!Double.isNaN(xi)) min = xi;
+                }
+            }
+            return min;
+        });
+    }
+
+    /**
+     * Returns the maximum of columns in each group. Missing values are ignored.
+     * @param columns the numeric columns.
+     */
+    public DataFrame max(String... columns) {
+        return aggregate("max", columns, (x, rows, from, to) -> {
+            double max = Double.NaN;
+            for (int i = from; i < to; i++) {
+                double xi = x[rows[i]];
+                if (!(xi <= max)) {
+                    if (!Double.isNaN(xi)) max = xi;
+                }
+            }
+            return max;
+        });
+    }
+}
@@ -0,0 +1,462 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+import smile.data.type.DataType;
+import smile.data.vector.BaseVector;
+
+/**
+ * The row keys of relational operators on data frames. The key columns
+ * are encoded as primitive long codes, i.e. the value of integral
+ * columns, the order preserving bits of floating columns, and the
+ * dictionary index of object columns. The codes are then mapped to
+ * dense key ids by partitioned hashing in parallel, or to ranks by
+ * parallel sort.
+ *
+ * @author Haifeng Li
+ */
+final class Keys {
+    /** The minimum number of rows to partition. */
+    private static final int PARTITION_THRESHOLD = 65536;
+    /** The number of hash partitions of large data. */
+    private static final int PARTITIONS = 64;
+
+    /** Utility class. */
+    private Keys() {
+
+    }
+
+    /** The encoding of key columns. */
+    private enum Encoding {
+        /** The value of integral types. */
+        INTEGRAL,
+        /** The bits of floating types. */
+        FLOATING,
+        /** The dictionary index of objects. */
+        OBJECT
+    }
+
+    /** Returns the encoding of a column type. */
+    private static Encoding encoding(DataType type) {
+        if (type.isPrimitive()) {
+            return type.isFloating() ? Encoding.FLOATING : Encoding.INTEGRAL;
+        }
+        return Encoding.OBJECT;
+    }
+
+    /**
+     * Returns the order preserving bits of a double value. The
+     * negative zero is same as the positive zero, and all NaNs
+     * are the same and larger than any other values.
+     */
+    private static long bits(double x) {
+        long bits = Double.doubleToLongBits(x == 0.0 ? 0.0 : x);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Encodes the columns as primitive long codes. The columns are
+     * encoded together so that the same values have the same codes.
+     */
+    private static long[][] codes(BaseVector... columns) {
+        Encoding encoding = encoding(columns[0].type());
+        for (BaseVector column : columns) {
+            Encoding e = encoding(column.type());
+            if (e != encoding) {
+                encoding = e == Encoding.OBJECT || encoding == Encoding.OBJECT ? Encoding.OBJECT : Encoding.FLOATING;
+            }
+        }
+
+        long[][] codes = new long[columns.length][];
+        switch (encoding) {
+            case INTEGRAL:
+                for (int c = 0; c < columns.length; c++) {
+                    BaseVector column = columns[c];
+                    DataType type = column.type();
+                    long[] code = new long[column.size()];
+                    if (type.isLong()) {
+                        IntStream.range(0, code.length).parallel().forEach(i -> code[i] = column.getLong(i));
+                    } else if (type.isInt() || type.isShort() || type.isByte()) {
+                        IntStream.range(0, code.length).parallel().forEach(i -> code[i] = column.getInt(i));
+                    } else {
+                        double[] x = column.toDoubleArray();
+                        IntStream.range(0, code.length).parallel().forEach(i -> code[i] = (long) x[i]);
+                    }
+                    codes[c] = code;
+                }
+                break;
+
+            case FLOATING:
+                for (int c = 0; c < columns.length; c++) {
+                    double[] x = columns[c].toDoubleArray();
+                    long[] code = new long[x.length];
+                    IntStream.range(0, code.length).parallel().forEach(i -> code[i] = bits(x[i]));
+                    codes[c] = code;
+                }
+                break;
+
+            case OBJECT:
+                HashMap<Object, Integer> dictionary = new HashMap<>();
+                for (int c = 0; c < columns.length; c++) {
+                    BaseVector column = columns[c];
+                    long[] code = new long[column.size()];
+                    for (int i = 0; i < code.length; i++) {
+                        Object o = column.get(i);
+                        code[i] = o == null ? -1 : dictionary.computeIfAbsent(o, key -> dictionary.size());
+                    }
+                    codes[c] = code;
+                }
+                break;
+        }
+
+        return codes;
+    }
+
+    /** Returns the hash of a code. */
+    private static int hash(long code) {
+        long h = code * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the dense ids of codes in the order of first occurrence.
+     * The rows are partitioned by the hash of codes, and each partition
+     * is hashed in parallel.
+     * @param codes the codes of rows.
+     * @param id the output dense ids of rows.
+     * @return the number of distinct codes.
+     */
+    private static int densify(long[] codes, int[] id) {
+        int n = codes.length;
+        int partitions = n < PARTITION_THRESHOLD ? 1 : PARTITIONS;
+
+        // Counting sort of rows by partition, which keeps the row order.
+        int[] partition = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> partition[i] = (hash(codes[i]) >>> 16) & (partitions - 1));
+        int[] offset = new int[partitions + 1];
+        for (int p : partition) offset[p + 1]++;
+        for (int p = 0; p < partitions; p++) offset[p + 1] += offset[p];
+        int[] rows = new int[n];
+        int[] pos = Arrays.copyOf(offset, partitions);
+        for (int i = 0; i < n; i++) {
+            rows[pos[partition[i]]++] = i;
+        }
+
+        // The local ids are mapped to the first row of keys.
+        boolean[] first = new boolean[n];
+        int[] local = new int[n];
+        int[][] firstRow = new int[partitions][];
+        IntStream.range(0, partitions).parallel().forEach(p -> {
+            LongIntHashMap map = new LongIntHashMap(offset[p + 1] - offset[p]);
+            int[] head = new int[16];
+            for (int k = offset[p]; k < offset[p + 1]; k++) {
+                int i = rows[k];
+                int size = map.size();
+                int j = map.putIfAbsent(codes[i], size);
+                if (j == size) {
+                    if (head.length == size) head = Arrays.copyOf(head, 2 * size);
+                    head[size] = i;
+                    first[i] = true;
+                }
+                local[i] = j;
+            }
+            firstRow[p] = head;
+        });
+
+        // The global id of keys is the rank of their first rows.
+        int[] rank = new int[n];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            if (first[i]) rank[i] = size++;
+        }
+
+        IntStream.range(0, n).parallel().forEach(i -> id[i] = rank[firstRow[partition[i]][local[i]]]);
+        return size;
+    }
+
+    /**
+     * The dense ids of multi-column keys in the order of first occurrence.
+     */
+    static class Ids {
+        /** The key id of rows. */
+        final int[] id;
+        /** The number of distinct keys. */
+        final int size;
+
+        /** Constructor. */
+        Ids(int[] id, int size) {
+            this.id = id;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Returns the dense ids of multi-column keys of several data frames,
+     * which are concatenated vertically. The same key has the same id
+     * in all data frames.
+     * @param data the data frames.
+     * @param columns the key columns, which must be in all data frames.
+     * @return the key ids of concatenated rows.
+     */
+    static Ids ids(DataFrame[] data, String... columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("Empty key columns");
+        }
+
+        int n = 0;
+        for (DataFrame df : data) n += df.size();
+
+        int[] id = null;
+        int size = 1;
+        for (String column : columns) {
+            BaseVector[] vectors = new BaseVector[data.length];
+            for (int d = 0; d < data.length; d++) {
+                vectors[d] = data[d].column(column);
+            }
+
+            long[] code = new long[n];
+            long[][] codes = codes(vectors);
+            for (int d = 0, from = 0; d < data.length; from += codes[d].length, d++) {
+                System.arraycopy(codes[d], 0, code, from, codes[d].length);
+            }
+
+            if (id != null) {
+                // Combines with the ids of previous columns.
+                int[] prev = id;
+                long[] dense = new long[n];
+                int[] cid = new int[n];
+                int csize = densify(code, cid);
+                IntStream.range(0, dense.length).parallel().forEach(i -> dense[i] = (long) prev[i] * csize + cid[i]);
+                code = dense;
+            }
+
+            id = new int[n];
+            size = densify(code, id);
+        }
+
+        return new Ids(id, size);
+    }
+
+    /**
+     * Returns the dense ranks of a column, i.e. the number of distinct
+     * values smaller than the value of rows.
+     * @param column the column.
+     * @param rank the output ranks.
+     * @return the number of distinct values.
+     */
+    @SuppressWarnings("unchecked")
+    private static int rank(BaseVector column, int[] rank) {
+        int n = column.size();
+        if (encoding(column.type()) != Encoding.OBJECT) {
+            return rank(codes(column)[0], rank);
+        }
+
+        // Nulls are the smallest.
+        Comparable[] values = new Comparable[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = (Comparable) column.get(i);
+        }
+
+        Comparable[] sorted = Arrays.stream(values).filter(o -> o != null).distinct().toArray(Comparable[]::new);
+        Arrays.parallelSort(sorted);
+        IntStream.range(0, n).parallel().forEach(i -> rank[i] = values[i] == null ? 0 : 1 + Arrays.binarySearch(sorted, values[i]));
+        return sorted.length + 1;
+    }
+
+    /**
+     * Returns the dense ranks of codes.
+     * @param codes the codes.
+     * @param rank the output ranks.
+     * @return the number of distinct codes.
+     */
+    private static int rank(long[] codes, int[] rank) {
+        long[] sorted = codes.clone();
+        Arrays.parallelSort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+
+        int m = size;
+        IntStream.range(0, codes.length).parallel().forEach(i -> rank[i] = Arrays.binarySearch(sorted, 0, m, codes[i]));
+        return size;
+    }
+
+    /**
+     * Returns the row order that sorts a data frame by multiple columns.
+     * The sort is stable.
+     * @param data the data frame.
+     * @param columns the sort columns.
+     * @param ascending the sort order of columns.
+     * @return the row order.
+     */
+    static int[] order(DataFrame data, String[] columns, boolean[] ascending) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("Empty sort columns");
+        }
+
+        if (columns.length != ascending.length) {
+            throw new IllegalArgumentException(String.format("The number of sort columns and orders don't match: %d != %d", columns.length, ascending.length));
+        }
+
+        int n = data.size();
+        int[][] ranks = new int[columns.length][n];
+        int[] sizes = new int[columns.length];
+        IntStream.range(0, columns.length).parallel().forEach(c -> {
+            sizes[c] = rank(data.column(columns[c]), ranks[c]);
+            if (!ascending[c]) {
+                int[] r = ranks[c];
+                for (int i = 0; i < n; i++) r[i] = sizes[c] - 1 - r[i];
+            }
+        });
+
+        int[] key = ranks[0];
+        for (int c = 1; c < columns.length; c++) {
+            int[] prev = key;
+            int[] next = ranks[c];
+            int size = sizes[c];
+            long[] code = new long[n];
+            IntStream.range(0, n).parallel().forEach(i -> code[i] = (long) prev[i] * size + next[i]);
+            key = new int[n];
+            rank(code, key);
+        }
+
+        // The row index breaks the ties to keep the sort stable.
+        int[] rank = key;
+        long[] code = new long[n];
+        IntStream.range(0, n).parallel().forEach(i -> code[i] = (long) rank[i] * n + i);
+        Arrays.parallelSort(code);
+
+        int[] order = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> order[i] = (int) (code[i] % n));
+        return order;
+    }
+
+    /**
+     * Returns the rows of inner join of two data frames.
+     * @param left the left data frame.
+     * @param right the right data frame.
+     * @param columns the join columns.
+     * @return the pairs of left and right rows, of which the first
+     *         array is the left rows and the second is the right rows.
+     */
+    static int[][] join(DataFrame left, DataFrame right, String... columns) {
+        int n = left.size();
+        int m = right.size();
+        Ids ids = ids(new DataFrame[]{left, right}, columns);
+        int[] id = ids.id;
+
+        // Groups the right rows by key with counting sort.
+        int[] offset = new int[ids.size + 1];
+        for (int j = 0; j < m; j++) offset[id[n + j] + 1]++;
+        for (int k = 0; k < ids.size; k++) offset[k + 1] += offset[k];
+        int[] rows = new int[m];
+        int[] pos = Arrays.copyOf(offset, ids.size);
+        for (int j = 0; j < m; j++) {
+            rows[pos[id[n + j]]++] = j;
+        }
+
+        // Probes with the left rows.
+        long[] start = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            start[i + 1] = start[i] + offset[id[i] + 1] - offset[id[i]];
+        }
+
+        if (start[n] > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("Too many rows in join: " + start[n]);
+        }
+
+        int[] leftRows = new int[(int) start[n]];
+        int[] rightRows = new int[leftRows.length];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int k = (int) start[i];
+            for (int j = offset[id[i]]; j < offset[id[i] + 1]; j++, k++) {
+                leftRows[k] = i;
+                rightRows[k] = rows[j];
+            }
+        });
+
+        return new int[][]{leftRows, rightRows};
+    }
+
+    /**
+     * The hash map of long keys and int values with open addressing.
+     */
+    private static class LongIntHashMap {
+        /** The keys. */
+        long[] keys;
+        /** The values plus 1, or 0 for empty slots. */
+        int[] values;
+        /** The number of entries. */
+        int size;
+
+        /** Constructor. */
+        LongIntHashMap(int capacity) {
+            int n = Integer.highestOneBit(Math.max(16, 2 * capacity) - 1) << 1;
+            keys = new long[n];
+            values = new int[n];
+        }
+
+        /** Returns the number of entries. */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Associates the value with the key if the key is not
+         * in the map. Returns the value associated with the key.
+         */
+        int putIfAbsent(long key, int value) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != 0) {
+                if (keys[slot] == key) return values[slot] - 1;
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            values[slot] = value + 1;
+            if (2 * ++size > keys.length) {
+                rehash();
+            }
+            return value;
+        }
+
+        /** Doubles the capacity. */
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[2 * oldKeys.length];
+            values = new int[keys.length];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != 0) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (values[slot] != 0) slot = (slot + 1) & mask;
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -19,10 +19,12 @@ package smile.data.formula;
 
 import java.util.ArrayList;
 import java.util.List;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.*;
 
 /**
  * The term of abs function.
@@ -89,6 +91,48 @@ public class Abs extends AbstractFunction {
                 public double applyAsDouble(Tuple o) {
                     return Math.abs(feature.applyAsDouble(o));
                 }
+
+                @Override
+                public BaseVector apply(DataFrame df) {
+                    if (!Columns.isPrimitive(field)) {
+                        return Feature.super.apply(df);
+                    }
+
+                    BaseVector x = feature.apply(df);
+                    int size = df.size();
+                    switch (field.type.id()) {
+                        case Integer: {
+                            int[] u = Columns.ints(x);
+                            int[] z = new int[size];
+                            for (int i = 0; i < size; i++) z[i] = Math.abs(u[i]);
+                            return IntVector.of(field, z);
+                        }
+
+                        case Long: {
+                            long[] u = Columns.longs(x);
+                            long[] z = new long[size];
+                            for (int i = 0; i < size; i++) z[i] = Math.abs(u[i]);
+                            return LongVector.of(field, z);
+                        }
+
+                        case Float: {
+                            float[] u = Columns.floats(x);
+                            float[] z = new float[size];
+                            for (int i = 0; i < size; i++) z[i] = Math.abs(u[i]);
+                            return FloatVector.of(field, z);
+                        }
+
+                        case Double: {
+                            double[] u = Columns.doubles(x);
+                            double[] z = new double[size];
+                            for (int i = 0; i < size; i++) z[i] = Math.abs(u[i]);
+                            return DoubleVector.of(field, z);
+                        }
+
+                        default:
+                            return Feature.super.apply(df);
+                    }
+                }
             });
         }
 
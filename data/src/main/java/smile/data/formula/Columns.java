@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.data.formula;
+
+import smile.data.type.StructField;
+import smile.data.vector.BaseVector;
+
+/**
+ * The primitive arrays of column vectors for the columnar evaluation
+ * of features. The arrays may be the internal storage of vectors and
+ * must not be modified.
+ *
+ * @author Haifeng Li
+ */
+final class Columns {
+    /** Utility class. */
+    private Columns() {
+
+    }
+
+    /**
+     * Returns true if all fields are of primitive types, i.e. no
+     * null values so that the features can be evaluated on arrays.
+     */
+    static boolean isPrimitive(StructField... fields) {
+        for (StructField field : fields) {
+            if (!field.type.isPrimitive()) return false;
+        }
+        return true;
+    }
+
+    /** Returns the int array of a vector. */
+    static int[] ints(BaseVector vector) {
+        Object array = vector.array();
+        if (array instanceof int[]) return (int[]) array;
+
+        int n = vector.size();
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) a[i] = vector.getInt(i);
+        return a;
+    }
+
+    /** Returns the long array of a vector. */
+    static long[] longs(BaseVector vector) {
+        Object array = vector.array();
+        if (array instanceof long[]) return (long[]) array;
+
+        int n = vector.size();
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++) a[i] = vector.getLong(i);
+        return a;
+    }
+
+    /** Returns the float array of a vector. */
+    static float[] floats(BaseVector vector) {
+        Object array = vector.array();
+        if (array instanceof float[]) return (float[]) array;
+
+        int n = vector.size();
+        float[] a = new float[n];
+        for (int i = 0; i < n; i++) a[i] = vector.getFloat(i);
+        return a;
+    }
+
+    /** Returns the double array of a vector. */
+    static double[] doubles(BaseVector vector) {
+        Object array = vector.array();
+        if (array instanceof double[]) return (double[]) array;
+
+        int n = vector.size();
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++) a[i] = vector.getDouble(i);
+        return a;
+    }
+}
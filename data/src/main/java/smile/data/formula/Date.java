@@ -21,6 +21,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.measure.Measure;
 import smile.data.measure.NominalScale;
@@ -28,6 +29,8 @@ import smile.data.type.DataType;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.IntVector;
 
 /**
  * Date/time feature extractor.
@@ -117,7 +120,23 @@ public class Date implements Term {
 
                 @Override
                 public Object apply(Tuple o) {
-                    Object x = o.get(index);
+                    return extract(o.get(index));
+                }
+
+                @Override
+                public BaseVector apply(DataFrame df) {
+                    BaseVector column = df.column(name);
+                    int size = df.size();
+                    int[] values = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        Object x = extract(column.get(i));
+                        values[i] = x == null ? -1 : (int) x;
+                    }
+                    return IntVector.of(field, values);
+                }
+
+                /** Extracts the feature from a date/time value. */
+                private Object extract(Object x) {
                     if (x == null) return null;
 
                     switch (type.id()) {
@@ -19,11 +19,14 @@ package smile.data.formula;
 
 import java.util.ArrayList;
 import java.util.List;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.DoubleVector;
 
 /**
  * The generic term of applying a double function.
@@ -79,6 +82,18 @@ public class DoubleFunction extends AbstractFunction {
                 public double applyAsDouble(Tuple o) {
                     return lambda.apply(feature.applyAsDouble(o));
                 }
+
+                @Override
+                public BaseVector apply(DataFrame df) {
+                    if (!Columns.isPrimitive(field, xfield)) {
+                        return Feature.super.apply(df);
+                    }
+
+                    double[] u = Columns.doubles(feature.apply(df));
+                    double[] z = new double[u.length];
+                    for (int i = 0; i < z.length; i++) z[i] = lambda.apply(u[i]);
+                    return DoubleVector.of(field, z);
+                }
             });
         }
 
@@ -19,12 +19,15 @@ package smile.data.formula;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.measure.CategoricalMeasure;
 import smile.data.measure.NominalScale;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.IntVector;
 
 /**
  * The interaction of all the factors appearing in the term.
@@ -123,6 +126,31 @@ public class FactorInteraction implements Term {
                 String level = factors.stream().map(factor -> o.getString(factor)).collect(Collectors.joining(":"));
                 return measure.valueOf(level);
             }
+
+            @Override
+            public BaseVector apply(DataFrame df) {
+                for (StructField factor : fields) {
+                    if (!factor.type.isIntegral()) {
+                        return Feature.super.apply(df);
+                    }
+                }
+
+                // The levels are the cartesian product of factor levels
+                // so that the interaction is the mixed radix number of
+                // factor values.
+                int size = df.size();
+                int[] values = new int[size];
+                for (StructField factor : fields) {
+                    CategoricalMeasure cat = (CategoricalMeasure) factor.measure;
+                    int radix = cat.size();
+                    int[] x = Columns.ints(df.column(factor.name));
+                    for (int i = 0; i < size; i++) {
+                        values[i] = values[i] * radix + cat.factor(x[i]);
+                    }
+                }
+
+                return IntVector.of(field, values);
+            }
         };
 
         return Collections.singletonList(feature);
@@ -20,9 +20,10 @@ package smile.data.formula;
 import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
-import smile.data.CategoricalEncoder;
+import java.util.stream.IntStream;
 import smile.data.DataFrame;
 import smile.data.Tuple;
+import smile.data.measure.CategoricalMeasure;
 import smile.data.type.*;
 import smile.data.vector.*;
 import smile.math.matrix.Matrix;
@@ -374,8 +375,7 @@ public class Formula implements Serializable {
     public DataFrame frame(DataFrame df) {
         bind(df.schema());
 
-        BaseVector[] vectors = Arrays.stream(binding.yx != null ? binding.yx : binding.x)
-                .map(term -> term.apply(df)).toArray(BaseVector[]::new);
+        BaseVector[] vectors = apply(binding.yx != null ? binding.yx : binding.x, df);
         return DataFrame.of(vectors);
     }
 
@@ -385,11 +385,21 @@ public class Formula implements Serializable {
      */
     public DataFrame x(DataFrame df) {
         bind(df.schema());
-        BaseVector[] vectors = Arrays.stream(binding.x)
-                .map(term -> term.apply(df)).toArray(BaseVector[]::new);
+        BaseVector[] vectors = apply(binding.x, df);
         return DataFrame.of(vectors);
     }
 
+    /**
+     * Evaluates the features on the columns of a data frame in parallel.
+     * @param features the bound features.
+     * @param df The input DataFrame.
+     */
+    private BaseVector[] apply(Feature[] features, DataFrame df) {
+        BaseVector[] vectors = new BaseVector[features.length];
+        IntStream.range(0, features.length).parallel().forEach(j -> vectors[j] = features[j].apply(df));
+        return vectors;
+    }
+
     /**
      * Returns the design matrix of predictors.
      * All categorical variables will be dummy encoded.
@@ -420,7 +430,58 @@ public class Formula implements Serializable {
      * @param bias If true, include the bias column.
      */
     public Matrix matrix(DataFrame df, boolean bias) {
-        return x(df).toMatrix(bias, CategoricalEncoder.DUMMY, null);
+        bind(df.schema());
+        Feature[] features = binding.x;
+        BaseVector[] vectors = apply(features, df);
+
+        // The columns of features in the design matrix.
+        int[] offset = new int[features.length + 1];
+        offset[0] = bias ? 1 : 0;
+        List<String> colNames = new ArrayList<>();
+        if (bias) colNames.add("Intercept");
+        for (int j = 0; j < features.length; j++) {
+            StructField field = features[j].field();
+            if (field.measure instanceof CategoricalMeasure) {
+                CategoricalMeasure cat = (CategoricalMeasure) field.measure;
+                for (int k = 1; k < cat.size(); k++) {
+                    colNames.add(String.format("%s_%s", field.name, cat.level(k)));
+                }
+            } else {
+                colNames.add(field.name);
+            }
+            offset[j + 1] = colNames.size();
+        }
+
+        int n = df.size();
+        Matrix matrix = new Matrix(n, colNames.size());
+        matrix.colNames(colNames.toArray(new String[colNames.size()]));
+        if (bias) {
+            for (int i = 0; i < n; i++) {
+                matrix.set(i, 0, 1.0);
+            }
+        }
+
+        // Each feature writes its own columns.
+        IntStream.range(0, features.length).parallel().forEach(j -> {
+            StructField field = features[j].field();
+            BaseVector vector = vectors[j];
+            int col = offset[j];
+            if (field.measure instanceof CategoricalMeasure) {
+                CategoricalMeasure cat = (CategoricalMeasure) field.measure;
+                int[] x = Columns.ints(vector);
+                for (int i = 0; i < n; i++) {
+                    int k = cat.factor(x[i]);
+                    if (k > 0) matrix.set(i, col + k - 1, 1.0);
+                }
+            } else {
+                double[] x = field.type.isPrimitive() ? Columns.doubles(vector) : vector.toDoubleArray();
+                for (int i = 0; i < n; i++) {
+                    matrix.set(i, col, x[i]);
+                }
+            }
+        });
+
+        return matrix;
     }
 
     /**
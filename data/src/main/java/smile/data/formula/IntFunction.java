@@ -17,11 +17,14 @@
 
 package smile.data.formula;
 
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.IntVector;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -80,6 +83,18 @@ public class IntFunction extends AbstractFunction {
                 public int applyAsInt(Tuple o) {
                     return lambda.apply(feature.applyAsInt(o));
                 }
+
+                @Override
+                public BaseVector apply(DataFrame df) {
+                    if (!Columns.isPrimitive(field, xfield)) {
+                        return Feature.super.apply(df);
+                    }
+
+                    int[] u = Columns.ints(feature.apply(df));
+                    int[] z = new int[u.length];
+                    for (int i = 0; i < z.length; i++) z[i] = lambda.apply(u[i]);
+                    return IntVector.of(field, z);
+                }
             });
         }
 
@@ -19,10 +19,12 @@ package smile.data.formula;
 
 import java.util.ArrayList;
 import java.util.List;
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.*;
 
 /**
  * The term of <code>a * b</code> expression.
@@ -106,6 +108,53 @@ public class Mul extends Operator {
                 public double applyAsDouble(Tuple o) {
                     return a.applyAsDouble(o) * b.applyAsDouble(o);
                 }
+
+                @Override
+                public BaseVector apply(DataFrame df) {
+                    if (!Columns.isPrimitive(field, xfield, yfield)) {
+                        return Feature.super.apply(df);
+                    }
+
+                    BaseVector x = a.apply(df);
+                    BaseVector y = b.apply(df);
+                    int size = df.size();
+                    switch (field.type.id()) {
+                        case Integer: {
+                            int[] u = Columns.ints(x);
+                            int[] v = Columns.ints(y);
+                            int[] z = new int[size];
+                            for (int i = 0; i < size; i++) z[i] = u[i] * v[i];
+                            return IntVector.of(field, z);
+                        }
+
+                        case Long: {
+                            long[] u = Columns.longs(x);
+                            long[] v = Columns.longs(y);
+                            long[] z = new long[size];
+                            for (int i = 0; i < size; i++) z[i] = u[i] * v[i];
+                            return LongVector.of(field, z);
+                        }
+
+                        case Float: {
+                            float[] u = Columns.floats(x);
+                            float[] v = Columns.floats(y);
+                            float[] z = new float[size];
+                            for (int i = 0; i < size; i++) z[i] = u[i] * v[i];
+                            return FloatVector.of(field, z);
+                        }
+
+                        case Double: {
+                            double[] u = Columns.doubles(x);
+                            double[] v = Columns.doubles(y);
+                            double[] z = new double[size];
+                            for (int i = 0; i < size; i++) z[i] = u[i] * v[i];
+                            return DoubleVector.of(field, z);
+                        }
+
+                        default:
+                            return Feature.super.apply(df);
+                    }
+                }
             });
         }
 
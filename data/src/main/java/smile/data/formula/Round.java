@@ -17,10 +17,14 @@
 
 package smile.data.formula;
 
+import smile.data.DataFrame;
 import smile.data.Tuple;
 import smile.data.type.DataType;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.BaseVector;
+import smile.data.vector.DoubleVector;
+import smile.data.vector.FloatVector;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -78,6 +82,27 @@ class Round extends AbstractFunction {
                 public double applyAsDouble(Tuple o) {
                     return Math.round(feature.applyAsDouble(o));
                 }
+
+                @Override
+                public BaseVector apply(DataFrame df) {
+                    if (!Columns.isPrimitive(field)) {
+                        return Feature.super.apply(df);
+                    }
+
+                    BaseVector x = feature.apply(df);
+                    int size = df.size();
+                    if (field.type.isFloat()) {
+                        float[] u = Columns.floats(x);
+                        float[] z = new float[size];
+                        for (int i = 0; i < size; i++) z[i] = Math.round(u[i]);
+                        return FloatVector.of(field, z);
+                    } else {
+                        double[] u = Columns.doubles(x);
+                        double[] z = new double[size];
+                        for (int i = 0; i < size; i++) z[i] = Math.round(u[i]);
+                        return DoubleVector.of(field, z);
+                    }
+                }
             });
         }
 
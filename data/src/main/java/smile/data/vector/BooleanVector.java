@@ -17,6 +17,7 @@
 
 package smile.data.vector;
 
+import java.nio.ByteBuffer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import smile.data.type.DataType;
@@ -98,4 +99,13 @@ public interface BooleanVector extends BaseVector<Boolean, Integer, IntStream> {
     static BooleanVector of(StructField field, boolean[] vector) {
         return new BooleanVectorImpl(field, vector);
     }
+
+    /** Creates a named boolean vector backed by a buffer, e.g. a memory-mapped file.
+     *
+     * @param field the struct field of vector.
+     * @param buffer the data of vector, one byte per element.
+     */
+    static BooleanVector of(StructField field, ByteBuffer buffer) {
+        return new BooleanBufferVector(field, buffer);
+    }
 }
\ No newline at end of file
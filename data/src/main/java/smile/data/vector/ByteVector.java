@@ -17,6 +17,7 @@
 
 package smile.data.vector;
 
+import java.nio.ByteBuffer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import smile.data.type.DataType;
@@ -88,4 +89,13 @@ public interface ByteVector extends BaseVector<Byte, Integer, IntStream> {
     static ByteVector of(StructField field, byte[] vector) {
         return new ByteVectorImpl(field, vector);
     }
+
+    /** Creates a named byte vector backed by a buffer, e.g. a memory-mapped file.
+     *
+     * @param field the struct field of vector.
+     * @param buffer the data of vector.
+     */
+    static ByteVector of(StructField field, ByteBuffer buffer) {
+        return new ByteBufferVector(field, buffer);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.data.vector;
+
+import java.nio.CharBuffer;
+import java.util.stream.IntStream;
+import smile.data.type.StructField;
+
+/**
+ * An immutable char vector backed by a buffer, e.g. a memory-mapped
+ * file. The data is accessed in place so that the vector is not limited
+ * by the heap size. The array methods copy the data to the heap.
+ * In serialization, the vector is replaced by an on-heap copy.
+ *
+ * @author Haifeng Li
+ */
+class CharBufferVector implements CharVector {
+    /** The name of vector. */
+    private String name;
+    /** The vector data. */
+    private transient CharBuffer buffer;
+
+    /** Constructor. */
+    public CharBufferVector(StructField field, CharBuffer buffer) {
+        if (field.measure != null) {
+            throw new IllegalArgumentException(String.format("Invalid measure %s for %s", field.measure, type()));
+        }
+
+        this.name = field.name;
+        this.buffer = buffer;
+    }
+
+    /** Returns an on-heap copy in serialization. */
+    private Object writeReplace() {
+        return new CharVectorImpl(field(), array());
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public char[] array() {
+        char[] a = new char[size()];
+        buffer.duplicate().get(a);
+        return a;
+    }
+
+    @Override
+    public int[] toIntArray(int[] a) {
+        for (int i = 0; i < a.length; i++) a[i] = buffer.get(i);
+        return a;
+    }
+
+    @Override
+    public double[] toDoubleArray(double[] a) {
+        for (int i = 0; i < a.length; i++) a[i] = buffer.get(i);
+        return a;
+    }
+
+    @Override
+    public char getChar(int i) {
+        return buffer.get(i);
+    }
+
+    @Override
+    public Character get(int i) {
+        return buffer.get(i);
+    }
+
+    @Override
+    public CharVector get(int... index) {
+        char[] v = new char[index.length];
+        for (int i = 0; i < index.length; i++) v[i] = buffer.get(index[i]);
+        return new CharVectorImpl(field(), v);
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public IntStream stream() {
+        return IntStream.range(0, size()).map(buffer::get);
+    }
+
+    @Override
+    public String toString() {
+        return toString(10);
+    }
+}
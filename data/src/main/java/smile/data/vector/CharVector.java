@@ -17,6 +17,7 @@
 
 package smile.data.vector;
 
+import java.nio.CharBuffer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import smile.data.type.DataType;
@@ -98,4 +99,13 @@ public interface CharVector extends BaseVector<Character, Integer, IntStream> {
     static CharVector of(StructField field, char[] vector) {
         return new CharVectorImpl(field, vector);
     }
+
+    /** Creates a named char vector backed by a buffer, e.g. a memory-mapped file.
+     *
+     * @param field the struct field of vector.
+     * @param buffer the data of vector.
+     */
+    static CharVector of(StructField field, CharBuffer buffer) {
+        return new CharBufferVector(field, buffer);
+    }
 }
\ No newline at end of file
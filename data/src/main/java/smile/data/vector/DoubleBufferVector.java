@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.data.vector;
+
+import java.nio.DoubleBuffer;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import smile.data.measure.CategoricalMeasure;
+import smile.data.measure.Measure;
+import smile.data.type.StructField;
+
+/**
+ * An immutable double vector backed by a buffer, e.g. a memory-mapped
+ * file. The data is accessed in place so that the vector is not limited
+ * by the heap size. The array methods copy the data to the heap.
+ * In serialization, the vector is replaced by an on-heap copy.
+ *
+ * @author Haifeng Li
+ */
+class DoubleBufferVector implements DoubleVector {
+    /** The name of vector. */
+    private String name;
+    /** Optional measure. */
+    private Measure measure;
+    /** The vector data. */
+    private transient DoubleBuffer buffer;
+
+    /** Constructor. */
+    public DoubleBufferVector(StructField field, DoubleBuffer buffer) {
+        if (field.measure instanceof CategoricalMeasure) {
+            throw new IllegalArgumentException(String.format("Invalid measure %s for %s", field.measure, type()));
+        }
+
+        this.name = field.name;
+        this.measure = field.measure;
+        this.buffer = buffer;
+    }
+
+    /** Returns an on-heap copy in serialization. */
+    private Object writeReplace() {
+        return new DoubleVectorImpl(field(), array());
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Measure measure() {
+        return measure;
+    }
+
+    @Override
+    public double[] array() {
+        double[] a = new double[size()];
+        buffer.duplicate().get(a);
+        return a;
+    }
+
+    @Override
+    public double[] toDoubleArray(double[] a) {
+        buffer.duplicate().get(a);
+        return a;
+    }
+
+    @Override
+    public double getDouble(int i) {
+        return buffer.get(i);
+    }
+
+    @Override
+    public Double get(int i) {
+        return buffer.get(i);
+    }
+
+    @Override
+    public DoubleVector get(int... index) {
+        double[] v = new double[index.length];
+        for (int i = 0; i < index.length; i++) v[i] = buffer.get(index[i]);
+        return new DoubleVectorImpl(field(), v);
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public DoubleStream stream() {
+        return IntStream.range(0, size()).mapToDouble(buffer::get);
+    }
+
+    @Override
+    public String toString() {
+        return toString(10);
+    }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.data.vector;
+
+import java.nio.FloatBuffer;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import smile.data.measure.CategoricalMeasure;
+import smile.data.measure.Measure;
+import smile.data.type.StructField;
+
+/**
+ * An immutable float vector backed by a buffer, e.g. a memory-mapped
+ * file. The data is accessed in place so that the vector is not limited
+ * by the heap size. The array methods copy the data to the heap.
+ * In serialization, the vector is replaced by an on-heap copy.
+ *
+ * @author Haifeng Li
+ */
+class FloatBufferVector implements FloatVector {
+    /** The name of vector. */
+    private String name;
+    /** Optional measure. */
+    private Measure measure;
+    /** The vector data. */
+    private transient FloatBuffer buffer;
+
+    /** Constructor. */
+    public FloatBufferVector(StructField field, FloatBuffer buffer) {
+        if (field.measure instanceof CategoricalMeasure) {
+            throw new IllegalArgumentException(String.format("Invalid measure %s for %s", field.measure, type()));
+        }
+
+        this.name = field.name;
+        this.measure = field.measure;
+        this.buffer = buffer;
+    }
+
+    /** Returns an on-heap copy in serialization. */
+    private Object writeReplace() {
+        return new FloatVectorImpl(field(), array());
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Measure measure() {
+        return measure;
+    }
+
+    @Override
+    public float[] array() {
+        float[] a = new float[size()];
+        buffer.duplicate().get(a);
+        return a;
+    }
+
+    @Override
+    public double[] toDoubleArray(double[] a) {
+        for (int i = 0; i < a.length; i++) a[i] = buffer.get(i);
+        return a;
+    }
+
+    @Override
+    public float getFloat(int i) {
+        return buffer.get(i);
+    }
+
+    @Override
+    public Float get(int i) {
+        return buffer.get(i);
+    }
+
+    @Override
+    public FloatVector get(int... index) {
+        float[] v = new float[index.length];
+        for (int i = 0; i < index.length; i++) v[i] = buffer.get(index[i]);
+        return new FloatVectorImpl(field(), v);
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public DoubleStream stream() {
+        return IntStream.range(0, size()).mapToDouble(buffer::get);
+    }
+
+    @Override
+    public String toString() {
+        return toString(10);
+    }
+}
@@ -17,6 +17,7 @@
 
 package smile.data.vector;
 
+import java.nio.FloatBuffer;
 import java.util.stream.Collectors;
 import java.util.stream.DoubleStream;
 import smile.data.type.DataType;
@@ -88,4 +89,13 @@ public interface FloatVector extends BaseVector<Float, Double, DoubleStream> {
     static FloatVector of(StructField field, float[] vector) {
         return new FloatVectorImpl(field, vector);
     }
+
+    /** Creates a named float vector backed by a buffer, e.g. a memory-mapped file.
+     *
+     * @param field the struct field of vector.
+     * @param buffer the data of vector.
+     */
+    static FloatVector of(StructField field, FloatBuffer buffer) {
+        return new FloatBufferVector(field, buffer);
+    }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 
 package smile.data.vector;
 
+import java.nio.LongBuffer;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import smile.data.type.DataType;
@@ -98,6 +99,15 @@ public interface LongVector extends BaseVector<Long, Long, LongStream> {
         return new LongVectorImpl(field, vector);
     }
 
+    /** Creates a named long vector backed by a buffer, e.g. a memory-mapped file.
+     *
+     * @param field the struct field of vector.
+     * @param buffer the data of vector.
+     */
+    static LongVector of(StructField field, LongBuffer buffer) {
+        return new LongBufferVector(field, buffer);
+    }
+
     /** Creates a named long integer vector.
      *
      * @param field the struct field of vector.
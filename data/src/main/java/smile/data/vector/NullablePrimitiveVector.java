@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.data.vector;
+
+import java.lang.reflect.Array;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import smile.data.measure.CategoricalMeasure;
+import smile.data.measure.Measure;
+import smile.data.measure.NumericalMeasure;
+import smile.data.type.DataType;
+import smile.data.type.ObjectType;
+import smile.data.type.StructField;
+
+/**
+ * An immutable vector of boxed primitive type, e.g. Integer, Double,
+ * of which the values are stored in a primitive array and the null
+ * values are flagged in a bitmap. The values are boxed only when
+ * they are accessed as objects.
+ *
+ * @author Haifeng Li
+ */
+class NullablePrimitiveVector<T> implements Vector<T> {
+    /** The name of vector. */
+    private String name;
+    /** The data type of vector. */
+    private DataType type;
+    /** Optional measure. */
+    private Measure measure;
+    /** The primitive array of values. */
+    private Object array;
+    /** The flags of null values. */
+    private BitSet nulls;
+
+    /** Constructor. */
+    public NullablePrimitiveVector(StructField field, Object array, BitSet nulls) {
+        if (field.type.unboxed() == field.type) {
+            throw new IllegalArgumentException("Not a boxed primitive type: " + field.type);
+        }
+
+        if (!array.getClass().isArray() || !array.getClass().getComponentType().isPrimitive()) {
+            throw new IllegalArgumentException("Not a primitive array: " + array.getClass());
+        }
+
+        if (field.measure != null) {
+            if ((field.type.isIntegral() && field.measure instanceof NumericalMeasure) ||
+                (field.type.isFloating() && field.measure instanceof CategoricalMeasure) ||
+                (!field.type.isIntegral() && !field.type.isFloating())) {
+                throw new IllegalArgumentException(String.format("Invalid measure %s for %s", field.measure, field.type));
+            }
+        }
+
+        this.name = field.name;
+        this.type = field.type;
+        this.measure = field.measure;
+        this.array = array;
+        this.nulls = nulls == null ? new BitSet() : nulls;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public DataType type() {
+        return type;
+    }
+
+    @Override
+    public Measure measure() {
+        return measure;
+    }
+
+    @Override
+    public Object array() {
+        return toArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        return nulls.get(i) ? null : (T) Array.get(array, i);
+    }
+
+    @Override
+    public Vector<T> get(int... index) {
+        Object v = Array.newInstance(array.getClass().getComponentType(), index.length);
+        BitSet flags = new BitSet();
+        for (int i = 0; i < index.length; i++) {
+            if (nulls.get(index[i])) {
+                flags.set(i);
+            } else {
+                Array.set(v, i, Array.get(array, index[i]));
+            }
+        }
+        return new NullablePrimitiveVector<>(field(), v, flags);
+    }
+
+    @Override
+    public float getFloat(int i) {
+        return nulls.get(i) ? Float.NaN : Array.getFloat(array, i);
+    }
+
+    @Override
+    public double getDouble(int i) {
+        return nulls.get(i) ? Double.NaN : Array.getDouble(array, i);
+    }
+
+    @Override
+    public boolean isNullAt(int i) {
+        return nulls.get(i);
+    }
+
+    @Override
+    public boolean anyNull() {
+        return !nulls.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return Array.getLength(array);
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return IntStream.range(0, size()).mapToObj(this::get);
+    }
+
+    @Override
+    public String toString() {
+        return toString(10);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T[] toArray() {
+        int n = size();
+        T[] a = (T[]) Array.newInstance(((ObjectType) type).getObjectClass(), n);
+        for (int i = 0; i < n; i++) a[i] = get(i);
+        return a;
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        return toDoubleArray(new double[size()]);
+    }
+
+    @Override
+    public double[] toDoubleArray(double[] a) {
+        if (!type.isNumeric()) throw new UnsupportedOperationException(name() + ":" + type());
+        int n = size();
+        if (array instanceof double[]) {
+            System.arraycopy(array, 0, a, 0, n);
+        } else {
+            for (int i = 0; i < n; i++) a[i] = Array.getDouble(array, i);
+        }
+        for (int i = nulls.nextSetBit(0); i >= 0; i = nulls.nextSetBit(i + 1)) a[i] = Double.NaN;
+        return a;
+    }
+
+    @Override
+    public int[] toIntArray() {
+        return toIntArray(new int[size()]);
+    }
+
+    @Override
+    public int[] toIntArray(int[] a) {
+        if (!type.isIntegral()) throw new UnsupportedOperationException(name() + ":" + type());
+        int n = size();
+        if (array instanceof int[]) {
+            System.arraycopy(array, 0, a, 0, n);
+        } else {
+            for (int i = 0; i < n; i++) a[i] = ((Number) Array.get(array, i)).intValue();
+        }
+        for (int i = nulls.nextSetBit(0); i >= 0; i = nulls.nextSetBit(i + 1)) a[i] = Integer.MIN_VALUE;
+        return a;
+    }
+
+    @Override
+    public Vector<LocalDate> toDate() {
+        throw new UnsupportedOperationException("Unsupported data type for toDate(): " + type);
+    }
+
+    @Override
+    public Vector<LocalTime> toTime() {
+        throw new UnsupportedOperationException("Unsupported data type for toTime(): " + type);
+    }
+
+    @Override
+    public Vector<LocalDateTime> toDateTime() {
+        throw new UnsupportedOperationException("Unsupported data type for toDateTime(): " + type);
+    }
+}
@@ -20,6 +20,7 @@ package smile.data.vector;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.BitSet;
 import java.util.function.Function;
 import java.util.List;
 import java.util.Objects;
@@ -147,4 +148,16 @@ public interface Vector<T> extends BaseVector<T, T, Stream<T>> {
     static <T> Vector of(StructField field, T[] vector) {
         return new VectorImpl<>(field, vector);
     }
+
+    /**
+     * Creates a named vector of boxed primitive type, of which the values
+     * are stored in a primitive array without boxing.
+     *
+     * @param field the struct field of vector, which is of boxed primitive type.
+     * @param array the primitive array of values.
+     * @param nulls the flags of null values. May be null if there are no null values.
+     */
+    static <T> Vector<T> of(StructField field, Object array, BitSet nulls) {
+        return new NullablePrimitiveVector<>(field, array, nulls);
+    }
 }
\ No newline at end of file
@@ -295,4 +295,147 @@ public class DataFrameTest {
         assertEquals(1, output[2][3], 1E-10);
         assertEquals(1, output[3][3], 1E-10);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test of filter method, of class DataFrame.
+     */
+    @Test
+    public void testFilter() {
+        System.out.println("filter");
+        DataFrame output = df.filter("age", age -> age > 20);
+        assertEquals(3, output.nrows());
+        assertEquals("Alex", output.getString(0, "name"));
+        assertEquals("Bob", output.getString(1, "name"));
+        assertEquals("Jane", output.getString(2, "name"));
+
+        output = df.filter("salary", Double::isNaN);
+        assertEquals(2, output.nrows());
+        assertEquals("Bob", output.getString(0, "name"));
+        assertEquals("Amy", output.getString(1, "name"));
+    }
+
+    /**
+     * Test of sort method, of class DataFrame.
+     */
+    @Test
+    public void testSort() {
+        System.out.println("sort");
+        DataFrame output = df.sort("age");
+        assertEquals(13, output.getInt(0, "age"));
+        assertEquals(23, output.getInt(1, "age"));
+        assertEquals(38, output.getInt(2, "age"));
+        assertEquals(48, output.getInt(3, "age"));
+
+        output = df.sort(new String[]{"name"}, new boolean[]{false});
+        assertEquals("Jane", output.getString(0, "name"));
+        assertEquals("Bob", output.getString(1, "name"));
+        assertEquals("Amy", output.getString(2, "name"));
+        assertEquals("Alex", output.getString(3, "name"));
+
+        output = df.sort(new String[]{"gender", "salary"}, new boolean[]{true, false});
+        assertEquals("Alex", output.getString(0, "name"));
+        assertEquals("Bob", output.getString(1, "name"));
+        assertEquals("Jane", output.getString(2, "name"));
+        assertEquals("Amy", output.getString(3, "name"));
+    }
+
+    /**
+     * Test of groupBy method, of class DataFrame.
+     */
+    @Test
+    public void testGroupBy() {
+        System.out.println("groupBy");
+        GroupBy groups = df.groupBy("gender");
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get(0).nrows());
+        assertEquals("Bob", groups.get(0).getString(1, "name"));
+
+        DataFrame count = groups.count();
+        System.out.println(count);
+        assertEquals("Male", count.getScale(0, "gender"));
+        assertEquals("Female", count.getScale(1, "gender"));
+        assertEquals(2, count.getInt(0, "count"));
+        assertEquals(2, count.getInt(1, "count"));
+
+        DataFrame mean = groups.mean("age", "salary");
+        System.out.println(mean);
+        assertEquals(30.5, mean.getDouble(0, "mean(age)"), 1E-10);
+        assertEquals(30.5, mean.getDouble(1, "mean(age)"), 1E-10);
+        assertEquals(10000., mean.getDouble(0, "mean(salary)"), 1E-10);
+        assertEquals(230000., mean.getDouble(1, "mean(salary)"), 1E-10);
+
+        assertEquals(61., groups.sum("age").getDouble(0, "sum(age)"), 1E-10);
+        assertEquals(23., groups.min("age").getDouble(0, "min(age)"), 1E-10);
+        assertEquals(48., groups.max("age").getDouble(1, "max(age)"), 1E-10);
+    }
+
+    /**
+     * Test of groupBy method on large data, of class DataFrame.
+     */
+    @Test
+    public void testGroupByLarge() {
+        System.out.println("groupBy large");
+        smile.math.MathEx.setSeed(19650218);
+        int n = 100000;
+        int[] a = new int[n];
+        double[] b = new double[n];
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = smile.math.MathEx.randomInt(100);
+            b[i] = smile.math.MathEx.randomInt(7) * 0.5;
+            x[i] = smile.math.MathEx.random();
+        }
+
+        DataFrame data = DataFrame.of(
+                smile.data.vector.IntVector.of("a", a),
+                smile.data.vector.DoubleVector.of("b", b),
+                smile.data.vector.DoubleVector.of("x", x));
+
+        DataFrame sum = data.groupBy("a", "b").sum("x");
+        assertEquals(700, sum.nrows());
+        assertEquals(a[0], sum.getInt(0, "a"));
+        assertEquals(b[0], sum.getDouble(0, "b"), 1E-10);
+
+        java.util.HashMap<String, Double> expected = new java.util.HashMap<>();
+        for (int i = 0; i < n; i++) {
+            expected.merge(a[i] + ":" + b[i], x[i], Double::sum);
+        }
+        for (int k = 0; k < sum.nrows(); k++) {
+            String key = sum.getInt(k, "a") + ":" + sum.getDouble(k, "b");
+            assertEquals(expected.get(key), sum.getDouble(k, "sum(x)"), 1E-7);
+        }
+
+        DataFrame sorted = data.sort(new String[]{"a", "x"}, new boolean[]{false, true});
+        for (int i = 1; i < n; i++) {
+            int a0 = sorted.getInt(i - 1, "a");
+            int a1 = sorted.getInt(i, "a");
+            assertTrue(a0 >= a1);
+            if (a0 == a1) {
+                assertTrue(sorted.getDouble(i - 1, "x") <= sorted.getDouble(i, "x"));
+            }
+        }
+    }
+
+    /**
+     * Test of join method, of class DataFrame.
+     */
+    @Test
+    public void testJoin() {
+        System.out.println("join");
+        DataFrame other = DataFrame.of(
+                StringVector.of("name", "Jane", "Alex", "Jane", "Zed"),
+                smile.data.vector.IntVector.of("dept", new int[]{1, 2, 3, 4}));
+
+        DataFrame output = df.join(other, "name");
+        System.out.println(output);
+        assertEquals(3, output.nrows());
+        assertEquals(6, output.ncols());
+        assertEquals("Alex", output.getString(0, "name"));
+        assertEquals(2, output.getInt(0, "dept"));
+        assertEquals("Jane", output.getString(1, "name"));
+        assertEquals(1, output.getInt(1, "dept"));
+        assertEquals("Jane", output.getString(2, "name"));
+        assertEquals(3, output.getInt(2, "dept"));
+        assertEquals(48, output.getInt(2, "age"));
+    }
+}
@@ -646,4 +646,54 @@ public class FormulaTest {
         assertEquals(230000./48, output.get(2,5));
         assertEquals(null, output.get(3,5));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testColumnar() {
+        System.out.println("columnar");
+        smile.math.MathEx.setSeed(19650218);
+        int n = 1000;
+        int[] a = new int[n];
+        double[] b = new double[n];
+        float[] c = new float[n];
+        byte[] water = new byte[n];
+        byte[] wind = new byte[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = smile.math.MathEx.randomInt(200) - 100;
+            b[i] = smile.math.MathEx.random() * 10 - 5;
+            c[i] = (float) smile.math.MathEx.random();
+            water[i] = (byte) smile.math.MathEx.randomInt(2);
+            wind[i] = (byte) smile.math.MathEx.randomInt(3);
+        }
+
+        DataFrame data = DataFrame.of(
+                smile.data.vector.IntVector.of("a", a),
+                smile.data.vector.DoubleVector.of("b", b),
+                smile.data.vector.FloatVector.of("c", c),
+                smile.data.vector.ByteVector.of(new StructField("water", DataTypes.ByteType, new NominalScale("dry", "wet")), water),
+                smile.data.vector.ByteVector.of(new StructField("wind", DataTypes.ByteType, new NominalScale("weak", "mild", "strong")), wind));
+
+        Formula formula = Formula.rhs(
+                $("a"), add("a", "b"), sub("b", "c"), mul("a", "c"), div("a", val(7)),
+                abs("a"), round("b"), exp("c"), interact("water", "wind"), $("water"));
+
+        DataFrame output = formula.frame(data);
+        assertEquals(n, output.nrows());
+        assertEquals(10, output.ncols());
+        for (int i = 0; i < n; i++) {
+            smile.data.Tuple row = formula.x(data.get(i));
+            for (int j = 0; j < output.ncols(); j++) {
+                assertEquals(((Number) row.get(j)).doubleValue(), ((Number) output.get(i, j)).doubleValue(), 1E-10);
+            }
+        }
+
+        Matrix matrix = formula.matrix(data, true);
+        Matrix expected = output.toMatrix(true, smile.data.CategoricalEncoder.DUMMY, null);
+        assertEquals(expected.ncols(), matrix.ncols());
+        assertArrayEquals(expected.colNames(), matrix.colNames());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < matrix.ncols(); j++) {
+                assertEquals(expected.get(i, j), matrix.get(i, j), 1E-10);
+            }
+        }
+    }
+}
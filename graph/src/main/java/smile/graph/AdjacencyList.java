@@ -77,6 +77,11 @@ public class AdjacencyList implements Graph {
         return n;
     }
 
+    @Override
+    public boolean isDigraph() {
+        return digraph;
+    }
+
     @Override
     public boolean hasEdge(int source, int target) {
         if (digraph) {
@@ -72,6 +72,11 @@ public class AdjacencyMatrix implements Graph {
         return n;
     }
 
+    @Override
+    public boolean isDigraph() {
+        return digraph;
+    }
+
     @Override
     public boolean hasEdge(int source, int target) {
         return graph[source][target] != 0.0;
@@ -0,0 +1,806 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import smile.math.matrix.SparseMatrix;
+import smile.sort.QuickSort;
+import smile.util.IntArrayList;
+import smile.util.PriorityQueue;
+
+/**
+ * A graph in the compressed sparse row (CSR) format. The targets and
+ * weights of edges are stored in primitive arrays, in which the edges
+ * from a vertex are contiguous and sorted by the target vertex.
+ * Compared to the adjacency list of edge objects, it takes much less
+ * memory and the traversal is cache friendly. For undirected graphs,
+ * every edge is stored in both directions. The structure of graph is
+ * fixed, i.e. the edges cannot be added or removed. However, the weights
+ * of existing edges can be updated by setWeight, which is not thread safe.
+ * The edge objects returned by the graph are copies, i.e. the changes of
+ * their weights won't be reflected in the graph.
+ * <p>
+ * Besides the methods of Graph interface, it provides the parallel
+ * breadth-first search and the delta-stepping single source shortest path
+ * algorithm. Multigraph is supported.
+ *
+ * @author Haifeng Li
+ */
+public class CSRGraph implements Graph {
+    /** The number of vertices with which BFS frontier is expanded in parallel. */
+    private static final int PARALLEL_FRONTIER = 1024;
+
+    /**
+     * The number of vertices.
+     */
+    private final int n;
+    /**
+     * Is the graph directed?
+     */
+    private final boolean digraph;
+    /**
+     * The index of first edge of each vertex. The edges of vertex i are
+     * in the range [offset[i], offset[i+1]).
+     */
+    private final int[] offset;
+    /**
+     * The target vertex of edges.
+     */
+    private final int[] target;
+    /**
+     * The weight of edges.
+     */
+    private final double[] weight;
+
+    /**
+     * Constructor.
+     *
+     * @param n the number of vertices.
+     * @param digraph true if this is a directed graph.
+     * @param source the source vertex of edges.
+     * @param target the target vertex of edges.
+     * @param weight the weight of edges. If null, all edges have weight 1.
+     */
+    public CSRGraph(int n, boolean digraph, int[] source, int[] target, double[] weight) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid number of vertices: " + n);
+        }
+
+        if (source.length != target.length) {
+            throw new IllegalArgumentException(String.format("The length of source and target don't match: %d != %d", source.length, target.length));
+        }
+
+        if (weight != null && weight.length != source.length) {
+            throw new IllegalArgumentException(String.format("The length of source and weight don't match: %d != %d", source.length, weight.length));
+        }
+
+        this.n = n;
+        this.digraph = digraph;
+        this.offset = new int[n + 1];
+
+        int m = source.length;
+        for (int e = 0; e < m; e++) {
+            int u = source[e];
+            int v = target[e];
+            if (u < 0 || u >= n || v < 0 || v >= n) {
+                throw new IllegalArgumentException(String.format("Invalid edge: %d -> %d", u, v));
+            }
+
+            offset[u + 1]++;
+            if (!digraph && u != v) offset[v + 1]++;
+        }
+
+        for (int i = 0; i < n; i++) {
+            offset[i + 1] += offset[i];
+        }
+
+        this.target = new int[offset[n]];
+        this.weight = new double[offset[n]];
+        int[] pos = Arrays.copyOf(offset, n);
+        for (int e = 0; e < m; e++) {
+            int u = source[e];
+            int v = target[e];
+            double w = weight == null ? 1.0 : weight[e];
+            this.target[pos[u]] = v;
+            this.weight[pos[u]++] = w;
+            if (!digraph && u != v) {
+                this.target[pos[v]] = u;
+                this.weight[pos[v]++] = w;
+            }
+        }
+
+        sort();
+    }
+
+    /**
+     * Constructor of CSR arrays.
+     */
+    private CSRGraph(boolean digraph, int[] offset, int[] target, double[] weight) {
+        this.n = offset.length - 1;
+        this.digraph = digraph;
+        this.offset = offset;
+        this.target = target;
+        this.weight = weight;
+    }
+
+    /**
+     * Sorts the edges of each vertex by the target vertex.
+     */
+    private void sort() {
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int from = offset[i];
+            int size = offset[i + 1] - from;
+            if (size > 1) {
+                int[] t = Arrays.copyOfRange(target, from, from + size);
+                double[] w = Arrays.copyOfRange(weight, from, from + size);
+                QuickSort.sort(t, w);
+                System.arraycopy(t, 0, target, from, size);
+                System.arraycopy(w, 0, weight, from, size);
+            }
+        });
+    }
+
+    /**
+     * Returns the CSR representation of a graph.
+     *
+     * @param graph the graph.
+     * @return the CSR graph.
+     */
+    public static CSRGraph of(Graph graph) {
+        if (graph instanceof CSRGraph) {
+            return (CSRGraph) graph;
+        }
+
+        int n = graph.getNumVertices();
+        int[] offset = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offset[i + 1] = offset[i] + graph.getEdges(i).size();
+        }
+
+        int[] target = new int[offset[n]];
+        double[] weight = new double[offset[n]];
+        for (int i = 0; i < n; i++) {
+            int k = offset[i];
+            for (Edge edge : graph.getEdges(i)) {
+                target[k] = edge.v1 == i ? edge.v2 : edge.v1;
+                weight[k++] = edge.weight;
+            }
+        }
+
+        CSRGraph csr = new CSRGraph(graph.isDigraph(), offset, target, weight);
+        csr.sort();
+        return csr;
+    }
+
+    @Override
+    public int getNumVertices() {
+        return n;
+    }
+
+    @Override
+    public boolean isDigraph() {
+        return digraph;
+    }
+
+    /**
+     * Returns the number of (directed) edges. For undirected graphs,
+     * every edge except self loop is counted twice.
+     */
+    public int getNumEdges() {
+        return offset[n];
+    }
+
+    /**
+     * Returns the target vertices of edges from a vertex.
+     * @param vertex the id of vertex.
+     * @return the target vertices in ascending order.
+     */
+    public int[] getNeighbors(int vertex) {
+        return Arrays.copyOfRange(target, offset[vertex], offset[vertex + 1]);
+    }
+
+    /**
+     * Returns the index of an edge in the CSR arrays, or -1 if not exists.
+     */
+    private int indexOf(int source, int target) {
+        int i = Arrays.binarySearch(this.target, offset[source], offset[source + 1], target);
+        return i >= 0 ? i : -1;
+    }
+
+    @Override
+    public boolean hasEdge(int source, int target) {
+        return indexOf(source, target) >= 0;
+    }
+
+    @Override
+    public double getWeight(int source, int target) {
+        int i = indexOf(source, target);
+        return i >= 0 ? weight[i] : 0.0;
+    }
+
+    /**
+     * Sets the weight of an existing edge.
+     *
+     * @throws UnsupportedOperationException if the edge doesn't exist,
+     * as CSR graph cannot add new edges.
+     */
+    @Override
+    public CSRGraph setWeight(int source, int target, double weight) {
+        int i = indexOf(source, target);
+        if (i < 0) {
+            throw new UnsupportedOperationException("CSRGraph cannot add edges");
+        }
+
+        this.weight[i] = weight;
+        if (!digraph && source != target) {
+            this.weight[indexOf(target, source)] = weight;
+        }
+
+        return this;
+    }
+
+    @Override
+    public Collection<Edge> getEdges() {
+        List<Edge> edges = new ArrayList<>(digraph ? offset[n] : offset[n] / 2 + n);
+        for (int i = 0; i < n; i++) {
+            for (int k = offset[i]; k < offset[i + 1]; k++) {
+                if (digraph || i <= target[k]) {
+                    edges.add(new Edge(i, target[k], weight[k]));
+                }
+            }
+        }
+        return edges;
+    }
+
+    @Override
+    public Collection<Edge> getEdges(int vertex) {
+        List<Edge> edges = new ArrayList<>(offset[vertex + 1] - offset[vertex]);
+        for (int k = offset[vertex]; k < offset[vertex + 1]; k++) {
+            edges.add(new Edge(vertex, target[k], weight[k]));
+        }
+        return edges;
+    }
+
+    @Override
+    public Collection<Edge> getEdges(int source, int target) {
+        List<Edge> edges = new ArrayList<>();
+        for (int k = offset[source]; k < offset[source + 1]; k++) {
+            if (this.target[k] == target) {
+                edges.add(new Edge(source, target, weight[k]));
+            }
+        }
+        return edges;
+    }
+
+    @Override
+    public Edge getEdge(int source, int target) {
+        int i = indexOf(source, target);
+        return i >= 0 ? new Edge(source, target, weight[i]) : null;
+    }
+
+    /**
+     * Unsupported operation as the structure of CSR graph is fixed.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addEdge(int source, int target) {
+        throw new UnsupportedOperationException("CSRGraph cannot add edges");
+    }
+
+    /**
+     * Unsupported operation as the structure of CSR graph is fixed.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void addEdge(int source, int target, double weight) {
+        throw new UnsupportedOperationException("CSRGraph cannot add edges");
+    }
+
+    /**
+     * Unsupported operation as the structure of CSR graph is fixed.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void removeEdges(Collection<Edge> edges) {
+        throw new UnsupportedOperationException("CSRGraph cannot remove edges");
+    }
+
+    /**
+     * Unsupported operation as the structure of CSR graph is fixed.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void removeEdge(int source, int target) {
+        throw new UnsupportedOperationException("CSRGraph cannot remove edges");
+    }
+
+    /**
+     * Unsupported operation as the structure of CSR graph is fixed.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public void removeEdge(Edge edge) {
+        throw new UnsupportedOperationException("CSRGraph cannot remove edges");
+    }
+
+    @Override
+    public int getDegree(int vertex) {
+        if (digraph) {
+            return getIndegree(vertex) + getOutdegree(vertex);
+        } else {
+            return getOutdegree(vertex);
+        }
+    }
+
+    @Override
+    public int getIndegree(int vertex) {
+        if (!digraph) {
+            return getOutdegree(vertex);
+        }
+
+        int degree = 0;
+        for (int t : target) {
+            if (t == vertex) degree++;
+        }
+        return degree;
+    }
+
+    @Override
+    public int getOutdegree(int vertex) {
+        return offset[vertex + 1] - offset[vertex];
+    }
+
+    /**
+     * Iterative depth-first search from a vertex, which visits the vertices
+     * in the same order as the recursive search.
+     *
+     * @param v the start vertex.
+     * @param cc the array to store the connected component id of vertices.
+     * @param id the current component id.
+     * @param visitor the visitor in preorder, may be null.
+     * @param ts the array to store the vertices in postorder, may be null.
+     * @param count the number of vertices in postorder before this search.
+     * @param stack the stack buffer of vertices.
+     * @param cursor the stack buffer of next edge positions of vertices.
+     * @return the number of vertices in postorder after this search.
+     */
+    private int dfs(int v, int[] cc, int id, Visitor visitor, int[] ts, int count, int[] stack, int[] cursor) {
+        int top = 0;
+
+        if (visitor != null) visitor.visit(v);
+        cc[v] = id;
+        stack[top] = v;
+        cursor[top++] = offset[v];
+        while (top > 0) {
+            int u = stack[top - 1];
+            int k = cursor[top - 1];
+            if (k < offset[u + 1]) {
+                cursor[top - 1]++;
+                int t = target[k];
+                if (cc[t] == -1) {
+                    if (visitor != null) visitor.visit(t);
+                    cc[t] = id;
+                    stack[top] = t;
+                    cursor[top++] = offset[t];
+                }
+            } else {
+                top--;
+                if (ts != null) ts[count++] = u;
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public int[] sortdfs() {
+        if (!digraph) {
+            throw new UnsupportedOperationException("Topological sort is only meaningful for digraph.");
+        }
+
+        int[] cc = new int[n];
+        int[] ts = new int[n];
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        Arrays.fill(cc, -1);
+        Arrays.fill(ts, -1);
+
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (cc[i] == -1) {
+                count = dfs(i, cc, 0, null, ts, count, stack, cursor);
+            }
+        }
+
+        return ts;
+    }
+
+    @Override
+    public int[][] dfs() {
+        int[] cc = new int[n];
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        Arrays.fill(cc, -1);
+
+        int id = 0;
+        for (int i = 0; i < n; i++) {
+            if (cc[i] == -1) {
+                dfs(i, cc, id++, null, null, 0, stack, cursor);
+            }
+        }
+
+        return components(cc, id);
+    }
+
+    @Override
+    public void dfs(Visitor visitor) {
+        int[] cc = new int[n];
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        Arrays.fill(cc, -1);
+
+        int id = 0;
+        for (int i = 0; i < n; i++) {
+            if (cc[i] == -1) {
+                dfs(i, cc, id++, visitor, null, 0, stack, cursor);
+            }
+        }
+    }
+
+    /**
+     * Returns the vertices of connected components.
+     * @param cc the connected component id of vertices.
+     * @param size the number of connected components.
+     */
+    private int[][] components(int[] cc, int size) {
+        int[] count = new int[size];
+        for (int i = 0; i < n; i++) {
+            count[cc[i]]++;
+        }
+
+        int[][] components = new int[size][];
+        for (int i = 0; i < size; i++) {
+            components[i] = new int[count[i]];
+        }
+
+        // The vertices are added in ascending order.
+        Arrays.fill(count, 0);
+        for (int i = 0; i < n; i++) {
+            components[cc[i]][count[cc[i]]++] = i;
+        }
+
+        return components;
+    }
+
+    @Override
+    public int[] sortbfs() {
+        if (!digraph) {
+            throw new UnsupportedOperationException("Topological sort is only meaningful for digraph.");
+        }
+
+        int[] in = new int[n];
+        int[] ts = new int[n];
+        Arrays.fill(ts, -1);
+        for (int t : target) {
+            in[t]++;
+        }
+
+        int head = 0, tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (in[i] == 0) {
+                ts[tail++] = i;
+            }
+        }
+
+        while (head < tail) {
+            int v = ts[head++];
+            for (int k = offset[v]; k < offset[v + 1]; k++) {
+                if (--in[target[k]] == 0) {
+                    ts[tail++] = target[k];
+                }
+            }
+        }
+
+        return ts;
+    }
+
+    /**
+     * Breadth-first search from a vertex.
+     * @param v the start vertex.
+     * @param cc the array to store the connected component id of vertices.
+     * @param id the current component id.
+     * @param visitor the visitor, may be null.
+     * @param queue the queue buffer.
+     */
+    private void bfs(int v, int[] cc, int id, Visitor visitor, int[] queue) {
+        if (visitor != null) visitor.visit(v);
+        cc[v] = id;
+        int head = 0, tail = 0;
+        queue[tail++] = v;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int k = offset[u]; k < offset[u + 1]; k++) {
+                int t = target[k];
+                if (cc[t] == -1) {
+                    if (visitor != null) visitor.visit(t);
+                    cc[t] = id;
+                    queue[tail++] = t;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int[][] bfs() {
+        int[] cc = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(cc, -1);
+
+        int id = 0;
+        for (int i = 0; i < n; i++) {
+            if (cc[i] == -1) {
+                bfs(i, cc, id++, null, queue);
+            }
+        }
+
+        return components(cc, id);
+    }
+
+    @Override
+    public void bfs(Visitor visitor) {
+        int[] cc = new int[n];
+        int[] queue = new int[n];
+        Arrays.fill(cc, -1);
+
+        int id = 0;
+        for (int i = 0; i < n; i++) {
+            if (cc[i] == -1) {
+                bfs(i, cc, id++, visitor, queue);
+            }
+        }
+    }
+
+    /**
+     * Level synchronous parallel breadth-first search from a vertex.
+     * The vertices of each level are expanded in parallel, and the
+     * unvisited neighbors are claimed by atomic compare-and-set.
+     *
+     * @param source the source vertex.
+     * @return the number of edges (hops) of the shortest path from the
+     * source to each vertex, or -1 if the vertex is not reachable.
+     */
+    public int[] bfs(int source) {
+        AtomicIntegerArray hops = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            hops.set(i, -1);
+        }
+
+        hops.set(source, 0);
+        int[] frontier = {source};
+        for (int level = 1; frontier.length > 0; level++) {
+            final int depth = level;
+            IntStream stream = IntStream.of(frontier);
+            if (frontier.length >= PARALLEL_FRONTIER) stream = stream.parallel();
+            frontier = stream.flatMap(u -> {
+                IntStream.Builder next = IntStream.builder();
+                for (int k = offset[u]; k < offset[u + 1]; k++) {
+                    int t = target[k];
+                    if (hops.get(t) == -1 && hops.compareAndSet(t, -1, depth)) {
+                        next.add(t);
+                    }
+                }
+                return next.build();
+            }).toArray();
+        }
+
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = hops.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public double[] dijkstra(int s) {
+        double[] wt = new double[n];
+        Arrays.fill(wt, Double.POSITIVE_INFINITY);
+
+        PriorityQueue queue = new PriorityQueue(wt);
+        for (int v = 0; v < n; v++) {
+            queue.insert(v);
+        }
+
+        wt[s] = 0.0;
+        queue.lower(s);
+
+        while (!queue.empty()) {
+            int v = queue.poll();
+            if (Double.isInfinite(wt[v])) break;
+
+            for (int k = offset[v]; k < offset[v + 1]; k++) {
+                int w = target[k];
+                double p = wt[v] + weight[k];
+                if (p < wt[w]) {
+                    wt[w] = p;
+                    queue.lower(w);
+                }
+            }
+        }
+
+        return wt;
+    }
+
+    /**
+     * Calculates the shortest path from a source to all other vertices
+     * by the delta-stepping algorithm, which relaxes the edges of
+     * vertices in the same distance bucket in parallel. The edges are
+     * light if their weights are not greater than delta, otherwise heavy.
+     * A small delta leads to many buckets with little parallelism, and a
+     * large one leads to many redundant relaxations. The average edge
+     * weight is usually a good choice for graphs of bounded degree. The
+     * weights of edges must be non-negative.
+     *
+     * @param s the source vertex.
+     * @param delta the width of distance buckets.
+     * @return the length of shortest path to other vertices.
+     */
+    public double[] deltaStepping(int s, double delta) {
+        if (delta <= 0.0) {
+            throw new IllegalArgumentException("Invalid delta: " + delta);
+        }
+
+        // The distances are stored as the bits of doubles for atomic updates.
+        AtomicLongArray dist = new AtomicLongArray(n);
+        long inf = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            dist.set(i, inf);
+        }
+        dist.set(s, Double.doubleToLongBits(0.0));
+
+        TreeMap<Long, IntArrayList> buckets = new TreeMap<>();
+        buckets.put(0L, new IntArrayList(new int[]{s}));
+        // The last pass and bucket that a vertex was processed in,
+        // to remove the duplicates.
+        int[] pass = new int[n];
+        long[] settled = new long[n];
+        Arrays.fill(pass, -1);
+        Arrays.fill(settled, -1);
+
+        for (int p = 0; !buckets.isEmpty(); ) {
+            long i = buckets.firstKey();
+            IntArrayList removed = new IntArrayList();
+            // A vertex may be reinserted into the current bucket
+            // by light edges, which is relaxed again.
+            for (; buckets.containsKey(i); p++) {
+                // The stale entries are moved to other buckets.
+                IntArrayList bucket = buckets.remove(i);
+                IntArrayList frontier = new IntArrayList(bucket.size());
+                for (int k = 0; k < bucket.size(); k++) {
+                    int v = bucket.get(k);
+                    if (pass[v] != p && bucket(dist, v, delta) == i) {
+                        pass[v] = p;
+                        frontier.add(v);
+                        if (settled[v] != i) {
+                            settled[v] = i;
+                            removed.add(v);
+                        }
+                    }
+                }
+
+                relax(frontier.toArray(), dist, delta, true, buckets);
+            }
+
+            relax(removed.toArray(), dist, delta, false, buckets);
+        }
+
+        double[] wt = new double[n];
+        for (int v = 0; v < n; v++) {
+            wt[v] = Double.longBitsToDouble(dist.get(v));
+        }
+        return wt;
+    }
+
+    /** Returns the bucket index of a vertex by its tentative distance. */
+    private static long bucket(AtomicLongArray dist, int v, double delta) {
+        return (long) Math.floor(Double.longBitsToDouble(dist.get(v)) / delta);
+    }
+
+    /**
+     * Relaxes the light or heavy edges of vertices in parallel and
+     * adds the updated vertices to the buckets.
+     */
+    private void relax(int[] vertices, AtomicLongArray dist, double delta, boolean light, TreeMap<Long, IntArrayList> buckets) {
+        IntStream stream = IntStream.of(vertices);
+        if (vertices.length >= PARALLEL_FRONTIER) stream = stream.parallel();
+        int[] updated = stream.flatMap(v -> {
+            IntStream.Builder builder = IntStream.builder();
+            double dv = Double.longBitsToDouble(dist.get(v));
+            for (int k = offset[v]; k < offset[v + 1]; k++) {
+                double w = weight[k];
+                if ((w <= delta) != light) continue;
+
+                int t = target[k];
+                double p = dv + w;
+                long current = dist.get(t);
+                while (p < Double.longBitsToDouble(current)) {
+                    if (dist.compareAndSet(t, current, Double.doubleToLongBits(p))) {
+                        builder.add(t);
+                        break;
+                    }
+                    current = dist.get(t);
+                }
+            }
+            return builder.build();
+        }).toArray();
+
+        for (int t : updated) {
+            long i = bucket(dist, t, delta);
+            buckets.computeIfAbsent(i, key -> new IntArrayList()).add(t);
+        }
+    }
+
+    @Override
+    public CSRGraph subgraph(int[] vertices) {
+        int[] v = vertices.clone();
+        Arrays.sort(v);
+
+        int[] index = new int[n];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < v.length; i++) {
+            index[v[i]] = i;
+        }
+
+        int m = v.length;
+        int[] offset = new int[m + 1];
+        for (int i = 0; i < m; i++) {
+            int count = 0;
+            for (int k = this.offset[v[i]]; k < this.offset[v[i] + 1]; k++) {
+                if (index[target[k]] >= 0) count++;
+            }
+            offset[i + 1] = offset[i] + count;
+        }
+
+        int[] target = new int[offset[m]];
+        double[] weight = new double[offset[m]];
+        for (int i = 0, j = 0; i < m; i++) {
+            for (int k = this.offset[v[i]]; k < this.offset[v[i] + 1]; k++) {
+                int t = index[this.target[k]];
+                if (t >= 0) {
+                    target[j] = t;
+                    weight[j++] = this.weight[k];
+                }
+            }
+        }
+
+        // The targets are still sorted as the relabeling is monotonic.
+        return new CSRGraph(digraph, offset, target, weight);
+    }
+
+    @Override
+    public SparseMatrix toMatrix() {
+        // The CSR arrays are the CSC arrays of the transpose.
+        return new SparseMatrix(n, n, weight.clone(), target.clone(), offset.clone()).transpose();
+    }
+}
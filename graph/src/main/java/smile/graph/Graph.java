@@ -18,6 +18,7 @@
 package smile.graph;
 
 import java.util.Collection;
+import java.util.stream.IntStream;
 import smile.math.matrix.DMatrix;
 
 /**
@@ -69,6 +70,24 @@ public interface Graph {
      */
     int getNumVertices();
 
+    /**
+     * Returns true if the graph is directed. The default implementation
+     * returns false if and only if every edge has a reverse edge of same
+     * weight, i.e. the graph can be treated as an undirected one.
+     */
+    default boolean isDigraph() {
+        int n = getNumVertices();
+        for (int i = 0; i < n; i++) {
+            for (Edge edge : getEdges(i)) {
+                int j = edge.v1 == i ? edge.v2 : edge.v1;
+                if (!hasEdge(j, i) || getWeight(j, i) != edge.weight) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns <tt>true</tt> if and only if this graph contains an edge going
      * from the source vertex to the target vertex. In undirected graphs the
@@ -276,16 +295,15 @@ public interface Graph {
 
     /**
      * Calculates the all pair shortest path by Dijkstra algorithm.
+     * The single source shortest paths are computed in parallel.
      *
      * @return the length of shortest path between vertices.
      */
     default double[][] dijkstra() {
         int n = getNumVertices();
-        double[][] wt = new double[n][];
-        for (int i = 0; i < n; i++) {
-            wt[i] = dijkstra(i);
-        }
-        return wt;
+        return IntStream.range(0, n).parallel()
+                .mapToObj(this::dijkstra)
+                .toArray(double[][]::new);
     }
 
     /**
@@ -42,6 +42,12 @@
  * <i>Adjacency list</i> Much like the incidence list, each vertex has a list
  * of which vertices it is adjacent to. This causes redundancy in an undirected
  * graph. Adjacency queries are faster, at the cost of extra storage space.
+ * <p>
+ * <i>Compressed sparse row</i> The adjacency lists of all vertices are
+ * concatenated into flat arrays of target vertices and weights, with
+ * an offset array pointing to the first edge of each vertex. It is
+ * compact and cache friendly. The edges cannot be added or removed
+ * but their weights can be updated.
  * </dd>
  * <dt>Matrix structures</dt>
  * <dd>
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.graph;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import smile.math.MathEx;
+import smile.math.matrix.SparseMatrix;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class CSRGraphTest {
+
+    public CSRGraphTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /** Returns the digraph of topological sort tests. */
+    private CSRGraph dag() {
+        int[] source = {8, 7, 0, 0, 0, 0, 0, 2, 3, 3, 6, 6, 4, 9, 9, 9, 11};
+        int[] target = {7, 6, 1, 2, 3, 5, 6, 3, 4, 5, 4, 9, 9, 10, 11, 12, 12};
+        return new CSRGraph(13, true, source, target, null);
+    }
+
+    /** Returns a random undirected graph with random weights. */
+    private AdjacencyList random(int n, int m) {
+        AdjacencyList graph = new AdjacencyList(n, false);
+        for (int e = 0; e < m; e++) {
+            graph.addEdge(MathEx.randomInt(n), MathEx.randomInt(n), MathEx.random());
+        }
+        return graph;
+    }
+
+    @Test
+    public void testEdges() {
+        System.out.println("edges");
+        int[] source = {0, 1, 7, 3, 3, 5, 2};
+        int[] target = {2, 7, 4, 4, 5, 4, 6};
+        double[] weight = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7};
+
+        CSRGraph graph = new CSRGraph(8, false, source, target, weight);
+        assertFalse(graph.isDigraph());
+        assertEquals(14, graph.getNumEdges());
+        assertEquals(7, graph.getEdges().size());
+        assertArrayEquals(new int[]{3, 5, 7}, graph.getNeighbors(4));
+        assertEquals(3, graph.getDegree(4));
+        assertEquals(0.3, graph.getWeight(4, 7), 1E-10);
+        assertEquals(0.3, graph.getWeight(7, 4), 1E-10);
+        assertEquals(0.0, graph.getWeight(4, 6), 1E-10);
+        assertTrue(graph.hasEdge(6, 2));
+        assertFalse(graph.hasEdge(6, 0));
+
+        graph.setWeight(4, 7, 0.9);
+        assertEquals(0.9, graph.getWeight(7, 4), 1E-10);
+        assertEquals(0.9, graph.getEdge(7, 4).weight, 1E-10);
+
+        try {
+            graph.addEdge(0, 1);
+            fail("CSRGraph cannot add edges");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+
+        CSRGraph digraph = new CSRGraph(8, true, source, target, weight);
+        assertEquals(7, digraph.getNumEdges());
+        assertEquals(3, digraph.getIndegree(4));
+        assertEquals(0, digraph.getOutdegree(4));
+        assertEquals(0.0, digraph.getWeight(4, 7), 1E-10);
+    }
+
+    @Test
+    public void testOf() {
+        System.out.println("of");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        AdjacencyList graph = random(100, 300);
+        CSRGraph csr = CSRGraph.of(graph);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(graph.getDegree(i), csr.getDegree(i));
+            for (int j = 0; j < 100; j++) {
+                assertEquals(graph.hasEdge(i, j), csr.hasEdge(i, j));
+            }
+        }
+
+        SparseMatrix A = graph.toMatrix();
+        SparseMatrix B = csr.toMatrix();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 100; j++) {
+                assertEquals(A.get(i, j), B.get(i, j), 1E-10);
+            }
+        }
+
+        int[] v = {1, 3, 7, 20, 50, 51, 99};
+        AdjacencyList sub = graph.subgraph(v);
+        CSRGraph csub = csr.subgraph(v);
+        for (int i = 0; i < v.length; i++) {
+            for (int j = 0; j < v.length; j++) {
+                assertEquals(sub.hasEdge(i, j), csub.hasEdge(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testDfs() {
+        System.out.println("dfs");
+        int[] ts = {1, 10, 12, 11, 9, 4, 5, 3, 2, 6, 0, 7, 8};
+        assertArrayEquals(ts, dag().sortdfs());
+
+        int[] source = {0, 1, 2, 7, 3, 3, 5};
+        int[] target = {2, 7, 6, 4, 4, 5, 4};
+        CSRGraph graph = new CSRGraph(8, false, source, target, null);
+        int[][] cc = {{0, 2, 6}, {1, 3, 4, 5, 7}};
+        assertTrue(Arrays.deepEquals(cc, graph.dfs()));
+        assertTrue(Arrays.deepEquals(cc, graph.bfs()));
+    }
+
+    @Test
+    public void testBfs() {
+        System.out.println("bfs");
+        int[] ts = {0, 8, 1, 2, 7, 3, 6, 5, 4, 9, 10, 11, 12};
+        assertArrayEquals(ts, dag().sortbfs());
+
+        int[] hops = {0, 1, 1, 1, 2, 1, 1, -1, -1, 2, 3, 3, 3};
+        assertArrayEquals(hops, dag().bfs(0));
+
+        MathEx.setSeed(19650218); // to get repeatable results.
+        CSRGraph graph = CSRGraph.of(random(20000, 60000));
+        int[] level = graph.bfs(0);
+        double[] wt = CSRGraph.of(unweighted(graph)).dijkstra(0);
+        for (int i = 0; i < level.length; i++) {
+            assertEquals(Double.isInfinite(wt[i]) ? -1 : (int) wt[i], level[i]);
+        }
+    }
+
+    /** Returns the graph of unit weights. */
+    private CSRGraph unweighted(CSRGraph graph) {
+        int n = graph.getNumVertices();
+        int m = graph.getEdges().size();
+        int[] source = new int[m];
+        int[] target = new int[m];
+        int k = 0;
+        for (Graph.Edge edge : graph.getEdges()) {
+            source[k] = edge.v1;
+            target[k++] = edge.v2;
+        }
+        return new CSRGraph(n, graph.isDigraph(), source, target, null);
+    }
+
+    @Test
+    public void testDijkstra() {
+        System.out.println("Dijkstra");
+        double[][] wt = {
+            {0.00, 0.41, 0.82, 0.86, 0.50, 0.29},
+            {1.13, 0.00, 0.51, 0.68, 0.32, 1.06},
+            {0.95, 1.17, 0.00, 0.50, 1.09, 0.88},
+            {0.45, 0.67, 0.91, 0.00, 0.59, 0.38},
+            {0.81, 1.03, 0.32, 0.36, 0.00, 0.74},
+            {1.02, 0.29, 0.53, 0.57, 0.21, 0.00},
+        };
+
+        int[] source = {0, 1, 2, 4, 3, 3, 0, 5, 1, 4, 5};
+        int[] target = {1, 2, 3, 3, 5, 0, 5, 4, 4, 2, 1};
+        double[] weight = {0.41, 0.51, 0.50, 0.36, 0.38, 0.45, 0.29, 0.21, 0.32, 0.32, 0.29};
+        CSRGraph graph = new CSRGraph(6, true, source, target, weight);
+
+        assertTrue(MathEx.equals(wt, graph.dijkstra()));
+        for (int i = 0; i < 6; i++) {
+            assertArrayEquals(wt[i], graph.deltaStepping(i, 0.3), 1E-10);
+        }
+    }
+
+    @Test
+    public void testDeltaStepping() {
+        System.out.println("delta-stepping");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        AdjacencyList graph = random(20000, 80000);
+        CSRGraph csr = CSRGraph.of(graph);
+
+        double[] wt = graph.dijkstra(0);
+        assertArrayEquals(wt, csr.dijkstra(0), 1E-10);
+        for (double delta : new double[]{0.05, 0.5, 5.0}) {
+            long start = System.currentTimeMillis();
+            double[] wt2 = csr.deltaStepping(0, delta);
+            System.out.format("Delta-stepping with delta = %.2f: %d ms%n", delta, System.currentTimeMillis() - start);
+            assertArrayEquals(wt, wt2, 1E-10);
+        }
+    }
+}
@@ -20,21 +20,44 @@ package smile.io;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.*;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import io.netty.buffer.ArrowBuf;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.OwnershipTransferResult;
+import org.apache.arrow.memory.ReferenceManager;
 import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.memory.util.MemoryUtil;
 import org.apache.arrow.vector.*;
 import org.apache.arrow.vector.dictionary.DictionaryProvider;
 import org.apache.arrow.vector.ipc.ArrowStreamReader;
 import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.ipc.message.MessageMetadataResult;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
 import org.apache.arrow.vector.types.DateUnit;
 import org.apache.arrow.vector.types.FloatingPointPrecision;
 import org.apache.arrow.vector.types.TimeUnit;
@@ -122,11 +145,45 @@ public class Arrow {
     }
 
     /**
-     * Reads an arrow file.
+     * Reads a limited number of records from an arrow file. The file is
+     * memory-mapped and the columns of primitive types that are not
+     * nullable are views of the mapped memory without copying. If the
+     * file has multiple record batches, they are concatenated into one
+     * data frame on the heap. Use {@link #stream(Path)} to process the
+     * record batches without copying.
+     *
      * @param path an Apache Arrow file path.
+     * @param limit reads a limited number of records.
      */
     public DataFrame read(Path path, int limit) throws IOException {
-        return read(Files.newInputStream(path), limit);
+        try (BatchReader reader = new BatchReader(path, limit)) {
+            List<DataFrame> frames = new ArrayList<>();
+            while (reader.hasNext()) {
+                frames.add(reader.next());
+            }
+            return union(frames);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Returns the stream of record batches in an arrow file. The file is
+     * memory-mapped and the columns of primitive types that are not
+     * nullable are views of the mapped memory without copying. The
+     * mapped memory is valid as long as the data frames are reachable,
+     * even after the stream is closed. The stream should be closed
+     * to release the file handle, e.g. in a try-with-resources statement.
+     * Both the IPC streaming format and the IPC file format are supported.
+     * Each record batch must be less than 2 GB.
+     *
+     * @param path an Apache Arrow file path.
+     * @return the stream of data frames, one per record batch.
+     */
+    public Stream<DataFrame> stream(Path path) throws IOException {
+        BatchReader reader = new BatchReader(path, Integer.MAX_VALUE);
+        Spliterator<DataFrame> spliterator = Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(reader::close);
     }
 
     /**
@@ -162,90 +219,353 @@ public class Arrow {
             VectorSchemaRoot root = reader.getVectorSchemaRoot();
             List<DataFrame> frames = new ArrayList<>();
             int size = 0;
-            while (reader.loadNextBatch() && size < limit) {
+            while (size < limit && reader.loadNextBatch()) {
+                List<FieldVector> fieldVectors = root.getFieldVectors();
+                logger.info("read {} rows and {} columns", root.getRowCount(), fieldVectors.size());
+
+                int count = Math.min(root.getRowCount(), limit - size);
+                smile.data.vector.BaseVector[] vectors = new smile.data.vector.BaseVector[fieldVectors.size()];
+                for (int j = 0; j < fieldVectors.size(); j++) {
+                    vectors[j] = readField(fieldVectors.get(j), count);
+                }
+
+                frames.add(DataFrame.of(vectors));
+                size += count;
+            }
+
+            return union(frames);
+        }
+    }
+
+    /** Returns the union of record batches. */
+    private static DataFrame union(List<DataFrame> frames) {
+        if (frames.isEmpty()) {
+            throw new IllegalStateException("No record batch");
+        } else if (frames.size() == 1) {
+            return frames.get(0);
+        } else {
+            DataFrame df = frames.get(0);
+            return df.union(frames.subList(1, frames.size()).toArray(new DataFrame[frames.size() - 1]));
+        }
+    }
+
+    /**
+     * The memory of a memory-mapped record batch. The arrow buffers
+     * address the mapped memory directly and are never released by
+     * arrow. The mapping is alive as long as the mapped byte buffer
+     * or its views are reachable.
+     */
+    private static class MappedMemory implements ReferenceManager {
+        /** The allocator of vectors. */
+        private final BufferAllocator allocator;
+
+        /** Constructor. */
+        MappedMemory(BufferAllocator allocator) {
+            this.allocator = allocator;
+        }
+
+        @Override
+        public int getRefCount() {
+            return 1;
+        }
+
+        @Override
+        public boolean release() {
+            return false;
+        }
+
+        @Override
+        public boolean release(int decrement) {
+            return false;
+        }
+
+        @Override
+        public void retain() {
+
+        }
+
+        @Override
+        public void retain(int increment) {
+
+        }
+
+        @Override
+        public ArrowBuf retain(ArrowBuf buffer, BufferAllocator allocator) {
+            return buffer;
+        }
+
+        @Override
+        public ArrowBuf deriveBuffer(ArrowBuf buffer, long index, long length) {
+            return new ArrowBuf(this, null, length, buffer.memoryAddress() + index, false);
+        }
+
+        @Override
+        public OwnershipTransferResult transferOwnership(ArrowBuf buffer, BufferAllocator allocator) {
+            return new OwnershipTransferResult() {
+                @Override
+                public boolean getAllocationFit() {
+                    return true;
+                }
+
+                @Override
+                public ArrowBuf getTransferredBuffer() {
+                    return buffer;
+                }
+            };
+        }
+
+        @Override
+        public BufferAllocator getAllocator() {
+            return allocator;
+        }
+
+        @Override
+        public long getSize() {
+            return 0;
+        }
+
+        @Override
+        public long getAccountedSize() {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads the record batches of a memory-mapped arrow file.
+     * The message metadata is read from the file channel while
+     * the message bodies are memory-mapped.
+     */
+    private class BatchReader implements Iterator<DataFrame>, AutoCloseable {
+        /** The file channel. */
+        private final FileChannel channel;
+        /** The channel to read message metadata. */
+        private final ReadChannel input;
+        /** The arrow schema. */
+        private final Schema schema;
+        /** The maximum number of records to read. */
+        private final int limit;
+        /** The number of records read. */
+        private int size = 0;
+        /** The next record batch. */
+        private DataFrame next;
+
+        /** Constructor. */
+        BatchReader(Path path, int limit) throws IOException {
+            if (allocator == null) {
+                allocate(Long.MAX_VALUE);
+            }
+
+            this.limit = limit;
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                // The IPC file format starts with the magic string "ARROW1"
+                // padded to 8 bytes, followed by the streaming format.
+                ByteBuffer magic = ByteBuffer.allocate(8);
+                channel.read(magic, 0);
+                if (magic.position() == 8 && new String(magic.array(), 0, 6, StandardCharsets.US_ASCII).equals("ARROW1")) {
+                    channel.position(8);
+                }
+
+                input = new ReadChannel(channel);
+                MessageMetadataResult message = MessageSerializer.readMessage(input);
+                if (message == null || message.getMessage().headerType() != MessageHeader.Schema) {
+                    throw new IOException("Arrow schema is missing: " + path);
+                }
+                schema = MessageSerializer.deserializeSchema(message);
+                next = readNextBatch();
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public DataFrame next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            DataFrame batch = next;
+            try {
+                next = readNextBatch();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return batch;
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /** Returns the next record batch or null at the end of stream. */
+        private DataFrame readNextBatch() throws IOException {
+            while (size < limit) {
+                MessageMetadataResult message = MessageSerializer.readMessage(input);
+                if (message == null) {
+                    return null;
+                }
+
+                long position = channel.position();
+                long length = message.getMessageBodyLength();
+                channel.position(position + length);
+
+                switch (message.getMessage().headerType()) {
+                    case MessageHeader.RecordBatch:
+                        return readBatch(message, channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+                    case MessageHeader.DictionaryBatch:
+                        throw new UnsupportedOperationException("Dictionary encoded columns are not supported");
+                    default:
+                        logger.debug("Skip arrow message of type {}", message.getMessage().headerType());
+                }
+            }
+
+            return null;
+        }
+
+        /** Reads a record batch of which the body is memory-mapped. */
+        private DataFrame readBatch(MessageMetadataResult message, MappedByteBuffer body) throws IOException {
+            long address = MemoryUtil.getByteBufferAddress(body);
+            ArrowBuf buffer = new ArrowBuf(new MappedMemory(allocator), null, body.capacity(), address, false);
+
+            try (ArrowRecordBatch batch = MessageSerializer.deserializeRecordBatch(message, buffer);
+                 VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator)) {
+                new VectorLoader(root).load(batch);
+
                 List<FieldVector> fieldVectors = root.getFieldVectors();
                 logger.info("read {} rows and {} columns", root.getRowCount(), fieldVectors.size());
 
+                int count = Math.min(root.getRowCount(), limit - size);
                 smile.data.vector.BaseVector[] vectors = new smile.data.vector.BaseVector[fieldVectors.size()];
                 for (int j = 0; j < fieldVectors.size(); j++) {
                     FieldVector fieldVector = fieldVectors.get(j);
-                    ArrowType type = fieldVector.getField().getType();
-                    switch (type.getTypeID()) {
-                        case Int:
-                            ArrowType.Int itype = (ArrowType.Int) type;
-                            int bitWidth = itype.getBitWidth();
-                            switch (bitWidth) {
-                                case 8:
-                                    vectors[j] = readByteField(fieldVector);
-                                    break;
-                                case 16:
-                                    if (itype.getIsSigned())
-                                        vectors[j] = readShortField(fieldVector);
-                                    else
-                                        vectors[j] = readCharField(fieldVector);
-                                    break;
-                                case 32:
-                                    vectors[j] = readIntField(fieldVector);
-                                    break;
-                                case 64:
-                                    vectors[j] = readLongField(fieldVector);
-                                    break;
-                                default:
-                                    throw new UnsupportedOperationException("Unsupported integer bit width: " + bitWidth);
-                            }
-                            break;
-                        case FloatingPoint:
-                            FloatingPointPrecision precision = ((ArrowType.FloatingPoint) type).getPrecision();
-                            switch (precision) {
-                                case DOUBLE:
-                                    vectors[j] = readDoubleField(fieldVector);
-                                    break;
-                                case SINGLE:
-                                    vectors[j] = readFloatField(fieldVector);
-                                    break;
-                                case HALF:
-                                    throw new UnsupportedOperationException("Unsupported float precision: " + precision);
-                            }
-                            break;
-                        case Decimal:
-                            vectors[j] = readDecimalField(fieldVector);
-                            break;
-                        case Bool:
-                            vectors[j] = readBitField(fieldVector);
-                            break;
-                        case Date:
-                            vectors[j] = readDateField(fieldVector);
-                            break;
-                        case Time:
-                            vectors[j] = readTimeField(fieldVector);
-                            break;
-                        case Timestamp:
-                            vectors[j] = readDateTimeField(fieldVector);
-                            break;
-                        case Binary:
-                        case FixedSizeBinary:
-                            vectors[j] = readByteArrayField(fieldVector);
-                            break;
-                        case Utf8:
-                            vectors[j] = readStringField(fieldVector);
-                            break;
-                        default: throw new UnsupportedOperationException("Unsupported column type: " + fieldVector.getMinorType());
+                    vectors[j] = view(fieldVector, body, address, count);
+                    if (vectors[j] == null) {
+                        vectors[j] = readField(fieldVector, count);
                     }
                 }
 
-                DataFrame frame = DataFrame.of(vectors);
-                frames.add(frame);
-                size += frames.size();
+                size += count;
+                return DataFrame.of(vectors);
             }
+        }
+    }
 
-            if (frames.isEmpty()) {
-                throw new IllegalStateException("No record batch");
-            } else if (frames.size() == 1) {
-                return frames.get(0);
-            } else {
-                DataFrame df = frames.get(0);
-                return df.union(frames.subList(1, frames.size()).toArray(new DataFrame[frames.size() - 1]));
-            }
+    /**
+     * Returns the view of a memory-mapped column of primitive type
+     * that is not nullable, or null if the column has to be copied.
+     * @param fieldVector the arrow vector.
+     * @param body the mapped memory of record batch.
+     * @param address the address of mapped memory.
+     * @param count the number of rows.
+     */
+    private static smile.data.vector.BaseVector view(FieldVector fieldVector, ByteBuffer body, long address, int count) {
+        Field field = fieldVector.getField();
+        if (field.isNullable()) {
+            return null;
+        }
+
+        ArrowType type = field.getType();
+        int width;
+        switch (type.getTypeID()) {
+            case Int:
+                width = ((ArrowType.Int) type).getBitWidth() / 8;
+                break;
+            case FloatingPoint:
+                FloatingPointPrecision precision = ((ArrowType.FloatingPoint) type).getPrecision();
+                if (precision == FloatingPointPrecision.HALF) return null;
+                width = precision == DOUBLE ? 8 : 4;
+                break;
+            default:
+                return null;
+        }
+
+        // Arrow buffers are little-endian.
+        int offset = (int) (fieldVector.getDataBuffer().memoryAddress() - address);
+        ByteBuffer data = body.duplicate();
+        data.position(offset);
+        data.limit(offset + count * width);
+        data = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        String name = field.getName();
+        switch (type.getTypeID()) {
+            case Int:
+                ArrowType.Int itype = (ArrowType.Int) type;
+                switch (width) {
+                    case 1: return smile.data.vector.ByteVector.of(new StructField(name, DataTypes.ByteType), data);
+                    case 2: return itype.getIsSigned() ?
+                            smile.data.vector.ShortVector.of(new StructField(name, DataTypes.ShortType), data.asShortBuffer()) :
+                            smile.data.vector.CharVector.of(new StructField(name, DataTypes.CharType), data.asCharBuffer());
+                    case 4: return smile.data.vector.IntVector.of(new StructField(name, DataTypes.IntegerType), data.asIntBuffer());
+                    case 8: return smile.data.vector.LongVector.of(new StructField(name, DataTypes.LongType), data.asLongBuffer());
+                    default: throw new UnsupportedOperationException("Unsupported integer bit width: " + itype.getBitWidth());
+                }
+            default:
+                return width == 8 ?
+                        smile.data.vector.DoubleVector.of(new StructField(name, DataTypes.DoubleType), data.asDoubleBuffer()) :
+                        smile.data.vector.FloatVector.of(new StructField(name, DataTypes.FloatType), data.asFloatBuffer());
+        }
+    }
+
+    /** Reads the first count rows of a column. */
+    private smile.data.vector.BaseVector readField(FieldVector fieldVector, int count) {
+        ArrowType type = fieldVector.getField().getType();
+        switch (type.getTypeID()) {
+            case Int:
+                ArrowType.Int itype = (ArrowType.Int) type;
+                int bitWidth = itype.getBitWidth();
+                switch (bitWidth) {
+                    case 8:
+                        return readByteField(fieldVector, count);
+                    case 16:
+                        if (itype.getIsSigned())
+                            return readShortField(fieldVector, count);
+                        else
+                            return readCharField(fieldVector, count);
+                    case 32:
+                        return readIntField(fieldVector, count);
+                    case 64:
+                        return readLongField(fieldVector, count);
+                    default:
+                        throw new UnsupportedOperationException("Unsupported integer bit width: " + bitWidth);
+                }
+            case FloatingPoint:
+                FloatingPointPrecision precision = ((ArrowType.FloatingPoint) type).getPrecision();
+                switch (precision) {
+                    case DOUBLE:
+                        return readDoubleField(fieldVector, count);
+                    case SINGLE:
+                        return readFloatField(fieldVector, count);
+                    default:
+                        throw new UnsupportedOperationException("Unsupported float precision: " + precision);
+                }
+            case Decimal:
+                return readDecimalField(fieldVector, count);
+            case Bool:
+                return readBitField(fieldVector, count);
+            case Date:
+                return readDateField(fieldVector, count);
+            case Time:
+                return readTimeField(fieldVector, count);
+            case Timestamp:
+                return readDateTimeField(fieldVector, count);
+            case Binary:
+            case FixedSizeBinary:
+                return readByteArrayField(fieldVector, count);
+            case Utf8:
+                return readStringField(fieldVector, count);
+            default:
+                throw new UnsupportedOperationException("Unsupported column type: " + fieldVector.getMinorType());
         }
     }
 
@@ -376,8 +696,7 @@ public class Arrow {
     }
 
     /** Reads a boolean column. */
-    private smile.data.vector.BaseVector readBitField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readBitField(FieldVector fieldVector, int count) {
         BitVector vector = (BitVector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -401,8 +720,7 @@ public class Arrow {
     }
 
     /** Reads a byte column. */
-    private smile.data.vector.BaseVector readByteField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readByteField(FieldVector fieldVector, int count) {
         TinyIntVector vector = (TinyIntVector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -426,8 +744,7 @@ public class Arrow {
     }
 
     /** Reads a char column. */
-    private smile.data.vector.BaseVector readCharField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readCharField(FieldVector fieldVector, int count) {
         SmallIntVector vector = (SmallIntVector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -451,8 +768,7 @@ public class Arrow {
     }
 
     /** Reads a short column. */
-    private smile.data.vector.BaseVector readShortField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readShortField(FieldVector fieldVector, int count) {
         SmallIntVector vector = (SmallIntVector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -476,8 +792,7 @@ public class Arrow {
     }
 
     /** Reads an int column. */
-    private smile.data.vector.BaseVector readIntField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readIntField(FieldVector fieldVector, int count) {
         IntVector vector = (IntVector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -501,8 +816,7 @@ public class Arrow {
     }
 
     /** Reads a long column. */
-    private smile.data.vector.BaseVector readLongField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readLongField(FieldVector fieldVector, int count) {
         BigIntVector vector = (BigIntVector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -526,8 +840,7 @@ public class Arrow {
     }
 
     /** Reads a float column. */
-    private smile.data.vector.BaseVector readFloatField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readFloatField(FieldVector fieldVector, int count) {
         Float4Vector vector = (Float4Vector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -551,8 +864,7 @@ public class Arrow {
     }
 
     /** Reads a double column. */
-    private smile.data.vector.BaseVector readDoubleField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readDoubleField(FieldVector fieldVector, int count) {
         Float8Vector vector = (Float8Vector) fieldVector;
 
         if (!fieldVector.getField().isNullable()) {
@@ -576,8 +888,7 @@ public class Arrow {
     }
 
     /** Reads a decimal column. */
-    private smile.data.vector.BaseVector readDecimalField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readDecimalField(FieldVector fieldVector, int count) {
         BigDecimal[] a = new BigDecimal[count];
         DecimalVector vector = (DecimalVector) fieldVector;
         for (int i = 0; i < count; i++) {
@@ -588,8 +899,7 @@ public class Arrow {
     }
 
     /** Reads a date column. */
-    private smile.data.vector.BaseVector readDateField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readDateField(FieldVector fieldVector, int count) {
         LocalDate[] a = new LocalDate[count];
         ZoneOffset zone = OffsetDateTime.now().getOffset();
         if (fieldVector instanceof DateDayVector) {
@@ -608,8 +918,7 @@ public class Arrow {
     }
 
     /** Reads a time column. */
-    private smile.data.vector.BaseVector readTimeField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readTimeField(FieldVector fieldVector, int count) {
         LocalTime[] a = new LocalTime[count];
         if (fieldVector instanceof TimeNanoVector) {
             TimeNanoVector vector = (TimeNanoVector) fieldVector;
@@ -636,8 +945,7 @@ public class Arrow {
     }
 
     /** Reads a DateTime column. */
-    private smile.data.vector.BaseVector readDateTimeField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readDateTimeField(FieldVector fieldVector, int count) {
         LocalDateTime[] a = new LocalDateTime[count];
         TimeStampVector vector = (TimeStampVector) fieldVector;
         String timezone = ((ArrowType.Timestamp) fieldVector.getField().getType()).getTimezone();
@@ -664,8 +972,7 @@ public class Arrow {
     }
 
     /** Reads a byte[] column. */
-    private smile.data.vector.BaseVector readByteArrayField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readByteArrayField(FieldVector fieldVector, int count) {
         byte[][] a = new byte[count][];
         if (fieldVector instanceof VarBinaryVector) {
             VarBinaryVector vector = (VarBinaryVector) fieldVector;
@@ -691,15 +998,14 @@ public class Arrow {
     }
 
     /** Reads a String column. */
-    private smile.data.vector.BaseVector readStringField(FieldVector fieldVector) {
-        int count = fieldVector.getValueCount();
+    private smile.data.vector.BaseVector readStringField(FieldVector fieldVector, int count) {
         VarCharVector vector = (VarCharVector) fieldVector;
         String[] a = new String[count];
         for (int i = 0; i < count; i++) {
             if (vector.isNull(i))
                 a[i] = null;
             else
-                a[i] = new String(vector.get(i));
+                a[i] = new String(vector.get(i), StandardCharsets.UTF_8);
         }
 
         return smile.data.vector.Vector.of(fieldVector.getField().getName(), DataTypes.StringType, a);
@@ -727,7 +1033,7 @@ public class Arrow {
         IntVector vector = (IntVector) fieldVector;
         smile.data.vector.Vector<Integer> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Integer x = column.get(i);
+            Integer x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -761,7 +1067,7 @@ public class Arrow {
         BitVector vector = (BitVector) fieldVector;
         smile.data.vector.Vector<Boolean> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Boolean x = column.get(i);
+            Boolean x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -795,7 +1101,7 @@ public class Arrow {
         UInt2Vector vector = (UInt2Vector) fieldVector;
         smile.data.vector.Vector<Character> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Character x = column.get(i);
+            Character x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -829,7 +1135,7 @@ public class Arrow {
         TinyIntVector vector = (TinyIntVector) fieldVector;
         smile.data.vector.Vector<Byte> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Byte x = column.get(i);
+            Byte x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -863,7 +1169,7 @@ public class Arrow {
         SmallIntVector vector = (SmallIntVector) fieldVector;
         smile.data.vector.Vector<Short> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Short x = column.get(i);
+            Short x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -897,7 +1203,7 @@ public class Arrow {
         BigIntVector vector = (BigIntVector) fieldVector;
         smile.data.vector.Vector<Long> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Long x = column.get(i);
+            Long x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -931,7 +1237,7 @@ public class Arrow {
         Float4Vector vector  = (Float4Vector) fieldVector;
         smile.data.vector.Vector<Float> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Float x = column.get(i);
+            Float x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -965,7 +1271,7 @@ public class Arrow {
         Float8Vector vector  = (Float8Vector) fieldVector;
         smile.data.vector.Vector<Double> column = df.vector(fieldVector.getField().getName());
         for (int i = 0, j = from; i < count; i++, j++) {
-            Double x = column.get(i);
+            Double x = column.get(j);
             if (x == null) {
                 vector.setNull(i);
             } else {
@@ -19,16 +19,27 @@ package smile.io;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
@@ -39,14 +50,31 @@ import smile.data.type.DataType;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
 import smile.data.type.StructType;
+import smile.data.vector.BaseVector;
 
 /**
  * Reads and writes files in variations of the Comma Separated Value
  * (CSV) format.
+ * <p>
+ * A local file is split into chunks on line boundaries, which are parsed
+ * in parallel. The cells of numeric columns are parsed straight from the
+ * bytes into primitive arrays, and the column vectors are built in
+ * parallel too. The parallel parser requires an ASCII compatible charset
+ * (UTF-8, US-ASCII or ISO-8859-1) and a format without escape character
+ * and null string. It falls back to the sequential parser otherwise, or
+ * if a quoted field spans multiple lines.
+ * <p>
+ * For the data that do not fit in the memory, the file can be streamed
+ * as data frames of a given number of rows.
  *
  * @author Haifeng Li
  */
 public class CSV {
+    /** The minimum number of bytes of a chunk in parallel parsing. */
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    /** The maximum number of bytes of a chunk in parallel parsing. */
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+
     /** The schema of data structure. */
     private StructType schema;
     /** The CSV file format. */
@@ -130,35 +158,303 @@ public class CSV {
             schema = inferSchema(Files.newBufferedReader(path, charset), Math.min(1000, limit));
         }
 
+        if (limit == Integer.MAX_VALUE && isParallel()) {
+            DataFrame df = readParallel(path);
+            // null if a quoted field spans multiple lines.
+            if (df != null) return df;
+        }
+
         return read(Files.newBufferedReader(path, charset), limit);
     }
 
+    /**
+     * Streams a CSV file as data frames of a given number of rows,
+     * which allows processing the files larger than the memory.
+     * The stream should be closed after use to release the file.
+     * If the schema is not set, it is inferred from the top 1000 rows.
+     * A data frame has the boxed type for a primitive column if the
+     * column has missing values in its rows.
+     *
+     * @param path a CSV file path.
+     * @param batchSize the number of rows of each data frame.
+     * @return the stream of data frames.
+     */
+    public Stream<DataFrame> stream(Path path, int batchSize) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+
+        if (schema == null) {
+            // infer the schema from top 1000 rows.
+            schema = inferSchema(Files.newBufferedReader(path, charset), 1000);
+        }
+
+        StructType schema = this.schema;
+        CSVParser parser = CSVParser.parse(Files.newBufferedReader(path, charset), format);
+        Iterator<CSVRecord> records = parser.iterator();
+        Iterator<DataFrame> batches = new Iterator<DataFrame>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public DataFrame next() {
+                if (!records.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return read(records, schema, batchSize);
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        parser.close();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+
     private DataFrame read(Reader reader, int limit) throws IOException {
         if (schema == null) {
             // infer the schema from top 1000 rows.
             throw new IllegalStateException("The schema is not set or inferred.");
         }
 
+        try (CSVParser csv = CSVParser.parse(reader, format)) {
+            DataFrame df = read(csv.iterator(), schema, limit);
+            schema = df.schema();
+            return df;
+        }
+    }
+
+    /** Reads a limited number of records into a data frame. */
+    private static DataFrame read(Iterator<CSVRecord> records, StructType schema, int limit) {
         StructField[] fields = schema.fields();
-        List<Function<String, Object>> parser = schema.parser();
+        CSVColumn[] columns = new CSVColumn[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            columns[i] = CSVColumn.of(fields[i], Math.min(limit, 1024));
+        }
 
-        try (CSVParser csv = CSVParser.parse(reader, format)) {
-            List<Tuple> rows = new ArrayList<>();
-            for (CSVRecord record : csv) {
-                Object[] row = new Object[fields.length];
-                for (int i = 0; i < fields.length; i++) {
-                    String s = record.get(i).trim();
-                    if (!s.isEmpty()) {
-                        row[i] = parser.get(i).apply(s);
+        for (int n = 0; n < limit && records.hasNext(); n++) {
+            CSVRecord record = records.next();
+            for (int i = 0; i < fields.length; i++) {
+                columns[i].add(record.get(i).trim());
+            }
+        }
+
+        return DataFrame.of(Arrays.stream(columns).map(CSVColumn::toVector).toArray(BaseVector[]::new));
+    }
+
+    /** Returns true if the file can be parsed in parallel. */
+    private boolean isParallel() {
+        boolean ascii = charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+
+        char delimiter = format.getDelimiter();
+        Character quote = format.getQuoteCharacter();
+        Character comment = format.getCommentMarker();
+        return ascii && delimiter < 128 && delimiter != '\n' && delimiter != '\r'
+                && (quote == null || quote < 128)
+                && (comment == null || comment < 128)
+                && format.getEscapeCharacter() == null
+                && format.getNullString() == null
+                && format.getIgnoreEmptyLines();
+    }
+
+    /** Returns true if the first record is the header. */
+    private boolean hasHeader() {
+        String[] header = format.getHeader();
+        return header != null && (header.length == 0 || format.getSkipHeaderRecord());
+    }
+
+    /**
+     * Reads a file by parsing the chunks of lines in parallel.
+     * Returns null if a quoted field spans multiple lines.
+     */
+    private DataFrame readParallel(Path path) throws IOException {
+        CSVColumn[][] chunks;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = chunks(channel);
+            chunks = IntStream.range(0, bounds.length - 1).parallel().mapToObj(i -> {
+                try {
+                    int length = Math.toIntExact(bounds[i+1] - bounds[i]);
+                    ByteBuffer buffer = ByteBuffer.allocate(length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, bounds[i] + buffer.position()) < 0) {
+                            throw new IOException("Unexpected end of file: " + path);
+                        }
+                    }
+                    return parse(buffer.array(), 0, length);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }).toArray(CSVColumn[][]::new);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+
+        if (Arrays.stream(chunks).anyMatch(chunk -> chunk == null)) {
+            return null;
+        }
+
+        int p = schema.length();
+        BaseVector[] columns = IntStream.range(0, p).parallel()
+                .mapToObj(j -> CSVColumn.concat(Arrays.stream(chunks).map(chunk -> chunk[j]).collect(Collectors.toList())))
+                .toArray(BaseVector[]::new);
+
+        DataFrame df = DataFrame.of(columns);
+        schema = df.schema();
+        return df;
+    }
+
+    /**
+     * Returns the bounds of chunks, which are on the line boundaries.
+     * The header, if any, is excluded from the chunks.
+     */
+    private long[] chunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long start = 0;
+        if (hasHeader()) {
+            // skip the comments and empty lines before the header.
+            byte[] line;
+            do {
+                line = line(channel, start);
+                start += line.length;
+            } while (line.length > 0 && isBlank(line, 0, lineEnd(line, 0, line.length)));
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (size - start) / (4L * threads)));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        for (long pos = start + chunkSize; pos < size; pos += chunkSize) {
+            // the end of line at or after pos - 1.
+            pos = pos - 1 + line(channel, pos - 1).length;
+            if (pos >= size) break;
+            bounds.add(pos);
+        }
+        bounds.add(size);
+
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /** Returns the bytes of line at the position, including the line feed. */
+    private static byte[] line(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        byte[] line = new byte[0];
+        while (channel.read(buffer, position + line.length) > 0) {
+            byte[] bytes = buffer.array();
+            int length = buffer.position();
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] == '\n') {
+                    length = i + 1;
+                    break;
+                }
+            }
+
+            int offset = line.length;
+            line = Arrays.copyOf(line, offset + length);
+            System.arraycopy(bytes, 0, line, offset, length);
+            if (line[line.length - 1] == '\n') break;
+            buffer.clear();
+        }
+        return line;
+    }
+
+    /** Returns the end of line that starts at from, excluding the line terminator. */
+    private static int lineEnd(byte[] buf, int from, int to) {
+        int end = from;
+        while (end < to && buf[end] != '\n') end++;
+        return end > from && buf[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    /** Returns true if the line is empty or a comment. */
+    private boolean isBlank(byte[] buf, int from, int to) {
+        Character comment = format.getCommentMarker();
+        return from == to || (comment != null && buf[from] == comment);
+    }
+
+    /**
+     * Parses a chunk of lines into columns.
+     * Returns null if a quoted field spans multiple lines.
+     */
+    private CSVColumn[] parse(byte[] buf, int from, int to) throws IOException {
+        StructField[] fields = schema.fields();
+        int p = fields.length;
+        CSVColumn[] columns = new CSVColumn[p];
+        for (int j = 0; j < p; j++) {
+            columns[j] = CSVColumn.of(fields[j], (to - from) / (8 * p));
+        }
+
+        byte delimiter = (byte) format.getDelimiter();
+        Character quoteChar = format.getQuoteCharacter();
+        int quote = quoteChar == null ? -1 : quoteChar;
+
+        for (int start = from; start < to; ) {
+            int end = lineEnd(buf, start, to);
+            int next = end < to && buf[end] == '\r' ? end + 2 : end + 1;
+            if (isBlank(buf, start, end)) {
+                start = next;
+                continue;
+            }
+
+            int j = 0;
+            for (int i = start; ; i++) {
+                if (i < end && quote >= 0 && buf[i] == quote) {
+                    // quoted field, in which a doubled quote is an escaped quote.
+                    boolean escaped = false;
+                    int k = i + 1;
+                    while (k < end) {
+                        if (buf[k] == quote) {
+                            if (k + 1 < end && buf[k + 1] == quote) {
+                                escaped = true;
+                                k += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        k++;
+                    }
+
+                    if (k >= end) {
+                        return null;
+                    }
+
+                    if (j < p) {
+                        if (escaped) {
+                            String q = String.valueOf((char) quote);
+                            columns[j].add(new String(buf, i + 1, k - i - 1, charset).replace(q + q, q).trim());
+                        } else {
+                            columns[j].add(buf, i + 1, k, charset);
+                        }
                     }
+
+                    i = k + 1;
+                    while (i < end && buf[i] != delimiter) i++;
+                } else {
+                    int k = i;
+                    while (k < end && buf[k] != delimiter) k++;
+                    if (j < p) columns[j].add(buf, i, k, charset);
+                    i = k;
                 }
-                rows.add(Tuple.of(row, schema));
-                if (rows.size() >= limit) break;
+
+                j++;
+                if (i >= end) break;
             }
 
-            schema = schema.boxed(rows);
-            return DataFrame.of(rows, schema);
+            if (j < p) {
+                throw new IOException(String.format("Invalid number of fields: %d, expected: %d", j, p));
+            }
+
+            start = next;
         }
+
+        return columns;
     }
 
     /**
@@ -0,0 +1,615 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.io;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import smile.data.type.StructField;
+import smile.data.vector.*;
+
+/**
+ * The builder of a column of CSV data. The cells of int, long, float
+ * and double columns are parsed straight from the bytes of file into
+ * the primitive arrays without the allocation of String and boxed
+ * objects. The cells of other columns are parsed by the field.
+ *
+ * @author Haifeng Li
+ */
+abstract class CSVColumn {
+    /** The exact powers of ten in double. */
+    private static final double[] POW10 = {
+            1E0, 1E1, 1E2, 1E3, 1E4, 1E5, 1E6, 1E7, 1E8, 1E9, 1E10,
+            1E11, 1E12, 1E13, 1E14, 1E15, 1E16, 1E17, 1E18, 1E19, 1E20, 1E21, 1E22
+    };
+    /** The exact powers of ten in float. */
+    private static final float[] POW10F = {
+            1E0f, 1E1f, 1E2f, 1E3f, 1E4f, 1E5f, 1E6f, 1E7f, 1E8f, 1E9f, 1E10f
+    };
+
+    /** The field of column. */
+    final StructField field;
+    /** The number of cells. */
+    int size;
+    /** The flags of missing values, allocated on the first missing value. */
+    boolean[] missing;
+
+    /**
+     * Constructor.
+     * @param field the field of column.
+     */
+    CSVColumn(StructField field) {
+        this.field = field;
+    }
+
+    /**
+     * Returns the builder of a column.
+     * @param field the field of column.
+     * @param capacity the initial capacity.
+     */
+    static CSVColumn of(StructField field, int capacity) {
+        capacity = Math.max(capacity, 16);
+        if (field.measure == null) {
+            switch (field.type.id()) {
+                case Integer: return new IntColumn(field, capacity);
+                case Long: return new LongColumn(field, capacity);
+                case Float: return new FloatColumn(field, capacity);
+                case Double: return new DoubleColumn(field, capacity);
+            }
+        }
+        return new ObjectColumn(field, capacity);
+    }
+
+    /**
+     * Concatenates the columns of data chunks.
+     * @param chunks the columns of the same field.
+     * @return the column vector.
+     */
+    static BaseVector concat(List<CSVColumn> chunks) {
+        int n = chunks.stream().mapToInt(column -> column.size).sum();
+        CSVColumn column = of(chunks.get(0).field, n);
+        for (CSVColumn chunk : chunks) {
+            column.addAll(chunk);
+        }
+        return column.toVector();
+    }
+
+    /**
+     * Adds a cell.
+     * @param s the trimmed cell string, which may be empty for missing value.
+     */
+    void add(String s) {
+        if (s.isEmpty()) {
+            addNull();
+        } else {
+            grow();
+            set(s);
+            size++;
+        }
+    }
+
+    /**
+     * Adds a cell.
+     * @param buf the bytes of cell.
+     * @param from the inclusive index of first byte.
+     * @param to the exclusive index of last byte.
+     * @param charset the charset of bytes.
+     */
+    void add(byte[] buf, int from, int to, Charset charset) {
+        while (from < to && (buf[from] & 0xFF) <= ' ') from++;
+        while (to > from && (buf[to - 1] & 0xFF) <= ' ') to--;
+
+        if (from == to) {
+            addNull();
+        } else {
+            grow();
+            set(buf, from, to, charset);
+            size++;
+        }
+    }
+
+    /** Adds a missing value. */
+    void addNull() {
+        grow();
+        if (missing == null) {
+            missing = new boolean[capacity()];
+        }
+        missing[size++] = true;
+    }
+
+    /** Appends the cells of another column. */
+    void addAll(CSVColumn other) {
+        if (other.missing != null) {
+            if (missing == null) {
+                missing = new boolean[capacity()];
+            }
+            System.arraycopy(other.missing, 0, missing, size, other.size);
+        }
+        System.arraycopy(other.array(), 0, array(), size, other.size);
+        size += other.size;
+    }
+
+    /** Makes room for a new cell. */
+    private void grow() {
+        int capacity = capacity();
+        if (size == capacity) {
+            capacity = capacity + (capacity >> 1);
+            resize(capacity);
+            if (missing != null) {
+                missing = Arrays.copyOf(missing, capacity);
+            }
+        }
+    }
+
+    /** Returns true if there are missing values. */
+    boolean hasMissing() {
+        return missing != null;
+    }
+
+    /** Returns the field with boxed type if there are missing values. */
+    StructField boxed() {
+        return new StructField(field.name, field.type.boxed(), field.measure);
+    }
+
+    /** Returns the capacity of column. */
+    abstract int capacity();
+    /** Resizes the storage. */
+    abstract void resize(int capacity);
+    /** Returns the storage array. */
+    abstract Object array();
+    /** Sets the value at the current size from a non-empty string. */
+    abstract void set(String s);
+    /** Sets the value at the current size from non-empty bytes. */
+    abstract void set(byte[] buf, int from, int to, Charset charset);
+    /** Returns the column vector. */
+    abstract BaseVector toVector();
+
+    /** Returns the string of ASCII bytes. */
+    private static String ascii(byte[] buf, int from, int to) {
+        return new String(buf, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Parses an int. Falls back to Integer.parseInt() for the
+     * malformed or overflowed values.
+     */
+    static int parseInt(byte[] buf, int from, int to) {
+        int i = from;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') i++;
+
+        // 9 digits never overflow.
+        if (i == to || to - i > 9) {
+            return Integer.parseInt(ascii(buf, from, to));
+        }
+
+        int x = 0;
+        for (; i < to; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) {
+                return Integer.parseInt(ascii(buf, from, to));
+            }
+            x = x * 10 + d;
+        }
+        return negative ? -x : x;
+    }
+
+    /**
+     * Parses a long. Falls back to Long.parseLong() for the
+     * malformed or overflowed values.
+     */
+    static long parseLong(byte[] buf, int from, int to) {
+        int i = from;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') i++;
+
+        // 18 digits never overflow.
+        if (i == to || to - i > 18) {
+            return Long.parseLong(ascii(buf, from, to));
+        }
+
+        long x = 0;
+        for (; i < to; i++) {
+            int d = buf[i] - '0';
+            if (d < 0 || d > 9) {
+                return Long.parseLong(ascii(buf, from, to));
+            }
+            x = x * 10 + d;
+        }
+        return negative ? -x : x;
+    }
+
+    /**
+     * Parses a decimal number into its significand and exponent.
+     * Returns false if it is not a plain decimal number, or the
+     * significand has more than 18 digits.
+     *
+     * @param decimal the output of significand and exponent.
+     */
+    private static boolean parseDecimal(byte[] buf, int from, int to, long[] decimal) {
+        int i = from;
+        if (buf[i] == '-' || buf[i] == '+') i++;
+
+        long m = 0;
+        int digits = 0;
+        int exp = 0;
+        boolean any = false;
+        for (; i < to && buf[i] >= '0' && buf[i] <= '9'; i++) {
+            any = true;
+            if (m > 0 || buf[i] != '0') {
+                if (++digits > 18) return false;
+                m = m * 10 + (buf[i] - '0');
+            }
+        }
+
+        if (i < to && buf[i] == '.') {
+            for (i++; i < to && buf[i] >= '0' && buf[i] <= '9'; i++) {
+                any = true;
+                if (m > 0 || buf[i] != '0') {
+                    if (++digits > 18) return false;
+                    m = m * 10 + (buf[i] - '0');
+                }
+                exp--;
+            }
+        }
+
+        if (!any) return false;
+
+        if (i < to && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            boolean negative = i < to && buf[i] == '-';
+            if (i < to && (buf[i] == '-' || buf[i] == '+')) i++;
+            if (i == to || to - i > 4) return false;
+
+            int e = 0;
+            for (; i < to; i++) {
+                int d = buf[i] - '0';
+                if (d < 0 || d > 9) return false;
+                e = e * 10 + d;
+            }
+            exp += negative ? -e : e;
+        }
+
+        decimal[0] = m;
+        decimal[1] = exp;
+        return i == to;
+    }
+
+    /**
+     * Parses a double. If the significand is less than 2<sup>53</sup>
+     * and the absolute value of exponent is at most 22, both are exact
+     * in double and one multiplication or division is correctly rounded.
+     * Otherwise, falls back to Double.parseDouble().
+     */
+    static double parseDouble(byte[] buf, int from, int to, long[] decimal) {
+        if (parseDecimal(buf, from, to, decimal)) {
+            long m = decimal[0];
+            int exp = (int) decimal[1];
+            if (m < (1L << 53) && exp >= -22 && exp <= 22) {
+                double x = exp >= 0 ? m * POW10[exp] : m / POW10[-exp];
+                return buf[from] == '-' ? -x : x;
+            }
+        }
+        return Double.parseDouble(ascii(buf, from, to));
+    }
+
+    /**
+     * Parses a float. If the significand is less than 2<sup>24</sup>
+     * and the absolute value of exponent is at most 10, both are exact
+     * in float and one multiplication or division is correctly rounded.
+     * Otherwise, falls back to Float.parseFloat().
+     */
+    static float parseFloat(byte[] buf, int from, int to, long[] decimal) {
+        if (parseDecimal(buf, from, to, decimal)) {
+            long m = decimal[0];
+            int exp = (int) decimal[1];
+            if (m < (1L << 24) && exp >= -10 && exp <= 10) {
+                float x = exp >= 0 ? m * POW10F[exp] : m / POW10F[-exp];
+                return buf[from] == '-' ? -x : x;
+            }
+        }
+        return Float.parseFloat(ascii(buf, from, to));
+    }
+
+    /** The column of int values. */
+    static class IntColumn extends CSVColumn {
+        int[] data;
+
+        IntColumn(StructField field, int capacity) {
+            super(field);
+            data = new int[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return data.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            data = Arrays.copyOf(data, capacity);
+        }
+
+        @Override
+        Object array() {
+            return data;
+        }
+
+        @Override
+        void set(String s) {
+            data[size] = Integer.parseInt(s);
+        }
+
+        @Override
+        void set(byte[] buf, int from, int to, Charset charset) {
+            data[size] = parseInt(buf, from, to);
+        }
+
+        @Override
+        BaseVector toVector() {
+            if (hasMissing()) {
+                Integer[] values = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    if (!missing[i]) values[i] = data[i];
+                }
+                return Vector.of(boxed(), values);
+            }
+            return IntVector.of(field, size == data.length ? data : Arrays.copyOf(data, size));
+        }
+    }
+
+    /** The column of long values. */
+    static class LongColumn extends CSVColumn {
+        long[] data;
+
+        LongColumn(StructField field, int capacity) {
+            super(field);
+            data = new long[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return data.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            data = Arrays.copyOf(data, capacity);
+        }
+
+        @Override
+        Object array() {
+            return data;
+        }
+
+        @Override
+        void set(String s) {
+            data[size] = Long.parseLong(s);
+        }
+
+        @Override
+        void set(byte[] buf, int from, int to, Charset charset) {
+            data[size] = parseLong(buf, from, to);
+        }
+
+        @Override
+        BaseVector toVector() {
+            if (hasMissing()) {
+                Long[] values = new Long[size];
+                for (int i = 0; i < size; i++) {
+                    if (!missing[i]) values[i] = data[i];
+                }
+                return Vector.of(boxed(), values);
+            }
+            return LongVector.of(field, size == data.length ? data : Arrays.copyOf(data, size));
+        }
+    }
+
+    /** The column of float values. */
+    static class FloatColumn extends CSVColumn {
+        float[] data;
+        /** The workspace of decimal parsing. */
+        final long[] decimal = new long[2];
+
+        FloatColumn(StructField field, int capacity) {
+            super(field);
+            data = new float[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return data.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            data = Arrays.copyOf(data, capacity);
+        }
+
+        @Override
+        Object array() {
+            return data;
+        }
+
+        @Override
+        void set(String s) {
+            data[size] = Float.parseFloat(s);
+        }
+
+        @Override
+        void set(byte[] buf, int from, int to, Charset charset) {
+            data[size] = parseFloat(buf, from, to, decimal);
+        }
+
+        @Override
+        BaseVector toVector() {
+            if (hasMissing()) {
+                Float[] values = new Float[size];
+                for (int i = 0; i < size; i++) {
+                    if (!missing[i]) values[i] = data[i];
+                }
+                return Vector.of(boxed(), values);
+            }
+            return FloatVector.of(field, size == data.length ? data : Arrays.copyOf(data, size));
+        }
+    }
+
+    /** The column of double values. */
+    static class DoubleColumn extends CSVColumn {
+        double[] data;
+        /** The workspace of decimal parsing. */
+        final long[] decimal = new long[2];
+
+        DoubleColumn(StructField field, int capacity) {
+            super(field);
+            data = new double[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return data.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            data = Arrays.copyOf(data, capacity);
+        }
+
+        @Override
+        Object array() {
+            return data;
+        }
+
+        @Override
+        void set(String s) {
+            data[size] = Double.parseDouble(s);
+        }
+
+        @Override
+        void set(byte[] buf, int from, int to, Charset charset) {
+            data[size] = parseDouble(buf, from, to, decimal);
+        }
+
+        @Override
+        BaseVector toVector() {
+            if (hasMissing()) {
+                Double[] values = new Double[size];
+                for (int i = 0; i < size; i++) {
+                    if (!missing[i]) values[i] = data[i];
+                }
+                return Vector.of(boxed(), values);
+            }
+            return DoubleVector.of(field, size == data.length ? data : Arrays.copyOf(data, size));
+        }
+    }
+
+    /** The column of values parsed by the field. */
+    static class ObjectColumn extends CSVColumn {
+        Object[] data;
+
+        ObjectColumn(StructField field, int capacity) {
+            super(field);
+            data = new Object[capacity];
+        }
+
+        @Override
+        int capacity() {
+            return data.length;
+        }
+
+        @Override
+        void resize(int capacity) {
+            data = Arrays.copyOf(data, capacity);
+        }
+
+        @Override
+        Object array() {
+            return data;
+        }
+
+        @Override
+        void set(String s) {
+            data[size] = field.valueOf(s);
+        }
+
+        @Override
+        void set(byte[] buf, int from, int to, Charset charset) {
+            data[size] = field.valueOf(new String(buf, from, to - from, charset));
+        }
+
+        @Override
+        BaseVector toVector() {
+            Object[] values = size == data.length ? data : Arrays.copyOf(data, size);
+            if (field.type.isPrimitive() && hasMissing()) {
+                return Vector.of(boxed(), values);
+            }
+
+            int n = size;
+            switch (field.type.id()) {
+                case Integer: {
+                    int[] x = new int[n];
+                    for (int i = 0; i < n; i++) x[i] = ((Number) values[i]).intValue();
+                    return IntVector.of(field, x);
+                }
+                case Long: {
+                    long[] x = new long[n];
+                    for (int i = 0; i < n; i++) x[i] = ((Number) values[i]).longValue();
+                    return LongVector.of(field, x);
+                }
+                case Float: {
+                    float[] x = new float[n];
+                    for (int i = 0; i < n; i++) x[i] = ((Number) values[i]).floatValue();
+                    return FloatVector.of(field, x);
+                }
+                case Double: {
+                    double[] x = new double[n];
+                    for (int i = 0; i < n; i++) x[i] = ((Number) values[i]).doubleValue();
+                    return DoubleVector.of(field, x);
+                }
+                case Short: {
+                    short[] x = new short[n];
+                    for (int i = 0; i < n; i++) x[i] = ((Number) values[i]).shortValue();
+                    return ShortVector.of(field, x);
+                }
+                case Byte: {
+                    byte[] x = new byte[n];
+                    for (int i = 0; i < n; i++) x[i] = ((Number) values[i]).byteValue();
+                    return ByteVector.of(field, x);
+                }
+                case Boolean: {
+                    boolean[] x = new boolean[n];
+                    for (int i = 0; i < n; i++) x[i] = (Boolean) values[i];
+                    return BooleanVector.of(field, x);
+                }
+                case Char: {
+                    char[] x = new char[n];
+                    for (int i = 0; i < n; i++) x[i] = (Character) values[i];
+                    return CharVector.of(field, x);
+                }
+                case String: {
+                    String[] x = new String[n];
+                    for (int i = 0; i < n; i++) x[i] = (String) values[i];
+                    return StringVector.of(field, x);
+                }
+                default:
+                    return Vector.of(field, values);
+            }
+        }
+    }
+}
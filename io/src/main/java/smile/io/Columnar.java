@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import smile.data.DataFrame;
+import smile.data.measure.Measure;
+import smile.data.type.DataType;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.type.StructType;
+import smile.data.vector.*;
+
+/**
+ * A simple columnar file format of data frame for memory mapping.
+ * The values of each column are stored contiguously in the little-endian
+ * byte order, and the columns are aligned to 8 bytes. When reading
+ * the file, each column is mapped into the memory rather than loaded
+ * into the heap. Therefore, opening a file takes only milliseconds
+ * regardless of its size, the data frame is not limited by the heap
+ * size, and multiple JVMs on a host share one copy of data in the
+ * page cache of operating system.
+ * <p>
+ * The file starts with the magic number, the version and a header of
+ * the number of columns and rows, and the name, type and measure of
+ * each column. Only the columns of primitive types are supported.
+ * Because a memory mapping is at most 2 GB, each column is limited
+ * to 2 GB too, e.g. 268 million rows of double.
+ *
+ * @author Haifeng Li
+ */
+public class Columnar {
+    /** The magic number of file. */
+    private static final byte[] MAGIC = "SMILECOL".getBytes(StandardCharsets.US_ASCII);
+    /** The version of file format. */
+    private static final int VERSION = 1;
+    /** The size of file prefix, i.e. the magic number, the version and the header size. */
+    private static final int PREFIX = 16;
+    /** The byte order of data. */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Writes a data frame.
+     * @param df the data frame.
+     * @param path the output file path.
+     */
+    public static void write(DataFrame df, Path path) throws IOException {
+        StructType schema = df.schema();
+        int n = df.size();
+        int p = df.ncols();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(p);
+        header.writeInt(n);
+
+        long[] offset = new long[p];
+        long size = 0;
+        for (int j = 0; j < p; j++) {
+            StructField field = schema.field(j);
+            long length = (long) n * width(field);
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("Column %s is too large: %d bytes", field.name, length));
+            }
+
+            header.writeUTF(field.name);
+            header.writeByte(field.type.id().ordinal());
+            byte[] measure = serialize(field.measure);
+            header.writeInt(measure.length);
+            header.write(measure);
+
+            offset[j] = size;
+            size += align(length);
+        }
+        header.flush();
+
+        ByteBuffer prefix = ByteBuffer.allocate(PREFIX);
+        prefix.put(MAGIC).putInt(VERSION).putInt(bytes.size()).flip();
+
+        long start = align(PREFIX + bytes.size());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(prefix, 0);
+            channel.write(ByteBuffer.wrap(bytes.toByteArray()), PREFIX);
+
+            for (int j = 0; j < p; j++) {
+                StructField field = schema.field(j);
+                BaseVector column = df.column(j);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, start + offset[j], (long) n * width(field));
+                buffer.order(ORDER);
+                write(field.type, column, buffer);
+                buffer.force();
+            }
+        }
+    }
+
+    /** Writes the values of a column. */
+    private static void write(DataType type, BaseVector column, ByteBuffer buffer) {
+        int n = column.size();
+        switch (type.id()) {
+            case Boolean:
+                for (int i = 0; i < n; i++) buffer.put(((BooleanVector) column).getBoolean(i) ? (byte) 1 : (byte) 0);
+                break;
+            case Char:
+                buffer.asCharBuffer().put(((CharVector) column).array());
+                break;
+            case Byte:
+                buffer.put(((ByteVector) column).array());
+                break;
+            case Short:
+                buffer.asShortBuffer().put(((ShortVector) column).array());
+                break;
+            case Integer:
+                buffer.asIntBuffer().put(((IntVector) column).array());
+                break;
+            case Long:
+                buffer.asLongBuffer().put(((LongVector) column).array());
+                break;
+            case Float:
+                buffer.asFloatBuffer().put(((FloatVector) column).array());
+                break;
+            case Double:
+                buffer.asDoubleBuffer().put(((DoubleVector) column).array());
+                break;
+            default:
+                throw new UnsupportedOperationException("Unsupported column type: " + type);
+        }
+    }
+
+    /**
+     * Reads a file by memory mapping.
+     * @param path the input file path.
+     */
+    public static DataFrame read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < PREFIX) {
+                throw new IOException("Invalid file format: " + path);
+            }
+
+            MappedByteBuffer prefix = channel.map(FileChannel.MapMode.READ_ONLY, 0, PREFIX);
+            byte[] magic = new byte[MAGIC.length];
+            prefix.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Invalid file format: " + path);
+            }
+
+            int version = prefix.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported file version: " + version);
+            }
+
+            byte[] bytes = new byte[prefix.getInt()];
+            channel.map(FileChannel.MapMode.READ_ONLY, PREFIX, bytes.length).get(bytes);
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes));
+            int p = header.readInt();
+            int n = header.readInt();
+            StructField[] fields = new StructField[p];
+            for (int j = 0; j < p; j++) {
+                String name = header.readUTF();
+                DataType type = type(DataType.ID.values()[header.readByte()]);
+                byte[] measure = new byte[header.readInt()];
+                header.readFully(measure);
+                fields[j] = new StructField(name, type, deserialize(measure));
+            }
+
+            long offset = align(PREFIX + bytes.length);
+            BaseVector[] columns = new BaseVector[p];
+            for (int j = 0; j < p; j++) {
+                StructField field = fields[j];
+                long length = (long) n * width(field);
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ORDER);
+                columns[j] = vector(field, buffer);
+                offset += align(length);
+            }
+
+            // The mappings remain valid after the channel is closed.
+            return DataFrame.of(columns);
+        }
+    }
+
+    /** Returns the column vector on the buffer. */
+    private static BaseVector vector(StructField field, ByteBuffer buffer) {
+        switch (field.type.id()) {
+            case Boolean: return BooleanVector.of(field, buffer);
+            case Char: return CharVector.of(field, buffer.asCharBuffer());
+            case Byte: return ByteVector.of(field, buffer);
+            case Short: return ShortVector.of(field, buffer.asShortBuffer());
+            case Integer: return IntVector.of(field, buffer.asIntBuffer());
+            case Long: return LongVector.of(field, buffer.asLongBuffer());
+            case Float: return FloatVector.of(field, buffer.asFloatBuffer());
+            case Double: return DoubleVector.of(field, buffer.asDoubleBuffer());
+            default: throw new UnsupportedOperationException("Unsupported column type: " + field.type);
+        }
+    }
+
+    /** Returns the primitive data type of id. */
+    private static DataType type(DataType.ID id) {
+        switch (id) {
+            case Boolean: return DataTypes.BooleanType;
+            case Char: return DataTypes.CharType;
+            case Byte: return DataTypes.ByteType;
+            case Short: return DataTypes.ShortType;
+            case Integer: return DataTypes.IntegerType;
+            case Long: return DataTypes.LongType;
+            case Float: return DataTypes.FloatType;
+            case Double: return DataTypes.DoubleType;
+            default: throw new UnsupportedOperationException("Unsupported column type: " + id);
+        }
+    }
+
+    /** Returns the number of bytes of a value in the column. */
+    private static int width(StructField field) {
+        if (!field.type.isPrimitive()) {
+            throw new UnsupportedOperationException(String.format("Unsupported type %s of column %s", field.type, field.name));
+        }
+
+        switch (field.type.id()) {
+            case Boolean:
+            case Byte:
+                return 1;
+            case Char:
+            case Short:
+                return 2;
+            case Integer:
+            case Float:
+                return 4;
+            default:
+                return 8;
+        }
+    }
+
+    /** Returns the smallest multiple of 8 that is not less than x. */
+    private static long align(long x) {
+        return (x + 7) & ~7L;
+    }
+
+    /** Serializes the measure of column. */
+    private static byte[] serialize(Measure measure) throws IOException {
+        if (measure == null) return new byte[0];
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(measure);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Deserializes the measure of column. */
+    private static Measure deserialize(byte[] bytes) throws IOException {
+        if (bytes.length == 0) return null;
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Measure) in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Failed to read the measure of column", ex);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import org.apache.parquet.io.InputFile;
 import org.apache.parquet.io.SeekableInputStream;
@@ -33,21 +34,29 @@ import org.apache.parquet.io.SeekableInputStream;
  * @author Haifeng Li
  */
 class LocalInputFile implements InputFile {
-    /** Local file object. */
-    private final RandomAccessFile input;
+    /** Local file path. */
+    private final Path path;
 
     /** Constructor. */
     public LocalInputFile(Path path) throws FileNotFoundException {
-        input = new RandomAccessFile(path.toFile(), "r");
+        if (!Files.isRegularFile(path)) {
+            throw new FileNotFoundException(path.toString());
+        }
+        this.path = path;
     }
 
     @Override
     public long getLength() throws IOException {
-        return input.length();
+        return Files.size(path);
     }
 
+    /**
+     * Returns a new stream of the file. Each stream has its own
+     * file handle so that the streams may be read concurrently.
+     */
     @Override
     public SeekableInputStream newStream() throws IOException {
+        RandomAccessFile input = new RandomAccessFile(path.toFile(), "r");
         return new SeekableInputStream() {
             private final byte[] page = new byte[8192];
             private long markPos = 0;
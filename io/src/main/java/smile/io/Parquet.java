@@ -18,6 +18,7 @@
 package smile.io;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URI;
@@ -27,30 +28,43 @@ import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.*;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.parquet.ParquetReadOptions;
 import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
 import org.apache.parquet.column.page.PageReadStore;
-import org.apache.parquet.example.data.Group;
 import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.filter2.predicate.UserDefinedPredicate;
 import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.hadoop.util.HadoopInputFile;
-import org.apache.parquet.io.ColumnIOFactory;
 import org.apache.parquet.io.InputFile;
-import org.apache.parquet.io.MessageColumnIO;
-import org.apache.parquet.io.RecordReader;
-import org.apache.parquet.schema.DecimalMetadata;
+import org.apache.parquet.io.api.Binary;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.OriginalType;
 import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Type;
 import smile.data.DataFrame;
-import smile.data.Tuple;
 import smile.data.type.*;
+import smile.data.vector.*;
 
 /**
  * Apache Parquet is a columnar storage format that supports
@@ -84,6 +98,16 @@ public class Parquet {
         return read(new LocalInputFile(path), limit);
     }
 
+    /**
+     * Reads the selected columns of a local parquet file.
+     * @param path an Apache Parquet file path.
+     * @param columns the columns to read. If null, all columns are read.
+     * @param filter the predicate that the rows must satisfy. If null, all rows are read.
+     */
+    public static DataFrame read(Path path, String[] columns, FilterPredicate filter) throws IOException {
+        return read(new LocalInputFile(path), columns, filter, Integer.MAX_VALUE);
+    }
+
     /**
      * Reads a HDFS parquet file.
      * @param path an Apache Parquet file path.
@@ -101,6 +125,16 @@ public class Parquet {
         return read(HadoopInput.file(path), limit);
     }
 
+    /**
+     * Reads the selected columns of a HDFS parquet file.
+     * @param path an Apache Parquet file path.
+     * @param columns the columns to read. If null, all columns are read.
+     * @param filter the predicate that the rows must satisfy. If null, all rows are read.
+     */
+    public static DataFrame read(String path, String[] columns, FilterPredicate filter) throws IOException, URISyntaxException {
+        return read(HadoopInput.file(path), columns, filter, Integer.MAX_VALUE);
+    }
+
     /**
      * Reads a parquet file.
      * @param file an interface with the methods needed by Parquet
@@ -117,251 +151,818 @@ public class Parquet {
      * @param limit reads a limited number of records.
      */
     public static DataFrame read(InputFile file, int limit) throws IOException {
-        try (ParquetFileReader reader = ParquetFileReader.open(file)) {
+        return read(file, null, null, limit);
+    }
+
+    /**
+     * Reads the selected columns of a limited number of records from
+     * a parquet file. The column chunks are decoded directly into the
+     * arrays of columns, and only the chunks of selected columns and
+     * the filter columns are read. The row groups of which the column
+     * statistics or dictionaries show that no rows satisfy the filter
+     * are skipped, and the rows of other row groups are tested by the
+     * filter. The row groups are decoded in parallel. The optional
+     * columns of numeric or boolean type are decoded into primitive
+     * arrays with the flags of null values, which are boxed only when
+     * the values are accessed as objects.
+     *
+     * @param file an interface with the methods needed by Parquet
+     *             to read data files. See HadoopInputFile for example.
+     * @param columns the columns to read. If null, all columns are read.
+     * @param filter the predicate that the rows must satisfy. If null, all rows are read.
+     * @param limit reads a limited number of records.
+     */
+    public static DataFrame read(InputFile file, String[] columns, FilterPredicate filter, int limit) throws IOException {
+        ParquetReadOptions.Builder builder = ParquetReadOptions.builder();
+        if (filter != null) {
+            builder.withRecordFilter(FilterCompat.get(filter));
+        }
+        ParquetReadOptions options = builder.build();
+
+        MessageType schema;
+        String createdBy;
+        long[] rowCounts;
+        try (ParquetFileReader reader = ParquetFileReader.open(file, options)) {
             ParquetMetadata footer = reader.getFooter();
-            MessageType schema = footer.getFileMetaData().getSchema();
-            StructType struct = toSmileSchema(schema);
             logger.debug("The meta data of parquet file {}: {}", file.toString(), ParquetMetadata.toPrettyJSON(footer));
+            schema = footer.getFileMetaData().getSchema();
+            createdBy = footer.getFileMetaData().getCreatedBy();
+            // The row groups that pass the statistics and dictionary filters.
+            rowCounts = reader.getRowGroups().stream().mapToLong(BlockMetaData::getRowCount).toArray();
+        }
 
-            int nrows = (int) Math.min(reader.getRecordCount(), limit);
-            List<Tuple> rows = new ArrayList<>(nrows);
+        Map<String, ColumnDescriptor> descriptors = new HashMap<>();
+        for (ColumnDescriptor column : schema.getColumns()) {
+            descriptors.put(String.join(".", column.getPath()), column);
+        }
 
-            PageReadStore store;
-            while ((store = reader.readNextRowGroup()) != null) {
-                final long rowCount = store.getRowCount();
-                final MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
-                final RecordReader<Group> recordReader = columnIO.getRecordReader(store, new GroupRecordConverter(schema));
-                for (int i = 0; i < rowCount && rows.size() < nrows; i++) {
-                    rows.add(Tuple.of(group2object(recordReader.read(), schema.getColumns(), struct), struct));
+        List<ColumnDescriptor> selected = new ArrayList<>();
+        if (columns == null) {
+            selected.addAll(schema.getColumns());
+        } else {
+            for (String column : columns) {
+                ColumnDescriptor descriptor = descriptors.get(column);
+                if (descriptor == null) {
+                    throw new IllegalArgumentException("Column doesn't exist: " + column);
                 }
+                selected.add(descriptor);
             }
+        }
 
-            return DataFrame.of(rows);
+        // The columns to decode, i.e. the selected and filter columns.
+        Set<String> names = new LinkedHashSet<>();
+        selected.forEach(column -> names.add(String.join(".", column.getPath())));
+        if (filter != null) {
+            for (String column : filterColumns(filter)) {
+                ColumnDescriptor descriptor = descriptors.get(column);
+                if (descriptor == null) {
+                    throw new IllegalArgumentException("Filter column doesn't exist: " + column);
+                }
+                if (descriptor.getMaxRepetitionLevel() > 0) {
+                    throw new IllegalArgumentException("Filter on repeated column: " + column);
+                }
+                names.add(column);
+            }
         }
-    }
 
-    private static Object[] group2object(Group g, List<ColumnDescriptor> columns, StructType schema) {
-        int length = schema.length();
-        Object[] o = new Object[length];
-        for (int i = 0; i < length; i++) {
-            int rep = g.getFieldRepetitionCount(i);
-            StructField field = schema.field(i);
-            ColumnDescriptor column = columns.get(i);
-            PrimitiveType primitiveType = column.getPrimitiveType();
-            OriginalType originalType = primitiveType.getOriginalType();
-
-            switch (primitiveType.getPrimitiveTypeName()) {
-                case BOOLEAN:
-                    if (rep == 1) {
-                        o[i] = g.getBoolean(i, 0);
-                    } else if (rep > 1) {
-                        boolean[] a = new boolean[rep];
-                        for (int j = 0; j < rep; j++)
-                            a[j] = g.getBoolean(i, j);
-                        o[i] = a;
-                    }
-                    break;
+        MessageType projection = project(schema, names);
+        List<ColumnDescriptor> decoded = names.stream().map(descriptors::get).collect(Collectors.toList());
+        StructField[] fields = selected.stream().map(Parquet::toSmileField).toArray(StructField[]::new);
 
-                case INT32:
-                    if (originalType == null) {
-                        if (rep == 1) {
-                            o[i] = g.getInteger(i, 0);
-                        } else if (rep > 1) {
-                            int[] a = new int[rep];
-                            for (int j = 0; j < rep; j++)
-                                a[j] = g.getInteger(i, j);
-                            o[i] = a;
-                        }
-                        break;
-                    }
+        // Without filter, only the row groups covering the limit are read.
+        int groups = rowCounts.length;
+        if (filter == null) {
+            long rows = 0;
+            for (groups = 0; groups < rowCounts.length && rows < limit; groups++) {
+                rows += rowCounts[groups];
+            }
+        }
 
-                    switch (originalType) {
-                        case INT_8:
-                            if (rep == 1) {
-                                o[i] = (byte) g.getInteger(i, 0);
-                            } else if (rep > 1) {
-                                byte[] a = new byte[rep];
-                                for (int j = 0; j < rep; j++)
-                                    a[j] = (byte) g.getInteger(i, j);
-                                o[i] = a;
-                            }
-                            break;
-                        case UINT_8:
-                        case INT_16:
-                            if (rep == 1) {
-                                o[i] = (short) g.getInteger(i, 0);
-                            } else if (rep > 1) {
-                                short[] a = new short[rep];
-                                for (int j = 0; j < rep; j++)
-                                    a[j] = (short) g.getInteger(i, j);
-                                o[i] = a;
-                            }
-                            break;
-                        case UINT_16:
-                        case INT_32:
-                            if (rep == 1) {
-                                o[i] = g.getInteger(i, 0);
-                            } else if (rep > 1) {
-                                int[] a = new int[rep];
-                                for (int j = 0; j < rep; j++)
-                                    a[j] = g.getInteger(i, j);
-                                o[i] = a;
-                            }
-                            break;
-                        case DECIMAL:
-                            if (rep == 1) {
-                                int unscaledValue = g.getInteger(i, 0);
-                                DecimalMetadata decimalMetadata = primitiveType.getDecimalMetadata();
-                                int scale = decimalMetadata.getScale();
-                                o[i] = BigDecimal.valueOf(unscaledValue, scale);
-                            }
-                            break;
-                        case DATE:
-                            if (rep == 1) {
-                                int days = g.getInteger(i, 0);
-                                o[i] = LocalDate.ofEpochDay(days);
-                            }
-                            break;
-                        case TIME_MILLIS:
-                            if (rep == 1) {
-                                int millis = g.getInteger(i, 0);
-                                o[i] = LocalTime.ofNanoOfDay(millis * 1000000);
-                            }
-                            break;
+        // Each task reads a range of row groups with its own reader.
+        int ngroups = groups;
+        int tasks = Math.min(ngroups, ForkJoinPool.getCommonPoolParallelism());
+        Object[][] parts = new Object[ngroups][];
+        try {
+            IntStream.range(0, tasks).parallel().forEach(task -> {
+                int from = (int) ((long) task * ngroups / tasks);
+                int to = (int) ((long) (task + 1) * ngroups / tasks);
+                try (ParquetFileReader reader = ParquetFileReader.open(file, options)) {
+                    reader.setRequestedSchema(projection);
+                    for (int g = 0; g < from; g++) {
+                        reader.skipNextRowGroup();
                     }
-                    break;
 
-                case INT64:
-                    if (originalType == null) {
-                        if (rep == 1) {
-                            o[i] = g.getLong(i, 0);
-                        } else if (rep > 1) {
-                            long[] a = new long[rep];
-                            for (int j = 0; j < rep; j++)
-                                a[j] = g.getLong(i, j);
-                            o[i] = a;
-                        }
-                        break;
+                    for (int g = from; g < to; g++) {
+                        PageReadStore store = reader.readNextRowGroup();
+                        parts[g] = decode(store, projection, createdBy, decoded, selected, fields, filter);
                     }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
 
-                    switch (originalType) {
-                        case INT_64:
-                            if (rep == 1) {
-                                o[i] = g.getLong(i, 0);
-                            } else if (rep > 1) {
-                                long[] a = new long[rep];
-                                for (int j = 0; j < rep; j++)
-                                    a[j] = g.getLong(i, j);
-                                o[i] = a;
-                            }
-                            break;
-                        case DECIMAL:
-                            if (rep == 1) {
-                                long unscaledValue = g.getLong(i, 0);
-                                DecimalMetadata decimalMetadata = primitiveType.getDecimalMetadata();
-                                int scale = decimalMetadata.getScale();
-                                o[i] = BigDecimal.valueOf(unscaledValue, scale);
-                            }
-                            break;
-                        case TIME_MICROS:
-                            if (rep == 1) {
-                                long micros = g.getLong(i, 0);
-                                o[i] = LocalTime.ofNanoOfDay(micros * 1000);
-                            }
-                            break;
-                        case TIMESTAMP_MILLIS:
-                            if (rep == 1) {
-                                long millis = g.getLong(i, 0);
-                                o[i] = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
-                            }
-                            break;
-                        case TIMESTAMP_MICROS:
-                            if (rep == 1) {
-                                long micros = g.getLong(i, 0);
-                                long second = micros / 1000000;
-                                int nano = (int) (micros % 1000000) * 1000;
-                                o[i] = LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
-                            }
-                            break;
-                    }
-                    break;
+        // Concatenates the row groups.
+        int[] sizes = new int[ngroups];
+        long total = 0;
+        for (int g = 0; g < ngroups; g++) {
+            Object part = parts[g][0];
+            if (part instanceof Chunk) part = ((Chunk) part).values;
+            sizes[g] = java.lang.reflect.Array.getLength(part);
+            total += sizes[g];
+        }
+        int nrows = (int) Math.min(total, limit);
 
-                case INT96:
-                    if (rep == 1) {
-                        ByteBuffer buf = g.getInt96(i, 0).toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
-                        long nanoOfDay = buf.getLong();
-                        int julianDay = buf.getInt();
-                        // see http://stackoverflow.com/questions/466321/convert-unix-timestamp-to-julian
-                        // it's 2440587.5, rounding up to compatible with Hive
-                        LocalDate date = LocalDate.ofEpochDay(julianDay - 2440588);
-                        LocalTime time = LocalTime.ofNanoOfDay(nanoOfDay);
-                        o[i] = LocalDateTime.of(date, time);
-                    }
-                    break;
+        BaseVector[] vectors = new BaseVector[fields.length];
+        for (int j = 0; j < fields.length; j++) {
+            // The optional numeric columns are concatenated as primitive
+            // arrays with the flags of null values.
+            StructField field = fields[j];
+            DataType unboxed = field.type.unboxed();
+            if (unboxed != field.type) {
+                field = new StructField(field.name, unboxed);
+            }
 
-                case FLOAT:
-                    if (rep == 1) {
-                        o[i] = g.getFloat(i, 0);
-                    } else if (rep > 1) {
-                        float[] a = new float[rep];
-                        for (int j = 0; j < rep; j++)
-                            a[j] = g.getFloat(i, j);
-                        o[i] = a;
+            Object array = newArray(field, nrows);
+            BitSet nulls = new BitSet();
+            for (int g = 0, offset = 0; g < ngroups && offset < nrows; offset += sizes[g], g++) {
+                int length = Math.min(sizes[g], nrows - offset);
+                Object part = parts[g][j];
+                if (part instanceof Chunk) {
+                    Chunk chunk = (Chunk) part;
+                    part = chunk.values;
+                    for (int i = 0; chunk.nulls != null && i < length; i++) {
+                        if (chunk.nulls[i]) nulls.set(offset + i);
                     }
-                    break;
+                }
+                System.arraycopy(part, 0, array, offset, length);
+            }
+            vectors[j] = field == fields[j] ? toVector(field, array) : Vector.of(fields[j], array, nulls);
+        }
 
-                case DOUBLE:
-                    if (rep == 1) {
-                        o[i] = g.getDouble(i, 0);
-                    } else if (rep > 1) {
-                        double[] a = new double[rep];
-                        for (int j = 0; j < rep; j++)
-                            a[j] = g.getDouble(i, j);
-                        o[i] = a;
-                    }
-                    break;
+        return DataFrame.of(vectors);
+    }
+
+    /** Returns the columns in the filter. */
+    private static Set<String> filterColumns(FilterPredicate filter) {
+        Set<String> columns = new HashSet<>();
+        filter.accept(new FilterPredicate.Visitor<Void>() {
+            private <T extends Comparable<T>> Void add(Operators.Column<T> column) {
+                columns.add(column.getColumnPath().toDotString());
+                return null;
+            }
+
+            @Override
+            public <T extends Comparable<T>> Void visit(Operators.Eq<T> eq) {
+                return add(eq.getColumn());
+            }
+
+            @Override
+            public <T extends Comparable<T>> Void visit(Operators.NotEq<T> notEq) {
+                return add(notEq.getColumn());
+            }
+
+            @Override
+            public <T extends Comparable<T>> Void visit(Operators.Lt<T> lt) {
+                return add(lt.getColumn());
+            }
+
+            @Override
+            public <T extends Comparable<T>> Void visit(Operators.LtEq<T> ltEq) {
+                return add(ltEq.getColumn());
+            }
+
+            @Override
+            public <T extends Comparable<T>> Void visit(Operators.Gt<T> gt) {
+                return add(gt.getColumn());
+            }
 
-                case BINARY:
-                case FIXED_LEN_BYTE_ARRAY:
-                    switch (field.type.id()) {
-                        case String:
-                            if (rep == 1) {
-                                o[i] = g.getString(i, 0);
-                            } else if (rep > 1) {
-                                String[] a = new String[rep];
-                                for (int j = 0; j < rep; j++)
-                                    a[j] = g.getString(i, j);
-                                o[i] = a;
-                            }
-                            break;
-                        case Decimal:
-                            if (rep == 1) {
-                                byte[] value = g.getBinary(i, 0).getBytes();
-                                DecimalMetadata decimalMetadata = primitiveType.getDecimalMetadata();
-                                int scale = decimalMetadata.getScale();
-                                o[i] = new BigDecimal(new BigInteger(value), scale);
-                            }
-                            break;
-                        default:
-                            if (rep >= 1) {
-                                o[i] = g.getBinary(i, 0).getBytes();
-                            }
-                            break;
+            @Override
+            public <T extends Comparable<T>> Void visit(Operators.GtEq<T> gtEq) {
+                return add(gtEq.getColumn());
+            }
+
+            @Override
+            public Void visit(Operators.And and) {
+                and.getLeft().accept(this);
+                return and.getRight().accept(this);
+            }
+
+            @Override
+            public Void visit(Operators.Or or) {
+                or.getLeft().accept(this);
+                return or.getRight().accept(this);
+            }
+
+            @Override
+            public Void visit(Operators.Not not) {
+                return not.getPredicate().accept(this);
+            }
+
+            @Override
+            public <T extends Comparable<T>, U extends UserDefinedPredicate<T>> Void visit(Operators.UserDefined<T, U> udp) {
+                return add(udp.getColumn());
+            }
+
+            @Override
+            public <T extends Comparable<T>, U extends UserDefinedPredicate<T>> Void visit(Operators.LogicalNotUserDefined<T, U> udp) {
+                return add(udp.getUserDefined().getColumn());
+            }
+        });
+        return columns;
+    }
+
+    /**
+     * Returns the projection of schema with the top level fields
+     * that contain the columns.
+     */
+    private static MessageType project(MessageType schema, Set<String> columns) {
+        Set<String> roots = new HashSet<>();
+        for (String column : columns) {
+            int dot = column.indexOf('.');
+            roots.add(dot < 0 ? column : column.substring(0, dot));
+        }
+
+        List<Type> fields = schema.getFields().stream()
+                .filter(field -> roots.contains(field.getName()))
+                .collect(Collectors.toList());
+        return new MessageType(schema.getName(), fields);
+    }
+
+    /**
+     * The physical values of a column in a row group. It also holds the
+     * converted values of selected rows of optional numeric columns.
+     */
+    private static class Chunk {
+        /** The column. */
+        final ColumnDescriptor column;
+        /**
+         * The values, i.e. boolean[], int[], long[], float[], double[]
+         * or Binary[] per physical type. For repeated columns, it is
+         * Object[] of which the elements are the arrays of each row.
+         */
+        final Object values;
+        /** The flags of null values. It is null for required columns. */
+        final boolean[] nulls;
+
+        /** Constructor. */
+        Chunk(ColumnDescriptor column, Object values, boolean[] nulls) {
+            this.column = column;
+            this.values = values;
+            this.nulls = nulls;
+        }
+
+        /** Returns true if the value at row i is null. */
+        boolean isNull(int i) {
+            return nulls != null && nulls[i];
+        }
+
+        /** Returns the physical value at row i. */
+        Comparable get(int i) {
+            if (isNull(i)) return null;
+
+            switch (column.getPrimitiveType().getPrimitiveTypeName()) {
+                case BOOLEAN: return ((boolean[]) values)[i];
+                case INT32: return ((int[]) values)[i];
+                case INT64: return ((long[]) values)[i];
+                case FLOAT: return ((float[]) values)[i];
+                case DOUBLE: return ((double[]) values)[i];
+                default: return ((Binary[]) values)[i];
+            }
+        }
+    }
+
+    /**
+     * Decodes a row group.
+     * @return the arrays of selected columns.
+     */
+    private static Object[] decode(PageReadStore store, MessageType projection, String createdBy,
+                                     List<ColumnDescriptor> decoded, List<ColumnDescriptor> selected,
+                                     StructField[] fields, FilterPredicate filter) {
+        int n = (int) store.getRowCount();
+        ColumnReadStoreImpl columns = new ColumnReadStoreImpl(store, new GroupRecordConverter(projection).getRootConverter(), projection, createdBy);
+
+        Map<ColumnDescriptor, Chunk> chunks = new HashMap<>();
+        for (ColumnDescriptor column : decoded) {
+            chunks.put(column, decode(columns.getColumnReader(column), n));
+        }
+
+        int[] rows = null;
+        if (filter != null) {
+            Map<String, Chunk> byName = new HashMap<>();
+            chunks.forEach((column, chunk) -> byName.put(String.join(".", column.getPath()), chunk));
+            boolean[] mask = filter.accept(new RowFilter(byName, n));
+            rows = IntStream.range(0, n).filter(i -> mask[i]).toArray();
+        }
+
+        if (rows == null) {
+            rows = IntStream.range(0, n).toArray();
+        }
+
+        Object[] arrays = new Object[fields.length];
+        for (int j = 0; j < fields.length; j++) {
+            arrays[j] = convert(chunks.get(selected.get(j)), fields[j], rows);
+        }
+        return arrays;
+    }
+
+    /** Decodes the physical values of a column chunk. */
+    private static Chunk decode(ColumnReader reader, int n) {
+        ColumnDescriptor column = reader.getDescriptor();
+        int maxDef = column.getMaxDefinitionLevel();
+        boolean[] nulls = maxDef > 0 ? new boolean[n] : null;
+
+        if (column.getMaxRepetitionLevel() > 0) {
+            return decodeRepeated(reader, n);
+        }
+
+        switch (column.getPrimitiveType().getPrimitiveTypeName()) {
+            case BOOLEAN: {
+                boolean[] values = new boolean[n];
+                for (int i = 0; i < n; i++, reader.consume()) {
+                    if (reader.getCurrentDefinitionLevel() == maxDef) values[i] = reader.getBoolean();
+                    else nulls[i] = true;
+                }
+                return new Chunk(column, values, nulls);
+            }
+
+            case INT32: {
+                int[] values = new int[n];
+                for (int i = 0; i < n; i++, reader.consume()) {
+                    if (reader.getCurrentDefinitionLevel() == maxDef) values[i] = reader.getInteger();
+                    else nulls[i] = true;
+                }
+                return new Chunk(column, values, nulls);
+            }
+
+            case INT64: {
+                long[] values = new long[n];
+                for (int i = 0; i < n; i++, reader.consume()) {
+                    if (reader.getCurrentDefinitionLevel() == maxDef) values[i] = reader.getLong();
+                    else nulls[i] = true;
+                }
+                return new Chunk(column, values, nulls);
+            }
+
+            case FLOAT: {
+                float[] values = new float[n];
+                for (int i = 0; i < n; i++, reader.consume()) {
+                    if (reader.getCurrentDefinitionLevel() == maxDef) values[i] = reader.getFloat();
+                    else nulls[i] = true;
+                }
+                return new Chunk(column, values, nulls);
+            }
+
+            case DOUBLE: {
+                double[] values = new double[n];
+                for (int i = 0; i < n; i++, reader.consume()) {
+                    if (reader.getCurrentDefinitionLevel() == maxDef) values[i] = reader.getDouble();
+                    else nulls[i] = true;
+                }
+                return new Chunk(column, values, nulls);
+            }
+
+            default: {
+                Binary[] values = new Binary[n];
+                for (int i = 0; i < n; i++, reader.consume()) {
+                    if (reader.getCurrentDefinitionLevel() == maxDef) values[i] = reader.getBinary();
+                    else nulls[i] = true;
+                }
+                return new Chunk(column, values, nulls);
+            }
+        }
+    }
+
+    /**
+     * Decodes the physical values of a repeated column chunk. The values
+     * of each row are collected into an array, which is null if the row
+     * has no values.
+     */
+    private static Chunk decodeRepeated(ColumnReader reader, int n) {
+        ColumnDescriptor column = reader.getDescriptor();
+        PrimitiveType.PrimitiveTypeName type = column.getPrimitiveType().getPrimitiveTypeName();
+        int maxDef = column.getMaxDefinitionLevel();
+        long total = reader.getTotalValueCount();
+        long count = 0;
+
+        Object[] values = new Object[n];
+        boolean[] nulls = new boolean[n];
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.clear();
+            do {
+                if (reader.getCurrentDefinitionLevel() == maxDef) {
+                    switch (type) {
+                        case BOOLEAN: list.add(reader.getBoolean()); break;
+                        case INT32: list.add(reader.getInteger()); break;
+                        case INT64: list.add(reader.getLong()); break;
+                        case FLOAT: list.add(reader.getFloat()); break;
+                        case DOUBLE: list.add(reader.getDouble()); break;
+                        default: list.add(reader.getBinary()); break;
                     }
+                }
+                reader.consume();
+            } while (++count < total && reader.getCurrentRepetitionLevel() > 0);
+
+            if (list.isEmpty()) {
+                nulls[i] = true;
+                continue;
+            }
+
+            int size = list.size();
+            switch (type) {
+                case BOOLEAN: {
+                    boolean[] a = new boolean[size];
+                    for (int k = 0; k < size; k++) a[k] = (Boolean) list.get(k);
+                    values[i] = a;
+                    break;
+                }
+                case INT32: {
+                    int[] a = new int[size];
+                    for (int k = 0; k < size; k++) a[k] = (Integer) list.get(k);
+                    values[i] = a;
+                    break;
+                }
+                case INT64: {
+                    long[] a = new long[size];
+                    for (int k = 0; k < size; k++) a[k] = (Long) list.get(k);
+                    values[i] = a;
+                    break;
+                }
+                case FLOAT: {
+                    float[] a = new float[size];
+                    for (int k = 0; k < size; k++) a[k] = (Float) list.get(k);
+                    values[i] = a;
+                    break;
+                }
+                case DOUBLE: {
+                    double[] a = new double[size];
+                    for (int k = 0; k < size; k++) a[k] = (Double) list.get(k);
+                    values[i] = a;
+                    break;
+                }
+                default:
+                    values[i] = list.toArray(new Binary[size]);
                     break;
             }
         }
-        return o;
+
+        return new Chunk(column, values, nulls);
     }
 
-    /** Converts a parquet schema to smile schema. */
-    private static StructType toSmileSchema(MessageType schema) {
-        List<StructField> fields = new ArrayList<>();
-        for (ColumnDescriptor column : schema.getColumns()) {
-            fields.add(toSmileField(column));
+    /**
+     * Evaluates a filter on the rows of a row group. The comparisons
+     * with null are false except for not-equal, which follows the
+     * semantics of Parquet filters.
+     */
+    private static class RowFilter implements FilterPredicate.Visitor<boolean[]> {
+        /** The column chunks. */
+        private final Map<String, Chunk> chunks;
+        /** The number of rows. */
+        private final int n;
+
+        /** Constructor. */
+        RowFilter(Map<String, Chunk> chunks, int n) {
+            this.chunks = chunks;
+            this.n = n;
+        }
+
+        /** Returns the chunk of column. */
+        private Chunk chunk(Operators.Column<?> column) {
+            return chunks.get(column.getColumnPath().toDotString());
+        }
+
+        /** The comparison of values. */
+        private interface Comparison {
+            /** Returns true if the comparison result satisfies the predicate. */
+            boolean test(int cmp);
+        }
+
+        /** Compares the column values with a value. */
+        @SuppressWarnings("unchecked")
+        private <T extends Comparable<T>> boolean[] compare(Operators.Column<T> column, T value, Comparison comparison) {
+            Chunk chunk = chunk(column);
+            boolean[] mask = new boolean[n];
+            if (value == null) return mask;
+
+            for (int i = 0; i < n; i++) {
+                Comparable x = chunk.get(i);
+                mask[i] = x != null && comparison.test(x.compareTo(value));
+            }
+            return mask;
+        }
+
+        @Override
+        public <T extends Comparable<T>> boolean[] visit(Operators.Eq<T> eq) {
+            if (eq.getValue() == null) {
+                Chunk chunk = chunk(eq.getColumn());
+                boolean[] mask = new boolean[n];
+                for (int i = 0; i < n; i++) mask[i] = chunk.isNull(i);
+                return mask;
+            }
+            return compare(eq.getColumn(), eq.getValue(), cmp -> cmp == 0);
+        }
+
+        @Override
+        public <T extends Comparable<T>> boolean[] visit(Operators.NotEq<T> notEq) {
+            Chunk chunk = chunk(notEq.getColumn());
+            boolean[] mask = new boolean[n];
+            if (notEq.getValue() == null) {
+                for (int i = 0; i < n; i++) mask[i] = !chunk.isNull(i);
+            } else {
+                boolean[] eq = compare(notEq.getColumn(), notEq.getValue(), cmp -> cmp == 0);
+                for (int i = 0; i < n; i++) mask[i] = !eq[i];
+            }
+            return mask;
+        }
+
+        @Override
+        public <T extends Comparable<T>> boolean[] visit(Operators.Lt<T> lt) {
+            return compare(lt.getColumn(), lt.getValue(), cmp -> cmp < 0);
+        }
+
+        @Override
+        public <T extends Comparable<T>> boolean[] visit(Operators.LtEq<T> ltEq) {
+            return compare(ltEq.getColumn(), ltEq.getValue(), cmp -> cmp <= 0);
+        }
+
+        @Override
+        public <T extends Comparable<T>> boolean[] visit(Operators.Gt<T> gt) {
+            return compare(gt.getColumn(), gt.getValue(), cmp -> cmp > 0);
+        }
+
+        @Override
+        public <T extends Comparable<T>> boolean[] visit(Operators.GtEq<T> gtEq) {
+            return compare(gtEq.getColumn(), gtEq.getValue(), cmp -> cmp >= 0);
+        }
+
+        @Override
+        public boolean[] visit(Operators.And and) {
+            boolean[] left = and.getLeft().accept(this);
+            boolean[] right = and.getRight().accept(this);
+            for (int i = 0; i < n; i++) left[i] &= right[i];
+            return left;
+        }
+
+        @Override
+        public boolean[] visit(Operators.Or or) {
+            boolean[] left = or.getLeft().accept(this);
+            boolean[] right = or.getRight().accept(this);
+            for (int i = 0; i < n; i++) left[i] |= right[i];
+            return left;
+        }
+
+        @Override
+        public boolean[] visit(Operators.Not not) {
+            boolean[] mask = not.getPredicate().accept(this);
+            for (int i = 0; i < n; i++) mask[i] = !mask[i];
+            return mask;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends Comparable<T>, U extends UserDefinedPredicate<T>> boolean[] visit(Operators.UserDefined<T, U> udp) {
+            Chunk chunk = chunk(udp.getColumn());
+            U predicate = udp.getUserDefinedPredicate();
+            boolean[] mask = new boolean[n];
+            for (int i = 0; i < n; i++) mask[i] = predicate.keep((T) chunk.get(i));
+            return mask;
+        }
+
+        @Override
+        public <T extends Comparable<T>, U extends UserDefinedPredicate<T>> boolean[] visit(Operators.LogicalNotUserDefined<T, U> udp) {
+            boolean[] mask = visit(udp.getUserDefined());
+            for (int i = 0; i < n; i++) mask[i] = !mask[i];
+            return mask;
+        }
+    }
+
+    /** Returns a new array to store the values of a field. */
+    private static Object newArray(StructField field, int n) {
+        switch (field.type.id()) {
+            case Boolean: return new boolean[n];
+            case Byte: return new byte[n];
+            case Short: return new short[n];
+            case Integer: return new int[n];
+            case Long: return new long[n];
+            case Float: return new float[n];
+            case Double: return new double[n];
+            case String: return new String[n];
+            default: return new Object[n];
+        }
+    }
+
+    /** Returns the vector of a field. */
+    private static BaseVector toVector(StructField field, Object array) {
+        switch (field.type.id()) {
+            case Boolean: return BooleanVector.of(field, (boolean[]) array);
+            case Byte: return ByteVector.of(field, (byte[]) array);
+            case Short: return ShortVector.of(field, (short[]) array);
+            case Integer: return IntVector.of(field, (int[]) array);
+            case Long: return LongVector.of(field, (long[]) array);
+            case Float: return FloatVector.of(field, (float[]) array);
+            case Double: return DoubleVector.of(field, (double[]) array);
+            case String: return StringVector.of(field, (String[]) array);
+            default: return Vector.of(field, (Object[]) array);
         }
+    }
+
+    /**
+     * Converts the physical values of selected rows to the array of a field.
+     * For optional columns of numeric or boolean type, returns the chunk of
+     * primitive array and the flags of null values of selected rows, of which
+     * the flags are null if there are no null values.
+     */
+    private static Object convert(Chunk chunk, StructField field, int[] rows) {
+        int n = rows.length;
+        Object values = chunk.values;
+
+        DataType unboxed = field.type.unboxed();
+        if (unboxed != field.type && chunk.column.getMaxRepetitionLevel() == 0) {
+            Object array = convert(chunk, new StructField(field.name, unboxed), rows);
+            boolean[] nulls = null;
+            for (int i = 0; chunk.nulls != null && i < n; i++) {
+                if (chunk.nulls[rows[i]]) {
+                    if (nulls == null) nulls = new boolean[n];
+                    nulls[i] = true;
+                }
+            }
+            return new Chunk(chunk.column, array, nulls);
+        }
+
+        switch (field.type.id()) {
+            case Boolean: {
+                boolean[] x = (boolean[]) values;
+                boolean[] a = new boolean[n];
+                for (int i = 0; i < n; i++) a[i] = x[rows[i]];
+                return a;
+            }
+
+            case Byte: {
+                int[] x = (int[]) values;
+                byte[] a = new byte[n];
+                for (int i = 0; i < n; i++) a[i] = (byte) x[rows[i]];
+                return a;
+            }
+
+            case Short: {
+                int[] x = (int[]) values;
+                short[] a = new short[n];
+                for (int i = 0; i < n; i++) a[i] = (short) x[rows[i]];
+                return a;
+            }
+
+            case Integer: {
+                int[] x = (int[]) values;
+                int[] a = new int[n];
+                for (int i = 0; i < n; i++) a[i] = x[rows[i]];
+                return a;
+            }
 
-        return DataTypes.struct(fields);
+            case Long: {
+                long[] x = (long[]) values;
+                long[] a = new long[n];
+                for (int i = 0; i < n; i++) a[i] = x[rows[i]];
+                return a;
+            }
+
+            case Float: {
+                float[] x = (float[]) values;
+                float[] a = new float[n];
+                for (int i = 0; i < n; i++) a[i] = x[rows[i]];
+                return a;
+            }
+
+            case Double: {
+                double[] x = (double[]) values;
+                double[] a = new double[n];
+                for (int i = 0; i < n; i++) a[i] = x[rows[i]];
+                return a;
+            }
+
+            case String: {
+                String[] a = new String[n];
+                for (int i = 0; i < n; i++) {
+                    Object x = value(chunk, rows[i]);
+                    a[i] = x == null ? null : (String) toObject(x, chunk.column.getPrimitiveType(), field);
+                }
+                return a;
+            }
+
+            default: {
+                Object[] a = new Object[n];
+                for (int i = 0; i < n; i++) {
+                    Object x = value(chunk, rows[i]);
+                    a[i] = x == null ? null : toObject(x, chunk.column.getPrimitiveType(), field);
+                }
+                return a;
+            }
+        }
+    }
+
+    /**
+     * Returns the physical value of row i. For repeated columns, returns
+     * the array of values if the field is an array, or the first value
+     * otherwise.
+     */
+    private static Object value(Chunk chunk, int i) {
+        if (chunk.isNull(i)) return null;
+        if (chunk.column.getMaxRepetitionLevel() == 0) return chunk.get(i);
+
+        Object array = ((Object[]) chunk.values)[i];
+        if (array instanceof Binary[]) return ((Binary[]) array)[0];
+        return array;
+    }
+
+    /**
+     * Converts a physical value to the object of a field.
+     * @param value the physical value, i.e. Boolean, Integer, Long, Float,
+     *              Double or Binary, or the array of physical values of
+     *              a repeated column.
+     */
+    private static Object toObject(Object value, PrimitiveType primitiveType, StructField field) {
+        OriginalType originalType = primitiveType.getOriginalType();
+
+        if (value.getClass().isArray()) {
+            switch (field.type.id()) {
+                case Array:
+                    if (field.type == DataTypes.ByteArrayType) {
+                        int[] x = (int[]) value;
+                        byte[] a = new byte[x.length];
+                        for (int i = 0; i < x.length; i++) a[i] = (byte) x[i];
+                        return a;
+                    } else if (field.type == DataTypes.ShortArrayType) {
+                        int[] x = (int[]) value;
+                        short[] a = new short[x.length];
+                        for (int i = 0; i < x.length; i++) a[i] = (short) x[i];
+                        return a;
+                    }
+                    return value;
+
+                default:
+                    // Only the first value of a repeated column of scalar type.
+                    value = java.lang.reflect.Array.get(value, 0);
+                    break;
+            }
+        }
+
+        switch (primitiveType.getPrimitiveTypeName()) {
+            case INT32: {
+                int x = (Integer) value;
+                if (originalType == null) return x;
+                switch (originalType) {
+                    case INT_8: return (byte) x;
+                    case UINT_8:
+                    case INT_16: return (short) x;
+                    case DECIMAL: return BigDecimal.valueOf(x, primitiveType.getDecimalMetadata().getScale());
+                    case DATE: return LocalDate.ofEpochDay(x);
+                    case TIME_MILLIS: return LocalTime.ofNanoOfDay(x * 1000000L);
+                    default: return x;
+                }
+            }
+
+            case INT64: {
+                long x = (Long) value;
+                if (originalType == null) return x;
+                switch (originalType) {
+                    case DECIMAL: return BigDecimal.valueOf(x, primitiveType.getDecimalMetadata().getScale());
+                    case TIME_MICROS: return LocalTime.ofNanoOfDay(x * 1000);
+                    case TIMESTAMP_MILLIS: return LocalDateTime.ofInstant(Instant.ofEpochMilli(x), ZoneOffset.UTC);
+                    case TIMESTAMP_MICROS: {
+                        long second = x / 1000000;
+                        int nano = (int) (x % 1000000) * 1000;
+                        return LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+                    }
+                    default: return x;
+                }
+            }
+
+            case INT96: {
+                ByteBuffer buf = ((Binary) value).toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+                long nanoOfDay = buf.getLong();
+                int julianDay = buf.getInt();
+                // see http://stackoverflow.com/questions/466321/convert-unix-timestamp-to-julian
+                // it's 2440587.5, rounding up to compatible with Hive
+                LocalDate date = LocalDate.ofEpochDay(julianDay - 2440588);
+                LocalTime time = LocalTime.ofNanoOfDay(nanoOfDay);
+                return LocalDateTime.of(date, time);
+            }
+
+            case BINARY:
+            case FIXED_LEN_BYTE_ARRAY: {
+                Binary x = (Binary) value;
+                switch (field.type.id()) {
+                    case String: return x.toStringUsingUTF8();
+                    case Decimal: return new BigDecimal(new BigInteger(x.getBytes()), primitiveType.getDecimalMetadata().getScale());
+                    default: return x.getBytes();
+                }
+            }
+
+            default:
+                return value;
+        }
     }
 
     /** Converts a parquet column to smile struct field. */
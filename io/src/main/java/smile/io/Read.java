@@ -207,6 +207,18 @@ public interface Read {
         return arrow.read(path);
     }
 
+    /**
+     * Reads a columnar file written by {@link Write#columnar(DataFrame, Path)}.
+     * The columns are memory-mapped rather than loaded into the heap.
+     * So it takes only milliseconds to open a file of any size, and
+     * multiple JVMs on a host share one copy of data in the page cache.
+     *
+     * @param path the input file path, which must be a local file.
+     */
+    static DataFrame columnar(Path path) throws IOException {
+        return Columnar.read(path);
+    }
+
     /**
      * Reads an Apache Avro file.
      *
@@ -51,6 +51,18 @@ public interface Write {
         arrow.write(df, path);
     }
 
+    /**
+     * Writes the data frame to a columnar file for memory mapping.
+     * The values of each column are stored contiguously so that
+     * the file can be mapped into the memory by {@link Read#columnar(Path)}.
+     *
+     * @param df the data frame.
+     * @param path the file path.
+     */
+    static void columnar(DataFrame df, Path path) throws IOException {
+        Columnar.write(df, path);
+    }
+
     /**
      * Writes the data frame to an ARFF file.
      * @param df the data frame.
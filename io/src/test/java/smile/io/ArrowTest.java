@@ -31,6 +31,11 @@ import smile.util.Paths;
 import java.io.File;
 import java.nio.file.Path;
 import java.sql.*;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import smile.data.vector.*;
+import smile.math.MathEx;
 
 import static org.junit.Assert.*;
 
@@ -180,4 +185,137 @@ public class ArrowTest {
         assertEquals(5.94, output.get(2, 0), 1E-10);
         assertEquals(0.99, output.get(3, 0), 1E-10);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test of reading memory-mapped record batches.
+     */
+    @Test
+    public void testStream() throws Exception {
+        System.out.println("stream");
+        MathEx.setSeed(19650218);
+        int n = 1050;
+        double[] x = new double[n];
+        int[] y = new int[n];
+        long[] z = new long[n];
+        float[] u = new float[n];
+        short[] v = new short[n];
+        boolean[] w = new boolean[n];
+        String[] s = new String[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = MathEx.random();
+            y[i] = MathEx.randomInt(1000);
+            z[i] = MathEx.randomLong();
+            u[i] = (float) MathEx.random();
+            v[i] = (short) MathEx.randomInt(100);
+            w[i] = MathEx.random() < 0.5;
+            s[i] = "s" + i;
+        }
+
+        DataFrame data = DataFrame.of(
+                DoubleVector.of("x", x),
+                IntVector.of("y", y),
+                LongVector.of("z", z),
+                FloatVector.of("u", u),
+                ShortVector.of("v", v),
+                BooleanVector.of("w", w),
+                StringVector.of("s", s)
+        );
+
+        Arrow batch = new Arrow(100);
+        File temp = File.createTempFile("stream", "arrow");
+        temp.deleteOnExit();
+        Path path = temp.toPath();
+        batch.write(data, path);
+
+        List<DataFrame> frames;
+        try (Stream<DataFrame> stream = batch.stream(path)) {
+            frames = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(11, frames.size());
+        int offset = 0;
+        for (DataFrame frame : frames) {
+            assertEquals(data.schema(), frame.schema());
+            for (int i = 0; i < frame.nrows(); i++, offset++) {
+                for (int j = 0; j < frame.ncols(); j++) {
+                    assertEquals(data.get(offset, j), frame.get(i, j));
+                }
+            }
+        }
+        assertEquals(n, offset);
+
+        DataFrame output = batch.read(path);
+        assertEquals(n, output.nrows());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < data.ncols(); j++) {
+                assertEquals(data.get(i, j), output.get(i, j));
+            }
+        }
+
+        output = batch.read(path, 250);
+        assertEquals(250, output.nrows());
+        assertEquals(data.get(249, 0), output.get(249, 0));
+    }
+
+    /**
+     * Test of reading nullable columns of memory-mapped record batches.
+     */
+    @Test
+    public void testNullable() throws Exception {
+        System.out.println("nullable");
+        int n = 250;
+        Integer[] a = new Integer[n];
+        Double[] b = new Double[n];
+        double[] c = new double[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i;
+            b[i] = i + 0.5;
+            c[i] = i + 0.25;
+        }
+        // Only the last record batch has null values.
+        a[210] = null;
+
+        DataFrame data = DataFrame.of(
+                Vector.of("a", DataTypes.IntegerObjectType, a),
+                Vector.of("b", DataTypes.DoubleObjectType, b),
+                DoubleVector.of("c", c)
+        );
+
+        Arrow batch = new Arrow(100);
+        File temp = File.createTempFile("nullable", "arrow");
+        temp.deleteOnExit();
+        Path path = temp.toPath();
+        batch.write(data, path);
+
+        List<DataFrame> frames;
+        try (Stream<DataFrame> stream = batch.stream(path)) {
+            frames = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(3, frames.size());
+        // The schema is the same in all record batches, of which
+        // only the column that is not nullable is a primitive view.
+        for (DataFrame frame : frames) {
+            assertEquals(data.schema(), frame.schema());
+            assertTrue(frame.column(2) instanceof DoubleVector);
+        }
+
+        DataFrame first = frames.get(0);
+        assertEquals(42, first.get(42, 0));
+        assertEquals(42.5, first.getDouble(42, 1), 1E-15);
+        assertEquals(42.25, first.getDouble(42, 2), 1E-15);
+
+        DataFrame last = frames.get(2);
+        assertNull(last.get(10, 0));
+        assertEquals(211, last.get(11, 0));
+
+        DataFrame output = batch.read(path);
+        assertEquals(n, output.nrows());
+        assertEquals(data.schema(), output.schema());
+        for (int i = 0; i < n; i++) {
+            assertEquals(a[i], output.get(i, 0));
+            assertEquals(b[i], output.get(i, 1));
+            assertEquals(c[i], output.getDouble(i, 2), 1E-15);
+        }
+    }
+}
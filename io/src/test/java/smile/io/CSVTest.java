@@ -17,6 +17,12 @@
 
 package smile.io;
 
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.commons.csv.CSVFormat;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -283,4 +289,119 @@ public class CSVTest {
         assertEquals("Internal Auditor", df.getString(0, 11));
         assertEquals("1E+02", df.getString(0, 12));
     }
+
+    /**
+     * Writes a CSV file of n rows, which has int, double, long (with
+     * missing values), string (with quotes) and boolean columns.
+     */
+    private Path write(int n) throws Exception {
+        File temp = File.createTempFile("chunks", "csv");
+        temp.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(temp)) {
+            writer.println("% generated data");
+            writer.println("id,x,y,name,flag");
+            for (int i = 0; i < n; i++) {
+                String y = i % 7 == 0 ? "" : String.valueOf(1234567890123L * i);
+                String name = i % 5 == 0 ? "\"Smith, \"\"J\"\"\"" : "\"N" + i + "\"";
+                writer.printf("%d,%s, %s ,%s,%s\r\n", i, i * 0.001 - 1.25E-3, y, name, i % 2 == 0);
+            }
+        }
+        return temp.toPath();
+    }
+
+    /**
+     * Test of parallel parsing of multiple chunks.
+     */
+    @Test(expected = Test.None.class)
+    public void testParallel() throws Exception {
+        System.out.println("parallel");
+
+        int n = 100000;
+        Path path = write(n);
+        CSVFormat format = CSVFormat.DEFAULT.withFirstRecordAsHeader().withCommentMarker('%');
+        DataFrame df = new CSV(format).read(path);
+        // read sequentially by a URI
+        DataFrame expected = new CSV(format).read(path.toUri().toString());
+
+        StructType schema = DataTypes.struct(
+                new StructField("id", DataTypes.IntegerType),
+                new StructField("x", DataTypes.DoubleType),
+                new StructField("y", DataTypes.LongObjectType),
+                new StructField("name", DataTypes.StringType),
+                new StructField("flag", DataTypes.BooleanType)
+        );
+        assertEquals(schema, df.schema());
+        assertEquals(schema, expected.schema());
+        assertEquals(n, df.nrows());
+        assertEquals(n, expected.nrows());
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, df.getInt(i, 0));
+            assertEquals(Double.parseDouble(String.valueOf(i * 0.001 - 1.25E-3)), df.getDouble(i, 1), 0.0);
+            for (int j = 0; j < 5; j++) {
+                assertEquals(expected.get(i, j), df.get(i, j));
+            }
+        }
+
+        assertNull(df.get(0, 2));
+        assertEquals(1234567890123L, df.get(1, 2));
+        assertEquals("Smith, \"J\"", df.getString(0, 3));
+        assertEquals("N99999", df.getString(n-1, 3));
+        assertEquals(false, df.getBoolean(n-1, 4));
+    }
+
+    /**
+     * Test of streaming batches.
+     */
+    @Test(expected = Test.None.class)
+    public void testStream() throws Exception {
+        System.out.println("stream");
+
+        int n = 10000;
+        Path path = write(n);
+        CSVFormat format = CSVFormat.DEFAULT.withFirstRecordAsHeader().withCommentMarker('%');
+        CSV csv = new CSV(format);
+        List<DataFrame> batches;
+        try (Stream<DataFrame> stream = csv.stream(path, 3000)) {
+            batches = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(4, batches.size());
+        assertEquals(3000, batches.get(0).nrows());
+        assertEquals(1000, batches.get(3).nrows());
+        assertEquals(DataTypes.LongObjectType, batches.get(0).schema().field(2).type);
+
+        int i = 0;
+        for (DataFrame batch : batches) {
+            for (int k = 0; k < batch.nrows(); k++, i++) {
+                assertEquals(i, batch.getInt(k, 0));
+            }
+        }
+        assertEquals(n, i);
+    }
+
+    /**
+     * Test of quoted fields spanning multiple lines.
+     */
+    @Test(expected = Test.None.class)
+    public void testMultilineQuote() throws Exception {
+        System.out.println("multiline quote");
+
+        File temp = File.createTempFile("multiline", "csv");
+        temp.deleteOnExit();
+        try (PrintWriter writer = new PrintWriter(temp)) {
+            writer.println("id,comment");
+            writer.println("1,\"first line");
+            writer.println("second line\"");
+            writer.println("2,single line");
+        }
+
+        CSV csv = new CSV(CSVFormat.DEFAULT.withFirstRecordAsHeader());
+        DataFrame df = csv.read(temp.toPath());
+        assertEquals(2, df.nrows());
+        assertEquals(1, df.getInt(0, 0));
+        assertEquals("first line" + System.lineSeparator() + "second line", df.getString(0, 1));
+        assertEquals(2, df.getInt(1, 0));
+        assertEquals("single line", df.getString(1, 1));
+    }
 }
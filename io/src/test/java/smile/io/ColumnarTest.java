@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.io;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import smile.data.DataFrame;
+import smile.data.measure.NominalScale;
+import smile.data.type.DataTypes;
+import smile.data.type.StructField;
+import smile.data.type.StructType;
+import smile.data.vector.*;
+import smile.util.Paths;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class ColumnarTest {
+
+    public ColumnarTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Test of read method, of class Columnar.
+     */
+    @Test(expected = Test.None.class)
+    public void testIris() throws Exception {
+        System.out.println("iris");
+        DataFrame data = Read.arff(Paths.getTestData("weka/iris.arff"));
+
+        File temp = File.createTempFile("iris", "col");
+        temp.deleteOnExit();
+        Path path = temp.toPath();
+        Write.columnar(data, path);
+        DataFrame iris = Read.columnar(path);
+        System.out.println(iris);
+
+        StructType schema = DataTypes.struct(
+                new StructField("sepallength", DataTypes.FloatType),
+                new StructField("sepalwidth", DataTypes.FloatType),
+                new StructField("petallength", DataTypes.FloatType),
+                new StructField("petalwidth", DataTypes.FloatType),
+                new StructField("class", DataTypes.ByteType, new NominalScale("Iris-setosa", "Iris-versicolor", "Iris-virginica")));
+        assertEquals(schema, iris.schema());
+
+        assertEquals(150, iris.nrows());
+        assertEquals(5,   iris.ncols());
+        assertEquals("Iris-setosa", iris.getScale(0, "class"));
+        assertEquals(5.1, iris.getFloat(0, 0), 1E-7);
+        assertEquals(3.5, iris.getFloat(0, 1), 1E-7);
+        assertEquals(1.4, iris.getFloat(0, 2), 1E-7);
+        assertEquals(0.2, iris.getFloat(0, 3), 1E-7);
+
+        assertEquals("Iris-virginica", iris.getScale(149, "class"));
+        assertEquals(5.9, iris.getFloat(149, 0), 1E-7);
+        assertEquals(3.0, iris.getFloat(149, 1), 1E-7);
+        assertEquals(5.1, iris.getFloat(149, 2), 1E-7);
+        assertEquals(1.8, iris.getFloat(149, 3), 1E-7);
+
+        for (int j = 0; j < 5; j++) {
+            assertArrayEquals(data.column(j).toDoubleArray(), iris.column(j).toDoubleArray(), 1E-7);
+        }
+
+        // The memory-mapped columns are serialized as on-heap copies.
+        java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+        try (java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(bytes)) {
+            out.writeObject(iris);
+        }
+
+        DataFrame copy;
+        try (java.io.ObjectInputStream in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (DataFrame) in.readObject();
+        }
+        assertEquals(schema, copy.schema());
+        assertEquals(5.9, copy.getFloat(149, 0), 1E-7);
+    }
+
+    /**
+     * Test of read method, of class Columnar.
+     */
+    @Test(expected = Test.None.class)
+    public void testPrimitiveTypes() throws Exception {
+        System.out.println("primitive types");
+        DataFrame data = DataFrame.of(
+                BooleanVector.of("boolean", new boolean[]{true, false, true}),
+                CharVector.of("char", new char[]{'a', 'b', 'c'}),
+                ByteVector.of("byte", new byte[]{1, -2, 3}),
+                ShortVector.of("short", new short[]{-1, 2, 30000}),
+                IntVector.of("int", new int[]{-1, 2, Integer.MAX_VALUE}),
+                LongVector.of("long", new long[]{-1L, 2L, Long.MAX_VALUE}),
+                FloatVector.of("float", new float[]{-1.5f, 2.5f, Float.NaN}),
+                DoubleVector.of("double", new double[]{-1.5, 2.5, Double.MAX_VALUE})
+        );
+
+        File temp = File.createTempFile("primitive", "col");
+        temp.deleteOnExit();
+        Path path = temp.toPath();
+        Write.columnar(data, path);
+        DataFrame df = Read.columnar(path);
+        System.out.println(df);
+
+        assertEquals(data.schema(), df.schema());
+        assertEquals(3, df.nrows());
+        assertArrayEquals(new boolean[]{true, false, true}, df.booleanVector(0).array());
+        assertArrayEquals(new char[]{'a', 'b', 'c'}, df.charVector(1).array());
+        assertArrayEquals(new byte[]{1, -2, 3}, df.byteVector(2).array());
+        assertArrayEquals(new short[]{-1, 2, 30000}, df.shortVector(3).array());
+        assertArrayEquals(new int[]{-1, 2, Integer.MAX_VALUE}, df.intVector(4).array());
+        assertArrayEquals(new long[]{-1L, 2L, Long.MAX_VALUE}, df.longVector(5).array());
+        assertArrayEquals(new float[]{-1.5f, 2.5f, Float.NaN}, df.floatVector(6).array(), 0.0f);
+        assertArrayEquals(new double[]{-1.5, 2.5, Double.MAX_VALUE}, df.doubleVector(7).array(), 0.0);
+        assertEquals(Long.MAX_VALUE, df.getLong(2, 5));
+        assertEquals(-2, df.getByte(1, 2));
+        assertEquals(2.5, df.getDouble(1, 7), 0.0);
+    }
+}
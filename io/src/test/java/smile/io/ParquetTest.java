@@ -23,6 +23,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import java.time.LocalDateTime;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
 import smile.data.DataFrame;
 import smile.data.type.DataTypes;
 import smile.data.type.StructField;
@@ -176,4 +178,64 @@ public class ParquetTest {
         assertEquals(90263.05, output.get(3, 1), 1E-10);
         assertTrue(Double.isNaN(output.get(4, 1)));
     }
-}
\ No newline at end of file
+
+    /**
+     * Test of reading selected columns.
+     */
+    @Test
+    public void testProjection() throws Exception {
+        System.out.println("projection");
+        DataFrame output = Parquet.read(Paths.getTestData("parquet/userdata1.parquet"), new String[]{"salary", "id", "first_name"}, null);
+        System.out.println(output);
+        assertEquals(1000, output.nrows());
+        assertEquals(3, output.ncols());
+        assertEquals(new StructField("salary", DataTypes.DoubleObjectType), output.schema().field(0));
+        assertEquals(new StructField("id", DataTypes.IntegerObjectType), output.schema().field(1));
+        assertEquals(new StructField("first_name", DataTypes.StringType), output.schema().field(2));
+        for (int i = 0; i < df.nrows(); i++) {
+            assertEquals(df.get(i, 10), output.get(i, 0));
+            assertEquals(df.get(i, 1), output.get(i, 1));
+            assertEquals(df.get(i, 2), output.get(i, 2));
+        }
+    }
+
+    /**
+     * Test of reading the rows that satisfy a filter.
+     */
+    @Test
+    public void testFilter() throws Exception {
+        System.out.println("filter");
+        FilterPredicate filter = FilterApi.and(
+                FilterApi.gt(FilterApi.doubleColumn("salary"), 100000.0),
+                FilterApi.notEq(FilterApi.binaryColumn("gender"), org.apache.parquet.io.api.Binary.fromString("Male")));
+        DataFrame output = Parquet.read(Paths.getTestData("parquet/userdata1.parquet"), new String[]{"id", "salary"}, filter);
+        System.out.println(output);
+
+        int n = 0;
+        for (int i = 0; i < df.nrows(); i++) {
+            if (!df.isNullAt(i, 10) && df.getDouble(i, 10) > 100000.0 && !"Male".equals(df.get(i, 5))) {
+                assertEquals(df.get(i, 1), output.get(n, 0));
+                assertEquals(df.get(i, 10), output.get(n, 1));
+                n++;
+            }
+        }
+        assertEquals(n, output.nrows());
+        assertEquals(2, output.ncols());
+    }
+
+    /**
+     * Test of reading a limited number of rows.
+     */
+    @Test
+    public void testLimit() throws Exception {
+        System.out.println("limit");
+        DataFrame output = Parquet.read(Paths.getTestData("parquet/userdata1.parquet"), 10);
+        assertEquals(10, output.nrows());
+        assertEquals(13, output.ncols());
+        for (int i = 0; i < output.nrows(); i++) {
+            for (int j = 0; j < output.ncols(); j++) {
+                assertEquals(df.get(i, j), output.get(i, j));
+            }
+        }
+    }
+}
@@ -33,10 +33,37 @@ public interface BLAS {
     /** The default BLAS engine. */
     BLAS engine = getInstance();
 
-    /** Creates an instance. */
+    /**
+     * Creates an instance. The pure Java engine is used if the system
+     * property <code>smile.blas</code> is <code>java</code>, or neither
+     * MKL nor OpenBLAS native library is available.
+     */
     static BLAS getInstance() {
+        if ("java".equalsIgnoreCase(System.getProperty("smile.blas"))) {
+            return new smile.math.blas.jvm.JavaBLAS();
+        }
+
         BLAS mkl = MKL();
-        return mkl != null ? mkl : new smile.math.blas.openblas.OpenBLAS();
+        if (mkl != null) return mkl;
+
+        BLAS openblas = OpenBLAS();
+        return openblas != null ? openblas : new smile.math.blas.jvm.JavaBLAS();
+    }
+
+    /** Creates an OpenBLAS instance. */
+    static BLAS OpenBLAS() {
+        org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(BLAS.class);
+
+        try {
+            smile.math.blas.openblas.OpenBLAS openblas = new smile.math.blas.openblas.OpenBLAS();
+            // Loads the native library.
+            openblas.asum(1, new double[1], 1);
+            return openblas;
+        } catch (Throwable e) {
+            logger.warn("Failed to load OpenBLAS, use pure Java engine: ", e);
+        }
+
+        return null;
     }
 
     /** Creates an MKL instance. */
@@ -1697,4 +1724,108 @@ public interface BLAS {
      * @param ldc the leading dimension of C as declared in the caller.
      */
     void symm(Layout layout, Side side, UPLO uplo, int m, int n, float alpha, FloatBuffer A, int lda, FloatBuffer B, int ldb, float beta, FloatBuffer C, int ldc);
+
+    /**
+     * Performs the symmetric rank-k update operation.
+     * <pre><code>
+     *     C := alpha*A*A' + beta*C, or
+     *     C := alpha*A'*A + beta*C
+     * </code></pre>
+     * Only the upper or lower triangular part of C is updated.
+     *
+     * @param layout matrix layout.
+     * @param uplo the upper or lower triangular part of the matrix C is
+     *             to be referenced.
+     * @param trans C := alpha*A*A' + beta*C if trans is no transpose, or
+     *              C := alpha*A'*A + beta*C if trans is transpose.
+     * @param n the order of the matrix C.
+     * @param k the number of columns of the matrix A if trans is no
+     *          transpose, or the number of rows of A otherwise.
+     * @param alpha the scalar alpha.
+     * @param A the matrix A.
+     * @param lda the leading dimension of A as declared in the caller.
+     * @param beta the scalar beta. When beta is supplied as zero
+     *             then C need not be set on input.
+     * @param C the symmetric matrix C.
+     * @param ldc the leading dimension of C as declared in the caller.
+     */
+    void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, double alpha, double[] A, int lda, double beta, double[] C, int ldc);
+
+    /**
+     * Performs the symmetric rank-k update operation.
+     * <pre><code>
+     *     C := alpha*A*A' + beta*C, or
+     *     C := alpha*A'*A + beta*C
+     * </code></pre>
+     * Only the upper or lower triangular part of C is updated.
+     *
+     * @param layout matrix layout.
+     * @param uplo the upper or lower triangular part of the matrix C is
+     *             to be referenced.
+     * @param trans C := alpha*A*A' + beta*C if trans is no transpose, or
+     *              C := alpha*A'*A + beta*C if trans is transpose.
+     * @param n the order of the matrix C.
+     * @param k the number of columns of the matrix A if trans is no
+     *          transpose, or the number of rows of A otherwise.
+     * @param alpha the scalar alpha.
+     * @param A the matrix A.
+     * @param lda the leading dimension of A as declared in the caller.
+     * @param beta the scalar beta. When beta is supplied as zero
+     *             then C need not be set on input.
+     * @param C the symmetric matrix C.
+     * @param ldc the leading dimension of C as declared in the caller.
+     */
+    void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, double alpha, DoubleBuffer A, int lda, double beta, DoubleBuffer C, int ldc);
+
+    /**
+     * Performs the symmetric rank-k update operation.
+     * <pre><code>
+     *     C := alpha*A*A' + beta*C, or
+     *     C := alpha*A'*A + beta*C
+     * </code></pre>
+     * Only the upper or lower triangular part of C is updated.
+     *
+     * @param layout matrix layout.
+     * @param uplo the upper or lower triangular part of the matrix C is
+     *             to be referenced.
+     * @param trans C := alpha*A*A' + beta*C if trans is no transpose, or
+     *              C := alpha*A'*A + beta*C if trans is transpose.
+     * @param n the order of the matrix C.
+     * @param k the number of columns of the matrix A if trans is no
+     *          transpose, or the number of rows of A otherwise.
+     * @param alpha the scalar alpha.
+     * @param A the matrix A.
+     * @param lda the leading dimension of A as declared in the caller.
+     * @param beta the scalar beta. When beta is supplied as zero
+     *             then C need not be set on input.
+     * @param C the symmetric matrix C.
+     * @param ldc the leading dimension of C as declared in the caller.
+     */
+    void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, float alpha, float[] A, int lda, float beta, float[] C, int ldc);
+
+    /**
+     * Performs the symmetric rank-k update operation.
+     * <pre><code>
+     *     C := alpha*A*A' + beta*C, or
+     *     C := alpha*A'*A + beta*C
+     * </code></pre>
+     * Only the upper or lower triangular part of C is updated.
+     *
+     * @param layout matrix layout.
+     * @param uplo the upper or lower triangular part of the matrix C is
+     *             to be referenced.
+     * @param trans C := alpha*A*A' + beta*C if trans is no transpose, or
+     *              C := alpha*A'*A + beta*C if trans is transpose.
+     * @param n the order of the matrix C.
+     * @param k the number of columns of the matrix A if trans is no
+     *          transpose, or the number of rows of A otherwise.
+     * @param alpha the scalar alpha.
+     * @param A the matrix A.
+     * @param lda the leading dimension of A as declared in the caller.
+     * @param beta the scalar beta. When beta is supplied as zero
+     *             then C need not be set on input.
+     * @param C the symmetric matrix C.
+     * @param ldc the leading dimension of C as declared in the caller.
+     */
+    void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, float alpha, FloatBuffer A, int lda, float beta, FloatBuffer C, int ldc);
 }
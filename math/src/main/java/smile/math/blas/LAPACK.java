@@ -34,10 +34,40 @@ public interface LAPACK {
     /** The default LAPACK engine. */
     LAPACK engine = getInstance();
 
-    /** Creates an instance. */
+    /**
+     * Creates an instance. The pure Java engine is used if the system
+     * property <code>smile.blas</code> is <code>java</code>, or neither
+     * MKL nor OpenBLAS native library is available. As the pure Java
+     * engine implements only the linear systems, Cholesky, LU and QR
+     * decompositions, the other routines (e.g. eigen decomposition and
+     * SVD) are delegated to the native engine if available. Otherwise,
+     * they throw UnsupportedOperationException.
+     */
     static LAPACK getInstance() {
-        LAPACK mkl = MKL();
-        return mkl != null ? mkl : new smile.math.blas.openblas.OpenBLAS();
+        LAPACK lapack = MKL();
+        if (lapack == null) lapack = OpenBLAS();
+
+        if (lapack == null || "java".equalsIgnoreCase(System.getProperty("smile.blas"))) {
+            return new smile.math.blas.jvm.JavaBLAS(lapack);
+        }
+
+        return lapack;
+    }
+
+    /** Creates an OpenBLAS instance. */
+    static LAPACK OpenBLAS() {
+        org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(LAPACK.class);
+
+        try {
+            smile.math.blas.openblas.OpenBLAS openblas = new smile.math.blas.openblas.OpenBLAS();
+            // Loads the native library.
+            openblas.asum(1, new double[1], 1);
+            return openblas;
+        } catch (Throwable e) {
+            logger.warn("Failed to load OpenBLAS, use pure Java engine: ", e);
+        }
+
+        return null;
     }
 
     /** Creates an MKL instance. */
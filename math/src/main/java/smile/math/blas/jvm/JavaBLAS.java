@@ -0,0 +1,2610 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.math.blas.jvm;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+import smile.math.blas.*;
+
+/**
+ * Pure Java implementation of BLAS and the LAPACK routines of linear
+ * systems and QR decomposition. It works everywhere without the native
+ * libraries and avoids the overhead of native calls on small matrices.
+ * The matrix multiplication is cache blocked with packed panels and
+ * a register tiled micro-kernel, which runs in parallel on the common
+ * ForkJoin pool for large matrices.
+ * <p>
+ * The single precision routines are computed in double precision.
+ * The LAPACK routines of eigen decomposition, SVD, least squares,
+ * banded and packed matrices are not implemented and delegated to
+ * the native LAPACK engine, if provided.
+ *
+ * @author Haifeng Li
+ */
+public class JavaBLAS implements BLAS, LAPACK {
+    /** The native LAPACK engine of the routines not implemented in Java. */
+    private final LAPACK lapack;
+
+    /**
+     * Constructor. The LAPACK routines that are not implemented
+     * in Java throw UnsupportedOperationException.
+     */
+    public JavaBLAS() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     * @param lapack the native LAPACK engine of the routines
+     *               that are not implemented in Java.
+     */
+    public JavaBLAS(LAPACK lapack) {
+        this.lapack = lapack;
+    }
+
+    /**
+     * Returns the native LAPACK engine for a routine that is not
+     * implemented in Java.
+     * @param routine the name of routine.
+     */
+    private LAPACK lapack(String routine) {
+        if (lapack == null) {
+            throw new UnsupportedOperationException(routine + " is not supported by JavaBLAS without native LAPACK");
+        }
+        return lapack;
+    }
+
+    @Override
+    public double asum(int n, double[] x, int incx) {
+        return asum(n, Data.of(x), incx);
+    }
+
+    @Override
+    public float asum(int n, float[] x, int incx) {
+        return (float) asum(n, Data.of(x), incx);
+    }
+
+    @Override
+    public void axpy(int n, double alpha, double[] x, int incx, double[] y, int incy) {
+        Data dy = Data.of(y);
+        axpy(n, alpha, Data.of(x), incx, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void axpy(int n, float alpha, float[] x, int incx, float[] y, int incy) {
+        Data dy = Data.of(y);
+        axpy(n, alpha, Data.of(x), incx, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public double dot(int n, double[] x, int incx, double[] y, int incy) {
+        return dot(n, Data.of(x), incx, Data.of(y), incy);
+    }
+
+    @Override
+    public float dot(int n, float[] x, int incx, float[] y, int incy) {
+        return (float) dot(n, Data.of(x), incx, Data.of(y), incy);
+    }
+
+    @Override
+    public double nrm2(int n, double[] x, int incx) {
+        return nrm2(n, Data.of(x), incx);
+    }
+
+    @Override
+    public float nrm2(int n, float[] x, int incx) {
+        return (float) nrm2(n, Data.of(x), incx);
+    }
+
+    @Override
+    public void scal(int n, double alpha, double[] x, int incx) {
+        Data dx = Data.of(x);
+        scal(n, alpha, dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void scal(int n, float alpha, float[] x, int incx) {
+        Data dx = Data.of(x);
+        scal(n, alpha, dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void swap(int n, double[] x, int incx, double[] y, int incy) {
+        Data dx = Data.of(x);
+        Data dy = Data.of(y);
+        swap(n, dx, incx, dy, incy);
+        dx.flush();
+        dy.flush();
+    }
+
+    @Override
+    public void swap(int n, float[] x, int incx, float[] y, int incy) {
+        Data dx = Data.of(x);
+        Data dy = Data.of(y);
+        swap(n, dx, incx, dy, incy);
+        dx.flush();
+        dy.flush();
+    }
+
+    @Override
+    public long iamax(int n, double[] x, int incx) {
+        return iamax(n, Data.of(x), incx);
+    }
+
+    @Override
+    public long iamax(int n, float[] x, int incx) {
+        return iamax(n, Data.of(x), incx);
+    }
+
+    @Override
+    public void gemv(Layout layout, Transpose trans, int m, int n, double alpha, double[] A, int lda, double[] x, int incx, double beta, double[] y, int incy) {
+        Data dy = Data.of(y);
+        gemv(layout, trans, m, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void gemv(Layout layout, Transpose trans, int m, int n, double alpha, DoubleBuffer A, int lda, DoubleBuffer x, int incx, double beta, DoubleBuffer y, int incy) {
+        Data dy = Data.of(y);
+        gemv(layout, trans, m, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void gemv(Layout layout, Transpose trans, int m, int n, float alpha, float[] A, int lda, float[] x, int incx, float beta, float[] y, int incy) {
+        Data dy = Data.of(y);
+        gemv(layout, trans, m, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void gemv(Layout layout, Transpose trans, int m, int n, float alpha, FloatBuffer A, int lda, FloatBuffer x, int incx, float beta, FloatBuffer y, int incy) {
+        Data dy = Data.of(y);
+        gemv(layout, trans, m, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void symv(Layout layout, UPLO uplo, int n, double alpha, double[] A, int lda, double[] x, int incx, double beta, double[] y, int incy) {
+        Data dy = Data.of(y);
+        symv(layout, uplo, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void symv(Layout layout, UPLO uplo, int n, double alpha, DoubleBuffer A, int lda, DoubleBuffer x, int incx, double beta, DoubleBuffer y, int incy) {
+        Data dy = Data.of(y);
+        symv(layout, uplo, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void symv(Layout layout, UPLO uplo, int n, float alpha, float[] A, int lda, float[] x, int incx, float beta, float[] y, int incy) {
+        Data dy = Data.of(y);
+        symv(layout, uplo, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void symv(Layout layout, UPLO uplo, int n, float alpha, FloatBuffer A, int lda, FloatBuffer x, int incx, float beta, FloatBuffer y, int incy) {
+        Data dy = Data.of(y);
+        symv(layout, uplo, n, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void spmv(Layout layout, UPLO uplo, int n, double alpha, double[] A, double[] x, int incx, double beta, double[] y, int incy) {
+        Data dy = Data.of(y);
+        spmv(layout, uplo, n, alpha, Data.of(A), Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void spmv(Layout layout, UPLO uplo, int n, double alpha, DoubleBuffer A, DoubleBuffer x, int incx, double beta, DoubleBuffer y, int incy) {
+        Data dy = Data.of(y);
+        spmv(layout, uplo, n, alpha, Data.of(A), Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void spmv(Layout layout, UPLO uplo, int n, float alpha, float[] A, float[] x, int incx, float beta, float[] y, int incy) {
+        Data dy = Data.of(y);
+        spmv(layout, uplo, n, alpha, Data.of(A), Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void spmv(Layout layout, UPLO uplo, int n, float alpha, FloatBuffer A, FloatBuffer x, int incx, float beta, FloatBuffer y, int incy) {
+        Data dy = Data.of(y);
+        spmv(layout, uplo, n, alpha, Data.of(A), Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void trmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, double[] A, int lda, double[] x, int incx) {
+        Data dx = Data.of(x);
+        trmv(layout, uplo, trans, diag, n, Data.of(A), lda, dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void trmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, DoubleBuffer A, int lda, DoubleBuffer x, int incx) {
+        Data dx = Data.of(x);
+        trmv(layout, uplo, trans, diag, n, Data.of(A), lda, dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void trmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, float[] A, int lda, float[] x, int incx) {
+        Data dx = Data.of(x);
+        trmv(layout, uplo, trans, diag, n, Data.of(A), lda, dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void trmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, FloatBuffer A, int lda, FloatBuffer x, int incx) {
+        Data dx = Data.of(x);
+        trmv(layout, uplo, trans, diag, n, Data.of(A), lda, dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void tpmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, double[] A, double[] x, int incx) {
+        Data dx = Data.of(x);
+        tpmv(layout, uplo, trans, diag, n, Data.of(A), dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void tpmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, DoubleBuffer A, DoubleBuffer x, int incx) {
+        Data dx = Data.of(x);
+        tpmv(layout, uplo, trans, diag, n, Data.of(A), dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void tpmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, float[] A, float[] x, int incx) {
+        Data dx = Data.of(x);
+        tpmv(layout, uplo, trans, diag, n, Data.of(A), dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void tpmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, FloatBuffer A, FloatBuffer x, int incx) {
+        Data dx = Data.of(x);
+        tpmv(layout, uplo, trans, diag, n, Data.of(A), dx, incx);
+        dx.flush();
+    }
+
+    @Override
+    public void gbmv(Layout layout, Transpose trans, int m, int n, int kl, int ku, double alpha, double[] A, int lda, double[] x, int incx, double beta, double[] y, int incy) {
+        Data dy = Data.of(y);
+        gbmv(layout, trans, m, n, kl, ku, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void gbmv(Layout layout, Transpose trans, int m, int n, int kl, int ku, double alpha, DoubleBuffer A, int lda, DoubleBuffer x, int incx, double beta, DoubleBuffer y, int incy) {
+        Data dy = Data.of(y);
+        gbmv(layout, trans, m, n, kl, ku, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void gbmv(Layout layout, Transpose trans, int m, int n, int kl, int ku, float alpha, float[] A, int lda, float[] x, int incx, float beta, float[] y, int incy) {
+        Data dy = Data.of(y);
+        gbmv(layout, trans, m, n, kl, ku, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void gbmv(Layout layout, Transpose trans, int m, int n, int kl, int ku, float alpha, FloatBuffer A, int lda, FloatBuffer x, int incx, float beta, FloatBuffer y, int incy) {
+        Data dy = Data.of(y);
+        gbmv(layout, trans, m, n, kl, ku, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void sbmv(Layout layout, UPLO uplo, int n, int k, double alpha, double[] A, int lda, double[] x, int incx, double beta, double[] y, int incy) {
+        Data dy = Data.of(y);
+        sbmv(layout, uplo, n, k, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void sbmv(Layout layout, UPLO uplo, int n, int k, double alpha, DoubleBuffer A, int lda, DoubleBuffer x, int incx, double beta, DoubleBuffer y, int incy) {
+        Data dy = Data.of(y);
+        sbmv(layout, uplo, n, k, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void sbmv(Layout layout, UPLO uplo, int n, int k, float alpha, float[] A, int lda, float[] x, int incx, float beta, float[] y, int incy) {
+        Data dy = Data.of(y);
+        sbmv(layout, uplo, n, k, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void sbmv(Layout layout, UPLO uplo, int n, int k, float alpha, FloatBuffer A, int lda, FloatBuffer x, int incx, float beta, FloatBuffer y, int incy) {
+        Data dy = Data.of(y);
+        sbmv(layout, uplo, n, k, alpha, Data.of(A), lda, Data.of(x), incx, beta, dy, incy);
+        dy.flush();
+    }
+
+    @Override
+    public void ger(Layout layout, int m, int n, double alpha, double[] x, int incx, double[] y, int incy, double[] A, int lda) {
+        Data dA = Data.of(A);
+        ger(layout, m, n, alpha, Data.of(x), incx, Data.of(y), incy, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void ger(Layout layout, int m, int n, double alpha, DoubleBuffer x, int incx, DoubleBuffer y, int incy, DoubleBuffer A, int lda) {
+        Data dA = Data.of(A);
+        ger(layout, m, n, alpha, Data.of(x), incx, Data.of(y), incy, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void ger(Layout layout, int m, int n, float alpha, float[] x, int incx, float[] y, int incy, float[] A, int lda) {
+        Data dA = Data.of(A);
+        ger(layout, m, n, alpha, Data.of(x), incx, Data.of(y), incy, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void ger(Layout layout, int m, int n, float alpha, FloatBuffer x, int incx, FloatBuffer y, int incy, FloatBuffer A, int lda) {
+        Data dA = Data.of(A);
+        ger(layout, m, n, alpha, Data.of(x), incx, Data.of(y), incy, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void syr(Layout layout, UPLO uplo, int n, double alpha, double[] x, int incx, double[] A, int lda) {
+        Data dA = Data.of(A);
+        syr(layout, uplo, n, alpha, Data.of(x), incx, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void syr(Layout layout, UPLO uplo, int n, double alpha, DoubleBuffer x, int incx, DoubleBuffer A, int lda) {
+        Data dA = Data.of(A);
+        syr(layout, uplo, n, alpha, Data.of(x), incx, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void syr(Layout layout, UPLO uplo, int n, float alpha, float[] x, int incx, float[] A, int lda) {
+        Data dA = Data.of(A);
+        syr(layout, uplo, n, alpha, Data.of(x), incx, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void syr(Layout layout, UPLO uplo, int n, float alpha, FloatBuffer x, int incx, FloatBuffer A, int lda) {
+        Data dA = Data.of(A);
+        syr(layout, uplo, n, alpha, Data.of(x), incx, dA, lda);
+        dA.flush();
+    }
+
+    @Override
+    public void spr(Layout layout, UPLO uplo, int n, double alpha, double[] x, int incx, double[] A) {
+        Data dA = Data.of(A);
+        spr(layout, uplo, n, alpha, Data.of(x), incx, dA);
+        dA.flush();
+    }
+
+    @Override
+    public void spr(Layout layout, UPLO uplo, int n, double alpha, DoubleBuffer x, int incx, DoubleBuffer A) {
+        Data dA = Data.of(A);
+        spr(layout, uplo, n, alpha, Data.of(x), incx, dA);
+        dA.flush();
+    }
+
+    @Override
+    public void spr(Layout layout, UPLO uplo, int n, float alpha, float[] x, int incx, float[] A) {
+        Data dA = Data.of(A);
+        spr(layout, uplo, n, alpha, Data.of(x), incx, dA);
+        dA.flush();
+    }
+
+    @Override
+    public void spr(Layout layout, UPLO uplo, int n, float alpha, FloatBuffer x, int incx, FloatBuffer A) {
+        Data dA = Data.of(A);
+        spr(layout, uplo, n, alpha, Data.of(x), incx, dA);
+        dA.flush();
+    }
+
+    @Override
+    public void gemm(Layout layout, Transpose transA, Transpose transB, int m, int n, int k, double alpha, double[] A, int lda, double[] B, int ldb, double beta, double[] C, int ldc) {
+        Data dC = Data.of(C);
+        gemm(layout, transA, transB, m, n, k, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void gemm(Layout layout, Transpose transA, Transpose transB, int m, int n, int k, double alpha, DoubleBuffer A, int lda, DoubleBuffer B, int ldb, double beta, DoubleBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        gemm(layout, transA, transB, m, n, k, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void gemm(Layout layout, Transpose transA, Transpose transB, int m, int n, int k, float alpha, float[] A, int lda, float[] B, int ldb, float beta, float[] C, int ldc) {
+        Data dC = Data.of(C);
+        gemm(layout, transA, transB, m, n, k, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void gemm(Layout layout, Transpose transA, Transpose transB, int m, int n, int k, float alpha, FloatBuffer A, int lda, FloatBuffer B, int ldb, float beta, FloatBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        gemm(layout, transA, transB, m, n, k, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void symm(Layout layout, Side side, UPLO uplo, int m, int n, double alpha, double[] A, int lda, double[] B, int ldb, double beta, double[] C, int ldc) {
+        Data dC = Data.of(C);
+        symm(layout, side, uplo, m, n, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void symm(Layout layout, Side side, UPLO uplo, int m, int n, double alpha, DoubleBuffer A, int lda, DoubleBuffer B, int ldb, double beta, DoubleBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        symm(layout, side, uplo, m, n, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void symm(Layout layout, Side side, UPLO uplo, int m, int n, float alpha, float[] A, int lda, float[] B, int ldb, float beta, float[] C, int ldc) {
+        Data dC = Data.of(C);
+        symm(layout, side, uplo, m, n, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void symm(Layout layout, Side side, UPLO uplo, int m, int n, float alpha, FloatBuffer A, int lda, FloatBuffer B, int ldb, float beta, FloatBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        symm(layout, side, uplo, m, n, alpha, Data.of(A), lda, Data.of(B), ldb, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, double alpha, double[] A, int lda, double beta, double[] C, int ldc) {
+        Data dC = Data.of(C);
+        syrk(layout, uplo, trans, n, k, alpha, Data.of(A), lda, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, double alpha, DoubleBuffer A, int lda, double beta, DoubleBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        syrk(layout, uplo, trans, n, k, alpha, Data.of(A), lda, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, float alpha, float[] A, int lda, float beta, float[] C, int ldc) {
+        Data dC = Data.of(C);
+        syrk(layout, uplo, trans, n, k, alpha, Data.of(A), lda, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, float alpha, FloatBuffer A, int lda, float beta, FloatBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        syrk(layout, uplo, trans, n, k, alpha, Data.of(A), lda, beta, dC, ldc);
+        dC.flush();
+    }
+
+    @Override
+    public int gesv(Layout layout, int n, int nrhs, double[] A, int lda, int[] ipiv, double[] B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = gesv(layout, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int gesv(Layout layout, int n, int nrhs, DoubleBuffer A, int lda, IntBuffer ipiv, DoubleBuffer B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = gesv(layout, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int gesv(Layout layout, int n, int nrhs, float[] A, int lda, int[] ipiv, float[] B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = gesv(layout, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int gesv(Layout layout, int n, int nrhs, FloatBuffer A, int lda, IntBuffer ipiv, FloatBuffer B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = gesv(layout, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int sysv(Layout layout, UPLO uplo, int n, int nrhs, double[] A, int lda, int[] ipiv, double[] B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = sysv(layout, uplo, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int sysv(Layout layout, UPLO uplo, int n, int nrhs, DoubleBuffer A, int lda, IntBuffer ipiv, DoubleBuffer B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = sysv(layout, uplo, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int sysv(Layout layout, UPLO uplo, int n, int nrhs, float[] A, int lda, int[] ipiv, float[] B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = sysv(layout, uplo, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int sysv(Layout layout, UPLO uplo, int n, int nrhs, FloatBuffer A, int lda, IntBuffer ipiv, FloatBuffer B, int ldb) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        Data dB = Data.of(B);
+        int info = sysv(layout, uplo, n, nrhs, dA, lda, dipiv, dB, ldb);
+        dA.flush();
+        dipiv.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int spsv(Layout layout, UPLO uplo, int n, int nrhs, double[] A, int[] ipiv, double[] B, int ldb) {
+        return lapack("spsv").spsv(layout, uplo, n, nrhs, A, ipiv, B, ldb);
+    }
+
+    @Override
+    public int spsv(Layout layout, UPLO uplo, int n, int nrhs, DoubleBuffer A, IntBuffer ipiv, DoubleBuffer B, int ldb) {
+        return lapack("spsv").spsv(layout, uplo, n, nrhs, A, ipiv, B, ldb);
+    }
+
+    @Override
+    public int spsv(Layout layout, UPLO uplo, int n, int nrhs, float[] A, int[] ipiv, float[] B, int ldb) {
+        return lapack("spsv").spsv(layout, uplo, n, nrhs, A, ipiv, B, ldb);
+    }
+
+    @Override
+    public int spsv(Layout layout, UPLO uplo, int n, int nrhs, FloatBuffer A, IntBuffer ipiv, FloatBuffer B, int ldb) {
+        return lapack("spsv").spsv(layout, uplo, n, nrhs, A, ipiv, B, ldb);
+    }
+
+    @Override
+    public int posv(Layout layout, UPLO uplo, int n, int nrhs, double[] A, int lda, double[] B, int ldb) {
+        Data dA = Data.of(A);
+        Data dB = Data.of(B);
+        int info = posv(layout, uplo, n, nrhs, dA, lda, dB, ldb);
+        dA.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int posv(Layout layout, UPLO uplo, int n, int nrhs, DoubleBuffer A, int lda, DoubleBuffer B, int ldb) {
+        Data dA = Data.of(A);
+        Data dB = Data.of(B);
+        int info = posv(layout, uplo, n, nrhs, dA, lda, dB, ldb);
+        dA.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int posv(Layout layout, UPLO uplo, int n, int nrhs, float[] A, int lda, float[] B, int ldb) {
+        Data dA = Data.of(A);
+        Data dB = Data.of(B);
+        int info = posv(layout, uplo, n, nrhs, dA, lda, dB, ldb);
+        dA.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int posv(Layout layout, UPLO uplo, int n, int nrhs, FloatBuffer A, int lda, FloatBuffer B, int ldb) {
+        Data dA = Data.of(A);
+        Data dB = Data.of(B);
+        int info = posv(layout, uplo, n, nrhs, dA, lda, dB, ldb);
+        dA.flush();
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int ppsv(Layout layout, UPLO uplo, int n, int nrhs, double[] A, double[] B, int ldb) {
+        return lapack("ppsv").ppsv(layout, uplo, n, nrhs, A, B, ldb);
+    }
+
+    @Override
+    public int ppsv(Layout layout, UPLO uplo, int n, int nrhs, DoubleBuffer A, DoubleBuffer B, int ldb) {
+        return lapack("ppsv").ppsv(layout, uplo, n, nrhs, A, B, ldb);
+    }
+
+    @Override
+    public int ppsv(Layout layout, UPLO uplo, int n, int nrhs, float[] A, float[] B, int ldb) {
+        return lapack("ppsv").ppsv(layout, uplo, n, nrhs, A, B, ldb);
+    }
+
+    @Override
+    public int ppsv(Layout layout, UPLO uplo, int n, int nrhs, FloatBuffer A, FloatBuffer B, int ldb) {
+        return lapack("ppsv").ppsv(layout, uplo, n, nrhs, A, B, ldb);
+    }
+
+    @Override
+    public int gbsv(Layout layout, int n, int kl, int ku, int nrhs, double[] A, int lda, int[] ipiv, double[] B, int ldb) {
+        return lapack("gbsv").gbsv(layout, n, kl, ku, nrhs, A, lda, ipiv, B, ldb);
+    }
+
+    @Override
+    public int gbsv(Layout layout, int n, int kl, int ku, int nrhs, DoubleBuffer A, int lda, IntBuffer ipiv, DoubleBuffer B, int ldb) {
+        return lapack("gbsv").gbsv(layout, n, kl, ku, nrhs, A, lda, ipiv, B, ldb);
+    }
+
+    @Override
+    public int gbsv(Layout layout, int n, int kl, int ku, int nrhs, float[] A, int lda, int[] ipiv, float[] B, int ldb) {
+        return lapack("gbsv").gbsv(layout, n, kl, ku, nrhs, A, lda, ipiv, B, ldb);
+    }
+
+    @Override
+    public int gbsv(Layout layout, int n, int kl, int ku, int nrhs, FloatBuffer A, int lda, IntBuffer ipiv, FloatBuffer B, int ldb) {
+        return lapack("gbsv").gbsv(layout, n, kl, ku, nrhs, A, lda, ipiv, B, ldb);
+    }
+
+    @Override
+    public int gels(Layout layout, Transpose trans, int m, int n, int nrhs, double[] A, int lda, double[] B, int ldb) {
+        return lapack("gels").gels(layout, trans, m, n, nrhs, A, lda, B, ldb);
+    }
+
+    @Override
+    public int gels(Layout layout, Transpose trans, int m, int n, int nrhs, DoubleBuffer A, int lda, DoubleBuffer B, int ldb) {
+        return lapack("gels").gels(layout, trans, m, n, nrhs, A, lda, B, ldb);
+    }
+
+    @Override
+    public int gels(Layout layout, Transpose trans, int m, int n, int nrhs, float[] A, int lda, float[] B, int ldb) {
+        return lapack("gels").gels(layout, trans, m, n, nrhs, A, lda, B, ldb);
+    }
+
+    @Override
+    public int gels(Layout layout, Transpose trans, int m, int n, int nrhs, FloatBuffer A, int lda, FloatBuffer B, int ldb) {
+        return lapack("gels").gels(layout, trans, m, n, nrhs, A, lda, B, ldb);
+    }
+
+    @Override
+    public int gelsy(Layout layout, int m, int n, int nrhs, double[] A, int lda, double[] B, int ldb, int[] jpvt, double rcond, int[] rank) {
+        return lapack("gelsy").gelsy(layout, m, n, nrhs, A, lda, B, ldb, jpvt, rcond, rank);
+    }
+
+    @Override
+    public int gelsy(Layout layout, int m, int n, int nrhs, DoubleBuffer A, int lda, DoubleBuffer B, int ldb, IntBuffer jpvt, double rcond, IntBuffer rank) {
+        return lapack("gelsy").gelsy(layout, m, n, nrhs, A, lda, B, ldb, jpvt, rcond, rank);
+    }
+
+    @Override
+    public int gelsy(Layout layout, int m, int n, int nrhs, float[] A, int lda, float[] B, int ldb, int[] jpvt, float rcond, int[] rank) {
+        return lapack("gelsy").gelsy(layout, m, n, nrhs, A, lda, B, ldb, jpvt, rcond, rank);
+    }
+
+    @Override
+    public int gelsy(Layout layout, int m, int n, int nrhs, FloatBuffer A, int lda, FloatBuffer B, int ldb, IntBuffer jpvt, float rcond, IntBuffer rank) {
+        return lapack("gelsy").gelsy(layout, m, n, nrhs, A, lda, B, ldb, jpvt, rcond, rank);
+    }
+
+    @Override
+    public int gelss(Layout layout, int m, int n, int nrhs, double[] A, int lda, double[] B, int ldb, double[] s, double rcond, int[] rank) {
+        return lapack("gelss").gelss(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gelss(Layout layout, int m, int n, int nrhs, DoubleBuffer A, int lda, DoubleBuffer B, int ldb, DoubleBuffer s, double rcond, IntBuffer rank) {
+        return lapack("gelss").gelss(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gelss(Layout layout, int m, int n, int nrhs, float[] A, int lda, float[] B, int ldb, float[] s, float rcond, int[] rank) {
+        return lapack("gelss").gelss(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gelss(Layout layout, int m, int n, int nrhs, FloatBuffer A, int lda, FloatBuffer B, int ldb, FloatBuffer s, float rcond, IntBuffer rank) {
+        return lapack("gelss").gelss(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gelsd(Layout layout, int m, int n, int nrhs, double[] A, int lda, double[] B, int ldb, double[] s, double rcond, int[] rank) {
+        return lapack("gelsd").gelsd(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gelsd(Layout layout, int m, int n, int nrhs, DoubleBuffer A, int lda, DoubleBuffer B, int ldb, DoubleBuffer s, double rcond, IntBuffer rank) {
+        return lapack("gelsd").gelsd(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gelsd(Layout layout, int m, int n, int nrhs, float[] A, int lda, float[] B, int ldb, float[] s, float rcond, int[] rank) {
+        return lapack("gelsd").gelsd(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gelsd(Layout layout, int m, int n, int nrhs, FloatBuffer A, int lda, FloatBuffer B, int ldb, FloatBuffer s, float rcond, IntBuffer rank) {
+        return lapack("gelsd").gelsd(layout, m, n, nrhs, A, lda, B, ldb, s, rcond, rank);
+    }
+
+    @Override
+    public int gglse(Layout layout, int m, int n, int p, double[] A, int lda, double[] B, int ldb, double[] c, double[] d, double[] x) {
+        return lapack("gglse").gglse(layout, m, n, p, A, lda, B, ldb, c, d, x);
+    }
+
+    @Override
+    public int gglse(Layout layout, int m, int n, int p, DoubleBuffer A, int lda, DoubleBuffer B, int ldb, DoubleBuffer c, DoubleBuffer d, DoubleBuffer x) {
+        return lapack("gglse").gglse(layout, m, n, p, A, lda, B, ldb, c, d, x);
+    }
+
+    @Override
+    public int gglse(Layout layout, int m, int n, int p, float[] A, int lda, float[] B, int ldb, float[] c, float[] d, float[] x) {
+        return lapack("gglse").gglse(layout, m, n, p, A, lda, B, ldb, c, d, x);
+    }
+
+    @Override
+    public int gglse(Layout layout, int m, int n, int p, FloatBuffer A, int lda, FloatBuffer B, int ldb, FloatBuffer c, FloatBuffer d, FloatBuffer x) {
+        return lapack("gglse").gglse(layout, m, n, p, A, lda, B, ldb, c, d, x);
+    }
+
+    @Override
+    public int ggglm(Layout layout, int n, int m, int p, double[] A, int lda, double[] B, int ldb, double[] d, double[] x, double[] y) {
+        return lapack("ggglm").ggglm(layout, n, m, p, A, lda, B, ldb, d, x, y);
+    }
+
+    @Override
+    public int ggglm(Layout layout, int n, int m, int p, DoubleBuffer A, int lda, DoubleBuffer B, int ldb, DoubleBuffer d, DoubleBuffer x, DoubleBuffer y) {
+        return lapack("ggglm").ggglm(layout, n, m, p, A, lda, B, ldb, d, x, y);
+    }
+
+    @Override
+    public int ggglm(Layout layout, int n, int m, int p, float[] A, int lda, float[] B, int ldb, float[] d, float[] x, float[] y) {
+        return lapack("ggglm").ggglm(layout, n, m, p, A, lda, B, ldb, d, x, y);
+    }
+
+    @Override
+    public int ggglm(Layout layout, int n, int m, int p, FloatBuffer A, int lda, FloatBuffer B, int ldb, FloatBuffer d, FloatBuffer x, FloatBuffer y) {
+        return lapack("ggglm").ggglm(layout, n, m, p, A, lda, B, ldb, d, x, y);
+    }
+
+    @Override
+    public int geev(Layout layout, EVDJob jobvl, EVDJob jobvr, int n, double[] A, int lda, double[] wr, double[] wi, double[] Vl, int ldvl, double[] Vr, int ldvr) {
+        return lapack("geev").geev(layout, jobvl, jobvr, n, A, lda, wr, wi, Vl, ldvl, Vr, ldvr);
+    }
+
+    @Override
+    public int geev(Layout layout, EVDJob jobvl, EVDJob jobvr, int n, DoubleBuffer A, int lda, DoubleBuffer wr, DoubleBuffer wi, DoubleBuffer Vl, int ldvl, DoubleBuffer Vr, int ldvr) {
+        return lapack("geev").geev(layout, jobvl, jobvr, n, A, lda, wr, wi, Vl, ldvl, Vr, ldvr);
+    }
+
+    @Override
+    public int geev(Layout layout, EVDJob jobvl, EVDJob jobvr, int n, float[] A, int lda, float[] wr, float[] wi, float[] Vl, int ldvl, float[] Vr, int ldvr) {
+        return lapack("geev").geev(layout, jobvl, jobvr, n, A, lda, wr, wi, Vl, ldvl, Vr, ldvr);
+    }
+
+    @Override
+    public int geev(Layout layout, EVDJob jobvl, EVDJob jobvr, int n, FloatBuffer A, int lda, FloatBuffer wr, FloatBuffer wi, FloatBuffer Vl, int ldvl, FloatBuffer Vr, int ldvr) {
+        return lapack("geev").geev(layout, jobvl, jobvr, n, A, lda, wr, wi, Vl, ldvl, Vr, ldvr);
+    }
+
+    @Override
+    public int syev(Layout layout, EVDJob jobz, UPLO uplo, int n, double[] A, int lda, double[] w) {
+        return lapack("syev").syev(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syev(Layout layout, EVDJob jobz, UPLO uplo, int n, DoubleBuffer A, int lda, DoubleBuffer w) {
+        return lapack("syev").syev(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syev(Layout layout, EVDJob jobz, UPLO uplo, int n, float[] A, int lda, float[] w) {
+        return lapack("syev").syev(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syev(Layout layout, EVDJob jobz, UPLO uplo, int n, FloatBuffer A, int lda, FloatBuffer w) {
+        return lapack("syev").syev(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syevd(Layout layout, EVDJob jobz, UPLO uplo, int n, double[] A, int lda, double[] w) {
+        return lapack("syevd").syevd(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syevd(Layout layout, EVDJob jobz, UPLO uplo, int n, DoubleBuffer A, int lda, DoubleBuffer w) {
+        return lapack("syevd").syevd(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syevd(Layout layout, EVDJob jobz, UPLO uplo, int n, float[] A, int lda, float[] w) {
+        return lapack("syevd").syevd(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syevd(Layout layout, EVDJob jobz, UPLO uplo, int n, FloatBuffer A, int lda, FloatBuffer w) {
+        return lapack("syevd").syevd(layout, jobz, uplo, n, A, lda, w);
+    }
+
+    @Override
+    public int syevr(Layout layout, EVDJob jobz, EigenRange range, UPLO uplo, int n, double[] A, int lda, double vl, double vu, int il, int iu, double abstol, int[] m, double[] w, double[] Z, int ldz, int[] isuppz) {
+        return lapack("syevr").syevr(layout, jobz, range, uplo, n, A, lda, vl, vu, il, iu, abstol, m, w, Z, ldz, isuppz);
+    }
+
+    @Override
+    public int syevr(Layout layout, EVDJob jobz, EigenRange range, UPLO uplo, int n, DoubleBuffer A, int lda, double vl, double vu, int il, int iu, double abstol, IntBuffer m, DoubleBuffer w, DoubleBuffer Z, int ldz, IntBuffer isuppz) {
+        return lapack("syevr").syevr(layout, jobz, range, uplo, n, A, lda, vl, vu, il, iu, abstol, m, w, Z, ldz, isuppz);
+    }
+
+    @Override
+    public int syevr(Layout layout, EVDJob jobz, EigenRange range, UPLO uplo, int n, float[] A, int lda, float vl, float vu, int il, int iu, float abstol, int[] m, float[] w, float[] Z, int ldz, int[] isuppz) {
+        return lapack("syevr").syevr(layout, jobz, range, uplo, n, A, lda, vl, vu, il, iu, abstol, m, w, Z, ldz, isuppz);
+    }
+
+    @Override
+    public int syevr(Layout layout, EVDJob jobz, EigenRange range, UPLO uplo, int n, FloatBuffer A, int lda, float vl, float vu, int il, int iu, float abstol, IntBuffer m, FloatBuffer w, FloatBuffer Z, int ldz, IntBuffer isuppz) {
+        return lapack("syevr").syevr(layout, jobz, range, uplo, n, A, lda, vl, vu, il, iu, abstol, m, w, Z, ldz, isuppz);
+    }
+
+    @Override
+    public int gesvd(Layout layout, SVDJob jobu, SVDJob jobvt, int m, int n, double[] A, int lda, double[] s, double[] U, int ldu, double[] VT, int ldvt, double[] superb) {
+        return lapack("gesvd").gesvd(layout, jobu, jobvt, m, n, A, lda, s, U, ldu, VT, ldvt, superb);
+    }
+
+    @Override
+    public int gesvd(Layout layout, SVDJob jobu, SVDJob jobvt, int m, int n, DoubleBuffer A, int lda, DoubleBuffer s, DoubleBuffer U, int ldu, DoubleBuffer VT, int ldvt, DoubleBuffer superb) {
+        return lapack("gesvd").gesvd(layout, jobu, jobvt, m, n, A, lda, s, U, ldu, VT, ldvt, superb);
+    }
+
+    @Override
+    public int gesvd(Layout layout, SVDJob jobu, SVDJob jobvt, int m, int n, float[] A, int lda, float[] s, float[] U, int ldu, float[] VT, int ldvt, float[] superb) {
+        return lapack("gesvd").gesvd(layout, jobu, jobvt, m, n, A, lda, s, U, ldu, VT, ldvt, superb);
+    }
+
+    @Override
+    public int gesvd(Layout layout, SVDJob jobu, SVDJob jobvt, int m, int n, FloatBuffer A, int lda, FloatBuffer s, FloatBuffer U, int ldu, FloatBuffer VT, int ldvt, FloatBuffer superb) {
+        return lapack("gesvd").gesvd(layout, jobu, jobvt, m, n, A, lda, s, U, ldu, VT, ldvt, superb);
+    }
+
+    @Override
+    public int gesdd(Layout layout, SVDJob jobz, int m, int n, double[] A, int lda, double[] s, double[] U, int ldu, double[] VT, int ldvt) {
+        return lapack("gesdd").gesdd(layout, jobz, m, n, A, lda, s, U, ldu, VT, ldvt);
+    }
+
+    @Override
+    public int gesdd(Layout layout, SVDJob jobz, int m, int n, DoubleBuffer A, int lda, DoubleBuffer s, DoubleBuffer U, int ldu, DoubleBuffer VT, int ldvt) {
+        return lapack("gesdd").gesdd(layout, jobz, m, n, A, lda, s, U, ldu, VT, ldvt);
+    }
+
+    @Override
+    public int gesdd(Layout layout, SVDJob jobz, int m, int n, float[] A, int lda, float[] s, float[] U, int ldu, float[] VT, int ldvt) {
+        return lapack("gesdd").gesdd(layout, jobz, m, n, A, lda, s, U, ldu, VT, ldvt);
+    }
+
+    @Override
+    public int gesdd(Layout layout, SVDJob jobz, int m, int n, FloatBuffer A, int lda, FloatBuffer s, FloatBuffer U, int ldu, FloatBuffer VT, int ldvt) {
+        return lapack("gesdd").gesdd(layout, jobz, m, n, A, lda, s, U, ldu, VT, ldvt);
+    }
+
+    @Override
+    public int getrf(Layout layout, int m, int n, double[] A, int lda, int[] ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int getrf(Layout layout, int m, int n, DoubleBuffer A, int lda, IntBuffer ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int getrf(Layout layout, int m, int n, float[] A, int lda, int[] ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int getrf(Layout layout, int m, int n, FloatBuffer A, int lda, IntBuffer ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int getrf2(Layout layout, int m, int n, double[] A, int lda, int[] ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int getrf2(Layout layout, int m, int n, DoubleBuffer A, int lda, IntBuffer ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int getrf2(Layout layout, int m, int n, float[] A, int lda, int[] ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int getrf2(Layout layout, int m, int n, FloatBuffer A, int lda, IntBuffer ipiv) {
+        Data dA = Data.of(A);
+        Ints dipiv = Ints.of(ipiv);
+        int info = getrf(layout, m, n, dA, lda, dipiv);
+        dA.flush();
+        dipiv.flush();
+        return info;
+    }
+
+    @Override
+    public int gbtrf(Layout layout, int m, int n, int kl, int ku, double[] AB, int ldab, int[] ipiv) {
+        return lapack("gbtrf").gbtrf(layout, m, n, kl, ku, AB, ldab, ipiv);
+    }
+
+    @Override
+    public int gbtrf(Layout layout, int m, int n, int kl, int ku, DoubleBuffer AB, int ldab, IntBuffer ipiv) {
+        return lapack("gbtrf").gbtrf(layout, m, n, kl, ku, AB, ldab, ipiv);
+    }
+
+    @Override
+    public int gbtrf(Layout layout, int m, int n, int kl, int ku, float[] AB, int ldab, int[] ipiv) {
+        return lapack("gbtrf").gbtrf(layout, m, n, kl, ku, AB, ldab, ipiv);
+    }
+
+    @Override
+    public int gbtrf(Layout layout, int m, int n, int kl, int ku, FloatBuffer AB, int ldab, IntBuffer ipiv) {
+        return lapack("gbtrf").gbtrf(layout, m, n, kl, ku, AB, ldab, ipiv);
+    }
+
+    @Override
+    public int sptrf(Layout layout, UPLO uplo, int n, double[] AP, int[] ipiv) {
+        return lapack("sptrf").sptrf(layout, uplo, n, AP, ipiv);
+    }
+
+    @Override
+    public int sptrf(Layout layout, UPLO uplo, int n, DoubleBuffer AP, IntBuffer ipiv) {
+        return lapack("sptrf").sptrf(layout, uplo, n, AP, ipiv);
+    }
+
+    @Override
+    public int sptrf(Layout layout, UPLO uplo, int n, float[] AP, int[] ipiv) {
+        return lapack("sptrf").sptrf(layout, uplo, n, AP, ipiv);
+    }
+
+    @Override
+    public int sptrf(Layout layout, UPLO uplo, int n, FloatBuffer AP, IntBuffer ipiv) {
+        return lapack("sptrf").sptrf(layout, uplo, n, AP, ipiv);
+    }
+
+    @Override
+    public int getrs(Layout layout, Transpose trans, int n, int nrhs, double[] A, int lda, int[] ipiv, double[] B, int ldb) {
+        Data dB = Data.of(B);
+        int info = getrs(layout, trans, n, nrhs, Data.of(A), lda, Ints.of(ipiv), dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int getrs(Layout layout, Transpose trans, int n, int nrhs, DoubleBuffer A, int lda, IntBuffer ipiv, DoubleBuffer B, int ldb) {
+        Data dB = Data.of(B);
+        int info = getrs(layout, trans, n, nrhs, Data.of(A), lda, Ints.of(ipiv), dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int getrs(Layout layout, Transpose trans, int n, int nrhs, float[] A, int lda, int[] ipiv, float[] B, int ldb) {
+        Data dB = Data.of(B);
+        int info = getrs(layout, trans, n, nrhs, Data.of(A), lda, Ints.of(ipiv), dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int getrs(Layout layout, Transpose trans, int n, int nrhs, FloatBuffer A, int lda, IntBuffer ipiv, FloatBuffer B, int ldb) {
+        Data dB = Data.of(B);
+        int info = getrs(layout, trans, n, nrhs, Data.of(A), lda, Ints.of(ipiv), dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int gbtrs(Layout layout, Transpose trans, int n, int kl, int ku, int nrhs, double[] AB, int ldab, int[] ipiv, double[] B, int ldb) {
+        return lapack("gbtrs").gbtrs(layout, trans, n, kl, ku, nrhs, AB, ldab, ipiv, B, ldb);
+    }
+
+    @Override
+    public int gbtrs(Layout layout, Transpose trans, int n, int kl, int ku, int nrhs, DoubleBuffer AB, int ldab, IntBuffer ipiv, DoubleBuffer B, int ldb) {
+        return lapack("gbtrs").gbtrs(layout, trans, n, kl, ku, nrhs, AB, ldab, ipiv, B, ldb);
+    }
+
+    @Override
+    public int gbtrs(Layout layout, Transpose trans, int n, int kl, int ku, int nrhs, float[] AB, int ldab, int[] ipiv, float[] B, int ldb) {
+        return lapack("gbtrs").gbtrs(layout, trans, n, kl, ku, nrhs, AB, ldab, ipiv, B, ldb);
+    }
+
+    @Override
+    public int gbtrs(Layout layout, Transpose trans, int n, int kl, int ku, int nrhs, FloatBuffer AB, int ldab, IntBuffer ipiv, FloatBuffer B, int ldb) {
+        return lapack("gbtrs").gbtrs(layout, trans, n, kl, ku, nrhs, AB, ldab, ipiv, B, ldb);
+    }
+
+    @Override
+    public int sptrs(Layout layout, UPLO uplo, int n, int nrhs, double[] AP, int[] ipiv, double[] B, int ldb) {
+        return lapack("sptrs").sptrs(layout, uplo, n, nrhs, AP, ipiv, B, ldb);
+    }
+
+    @Override
+    public int sptrs(Layout layout, UPLO uplo, int n, int nrhs, DoubleBuffer AP, IntBuffer ipiv, DoubleBuffer B, int ldb) {
+        return lapack("sptrs").sptrs(layout, uplo, n, nrhs, AP, ipiv, B, ldb);
+    }
+
+    @Override
+    public int sptrs(Layout layout, UPLO uplo, int n, int nrhs, FloatBuffer AP, IntBuffer ipiv, FloatBuffer B, int ldb) {
+        return lapack("sptrs").sptrs(layout, uplo, n, nrhs, AP, ipiv, B, ldb);
+    }
+
+    @Override
+    public int sptrs(Layout layout, UPLO uplo, int n, int nrhs, float[] AP, int[] ipiv, float[] B, int ldb) {
+        return lapack("sptrs").sptrs(layout, uplo, n, nrhs, AP, ipiv, B, ldb);
+    }
+
+    @Override
+    public int potrf(Layout layout, UPLO uplo, int n, double[] A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int potrf(Layout layout, UPLO uplo, int n, DoubleBuffer A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int potrf(Layout layout, UPLO uplo, int n, float[] A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int potrf(Layout layout, UPLO uplo, int n, FloatBuffer A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int potrf2(Layout layout, UPLO uplo, int n, double[] A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int potrf2(Layout layout, UPLO uplo, int n, DoubleBuffer A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int potrf2(Layout layout, UPLO uplo, int n, float[] A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int potrf2(Layout layout, UPLO uplo, int n, FloatBuffer A, int lda) {
+        Data dA = Data.of(A);
+        int info = potrf(layout, uplo, n, dA, lda);
+        dA.flush();
+        return info;
+    }
+
+    @Override
+    public int pbtrf(Layout layout, UPLO uplo, int n, int kd, double[] AB, int ldab) {
+        return lapack("pbtrf").pbtrf(layout, uplo, n, kd, AB, ldab);
+    }
+
+    @Override
+    public int pbtrf(Layout layout, UPLO uplo, int n, int kd, DoubleBuffer AB, int ldab) {
+        return lapack("pbtrf").pbtrf(layout, uplo, n, kd, AB, ldab);
+    }
+
+    @Override
+    public int pbtrf(Layout layout, UPLO uplo, int n, int kd, float[] AB, int ldab) {
+        return lapack("pbtrf").pbtrf(layout, uplo, n, kd, AB, ldab);
+    }
+
+    @Override
+    public int pbtrf(Layout layout, UPLO uplo, int n, int kd, FloatBuffer AB, int ldab) {
+        return lapack("pbtrf").pbtrf(layout, uplo, n, kd, AB, ldab);
+    }
+
+    @Override
+    public int pptrf(Layout layout, UPLO uplo, int n, double[] AP) {
+        return lapack("pptrf").pptrf(layout, uplo, n, AP);
+    }
+
+    @Override
+    public int pptrf(Layout layout, UPLO uplo, int n, DoubleBuffer AP) {
+        return lapack("pptrf").pptrf(layout, uplo, n, AP);
+    }
+
+    @Override
+    public int pptrf(Layout layout, UPLO uplo, int n, float[] AP) {
+        return lapack("pptrf").pptrf(layout, uplo, n, AP);
+    }
+
+    @Override
+    public int pptrf(Layout layout, UPLO uplo, int n, FloatBuffer AP) {
+        return lapack("pptrf").pptrf(layout, uplo, n, AP);
+    }
+
+    @Override
+    public int potrs(Layout layout, UPLO uplo, int n, int nrhs, double[] A, int lda, double[] B, int ldb) {
+        Data dB = Data.of(B);
+        int info = potrs(layout, uplo, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int potrs(Layout layout, UPLO uplo, int n, int nrhs, DoubleBuffer A, int lda, DoubleBuffer B, int ldb) {
+        Data dB = Data.of(B);
+        int info = potrs(layout, uplo, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int potrs(Layout layout, UPLO uplo, int n, int nrhs, float[] A, int lda, float[] B, int ldb) {
+        Data dB = Data.of(B);
+        int info = potrs(layout, uplo, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int potrs(Layout layout, UPLO uplo, int n, int nrhs, FloatBuffer A, int lda, FloatBuffer B, int ldb) {
+        Data dB = Data.of(B);
+        int info = potrs(layout, uplo, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int pbtrs(Layout layout, UPLO uplo, int n, int kd, int nrhs, double[] AB, int ldab, double[] B, int ldb) {
+        return lapack("pbtrs").pbtrs(layout, uplo, n, kd, nrhs, AB, ldab, B, ldb);
+    }
+
+    @Override
+    public int pbtrs(Layout layout, UPLO uplo, int n, int kd, int nrhs, DoubleBuffer AB, int ldab, DoubleBuffer B, int ldb) {
+        return lapack("pbtrs").pbtrs(layout, uplo, n, kd, nrhs, AB, ldab, B, ldb);
+    }
+
+    @Override
+    public int pbtrs(Layout layout, UPLO uplo, int n, int kd, int nrhs, float[] AB, int ldab, float[] B, int ldb) {
+        return lapack("pbtrs").pbtrs(layout, uplo, n, kd, nrhs, AB, ldab, B, ldb);
+    }
+
+    @Override
+    public int pbtrs(Layout layout, UPLO uplo, int n, int kd, int nrhs, FloatBuffer AB, int ldab, FloatBuffer B, int ldb) {
+        return lapack("pbtrs").pbtrs(layout, uplo, n, kd, nrhs, AB, ldab, B, ldb);
+    }
+
+    @Override
+    public int pptrs(Layout layout, UPLO uplo, int n, int nrhs, double[] AP, double[] B, int ldb) {
+        return lapack("pptrs").pptrs(layout, uplo, n, nrhs, AP, B, ldb);
+    }
+
+    @Override
+    public int pptrs(Layout layout, UPLO uplo, int n, int nrhs, DoubleBuffer AP, DoubleBuffer B, int ldb) {
+        return lapack("pptrs").pptrs(layout, uplo, n, nrhs, AP, B, ldb);
+    }
+
+    @Override
+    public int pptrs(Layout layout, UPLO uplo, int n, int nrhs, float[] AP, float[] B, int ldb) {
+        return lapack("pptrs").pptrs(layout, uplo, n, nrhs, AP, B, ldb);
+    }
+
+    @Override
+    public int pptrs(Layout layout, UPLO uplo, int n, int nrhs, FloatBuffer AP, FloatBuffer B, int ldb) {
+        return lapack("pptrs").pptrs(layout, uplo, n, nrhs, AP, B, ldb);
+    }
+
+    @Override
+    public int geqrf(Layout layout, int m, int n, double[] A, int lda, double[] tau) {
+        Data dA = Data.of(A);
+        Data dtau = Data.of(tau);
+        int info = geqrf(layout, m, n, dA, lda, dtau);
+        dA.flush();
+        dtau.flush();
+        return info;
+    }
+
+    @Override
+    public int geqrf(Layout layout, int m, int n, DoubleBuffer A, int lda, DoubleBuffer tau) {
+        Data dA = Data.of(A);
+        Data dtau = Data.of(tau);
+        int info = geqrf(layout, m, n, dA, lda, dtau);
+        dA.flush();
+        dtau.flush();
+        return info;
+    }
+
+    @Override
+    public int geqrf(Layout layout, int m, int n, float[] A, int lda, float[] tau) {
+        Data dA = Data.of(A);
+        Data dtau = Data.of(tau);
+        int info = geqrf(layout, m, n, dA, lda, dtau);
+        dA.flush();
+        dtau.flush();
+        return info;
+    }
+
+    @Override
+    public int geqrf(Layout layout, int m, int n, FloatBuffer A, int lda, FloatBuffer tau) {
+        Data dA = Data.of(A);
+        Data dtau = Data.of(tau);
+        int info = geqrf(layout, m, n, dA, lda, dtau);
+        dA.flush();
+        dtau.flush();
+        return info;
+    }
+
+    @Override
+    public int ormqr(Layout layout, Side side, Transpose trans, int m, int n, int k, double[] A, int lda, double[] tau, double[] C, int ldc) {
+        Data dC = Data.of(C);
+        int info = ormqr(layout, side, trans, m, n, k, Data.of(A), lda, Data.of(tau), dC, ldc);
+        dC.flush();
+        return info;
+    }
+
+    @Override
+    public int ormqr(Layout layout, Side side, Transpose trans, int m, int n, int k, DoubleBuffer A, int lda, DoubleBuffer tau, DoubleBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        int info = ormqr(layout, side, trans, m, n, k, Data.of(A), lda, Data.of(tau), dC, ldc);
+        dC.flush();
+        return info;
+    }
+
+    @Override
+    public int ormqr(Layout layout, Side side, Transpose trans, int m, int n, int k, float[] A, int lda, float[] tau, float[] C, int ldc) {
+        Data dC = Data.of(C);
+        int info = ormqr(layout, side, trans, m, n, k, Data.of(A), lda, Data.of(tau), dC, ldc);
+        dC.flush();
+        return info;
+    }
+
+    @Override
+    public int ormqr(Layout layout, Side side, Transpose trans, int m, int n, int k, FloatBuffer A, int lda, FloatBuffer tau, FloatBuffer C, int ldc) {
+        Data dC = Data.of(C);
+        int info = ormqr(layout, side, trans, m, n, k, Data.of(A), lda, Data.of(tau), dC, ldc);
+        dC.flush();
+        return info;
+    }
+
+    @Override
+    public int trtrs(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, int nrhs, double[] A, int lda, double[] B, int ldb) {
+        Data dB = Data.of(B);
+        int info = trtrs(layout, uplo, trans, diag, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int trtrs(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, int nrhs, DoubleBuffer A, int lda, DoubleBuffer B, int ldb) {
+        Data dB = Data.of(B);
+        int info = trtrs(layout, uplo, trans, diag, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int trtrs(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, int nrhs, float[] A, int lda, float[] B, int ldb) {
+        Data dB = Data.of(B);
+        int info = trtrs(layout, uplo, trans, diag, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+
+    @Override
+    public int trtrs(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, int nrhs, FloatBuffer A, int lda, FloatBuffer B, int ldb) {
+        Data dB = Data.of(B);
+        int info = trtrs(layout, uplo, trans, diag, n, nrhs, Data.of(A), lda, dB, ldb);
+        dB.flush();
+        return info;
+    }
+    /** The block size of rows of A in gemm. */
+    private static final int MC = 128;
+    /** The block size of inner dimension in gemm. */
+    private static final int KC = 256;
+    /** The block size of columns of B in gemm. */
+    private static final int NC = 1024;
+    /** The number of rows of register tile in gemm. */
+    private static final int MR = 4;
+    /** The number of columns of register tile in gemm. */
+    private static final int NR = 4;
+    /** The number of flops above which the computation is parallel. */
+    private static final double PARALLEL_FLOPS = 1 << 18;
+
+    /**
+     * The double array view of a vector or matrix argument. The float
+     * arrays and the direct buffers are copied, and the results should
+     * be written back by flush().
+     */
+    private static class Data {
+        /** The data. */
+        final double[] a;
+        /** The offset of first element. */
+        final int offset;
+        /** The direct double buffer. */
+        private DoubleBuffer doubleBuffer;
+        /** The float array. */
+        private float[] floatArray;
+        /** The float buffer. */
+        private FloatBuffer floatBuffer;
+
+        /** Constructor. */
+        Data(double[] a, int offset) {
+            this.a = a;
+            this.offset = offset;
+        }
+
+        /** Returns the view of a double array. */
+        static Data of(double[] x) {
+            return new Data(x, 0);
+        }
+
+        /** Returns the view of a double buffer. */
+        static Data of(DoubleBuffer x) {
+            if (x.hasArray()) {
+                return new Data(x.array(), x.arrayOffset() + x.position());
+            }
+
+            double[] a = new double[x.remaining()];
+            x.duplicate().get(a);
+            Data data = new Data(a, 0);
+            data.doubleBuffer = x;
+            return data;
+        }
+
+        /** Returns the view of a float array. */
+        static Data of(float[] x) {
+            double[] a = new double[x.length];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = x[i];
+            }
+
+            Data data = new Data(a, 0);
+            data.floatArray = x;
+            return data;
+        }
+
+        /** Returns the view of a float buffer. */
+        static Data of(FloatBuffer x) {
+            FloatBuffer b = x.duplicate();
+            double[] a = new double[b.remaining()];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = b.get();
+            }
+
+            Data data = new Data(a, 0);
+            data.floatBuffer = x;
+            return data;
+        }
+
+        /** Writes the results back if the data is a copy. */
+        void flush() {
+            if (doubleBuffer != null) {
+                doubleBuffer.duplicate().put(a);
+            } else if (floatArray != null) {
+                for (int i = 0; i < a.length; i++) {
+                    floatArray[i] = (float) a[i];
+                }
+            } else if (floatBuffer != null) {
+                FloatBuffer b = floatBuffer.duplicate();
+                for (double x : a) {
+                    b.put((float) x);
+                }
+            }
+        }
+    }
+
+    /**
+     * The int array view of pivot indices.
+     */
+    private static class Ints {
+        /** The data. */
+        final int[] a;
+        /** The offset of first element. */
+        final int offset;
+        /** The direct int buffer. */
+        private IntBuffer buffer;
+
+        /** Constructor. */
+        Ints(int[] a, int offset) {
+            this.a = a;
+            this.offset = offset;
+        }
+
+        /** Returns the view of an int array. */
+        static Ints of(int[] x) {
+            return new Ints(x, 0);
+        }
+
+        /** Returns the view of an int buffer. */
+        static Ints of(IntBuffer x) {
+            if (x.hasArray()) {
+                return new Ints(x.array(), x.arrayOffset() + x.position());
+            }
+
+            int[] a = new int[x.remaining()];
+            x.duplicate().get(a);
+            Ints ints = new Ints(a, 0);
+            ints.buffer = x;
+            return ints;
+        }
+
+        /** Writes the results back if the data is a copy. */
+        void flush() {
+            if (buffer != null) {
+                buffer.duplicate().put(a);
+            }
+        }
+    }
+
+    /** Returns the index of first element of a vector with increment. */
+    private static int start(Data x, int n, int inc) {
+        return inc >= 0 ? x.offset : x.offset + (1 - n) * inc;
+    }
+
+    /** Returns the transpose of transpose operation. */
+    private static Transpose flip(Transpose trans) {
+        return trans == Transpose.NO_TRANSPOSE ? Transpose.TRANSPOSE : Transpose.NO_TRANSPOSE;
+    }
+
+    /** Returns the other triangle. */
+    private static UPLO flip(UPLO uplo) {
+        return uplo == UPLO.UPPER ? UPLO.LOWER : UPLO.UPPER;
+    }
+
+    /** Scales y by beta. */
+    private static void scale(int n, double beta, double[] y, int iy, int incy) {
+        if (beta == 1.0) return;
+        for (int i = 0; i < n; i++, iy += incy) {
+            y[iy] = beta == 0.0 ? 0.0 : beta * y[iy];
+        }
+    }
+
+    private static double asum(int n, Data x, int incx) {
+        if (n <= 0 || incx <= 0) return 0.0;
+
+        double[] a = x.a;
+        double sum = 0.0;
+        for (int i = 0, ix = x.offset; i < n; i++, ix += incx) {
+            sum += Math.abs(a[ix]);
+        }
+        return sum;
+    }
+
+    private static void axpy(int n, double alpha, Data x, int incx, Data y, int incy) {
+        if (n <= 0 || alpha == 0.0) return;
+
+        double[] a = x.a;
+        double[] b = y.a;
+        for (int i = 0, ix = start(x, n, incx), iy = start(y, n, incy); i < n; i++, ix += incx, iy += incy) {
+            b[iy] += alpha * a[ix];
+        }
+    }
+
+    private static double dot(int n, Data x, int incx, Data y, int incy) {
+        double[] a = x.a;
+        double[] b = y.a;
+        double sum = 0.0;
+        for (int i = 0, ix = start(x, n, incx), iy = start(y, n, incy); i < n; i++, ix += incx, iy += incy) {
+            sum += a[ix] * b[iy];
+        }
+        return sum;
+    }
+
+    private static double nrm2(int n, Data x, int incx) {
+        if (n <= 0 || incx <= 0) return 0.0;
+
+        // Scaled sum of squares to avoid overflow and underflow.
+        double[] a = x.a;
+        double scale = 0.0;
+        double ssq = 1.0;
+        for (int i = 0, ix = x.offset; i < n; i++, ix += incx) {
+            if (a[ix] != 0.0) {
+                double abs = Math.abs(a[ix]);
+                if (scale < abs) {
+                    ssq = 1.0 + ssq * (scale / abs) * (scale / abs);
+                    scale = abs;
+                } else {
+                    ssq += (abs / scale) * (abs / scale);
+                }
+            }
+        }
+        return scale * Math.sqrt(ssq);
+    }
+
+    private static void scal(int n, double alpha, Data x, int incx) {
+        if (n <= 0 || incx <= 0) return;
+
+        double[] a = x.a;
+        for (int i = 0, ix = x.offset; i < n; i++, ix += incx) {
+            a[ix] *= alpha;
+        }
+    }
+
+    private static void swap(int n, Data x, int incx, Data y, int incy) {
+        double[] a = x.a;
+        double[] b = y.a;
+        for (int i = 0, ix = start(x, n, incx), iy = start(y, n, incy); i < n; i++, ix += incx, iy += incy) {
+            double t = a[ix];
+            a[ix] = b[iy];
+            b[iy] = t;
+        }
+    }
+
+    private static long iamax(int n, Data x, int incx) {
+        if (n <= 0 || incx <= 0) return 0;
+
+        double[] a = x.a;
+        long index = 0;
+        double max = -1.0;
+        for (int i = 0, ix = x.offset; i < n; i++, ix += incx) {
+            double abs = Math.abs(a[ix]);
+            if (abs > max) {
+                max = abs;
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private static void gemv(Layout layout, Transpose trans, int m, int n, double alpha, Data A, int lda, Data x, int incx, double beta, Data y, int incy) {
+        if (layout == Layout.ROW_MAJOR) {
+            gemv(Layout.COL_MAJOR, flip(trans), n, m, alpha, A, lda, x, incx, beta, y, incy);
+            return;
+        }
+
+        boolean notrans = trans == Transpose.NO_TRANSPOSE;
+        int lenx = notrans ? n : m;
+        int leny = notrans ? m : n;
+        if (m <= 0 || n <= 0) return;
+
+        double[] a = A.a;
+        double[] b = x.a;
+        double[] c = y.a;
+        int a0 = A.offset;
+        int x0 = start(x, lenx, incx);
+        int y0 = start(y, leny, incy);
+        scale(leny, beta, c, y0, incy);
+        if (alpha == 0.0) return;
+
+        boolean parallel = (double) m * n >= PARALLEL_FLOPS;
+        if (notrans) {
+            // Each task updates a block of y with all columns.
+            int block = parallel ? 256 : m;
+            IntStream range = IntStream.range(0, (m + block - 1) / block);
+            (parallel ? range.parallel() : range).forEach(t -> {
+                int from = t * block;
+                int to = Math.min(m, from + block);
+                for (int j = 0, jx = x0; j < n; j++, jx += incx) {
+                    double s = alpha * b[jx];
+                    if (s == 0.0) continue;
+                    int col = a0 + j * lda;
+                    for (int i = from, iy = y0 + from * incy; i < to; i++, iy += incy) {
+                        c[iy] += s * a[col + i];
+                    }
+                }
+            });
+        } else {
+            IntStream range = IntStream.range(0, n);
+            (parallel ? range.parallel() : range).forEach(j -> {
+                int col = a0 + j * lda;
+                double s = 0.0;
+                for (int i = 0, ix = x0; i < m; i++, ix += incx) {
+                    s += a[col + i] * b[ix];
+                }
+                c[y0 + j * incy] += alpha * s;
+            });
+        }
+    }
+
+    /**
+     * Returns the index of element (i, j) in the stored triangle of
+     * a column-major full or packed matrix.
+     */
+    private static IntBinaryOperator triangle(UPLO uplo, int n, int lda, boolean packed) {
+        if (!packed) return (i, j) -> i + j * lda;
+        if (uplo == UPLO.UPPER) return (i, j) -> i + j * (j + 1) / 2;
+        return (i, j) -> i + j * (2 * n - j - 1) / 2;
+    }
+
+    /** Symmetric matrix-vector multiplication on column-major full or packed storage. */
+    private static void symv(UPLO uplo, int n, double alpha, Data A, IntBinaryOperator index, Data x, int incx, double beta, Data y, int incy) {
+        if (n <= 0) return;
+
+        double[] a = A.a;
+        double[] b = x.a;
+        double[] c = y.a;
+        int a0 = A.offset;
+        int x0 = start(x, n, incx);
+        int y0 = start(y, n, incy);
+        scale(n, beta, c, y0, incy);
+        if (alpha == 0.0) return;
+
+        for (int j = 0; j < n; j++) {
+            double s = alpha * b[x0 + j * incx];
+            double t = 0.0;
+            if (uplo == UPLO.UPPER) {
+                for (int i = 0; i < j; i++) {
+                    double aij = a[a0 + index.applyAsInt(i, j)];
+                    c[y0 + i * incy] += s * aij;
+                    t += aij * b[x0 + i * incx];
+                }
+                c[y0 + j * incy] += s * a[a0 + index.applyAsInt(j, j)] + alpha * t;
+            } else {
+                c[y0 + j * incy] += s * a[a0 + index.applyAsInt(j, j)];
+                for (int i = j + 1; i < n; i++) {
+                    double aij = a[a0 + index.applyAsInt(i, j)];
+                    c[y0 + i * incy] += s * aij;
+                    t += aij * b[x0 + i * incx];
+                }
+                c[y0 + j * incy] += alpha * t;
+            }
+        }
+    }
+
+    private static void symv(Layout layout, UPLO uplo, int n, double alpha, Data A, int lda, Data x, int incx, double beta, Data y, int incy) {
+        // The upper triangle of row-major matrix is the lower triangle of column-major.
+        if (layout == Layout.ROW_MAJOR) uplo = flip(uplo);
+        symv(uplo, n, alpha, A, triangle(uplo, n, lda, false), x, incx, beta, y, incy);
+    }
+
+    private static void spmv(Layout layout, UPLO uplo, int n, double alpha, Data A, Data x, int incx, double beta, Data y, int incy) {
+        if (layout == Layout.ROW_MAJOR) uplo = flip(uplo);
+        symv(uplo, n, alpha, A, triangle(uplo, n, 0, true), x, incx, beta, y, incy);
+    }
+
+    /** Triangular matrix-vector multiplication on column-major full or packed storage. */
+    private static void trmv(UPLO uplo, Transpose trans, Diag diag, int n, Data A, IntBinaryOperator index, Data x, int incx) {
+        if (n <= 0) return;
+
+        double[] a = A.a;
+        double[] b = x.a;
+        int a0 = A.offset;
+        int x0 = start(x, n, incx);
+        boolean unit = diag == Diag.UNIT;
+        boolean upper = uplo == UPLO.UPPER;
+        boolean notrans = trans == Transpose.NO_TRANSPOSE;
+
+        // In place: each x[i] depends only on the elements not updated yet.
+        boolean ascending = upper == notrans;
+        for (int k = 0; k < n; k++) {
+            int i = ascending ? k : n - 1 - k;
+            double s = unit ? b[x0 + i * incx] : a[a0 + index.applyAsInt(i, i)] * b[x0 + i * incx];
+            int from = ascending ? i + 1 : 0;
+            int to = ascending ? n : i;
+            for (int j = from; j < to; j++) {
+                double aij = notrans ? a[a0 + index.applyAsInt(i, j)] : a[a0 + index.applyAsInt(j, i)];
+                s += aij * b[x0 + j * incx];
+            }
+            b[x0 + i * incx] = s;
+        }
+    }
+
+    private static void trmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, Data A, int lda, Data x, int incx) {
+        // A row-major matrix is the transpose of column-major matrix.
+        if (layout == Layout.ROW_MAJOR) {
+            uplo = flip(uplo);
+            trans = flip(trans);
+        }
+        trmv(uplo, trans, diag, n, A, triangle(uplo, n, lda, false), x, incx);
+    }
+
+    private static void tpmv(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, Data A, Data x, int incx) {
+        if (layout == Layout.ROW_MAJOR) {
+            uplo = flip(uplo);
+            trans = flip(trans);
+        }
+        trmv(uplo, trans, diag, n, A, triangle(uplo, n, 0, true), x, incx);
+    }
+
+    private static void gbmv(Layout layout, Transpose trans, int m, int n, int kl, int ku, double alpha, Data A, int lda, Data x, int incx, double beta, Data y, int incy) {
+        // The row-major band matrix is the column-major band storage of transpose.
+        if (layout == Layout.ROW_MAJOR) {
+            gbmv(Layout.COL_MAJOR, flip(trans), n, m, ku, kl, alpha, A, lda, x, incx, beta, y, incy);
+            return;
+        }
+
+        if (m <= 0 || n <= 0) return;
+
+        boolean notrans = trans == Transpose.NO_TRANSPOSE;
+        int lenx = notrans ? n : m;
+        int leny = notrans ? m : n;
+        double[] a = A.a;
+        double[] b = x.a;
+        double[] c = y.a;
+        int a0 = A.offset;
+        int x0 = start(x, lenx, incx);
+        int y0 = start(y, leny, incy);
+        scale(leny, beta, c, y0, incy);
+        if (alpha == 0.0) return;
+
+        for (int j = 0; j < n; j++) {
+            int col = a0 + ku - j + j * lda;
+            int from = Math.max(0, j - ku);
+            int to = Math.min(m, j + kl + 1);
+            if (notrans) {
+                double s = alpha * b[x0 + j * incx];
+                for (int i = from; i < to; i++) {
+                    c[y0 + i * incy] += s * a[col + i];
+                }
+            } else {
+                double s = 0.0;
+                for (int i = from; i < to; i++) {
+                    s += a[col + i] * b[x0 + i * incx];
+                }
+                c[y0 + j * incy] += alpha * s;
+            }
+        }
+    }
+
+    private static void sbmv(Layout layout, UPLO uplo, int n, int k, double alpha, Data A, int lda, Data x, int incx, double beta, Data y, int incy) {
+        if (layout == Layout.ROW_MAJOR) uplo = flip(uplo);
+        if (n <= 0) return;
+
+        double[] a = A.a;
+        double[] b = x.a;
+        double[] c = y.a;
+        int a0 = A.offset;
+        int x0 = start(x, n, incx);
+        int y0 = start(y, n, incy);
+        scale(n, beta, c, y0, incy);
+        if (alpha == 0.0) return;
+
+        boolean upper = uplo == UPLO.UPPER;
+        for (int j = 0; j < n; j++) {
+            double s = alpha * b[x0 + j * incx];
+            double t = 0.0;
+            int col = upper ? a0 + k - j + j * lda : a0 - j + j * lda;
+            int from = upper ? Math.max(0, j - k) : j + 1;
+            int to = upper ? j : Math.min(n, j + k + 1);
+            for (int i = from; i < to; i++) {
+                double aij = a[col + i];
+                c[y0 + i * incy] += s * aij;
+                t += aij * b[x0 + i * incx];
+            }
+            c[y0 + j * incy] += s * a[col + j] + alpha * t;
+        }
+    }
+
+    private static void ger(Layout layout, int m, int n, double alpha, Data x, int incx, Data y, int incy, Data A, int lda) {
+        // A row-major matrix is the transpose of column-major matrix.
+        if (layout == Layout.ROW_MAJOR) {
+            ger(Layout.COL_MAJOR, n, m, alpha, y, incy, x, incx, A, lda);
+            return;
+        }
+
+        if (m <= 0 || n <= 0 || alpha == 0.0) return;
+
+        double[] a = A.a;
+        double[] b = x.a;
+        double[] c = y.a;
+        int x0 = start(x, m, incx);
+        int y0 = start(y, n, incy);
+        for (int j = 0; j < n; j++) {
+            double s = alpha * c[y0 + j * incy];
+            int col = A.offset + j * lda;
+            for (int i = 0; i < m; i++) {
+                a[col + i] += s * b[x0 + i * incx];
+            }
+        }
+    }
+
+    /** Symmetric rank-1 update on column-major full or packed storage. */
+    private static void syr(UPLO uplo, int n, double alpha, Data x, int incx, Data A, IntBinaryOperator index) {
+        if (n <= 0 || alpha == 0.0) return;
+
+        double[] a = A.a;
+        double[] b = x.a;
+        int x0 = start(x, n, incx);
+        for (int j = 0; j < n; j++) {
+            double s = alpha * b[x0 + j * incx];
+            int from = uplo == UPLO.UPPER ? 0 : j;
+            int to = uplo == UPLO.UPPER ? j + 1 : n;
+            for (int i = from; i < to; i++) {
+                a[A.offset + index.applyAsInt(i, j)] += s * b[x0 + i * incx];
+            }
+        }
+    }
+
+    private static void syr(Layout layout, UPLO uplo, int n, double alpha, Data x, int incx, Data A, int lda) {
+        if (layout == Layout.ROW_MAJOR) uplo = flip(uplo);
+        syr(uplo, n, alpha, x, incx, A, triangle(uplo, n, lda, false));
+    }
+
+    private static void spr(Layout layout, UPLO uplo, int n, double alpha, Data x, int incx, Data A) {
+        if (layout == Layout.ROW_MAJOR) uplo = flip(uplo);
+        syr(uplo, n, alpha, x, incx, A, triangle(uplo, n, 0, true));
+    }
+
+    private static void gemm(Layout layout, Transpose transA, Transpose transB, int m, int n, int k, double alpha, Data A, int lda, Data B, int ldb, double beta, Data C, int ldc) {
+        // C' = B' * A' for row-major matrices.
+        if (layout == Layout.ROW_MAJOR) {
+            gemm(Layout.COL_MAJOR, transB, transA, n, m, k, alpha, B, ldb, A, lda, beta, C, ldc);
+            return;
+        }
+
+        if (m <= 0 || n <= 0) return;
+
+        double[] c = C.a;
+        int c0 = C.offset;
+        if (beta != 1.0) {
+            for (int j = 0; j < n; j++) {
+                scale(m, beta, c, c0 + j * ldc, 1);
+            }
+        }
+
+        if (alpha == 0.0 || k <= 0) return;
+
+        boolean ta = transA != Transpose.NO_TRANSPOSE;
+        boolean tb = transB != Transpose.NO_TRANSPOSE;
+        int mb = (m + MC - 1) / MC;
+        int nb = (n + NC - 1) / NC;
+
+        // Each task computes a block of C, which packs the blocks
+        // of A and B into the contiguous micro-panels.
+        IntStream tasks = IntStream.range(0, mb * nb);
+        boolean parallel = (double) m * n * k >= PARALLEL_FLOPS && mb * nb > 1;
+        (parallel ? tasks.parallel() : tasks).forEach(t -> {
+            int ic = (t % mb) * MC;
+            int jc = (t / mb) * NC;
+            int mc = Math.min(MC, m - ic);
+            int nc = Math.min(NC, n - jc);
+            int mp = (mc + MR - 1) / MR * MR;
+            int np = (nc + NR - 1) / NR * NR;
+            double[] ap = new double[mp * Math.min(KC, k)];
+            double[] bp = new double[np * Math.min(KC, k)];
+
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packA(ta, alpha, A, lda, ic, pc, mc, kc, ap);
+                packB(tb, B, ldb, pc, jc, kc, nc, bp);
+                for (int jr = 0; jr < nc; jr += NR) {
+                    for (int ir = 0; ir < mc; ir += MR) {
+                        kernel(kc, ap, ir * kc, bp, jr * kc, c, c0 + ic + ir + (jc + jr) * ldc, ldc, Math.min(MR, mc - ir), Math.min(NR, nc - jr));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Packs alpha * op(A)[ic:ic+mc, pc:pc+kc] into micro-panels of MR rows,
+     * which are zero padded.
+     */
+    private static void packA(boolean trans, double alpha, Data A, int lda, int ic, int pc, int mc, int kc, double[] ap) {
+        double[] a = A.a;
+        int a0 = A.offset;
+        int index = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            int rows = Math.min(MR, mc - ir);
+            for (int p = 0; p < kc; p++) {
+                for (int r = 0; r < MR; r++, index++) {
+                    if (r < rows) {
+                        int i = ic + ir + r;
+                        int l = pc + p;
+                        ap[index] = alpha * (trans ? a[a0 + l + i * lda] : a[a0 + i + l * lda]);
+                    } else {
+                        ap[index] = 0.0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs op(B)[pc:pc+kc, jc:jc+nc] into micro-panels of NR columns,
+     * which are zero padded.
+     */
+    private static void packB(boolean trans, Data B, int ldb, int pc, int jc, int kc, int nc, double[] bp) {
+        double[] b = B.a;
+        int b0 = B.offset;
+        int index = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int cols = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; p++) {
+                for (int s = 0; s < NR; s++, index++) {
+                    if (s < cols) {
+                        int j = jc + jr + s;
+                        int l = pc + p;
+                        bp[index] = trans ? b[b0 + j + l * ldb] : b[b0 + l + j * ldb];
+                    } else {
+                        bp[index] = 0.0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The 4 x 4 register tiled micro-kernel of gemm, which adds
+     * the product of micro-panels to C.
+     */
+    private static void kernel(int kc, double[] ap, int ai, double[] bp, int bi, double[] c, int ci, int ldc, int rows, int cols) {
+        double c00 = 0.0, c01 = 0.0, c02 = 0.0, c03 = 0.0;
+        double c10 = 0.0, c11 = 0.0, c12 = 0.0, c13 = 0.0;
+        double c20 = 0.0, c21 = 0.0, c22 = 0.0, c23 = 0.0;
+        double c30 = 0.0, c31 = 0.0, c32 = 0.0, c33 = 0.0;
+
+        for (int p = 0; p < kc; p++, ai += MR, bi += NR) {
+            double a0 = ap[ai], a1 = ap[ai + 1], a2 = ap[ai + 2], a3 = ap[ai + 3];
+            double b0 = bp[bi], b1 = bp[bi + 1], b2 = bp[bi + 2], b3 = bp[bi + 3];
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+        }
+
+        if (rows == MR && cols == NR) {
+            int j0 = ci, j1 = ci + ldc, j2 = ci + 2 * ldc, j3 = ci + 3 * ldc;
+            c[j0] += c00; c[j0 + 1] += c10; c[j0 + 2] += c20; c[j0 + 3] += c30;
+            c[j1] += c01; c[j1 + 1] += c11; c[j1 + 2] += c21; c[j1 + 3] += c31;
+            c[j2] += c02; c[j2 + 1] += c12; c[j2 + 2] += c22; c[j2 + 3] += c32;
+            c[j3] += c03; c[j3 + 1] += c13; c[j3 + 2] += c23; c[j3 + 3] += c33;
+        } else {
+            double[] tile = {
+                c00, c10, c20, c30,
+                c01, c11, c21, c31,
+                c02, c12, c22, c32,
+                c03, c13, c23, c33
+            };
+
+            for (int s = 0; s < cols; s++) {
+                for (int r = 0; r < rows; r++) {
+                    c[ci + r + s * ldc] += tile[r + s * MR];
+                }
+            }
+        }
+    }
+
+    private static void symm(Layout layout, Side side, UPLO uplo, int m, int n, double alpha, Data A, int lda, Data B, int ldb, double beta, Data C, int ldc) {
+        // Expands the symmetric matrix, which is the same in both layouts.
+        int na = side == Side.LEFT ? m : n;
+        double[] a = A.a;
+        int a0 = A.offset;
+        boolean rowMajor = layout == Layout.ROW_MAJOR;
+        boolean upper = uplo == UPLO.UPPER;
+        double[] full = new double[na * na];
+        for (int j = 0; j < na; j++) {
+            for (int i = 0; i < na; i++) {
+                int r = upper == (i <= j) ? i : j;
+                int s = upper == (i <= j) ? j : i;
+                full[i + j * na] = rowMajor ? a[a0 + r * lda + s] : a[a0 + r + s * lda];
+            }
+        }
+
+        Data F = Data.of(full);
+        if (side == Side.LEFT) {
+            gemm(layout, Transpose.NO_TRANSPOSE, Transpose.NO_TRANSPOSE, m, n, m, alpha, F, m, B, ldb, beta, C, ldc);
+        } else {
+            gemm(layout, Transpose.NO_TRANSPOSE, Transpose.NO_TRANSPOSE, m, n, n, alpha, B, ldb, F, n, beta, C, ldc);
+        }
+    }
+
+    private static void syrk(Layout layout, UPLO uplo, Transpose trans, int n, int k, double alpha, Data A, int lda, double beta, Data C, int ldc) {
+        // A row-major matrix is the column-major transpose. As C is
+        // symmetric, only the triangle and the operation of A flip.
+        if (layout == Layout.ROW_MAJOR) {
+            uplo = flip(uplo);
+            trans = flip(trans);
+        }
+
+        if (n <= 0) return;
+
+        double[] a = A.a;
+        double[] c = C.a;
+        int a0 = A.offset;
+        int c0 = C.offset;
+        boolean upper = uplo == UPLO.UPPER;
+        boolean ta = trans != Transpose.NO_TRANSPOSE;
+        IntStream columns = IntStream.range(0, n);
+        if ((double) n * n * k >= PARALLEL_FLOPS) columns = columns.parallel();
+        columns.forEach(j -> {
+            int from = upper ? 0 : j;
+            int to = upper ? j + 1 : n;
+            int cj = c0 + j * ldc;
+            if (beta == 0.0) {
+                for (int i = from; i < to; i++) c[cj + i] = 0.0;
+            } else if (beta != 1.0) {
+                for (int i = from; i < to; i++) c[cj + i] *= beta;
+            }
+
+            if (alpha == 0.0 || k <= 0) return;
+
+            if (ta) {
+                // C(i, j) += alpha * A(:, i)' * A(:, j), where A is k x n.
+                int aj = a0 + j * lda;
+                for (int i = from; i < to; i++) {
+                    int ai = a0 + i * lda;
+                    double s = 0.0;
+                    for (int l = 0; l < k; l++) {
+                        s += a[ai + l] * a[aj + l];
+                    }
+                    c[cj + i] += alpha * s;
+                }
+            } else {
+                // C(:, j) += alpha * A * A(j, :)', where A is n x k.
+                for (int l = 0; l < k; l++) {
+                    int al = a0 + l * lda;
+                    double s = alpha * a[al + j];
+                    if (s == 0.0) continue;
+                    for (int i = from; i < to; i++) {
+                        c[cj + i] += s * a[al + i];
+                    }
+                }
+            }
+        });
+    }
+
+    /** Returns the column-major copy of a row-major matrix. */
+    private static Data colMajor(Data A, int m, int n, int lda) {
+        double[] a = A.a;
+        double[] b = new double[Math.max(1, m * n)];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                b[i + j * m] = a[A.offset + i * lda + j];
+            }
+        }
+        return Data.of(b);
+    }
+
+    /** Copies a column-major matrix back to the row-major matrix. */
+    private static void rowMajor(Data T, int m, int n, Data A, int lda) {
+        double[] a = A.a;
+        double[] b = T.a;
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                a[A.offset + i * lda + j] = b[i + j * m];
+            }
+        }
+    }
+
+    /**
+     * Solves a triangular system of a column-major matrix in place.
+     */
+    private static void trsv(UPLO uplo, Transpose trans, Diag diag, int n, double[] a, int a0, int lda, double[] b, int b0) {
+        boolean unit = diag == Diag.UNIT;
+        if (trans == Transpose.NO_TRANSPOSE) {
+            if (uplo == UPLO.UPPER) {
+                for (int j = n - 1; j >= 0; j--) {
+                    int col = a0 + j * lda;
+                    if (!unit) b[b0 + j] /= a[col + j];
+                    double s = b[b0 + j];
+                    if (s == 0.0) continue;
+                    for (int i = 0; i < j; i++) {
+                        b[b0 + i] -= s * a[col + i];
+                    }
+                }
+            } else {
+                for (int j = 0; j < n; j++) {
+                    int col = a0 + j * lda;
+                    if (!unit) b[b0 + j] /= a[col + j];
+                    double s = b[b0 + j];
+                    if (s == 0.0) continue;
+                    for (int i = j + 1; i < n; i++) {
+                        b[b0 + i] -= s * a[col + i];
+                    }
+                }
+            }
+        } else {
+            if (uplo == UPLO.UPPER) {
+                for (int i = 0; i < n; i++) {
+                    int col = a0 + i * lda;
+                    double s = b[b0 + i];
+                    for (int k = 0; k < i; k++) {
+                        s -= a[col + k] * b[b0 + k];
+                    }
+                    b[b0 + i] = unit ? s : s / a[col + i];
+                }
+            } else {
+                for (int i = n - 1; i >= 0; i--) {
+                    int col = a0 + i * lda;
+                    double s = b[b0 + i];
+                    for (int k = i + 1; k < n; k++) {
+                        s -= a[col + k] * b[b0 + k];
+                    }
+                    b[b0 + i] = unit ? s : s / a[col + i];
+                }
+            }
+        }
+    }
+
+    /** Returns the stream of right hand sides, which is parallel for large systems. */
+    private static IntStream rhs(int n, int nrhs) {
+        IntStream stream = IntStream.range(0, nrhs);
+        return (double) n * n * nrhs >= PARALLEL_FLOPS ? stream.parallel() : stream;
+    }
+
+    /** Returns the stream of trailing columns, which is parallel for large updates. */
+    private static IntStream columns(int from, int to, int rows) {
+        IntStream stream = IntStream.range(from, to);
+        return (double) (to - from) * rows >= PARALLEL_FLOPS / 4 ? stream.parallel() : stream;
+    }
+
+    private static int getrf(Layout layout, int m, int n, Data A, int lda, Ints ipiv) {
+        if (layout == Layout.ROW_MAJOR) {
+            Data T = colMajor(A, m, n, lda);
+            int info = getrf(Layout.COL_MAJOR, m, n, T, Math.max(1, m), ipiv);
+            rowMajor(T, m, n, A, lda);
+            return info;
+        }
+
+        double[] a = A.a;
+        int a0 = A.offset;
+        int[] piv = ipiv.a;
+        int p0 = ipiv.offset;
+        int info = 0;
+
+        // Right-looking LU decomposition with partial pivoting.
+        for (int j = 0; j < Math.min(m, n); j++) {
+            int col = a0 + j * lda;
+            int p = j;
+            double max = Math.abs(a[col + j]);
+            for (int i = j + 1; i < m; i++) {
+                double abs = Math.abs(a[col + i]);
+                if (abs > max) {
+                    max = abs;
+                    p = i;
+                }
+            }
+
+            piv[p0 + j] = p + 1;
+            if (a[col + p] != 0.0) {
+                if (p != j) {
+                    for (int c = 0; c < n; c++) {
+                        int k = a0 + c * lda;
+                        double t = a[k + j];
+                        a[k + j] = a[k + p];
+                        a[k + p] = t;
+                    }
+                }
+
+                double pivot = a[col + j];
+                if (Math.abs(pivot) >= Double.MIN_NORMAL) {
+                    double r = 1.0 / pivot;
+                    for (int i = j + 1; i < m; i++) {
+                        a[col + i] *= r;
+                    }
+                } else {
+                    for (int i = j + 1; i < m; i++) {
+                        a[col + i] /= pivot;
+                    }
+                }
+            } else if (info == 0) {
+                info = j + 1;
+            }
+
+            final int jj = j;
+            columns(j + 1, n, m - j).forEach(c -> {
+                int k = a0 + c * lda;
+                double s = a[k + jj];
+                if (s != 0.0) {
+                    for (int i = jj + 1; i < m; i++) {
+                        a[k + i] -= s * a[col + i];
+                    }
+                }
+            });
+        }
+
+        return info;
+    }
+
+    private static int getrs(Layout layout, Transpose trans, int n, int nrhs, Data A, int lda, Ints ipiv, Data B, int ldb) {
+        if (layout == Layout.ROW_MAJOR) {
+            Data TA = colMajor(A, n, n, lda);
+            Data TB = colMajor(B, n, nrhs, ldb);
+            int info = getrs(Layout.COL_MAJOR, trans, n, nrhs, TA, Math.max(1, n), ipiv, TB, Math.max(1, n));
+            rowMajor(TB, n, nrhs, B, ldb);
+            return info;
+        }
+
+        double[] a = A.a;
+        double[] b = B.a;
+        int[] piv = ipiv.a;
+        int p0 = ipiv.offset;
+        boolean notrans = trans == Transpose.NO_TRANSPOSE;
+        rhs(n, nrhs).forEach(j -> {
+            int b0 = B.offset + j * ldb;
+            if (notrans) {
+                for (int i = 0; i < n; i++) {
+                    swap(b, b0 + i, b0 + piv[p0 + i] - 1);
+                }
+                trsv(UPLO.LOWER, trans, Diag.UNIT, n, a, A.offset, lda, b, b0);
+                trsv(UPLO.UPPER, trans, Diag.NON_UNIT, n, a, A.offset, lda, b, b0);
+            } else {
+                trsv(UPLO.UPPER, trans, Diag.NON_UNIT, n, a, A.offset, lda, b, b0);
+                trsv(UPLO.LOWER, trans, Diag.UNIT, n, a, A.offset, lda, b, b0);
+                for (int i = n - 1; i >= 0; i--) {
+                    swap(b, b0 + i, b0 + piv[p0 + i] - 1);
+                }
+            }
+        });
+
+        return 0;
+    }
+
+    /** Swaps two elements of array. */
+    private static void swap(double[] a, int i, int j) {
+        double t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    private static int gesv(Layout layout, int n, int nrhs, Data A, int lda, Ints ipiv, Data B, int ldb) {
+        int info = getrf(layout, n, n, A, lda, ipiv);
+        if (info == 0) {
+            info = getrs(layout, Transpose.NO_TRANSPOSE, n, nrhs, A, lda, ipiv, B, ldb);
+        }
+        return info;
+    }
+
+    private static int sysv(Layout layout, UPLO uplo, int n, int nrhs, Data A, int lda, Ints ipiv, Data B, int ldb) {
+        // Fills the other triangle and solves by LU decomposition.
+        if (layout == Layout.ROW_MAJOR) uplo = flip(uplo);
+        double[] a = A.a;
+        int a0 = A.offset;
+        for (int j = 0; j < n; j++) {
+            for (int i = j + 1; i < n; i++) {
+                if (uplo == UPLO.UPPER) {
+                    a[a0 + i + j * lda] = a[a0 + j + i * lda];
+                } else {
+                    a[a0 + j + i * lda] = a[a0 + i + j * lda];
+                }
+            }
+        }
+
+        return gesv(layout, n, nrhs, A, lda, ipiv, B, ldb);
+    }
+
+    private static int potrf(Layout layout, UPLO uplo, int n, Data A, int lda) {
+        // The upper triangle of row-major matrix is the lower triangle of column-major.
+        if (layout == Layout.ROW_MAJOR) uplo = flip(uplo);
+
+        double[] a = A.a;
+        int a0 = A.offset;
+        boolean upper = uplo == UPLO.UPPER;
+
+        // Right-looking Cholesky decomposition.
+        for (int j = 0; j < n; j++) {
+            int col = a0 + j * lda;
+            double d = a[col + j];
+            if (d <= 0.0 || Double.isNaN(d)) {
+                return j + 1;
+            }
+
+            d = Math.sqrt(d);
+            a[col + j] = d;
+            final int jj = j;
+            if (upper) {
+                // U(j, c) is in the column c.
+                for (int c = j + 1; c < n; c++) {
+                    a[a0 + j + c * lda] /= d;
+                }
+
+                columns(j + 1, n, n - j).forEach(c -> {
+                    int k = a0 + c * lda;
+                    double s = a[k + jj];
+                    for (int i = jj + 1; i <= c; i++) {
+                        a[k + i] -= s * a[a0 + jj + i * lda];
+                    }
+                });
+            } else {
+                for (int i = j + 1; i < n; i++) {
+                    a[col + i] /= d;
+                }
+
+                columns(j + 1, n, n - j).forEach(c -> {
+                    int k = a0 + c * lda;
+                    double s = a[col + c];
+                    for (int i = c; i < n; i++) {
+                        a[k + i] -= s * a[col + i];
+                    }
+                });
+            }
+        }
+
+        return 0;
+    }
+
+    private static int potrs(Layout layout, UPLO uplo, int n, int nrhs, Data A, int lda, Data B, int ldb) {
+        if (layout == Layout.ROW_MAJOR) {
+            Data TB = colMajor(B, n, nrhs, ldb);
+            // The row-major factor is the column-major factor of the other triangle.
+            int info = potrs(Layout.COL_MAJOR, flip(uplo), n, nrhs, A, lda, TB, Math.max(1, n));
+            rowMajor(TB, n, nrhs, B, ldb);
+            return info;
+        }
+
+        double[] a = A.a;
+        double[] b = B.a;
+        rhs(n, nrhs).forEach(j -> {
+            int b0 = B.offset + j * ldb;
+            if (uplo == UPLO.UPPER) {
+                trsv(UPLO.UPPER, Transpose.TRANSPOSE, Diag.NON_UNIT, n, a, A.offset, lda, b, b0);
+                trsv(UPLO.UPPER, Transpose.NO_TRANSPOSE, Diag.NON_UNIT, n, a, A.offset, lda, b, b0);
+            } else {
+                trsv(UPLO.LOWER, Transpose.NO_TRANSPOSE, Diag.NON_UNIT, n, a, A.offset, lda, b, b0);
+                trsv(UPLO.LOWER, Transpose.TRANSPOSE, Diag.NON_UNIT, n, a, A.offset, lda, b, b0);
+            }
+        });
+
+        return 0;
+    }
+
+    private static int posv(Layout layout, UPLO uplo, int n, int nrhs, Data A, int lda, Data B, int ldb) {
+        int info = potrf(layout, uplo, n, A, lda);
+        if (info == 0) {
+            info = potrs(layout, uplo, n, nrhs, A, lda, B, ldb);
+        }
+        return info;
+    }
+
+    private static int trtrs(Layout layout, UPLO uplo, Transpose trans, Diag diag, int n, int nrhs, Data A, int lda, Data B, int ldb) {
+        if (layout == Layout.ROW_MAJOR) {
+            Data TB = colMajor(B, n, nrhs, ldb);
+            int info = trtrs(Layout.COL_MAJOR, flip(uplo), flip(trans), diag, n, nrhs, A, lda, TB, Math.max(1, n));
+            rowMajor(TB, n, nrhs, B, ldb);
+            return info;
+        }
+
+        double[] a = A.a;
+        if (diag == Diag.NON_UNIT) {
+            for (int i = 0; i < n; i++) {
+                if (a[A.offset + i + i * lda] == 0.0) return i + 1;
+            }
+        }
+
+        double[] b = B.a;
+        rhs(n, nrhs).forEach(j -> trsv(uplo, trans, diag, n, a, A.offset, lda, b, B.offset + j * ldb));
+        return 0;
+    }
+
+    private static int geqrf(Layout layout, int m, int n, Data A, int lda, Data tau) {
+        if (layout == Layout.ROW_MAJOR) {
+            Data T = colMajor(A, m, n, lda);
+            int info = geqrf(Layout.COL_MAJOR, m, n, T, Math.max(1, m), tau);
+            rowMajor(T, m, n, A, lda);
+            return info;
+        }
+
+        double[] a = A.a;
+        double[] t = tau.a;
+        int a0 = A.offset;
+        for (int j = 0; j < Math.min(m, n); j++) {
+            // Generates the elementary reflector H(j) = I - tau * v * v'.
+            int col = a0 + j * lda;
+            double alpha = a[col + j];
+            double xnorm = 0.0;
+            for (int i = j + 1; i < m; i++) {
+                xnorm = Math.hypot(xnorm, a[col + i]);
+            }
+
+            if (xnorm == 0.0) {
+                t[tau.offset + j] = 0.0;
+                continue;
+            }
+
+            double beta = -Math.copySign(Math.hypot(alpha, xnorm), alpha);
+            double tj = (beta - alpha) / beta;
+            double scale = 1.0 / (alpha - beta);
+            for (int i = j + 1; i < m; i++) {
+                a[col + i] *= scale;
+            }
+            a[col + j] = beta;
+            t[tau.offset + j] = tj;
+
+            // Applies H(j) to A[j:m, j+1:n] from the left.
+            final int jj = j;
+            columns(j + 1, n, m - j).forEach(c -> {
+                int k = a0 + c * lda;
+                double w = a[k + jj];
+                for (int i = jj + 1; i < m; i++) {
+                    w += a[col + i] * a[k + i];
+                }
+
+                w *= tj;
+                a[k + jj] -= w;
+                for (int i = jj + 1; i < m; i++) {
+                    a[k + i] -= w * a[col + i];
+                }
+            });
+        }
+
+        return 0;
+    }
+
+    private static int ormqr(Layout layout, Side side, Transpose trans, int m, int n, int k, Data A, int lda, Data tau, Data C, int ldc) {
+        int nq = side == Side.LEFT ? m : n;
+        if (layout == Layout.ROW_MAJOR) {
+            Data TA = colMajor(A, nq, k, lda);
+            Data TC = colMajor(C, m, n, ldc);
+            int info = ormqr(Layout.COL_MAJOR, side, trans, m, n, k, TA, Math.max(1, nq), tau, TC, Math.max(1, m));
+            rowMajor(TC, m, n, C, ldc);
+            return info;
+        }
+
+        double[] a = A.a;
+        double[] t = tau.a;
+        double[] c = C.a;
+        int a0 = A.offset;
+        int c0 = C.offset;
+        boolean left = side == Side.LEFT;
+        boolean notrans = trans == Transpose.NO_TRANSPOSE;
+
+        // Q = H(1) H(2) ... H(k)
+        boolean forward = left != notrans;
+        for (int l = 0; l < k; l++) {
+            int j = forward ? l : k - 1 - l;
+            double tj = t[tau.offset + j];
+            if (tj == 0.0) continue;
+
+            int v = a0 + j * lda;
+            if (left) {
+                // Applies H(j) to C[j:m, :] from the left.
+                columns(0, n, m - j).forEach(s -> {
+                    int col = c0 + s * ldc;
+                    double w = c[col + j];
+                    for (int i = j + 1; i < m; i++) {
+                        w += a[v + i] * c[col + i];
+                    }
+
+                    w *= tj;
+                    c[col + j] -= w;
+                    for (int i = j + 1; i < m; i++) {
+                        c[col + i] -= w * a[v + i];
+                    }
+                });
+            } else {
+                // Applies H(j) to C[:, j:n] from the right.
+                double[] w = new double[m];
+                for (int s = j; s < n; s++) {
+                    double vs = s == j ? 1.0 : a[v + s];
+                    int col = c0 + s * ldc;
+                    for (int i = 0; i < m; i++) {
+                        w[i] += c[col + i] * vs;
+                    }
+                }
+
+                for (int s = j; s < n; s++) {
+                    double vs = tj * (s == j ? 1.0 : a[v + s]);
+                    int col = c0 + s * ldc;
+                    for (int i = 0; i < m; i++) {
+                        c[col + i] -= w[i] * vs;
+                    }
+                }
+            }
+        }
+
+        return 0;
+    }
+}
@@ -56,6 +56,13 @@ public class EuclideanDistance implements Metric<double[]> {
         this.weight = weight;
     }
 
+    /**
+     * Returns true if it is the weighted Euclidean distance.
+     */
+    public boolean isWeighted() {
+        return weight != null;
+    }
+
     @Override
     public String toString() {
         if (weight != null) {
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.math.matrix;
+
+import smile.math.MathEx;
+
+/**
+ * The preconditioned conjugate gradient method is an algorithm to solve
+ * systems of linear equations whose matrix is symmetric and positive-definite.
+ * Compared to the biconjugate gradient method, it takes only one
+ * matrix-vector multiplication per iteration, which is useful when
+ * the matrix is implicit and expensive to multiply, e.g. a kernel matrix
+ * that is evaluated on the fly. The preconditioner matrix should be
+ * symmetric and positive-definite too.
+ *
+ * @author Haifeng Li
+ */
+public class ConjugateGradient {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ConjugateGradient.class);
+
+    /**
+     * Solves A * x = b by iterative conjugate gradient method with Jacobi
+     * preconditioner matrix.
+     *
+     * @param A the symmetric and positive-definite matrix.
+     * @param b the right hand side of linear equations.
+     * @param x on input, x should be set to an initial guess of the solution
+     * (or all zeros). On output, x is reset to the improved solution.
+     * @return the estimated error.
+     */
+    public static double solve(DMatrix A, double[] b, double[] x) {
+        return solve(A, b, x, BiconjugateGradient.Jacobi(A), 1E-6, 2 * A.nrows());
+    }
+
+    /**
+     * Solves A * x = b by iterative preconditioned conjugate gradient method.
+     *
+     * @param A the symmetric and positive-definite matrix.
+     * @param b the right hand side of linear equations.
+     * @param x on input, x should be set to an initial guess of the solution
+     * (or all zeros). On output, x is reset to the improved solution.
+     * @param preconditioner The preconditioner matrix.
+     * @param tol The desired convergence tolerance. The iteration stops
+     *            when |Ax - b| / |b| is less than the tolerance.
+     * @param maxIter The maximum number of iterations.
+     * @return the estimated error.
+     */
+    public static double solve(DMatrix A, double[] b, double[] x, Preconditioner preconditioner, double tol, int maxIter) {
+        if (tol <= 0.0) {
+            throw new IllegalArgumentException("Invalid tolerance: " + tol);
+        }
+
+        if (maxIter <= 0) {
+            throw new IllegalArgumentException("Invalid maximum iterations: " + maxIter);
+        }
+
+        int n = b.length;
+        double[] r = new double[n];
+        double[] z = new double[n];
+        double[] p = new double[n];
+        double[] q = new double[n];
+
+        A.mv(x, r);
+        for (int i = 0; i < n; i++) {
+            r[i] = b[i] - r[i];
+        }
+
+        double bnrm = MathEx.norm(b);
+        if (bnrm == 0.0) bnrm = 1.0;
+
+        double err = MathEx.norm(r) / bnrm;
+        if (err <= tol) {
+            return err;
+        }
+
+        preconditioner.solve(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = MathEx.dot(r, z);
+
+        for (int iter = 1; iter <= maxIter; iter++) {
+            A.mv(p, q);
+            double alpha = rz / MathEx.dot(p, q);
+            for (int i = 0; i < n; i++) {
+                x[i] += alpha * p[i];
+                r[i] -= alpha * q[i];
+            }
+
+            err = MathEx.norm(r) / bnrm;
+            if (iter % 10 == 0) {
+                logger.info(String.format("CG: the error after %3d iterations: %.5g", iter, err));
+            }
+
+            if (err <= tol) {
+                logger.info(String.format("CG: the error after %3d iterations: %.5g", iter, err));
+                break;
+            }
+
+            preconditioner.solve(r, z);
+            double rz1 = MathEx.dot(r, z);
+            double beta = rz1 / rz;
+            rz = rz1;
+            for (int i = 0; i < n; i++) {
+                p[i] = z[i] + beta * p[i];
+            }
+        }
+
+        return err;
+    }
+}
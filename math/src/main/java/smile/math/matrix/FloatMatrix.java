@@ -27,6 +27,7 @@ import java.util.Arrays;
 
 import smile.math.MathEx;
 import smile.math.blas.*;
+import smile.math.blas.jvm.JavaBLAS;
 import smile.sort.QuickSort;
 import smile.stat.distribution.Distribution;
 import smile.stat.distribution.GaussianDistribution;
@@ -40,6 +41,15 @@ import static smile.math.blas.UPLO.*;
 public class FloatMatrix extends SMatrix {
     private static final long serialVersionUID = 2L;
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FloatMatrix.class);
+    /**
+     * The pure Java BLAS engine for small matrices, which avoids
+     * the overhead of native calls.
+     */
+    private static final BLAS small = new JavaBLAS();
+    /**
+     * The number of flops below which the pure Java BLAS is used.
+     */
+    private static final int SMALL_FLOPS = 4096;
 
     /**
      * The matrix storage.
@@ -1261,15 +1271,15 @@ public class FloatMatrix extends SMatrix {
         if (uplo != null) {
             if (diag != null) {
                 if (alpha == 1.0 && beta == 0.0 && x == y) {
-                    BLAS.engine.trmv(layout(), uplo, trans, diag, m, A, ld, y, 1);
+                    blas((long) m * n).trmv(layout(), uplo, trans, diag, m, A, ld, y, 1);
                 } else {
-                    BLAS.engine.gemv(layout(), trans, m, n, alpha, A, ld, x, 1, beta, y, 1);
+                    blas((long) m * n).gemv(layout(), trans, m, n, alpha, A, ld, x, 1, beta, y, 1);
                 }
             } else {
-                BLAS.engine.symv(layout(), uplo, m, alpha, A, ld, x, 1, beta, y, 1);
+                blas((long) m * n).symv(layout(), uplo, m, alpha, A, ld, x, 1, beta, y, 1);
             }
         } else {
-            BLAS.engine.gemv(layout(), trans, m, n, alpha, A, ld, x, 1, beta, y, 1);
+            blas((long) m * n).gemv(layout(), trans, m, n, alpha, A, ld, x, 1, beta, y, 1);
         }
     }
 
@@ -1292,6 +1302,11 @@ public class FloatMatrix extends SMatrix {
         mv(TRANSPOSE, 1.0f, xb, 0.0f, yb);
     }
 
+    /** Returns the BLAS engine for the given number of flops. */
+    private static BLAS blas(long flops) {
+        return flops <= SMALL_FLOPS ? small : BLAS.engine;
+    }
+
     /** Flips the transpose operation. */
     private Transpose flip(Transpose trans) {
         return trans == NO_TRANSPOSE ? TRANSPOSE : NO_TRANSPOSE;
@@ -1305,34 +1320,49 @@ public class FloatMatrix extends SMatrix {
      */
     public void mm(Transpose transA, Transpose transB, float alpha, FloatMatrix B, float beta, FloatMatrix C) {
         if (isSymmetric() && transB == NO_TRANSPOSE && B.layout() == C.layout()) {
-            BLAS.engine.symm(C.layout(), LEFT, uplo, C.m, C.n, alpha, A, ld, B.A, B.ld, beta, C.A, C.ld);
+            blas((long) C.m * C.m * C.n).symm(C.layout(), LEFT, uplo, C.m, C.n, alpha, A, ld, B.A, B.ld, beta, C.A, C.ld);
         } else if (B.isSymmetric() && transA == NO_TRANSPOSE && layout() == C.layout()) {
-            BLAS.engine.symm(C.layout(), RIGHT, B.uplo, C.m, C.n, alpha, B.A, B.ld, A, ld, beta, C.A, C.ld);
+            blas((long) C.m * C.n * C.n).symm(C.layout(), RIGHT, B.uplo, C.m, C.n, alpha, B.A, B.ld, A, ld, beta, C.A, C.ld);
         } else {
             if (C.layout() != layout()) transA = flip(transA);
             if (C.layout() != B.layout()) transB = flip(transB);
             int k = transA == NO_TRANSPOSE ? n : m;
 
-            BLAS.engine.gemm(layout(), transA, transB, C.m, C.n, k, alpha,  A, ld,  B.A, B.ld, beta, C.A, C.ld);
+            blas((long) C.m * C.n * k).gemm(layout(), transA, transB, C.m, C.n, k, alpha,  A, ld,  B.A, B.ld, beta, C.A, C.ld);
         }
     }
 
     /** Returns A' * A */
     public FloatMatrix ata() {
         FloatMatrix C = new FloatMatrix(n, n);
-        mm(TRANSPOSE, NO_TRANSPOSE, 1.0f, this, 0.0f, C);
-        C.uplo(LOWER);
+        syrk(TRANSPOSE, C);
         return C;
     }
 
     /** Returns A * A' */
     public FloatMatrix aat() {
         FloatMatrix C = new FloatMatrix(m, m);
-        mm(NO_TRANSPOSE, TRANSPOSE, 1.0f, this, 0.0f, C);
-        C.uplo(LOWER);
+        syrk(NO_TRANSPOSE, C);
         return C;
     }
 
+    /**
+     * Symmetric rank-k update C := op(A) * op(A)', which computes
+     * only the lower triangle and copies it to the upper triangle.
+     */
+    private void syrk(Transpose trans, FloatMatrix C) {
+        int k = trans == NO_TRANSPOSE ? n : m;
+        if (C.layout() != layout()) trans = flip(trans);
+        blas((long) C.m * C.m * k).syrk(C.layout(), LOWER, trans, C.m, k, 1.0f, A, ld, 0.0f, C.A, C.ld);
+
+        for (int j = 1; j < C.n; j++) {
+            for (int i = 0; i < j; i++) {
+                C.set(i, j, C.get(j, i));
+            }
+        }
+        C.uplo(LOWER);
+    }
+
     /** Returns A * D * B, where D is a diagonal matrix. */
     public FloatMatrix adb(Transpose transA, Transpose transB, FloatMatrix B, float[] diag) {
         FloatMatrix C;
@@ -0,0 +1,393 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.math.blas;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import smile.math.MathEx;
+import smile.math.blas.jvm.JavaBLAS;
+import smile.math.blas.openblas.OpenBLAS;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class JavaBLASTest {
+    JavaBLAS javablas = new JavaBLAS();
+    OpenBLAS openblas = new OpenBLAS();
+
+    public JavaBLASTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+        MathEx.setSeed(19650218); // to get repeatable results.
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /** Returns a random array. */
+    private double[] random(int n) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = MathEx.random() - 0.5;
+        }
+        return x;
+    }
+
+    /** Returns a random symmetric positive definite matrix. */
+    private double[] spd(int n) {
+        double[] a = random(n * n);
+        double[] b = new double[n * n];
+        openblas.gemm(Layout.COL_MAJOR, Transpose.TRANSPOSE, Transpose.NO_TRANSPOSE, n, n, n, 1.0, a, n, a, n, 0.0, b, n);
+        for (int i = 0; i < n; i++) {
+            b[i + i * n] += n;
+        }
+        return b;
+    }
+
+    @Test
+    public void testLevel1() {
+        System.out.println("level 1");
+        double[] x = random(101);
+        double[] y = random(101);
+        assertEquals(openblas.asum(50, x, 2), javablas.asum(50, x, 2), 1E-12);
+        assertEquals(openblas.dot(50, x, 2, y, -2), javablas.dot(50, x, 2, y, -2), 1E-12);
+        assertEquals(openblas.nrm2(101, x, 1), javablas.nrm2(101, x, 1), 1E-12);
+        assertEquals(openblas.iamax(101, x, 1), javablas.iamax(101, x, 1));
+
+        double[] z1 = y.clone();
+        double[] z2 = y.clone();
+        openblas.axpy(50, 1.5, x, -2, z1, 2);
+        javablas.axpy(50, 1.5, x, -2, z2, 2);
+        assertArrayEquals(z1, z2, 1E-12);
+
+        openblas.scal(33, 0.5, z1, 3);
+        javablas.scal(33, 0.5, z2, 3);
+        assertArrayEquals(z1, z2, 1E-12);
+    }
+
+    @Test
+    public void testGemm() {
+        System.out.println("gemm");
+        int[][] sizes = {{5, 3, 7}, {130, 70, 300}, {300, 1100, 40}};
+        for (int[] size : sizes) {
+            int m = size[0], n = size[1], k = size[2];
+            for (Layout layout : Layout.values()) {
+                for (Transpose transA : new Transpose[]{Transpose.NO_TRANSPOSE, Transpose.TRANSPOSE}) {
+                    for (Transpose transB : new Transpose[]{Transpose.NO_TRANSPOSE, Transpose.TRANSPOSE}) {
+                        boolean colMajor = layout == Layout.COL_MAJOR;
+                        int lda = (transA == Transpose.NO_TRANSPOSE) == colMajor ? m + 1 : k + 1;
+                        int ldb = (transB == Transpose.NO_TRANSPOSE) == colMajor ? k + 2 : n + 2;
+                        int ldc = colMajor ? m + 3 : n + 3;
+                        double[] A = random(lda * Math.max(m, k));
+                        double[] B = random(ldb * Math.max(n, k));
+                        double[] C1 = random(ldc * Math.max(m, n));
+                        double[] C2 = C1.clone();
+                        openblas.gemm(layout, transA, transB, m, n, k, 0.7, A, lda, B, ldb, 0.3, C1, ldc);
+                        javablas.gemm(layout, transA, transB, m, n, k, 0.7, A, lda, B, ldb, 0.3, C2, ldc);
+                        assertArrayEquals(C1, C2, 1E-10);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSymm() {
+        System.out.println("symm");
+        int m = 9, n = 6;
+        for (Layout layout : Layout.values()) {
+            for (Side side : Side.values()) {
+                for (UPLO uplo : UPLO.values()) {
+                    int na = side == Side.LEFT ? m : n;
+                    int ldb = layout == Layout.COL_MAJOR ? m : n;
+                    double[] A = random(na * na);
+                    double[] B = random(m * n);
+                    double[] C1 = random(m * n);
+                    double[] C2 = C1.clone();
+                    openblas.symm(layout, side, uplo, m, n, 1.2, A, na, B, ldb, 0.5, C1, ldb);
+                    javablas.symm(layout, side, uplo, m, n, 1.2, A, na, B, ldb, 0.5, C2, ldb);
+                    assertArrayEquals(C1, C2, 1E-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSyrk() {
+        System.out.println("syrk");
+        for (int n : new int[]{7, 80}) {
+            int k = n + 5, lda = k + 3, ldc = n + 2;
+            for (Layout layout : Layout.values()) {
+                for (UPLO uplo : UPLO.values()) {
+                    for (Transpose trans : new Transpose[]{Transpose.NO_TRANSPOSE, Transpose.TRANSPOSE}) {
+                        double[] A = random(lda * lda);
+                        double[] C1 = random(ldc * ldc);
+                        double[] C2 = C1.clone();
+                        openblas.syrk(layout, uplo, trans, n, k, 1.2, A, lda, 0.5, C1, ldc);
+                        javablas.syrk(layout, uplo, trans, n, k, 1.2, A, lda, 0.5, C2, ldc);
+                        assertArrayEquals(C1, C2, 1E-10);
+
+                        float[] F1 = new float[ldc * ldc];
+                        float[] F2 = new float[ldc * ldc];
+                        float[] FA = new float[A.length];
+                        for (int i = 0; i < A.length; i++) FA[i] = (float) A[i];
+                        openblas.syrk(layout, uplo, trans, n, k, 1.2f, FA, lda, 0.0f, F1, ldc);
+                        javablas.syrk(layout, uplo, trans, n, k, 1.2f, FA, lda, 0.0f, F2, ldc);
+                        assertArrayEquals(F1, F2, 1E-3f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNativeLAPACK() {
+        System.out.println("native LAPACK");
+        int n = 6;
+        double[] A = spd(n);
+        double[] w1 = new double[n];
+        double[] w2 = new double[n];
+        double[] A1 = A.clone();
+        double[] A2 = A.clone();
+
+        // The eigen decomposition is delegated to the native engine.
+        JavaBLAS engine = new JavaBLAS(openblas);
+        assertEquals(0, openblas.syevd(Layout.COL_MAJOR, EVDJob.VECTORS, UPLO.LOWER, n, A1, n, w1));
+        assertEquals(0, engine.syevd(Layout.COL_MAJOR, EVDJob.VECTORS, UPLO.LOWER, n, A2, n, w2));
+        assertArrayEquals(w1, w2, 1E-12);
+        assertArrayEquals(A1, A2, 1E-12);
+
+        try {
+            javablas.syevd(Layout.COL_MAJOR, EVDJob.VECTORS, UPLO.LOWER, n, A.clone(), n, w2);
+            fail("syevd without native LAPACK");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLevel2() {
+        System.out.println("level 2");
+        int m = 13, n = 9, lda = 15;
+        double[] A = random(lda * lda);
+        double[] AP = random(n * (n + 1) / 2);
+        double[] x = random(2 * lda);
+
+        for (Layout layout : Layout.values()) {
+            for (Transpose trans : new Transpose[]{Transpose.NO_TRANSPOSE, Transpose.TRANSPOSE}) {
+                double[] y1 = random(2 * lda);
+                double[] y2 = y1.clone();
+                openblas.gemv(layout, trans, m, n, 0.8, A, lda, x, 2, 0.2, y1, -1);
+                javablas.gemv(layout, trans, m, n, 0.8, A, lda, x, 2, 0.2, y2, -1);
+                assertArrayEquals(y1, y2, 1E-12);
+
+                openblas.gbmv(layout, trans, m, n, 2, 3, 0.8, A, lda, x, 1, 0.2, y1, 1);
+                javablas.gbmv(layout, trans, m, n, 2, 3, 0.8, A, lda, x, 1, 0.2, y2, 1);
+                assertArrayEquals(y1, y2, 1E-12);
+
+                for (UPLO uplo : UPLO.values()) {
+                    for (Diag diag : Diag.values()) {
+                        openblas.trmv(layout, uplo, trans, diag, n, A, lda, y1, 2);
+                        javablas.trmv(layout, uplo, trans, diag, n, A, lda, y2, 2);
+                        assertArrayEquals(y1, y2, 1E-12);
+
+                        openblas.tpmv(layout, uplo, trans, diag, n, AP, y1, 1);
+                        javablas.tpmv(layout, uplo, trans, diag, n, AP, y2, 1);
+                        assertArrayEquals(y1, y2, 1E-12);
+                    }
+                }
+            }
+
+            for (UPLO uplo : UPLO.values()) {
+                double[] y1 = random(lda);
+                double[] y2 = y1.clone();
+                openblas.symv(layout, uplo, n, 0.8, A, lda, x, 1, 0.2, y1, 1);
+                javablas.symv(layout, uplo, n, 0.8, A, lda, x, 1, 0.2, y2, 1);
+                assertArrayEquals(y1, y2, 1E-12);
+
+                openblas.spmv(layout, uplo, n, 0.8, AP, x, 1, 0.2, y1, 1);
+                javablas.spmv(layout, uplo, n, 0.8, AP, x, 1, 0.2, y2, 1);
+                assertArrayEquals(y1, y2, 1E-12);
+
+                openblas.sbmv(layout, uplo, n, 2, 0.8, A, lda, x, 1, 0.2, y1, 1);
+                javablas.sbmv(layout, uplo, n, 2, 0.8, A, lda, x, 1, 0.2, y2, 1);
+                assertArrayEquals(y1, y2, 1E-12);
+
+                double[] A1 = A.clone();
+                double[] A2 = A.clone();
+                openblas.syr(layout, uplo, n, 0.8, x, 1, A1, lda);
+                javablas.syr(layout, uplo, n, 0.8, x, 1, A2, lda);
+                assertArrayEquals(A1, A2, 1E-12);
+
+                double[] AP1 = AP.clone();
+                double[] AP2 = AP.clone();
+                openblas.spr(layout, uplo, n, 0.8, x, 1, AP1);
+                javablas.spr(layout, uplo, n, 0.8, x, 1, AP2);
+                assertArrayEquals(AP1, AP2, 1E-12);
+            }
+
+            double[] A1 = A.clone();
+            double[] A2 = A.clone();
+            openblas.ger(layout, m, n, 0.8, x, 1, x, 2, A1, lda);
+            javablas.ger(layout, m, n, 0.8, x, 1, x, 2, A2, lda);
+            assertArrayEquals(A1, A2, 1E-12);
+        }
+    }
+
+    @Test
+    public void testLU() {
+        System.out.println("LU");
+        int n = 150, nrhs = 3;
+        for (Layout layout : Layout.values()) {
+            int ldb = layout == Layout.COL_MAJOR ? n : nrhs;
+            double[] A1 = random(n * n);
+            double[] A2 = A1.clone();
+            int[] ipiv1 = new int[n];
+            int[] ipiv2 = new int[n];
+            assertEquals(0, openblas.getrf(layout, n, n, A1, n, ipiv1));
+            assertEquals(0, javablas.getrf(layout, n, n, A2, n, ipiv2));
+            assertArrayEquals(ipiv1, ipiv2);
+            assertArrayEquals(A1, A2, 1E-10);
+
+            for (Transpose trans : new Transpose[]{Transpose.NO_TRANSPOSE, Transpose.TRANSPOSE}) {
+                double[] B1 = random(n * nrhs);
+                double[] B2 = B1.clone();
+                openblas.getrs(layout, trans, n, nrhs, A1, n, ipiv1, B1, ldb);
+                javablas.getrs(layout, trans, n, nrhs, A2, n, ipiv2, B2, ldb);
+                assertArrayEquals(B1, B2, 1E-8);
+            }
+        }
+
+        // Singular matrix.
+        double[] A = {1, 2, 2, 4};
+        assertEquals(2, javablas.getrf(Layout.COL_MAJOR, 2, 2, A, 2, new int[2]));
+    }
+
+    @Test
+    public void testCholesky() {
+        System.out.println("Cholesky");
+        int n = 120, nrhs = 4;
+        for (Layout layout : Layout.values()) {
+            for (UPLO uplo : UPLO.values()) {
+                int ldb = layout == Layout.COL_MAJOR ? n : nrhs;
+                double[] A1 = spd(n);
+                double[] A2 = A1.clone();
+                double[] B1 = random(n * nrhs);
+                double[] B2 = B1.clone();
+                assertEquals(0, openblas.posv(layout, uplo, n, nrhs, A1, n, B1, ldb));
+                assertEquals(0, javablas.posv(layout, uplo, n, nrhs, A2, n, B2, ldb));
+                assertArrayEquals(B1, B2, 1E-10);
+
+                // Only the triangle is referenced and overwritten.
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < n; j++) {
+                        boolean upper = (i <= j) == (layout == Layout.COL_MAJOR);
+                        if (upper == (uplo == UPLO.UPPER)) {
+                            assertEquals(A1[i + j * n], A2[i + j * n], 1E-10);
+                        }
+                    }
+                }
+            }
+        }
+
+        double[] A = {1, 2, 2, 1};
+        assertEquals(2, javablas.potrf(Layout.COL_MAJOR, UPLO.LOWER, 2, A, 2));
+    }
+
+    @Test
+    public void testQR() {
+        System.out.println("QR");
+        int m = 80, n = 30, nrhs = 2;
+        for (Layout layout : Layout.values()) {
+            int lda = layout == Layout.COL_MAJOR ? m : n;
+            int ldb = layout == Layout.COL_MAJOR ? m : nrhs;
+            double[] A1 = random(m * n);
+            double[] A2 = A1.clone();
+            double[] tau1 = new double[n];
+            double[] tau2 = new double[n];
+            assertEquals(0, openblas.geqrf(layout, m, n, A1, lda, tau1));
+            assertEquals(0, javablas.geqrf(layout, m, n, A2, lda, tau2));
+            assertArrayEquals(A1, A2, 1E-10);
+            assertArrayEquals(tau1, tau2, 1E-10);
+
+            for (Transpose trans : new Transpose[]{Transpose.NO_TRANSPOSE, Transpose.TRANSPOSE}) {
+                double[] B1 = random(m * nrhs);
+                double[] B2 = B1.clone();
+                assertEquals(0, openblas.ormqr(layout, Side.LEFT, trans, m, nrhs, n, A1, lda, tau1, B1, ldb));
+                assertEquals(0, javablas.ormqr(layout, Side.LEFT, trans, m, nrhs, n, A2, lda, tau2, B2, ldb));
+                assertArrayEquals(B1, B2, 1E-10);
+
+                int ldc = layout == Layout.COL_MAJOR ? nrhs : m;
+                double[] C1 = random(m * nrhs);
+                double[] C2 = C1.clone();
+                assertEquals(0, openblas.ormqr(layout, Side.RIGHT, trans, nrhs, m, n, A1, lda, tau1, C1, ldc));
+                assertEquals(0, javablas.ormqr(layout, Side.RIGHT, trans, nrhs, m, n, A2, lda, tau2, C2, ldc));
+                assertArrayEquals(C1, C2, 1E-10);
+            }
+
+            // Least squares by R * x = Q' * b.
+            double[] B1 = random(m * nrhs);
+            double[] B2 = B1.clone();
+            openblas.ormqr(layout, Side.LEFT, Transpose.TRANSPOSE, m, nrhs, n, A1, lda, tau1, B1, ldb);
+            javablas.ormqr(layout, Side.LEFT, Transpose.TRANSPOSE, m, nrhs, n, A2, lda, tau2, B2, ldb);
+            assertEquals(0, openblas.trtrs(layout, UPLO.UPPER, Transpose.NO_TRANSPOSE, Diag.NON_UNIT, n, nrhs, A1, lda, B1, ldb));
+            assertEquals(0, javablas.trtrs(layout, UPLO.UPPER, Transpose.NO_TRANSPOSE, Diag.NON_UNIT, n, nrhs, A2, lda, B2, ldb));
+            assertArrayEquals(B1, B2, 1E-10);
+        }
+    }
+
+    @Test
+    public void testFloat() {
+        System.out.println("float");
+        int m = 20, n = 10, k = 15;
+        float[] A = new float[m * k];
+        float[] B = new float[k * n];
+        for (int i = 0; i < A.length; i++) A[i] = (float) MathEx.random();
+        for (int i = 0; i < B.length; i++) B[i] = (float) MathEx.random();
+
+        float[] C1 = new float[m * n];
+        FloatBuffer C2 = ByteBuffer.allocateDirect(4 * m * n).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        openblas.gemm(Layout.COL_MAJOR, Transpose.NO_TRANSPOSE, Transpose.NO_TRANSPOSE, m, n, k, 1.0f, A, m, B, k, 0.0f, C1, m);
+        javablas.gemm(Layout.COL_MAJOR, Transpose.NO_TRANSPOSE, Transpose.NO_TRANSPOSE, m, n, k, 1.0f, FloatBuffer.wrap(A), m, FloatBuffer.wrap(B), k, 0.0f, C2, m);
+        for (int i = 0; i < C1.length; i++) {
+            assertEquals(C1[i], C2.get(i), 1E-5);
+        }
+    }
+}
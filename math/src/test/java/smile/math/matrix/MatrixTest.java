@@ -252,6 +252,40 @@ public class MatrixTest {
         }
     }
 
+    @Test
+    public void testATA() {
+        System.out.println("ATA");
+        MathEx.setSeed(19650218); // to get repeatable results.
+        for (int n : new int[]{5, 70}) {
+            Matrix a = Matrix.randn(n + 3, n);
+            for (Matrix x : new Matrix[]{a, a.transpose()}) {
+                Matrix c = x.ata();
+                assertTrue(c.isSymmetric());
+                for (int i = 0; i < x.ncols(); i++) {
+                    for (int j = 0; j < x.ncols(); j++) {
+                        double s = 0.0;
+                        for (int k = 0; k < x.nrows(); k++) {
+                            s += x.get(k, i) * x.get(k, j);
+                        }
+                        assertEquals(s, c.get(i, j), 1E-10);
+                    }
+                }
+
+                c = x.aat();
+                assertTrue(c.isSymmetric());
+                for (int i = 0; i < x.nrows(); i++) {
+                    for (int j = 0; j < x.nrows(); j++) {
+                        double s = 0.0;
+                        for (int k = 0; k < x.ncols(); k++) {
+                            s += x.get(i, k) * x.get(j, k);
+                        }
+                        assertEquals(s, c.get(i, j), 1E-10);
+                    }
+                }
+            }
+        }
+    }
+
     @Test
     public void testAdd() {
         System.out.println("add");
@@ -0,0 +1,1318 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.nlp;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import smile.nlp.dictionary.EnglishPunctuations;
+import smile.nlp.dictionary.EnglishStopWords;
+import smile.nlp.dictionary.Punctuations;
+import smile.nlp.dictionary.StopWords;
+import smile.nlp.relevance.Relevance;
+import smile.nlp.relevance.RelevanceRanker;
+import smile.nlp.relevance.TermScorer;
+import smile.nlp.tokenizer.SentenceSplitter;
+import smile.nlp.tokenizer.SimpleSentenceSplitter;
+import smile.nlp.tokenizer.SimpleTokenizer;
+import smile.nlp.tokenizer.Tokenizer;
+import smile.util.IntArrayList;
+
+/**
+ * A text corpus with compressed inverted index, which is designed for large
+ * collections that don't fit in the heap as SimpleCorpus. The corpus is
+ * built in one pass by a parallel bulk indexer and is immutable afterwards.
+ * <p>
+ * The posting list of a term is a sequence of document ids in ascending
+ * order with the term frequencies. The document ids are delta encoded and
+ * both the deltas and term frequencies are stored as variable length
+ * integers (7 bits per byte). The posting lists are stored in the byte
+ * buffers on the heap, or in a file that is memory mapped. The text body
+ * of documents is not kept. Only the id, title, size and maximum term
+ * frequency of documents are kept on the heap.
+ * <p>
+ * The term dictionary is a sorted array of terms, which is searched by
+ * binary search. The term id is its position in the dictionary. The
+ * bigram frequencies are kept in a primitive hash table keyed by the
+ * pair of term ids.
+ * <p>
+ * The posting lists longer than 128 documents have a skip table ahead of
+ * the postings, which has the last document and byte offset of every
+ * 128 postings. The maximum term frequency and the minimum document size
+ * of each posting list are kept to bound the relevance scores.
+ * <p>
+ * The ranked search of all documents scores the posting lists term at a
+ * time into primitive score accumulators with the batch scorers of
+ * relevance rankers. The top k search traverses the posting lists
+ * document at a time with WAND dynamic pruning, which skips the documents
+ * whose score upper bound doesn't exceed the current k-th best score.
+ * <p>
+ * The documents are indexed in batches. The documents of a batch are
+ * tokenized in parallel. The posting lists of a batch are written to
+ * a temporary run file, which are merged into the final posting lists
+ * at the end. Therefore, the memory footprint of indexing is bounded by
+ * the batch size besides the dictionary.
+ *
+ * @author Haifeng Li
+ */
+public class IndexedCorpus implements Corpus {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(IndexedCorpus.class);
+
+    /** The number of documents in an indexing batch. */
+    private static final int BATCH_SIZE = 65536;
+    /** The maximum size of posting segments. A posting list never spans two segments. */
+    private static final long SEGMENT_SIZE = 1L << 30;
+    /** The number of postings between skip entries. */
+    private static final int SKIP_INTERVAL = 128;
+
+    /** The number of terms in the corpus. */
+    private final long size;
+    /** The number of documents. */
+    private final int numDocs;
+    /** The sorted term dictionary. */
+    private final String[] terms;
+    /** The total frequency of terms in the corpus. */
+    private final long[] termFreq;
+    /** The number of documents containing the terms. */
+    private final int[] docFreq;
+    /** The maximum term frequency in the posting lists. */
+    private final int[] termMaxtf;
+    /** The minimum document size in the posting lists. */
+    private final int[] minDocSize;
+    /** The offset of posting lists. */
+    private final long[] offset;
+    /** The segments of posting lists. */
+    private final ByteBuffer[] segments;
+    /** The size of documents. */
+    private final int[] docSize;
+    /** The maximum term frequency of documents. */
+    private final int[] maxtf;
+    /** The id of documents. */
+    private final String[] ids;
+    /** The title of documents. */
+    private final String[] titles;
+    /** The frequency of bigrams keyed by the term ids. */
+    private final LongIntHashMap bigrams;
+
+    /** Constructor. */
+    private IndexedCorpus(long size, String[] terms, long[] termFreq, int[] docFreq, int[] termMaxtf, int[] minDocSize, long[] offset,
+                          ByteBuffer[] segments, int[] docSize, int[] maxtf, String[] ids, String[] titles, LongIntHashMap bigrams) {
+        this.size = size;
+        this.numDocs = docSize.length;
+        this.terms = terms;
+        this.termFreq = termFreq;
+        this.docFreq = docFreq;
+        this.termMaxtf = termMaxtf;
+        this.minDocSize = minDocSize;
+        this.offset = offset;
+        this.segments = segments;
+        this.docSize = docSize;
+        this.maxtf = maxtf;
+        this.ids = ids;
+        this.titles = titles;
+        this.bigrams = bigrams;
+    }
+
+    /**
+     * Builds a corpus with the posting lists on the heap.
+     * @param docs the documents.
+     * @return the corpus.
+     */
+    public static IndexedCorpus of(Stream<? extends Text> docs) throws IOException {
+        return of(docs, null);
+    }
+
+    /**
+     * Builds a corpus.
+     * @param docs the documents.
+     * @param file the file to store the posting lists, which is memory mapped.
+     *             If null, the posting lists are stored on the heap.
+     * @return the corpus.
+     */
+    public static IndexedCorpus of(Stream<? extends Text> docs, Path file) throws IOException {
+        return of(docs, file, SimpleSentenceSplitter.getInstance(), new SimpleTokenizer(), EnglishStopWords.DEFAULT, EnglishPunctuations.getInstance());
+    }
+
+    /**
+     * Builds a corpus.
+     * @param docs the documents.
+     * @param file the file to store the posting lists, which is memory mapped.
+     *             If null, the posting lists are stored on the heap.
+     * @param splitter the sentence splitter.
+     * @param tokenizer the word tokenizer, which should be thread safe.
+     * @param stopWords the set of stop words to exclude.
+     * @param punctuations the set of punctuation marks to exclude. Set to null to keep all punctuation marks.
+     * @return the corpus.
+     */
+    public static IndexedCorpus of(Stream<? extends Text> docs, Path file, SentenceSplitter splitter, Tokenizer tokenizer, StopWords stopWords, Punctuations punctuations) throws IOException {
+        Indexer indexer = new Indexer(splitter, tokenizer, stopWords, punctuations);
+        try {
+            Iterator<? extends Text> iter = docs.iterator();
+            List<Text> batch = new ArrayList<>(BATCH_SIZE);
+            while (iter.hasNext()) {
+                batch.add(iter.next());
+                if (batch.size() == BATCH_SIZE) {
+                    indexer.add(batch);
+                    batch.clear();
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                indexer.add(batch);
+            }
+
+            return indexer.build(file);
+        } finally {
+            indexer.close();
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int getNumDocuments() {
+        return numDocs;
+    }
+
+    @Override
+    public int getNumTerms() {
+        return terms.length;
+    }
+
+    @Override
+    public long getNumBigrams() {
+        return bigrams.size();
+    }
+
+    @Override
+    public int getAverageDocumentSize() {
+        return (int) (size / numDocs);
+    }
+
+    @Override
+    public int getTermFrequency(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, termFreq[t]);
+    }
+
+    @Override
+    public int getBigramFrequency(Bigram bigram) {
+        int t1 = Arrays.binarySearch(terms, bigram.w1);
+        int t2 = Arrays.binarySearch(terms, bigram.w2);
+        if (t1 < 0 || t2 < 0) return 0;
+        return bigrams.get(key(t1, t2));
+    }
+
+    /**
+     * Returns the number of documents containing the term.
+     * @param term the term.
+     * @return the document frequency.
+     */
+    public int getDocumentFrequency(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t < 0 ? 0 : docFreq[t];
+    }
+
+    @Override
+    public Iterator<String> getTerms() {
+        return Arrays.asList(terms).iterator();
+    }
+
+    @Override
+    public Iterator<Bigram> getBigrams() {
+        return new Iterator<Bigram>() {
+            int i = next(0);
+
+            /** Returns the next nonempty slot. */
+            private int next(int slot) {
+                while (slot < bigrams.capacity() && bigrams.key(slot) < 0) slot++;
+                return slot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return i < bigrams.capacity();
+            }
+
+            @Override
+            public Bigram next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                long key = bigrams.key(i);
+                i = next(i + 1);
+                return new Bigram(terms[(int) (key >>> 32)], terms[(int) key]);
+            }
+        };
+    }
+
+    /**
+     * Returns an iterator over the set of documents containing the given
+     * term in ascending order of document index. As the text body is not
+     * kept in the index, the body of returned documents is null. The
+     * documents implement {@link TextTerms}, of which the words are
+     * reconstructed from the posting lists without the word order.
+     *
+     * @param term the searching term.
+     * @return the iterator of documents.
+     */
+    @Override
+    public Iterator<Text> search(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) {
+            return Collections.emptyIterator();
+        }
+
+        Cursor cursor = new Cursor(t);
+        return new Iterator<Text>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.remaining > 0;
+            }
+
+            @Override
+            public Text next() {
+                if (!cursor.next()) {
+                    throw new NoSuchElementException();
+                }
+                return new Document(cursor.doc);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Relevance> search(RelevanceRanker ranker, String term) {
+        return search(ranker, new String[]{term});
+    }
+
+    /**
+     * Returns the documents containing (at least one of) the given terms
+     * in descending order of relevance. The posting lists are scored term
+     * at a time in blocks into the score accumulators of documents.
+     * The relevance of a term is computed with the number of documents
+     * containing that term. The documents of relevance are the same
+     * as those of {@link #search(String)}, i.e. without the text body.
+     *
+     * @param ranker the relevance ranker.
+     * @param query the searching terms.
+     * @return the iterator of documents in descending order of relevance.
+     */
+    @Override
+    public Iterator<Relevance> search(RelevanceRanker ranker, String[] query) {
+        double[] scores = null;
+        boolean[] hit = null;
+        IntArrayList hits = new IntArrayList();
+        int[] docs = new int[SKIP_INTERVAL];
+        int[] tf = new int[SKIP_INTERVAL];
+
+        for (String term : query) {
+            int t = Arrays.binarySearch(terms, term);
+            if (t < 0) continue;
+
+            if (scores == null) {
+                scores = new double[numDocs];
+                hit = new boolean[numDocs];
+            }
+
+            TermScorer scorer = ranker.scorer(this, term, docFreq[t]);
+            Cursor cursor = new Cursor(t);
+            for (int n = cursor.read(docs, tf); n > 0; n = cursor.read(docs, tf)) {
+                scorer.score(docs, tf, n, docSize, maxtf, scores);
+                for (int i = 0; i < n; i++) {
+                    if (!hit[docs[i]]) {
+                        hit[docs[i]] = true;
+                        hits.add(docs[i]);
+                    }
+                }
+            }
+        }
+
+        if (hits.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+
+        ArrayList<Relevance> rank = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            int doc = hits.get(i);
+            rank.add(new Relevance(new Document(doc), scores[doc]));
+        }
+
+        Collections.sort(rank, Collections.reverseOrder());
+        return rank.iterator();
+    }
+
+    /**
+     * Returns the top k documents containing (at least one of) the given
+     * terms in descending order of relevance. The posting lists are
+     * traversed document at a time with WAND dynamic pruning. A document
+     * is scored only if the sum of score upper bounds of the terms it may
+     * contain exceeds the k-th best score so far. Otherwise, the posting
+     * lists skip to the next candidate with the skip tables. The relevance
+     * of a term is computed with the number of documents containing that
+     * term. The documents of relevance are the same as those of
+     * {@link #search(String)}, i.e. without the text body.
+     *
+     * @param ranker the relevance ranker.
+     * @param query the searching terms.
+     * @param k the number of documents to return.
+     * @return the top k documents.
+     */
+    public Relevance[] search(RelevanceRanker ranker, String[] query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Invalid k = " + k);
+        }
+
+        ArrayList<Cursor> list = new ArrayList<>(query.length);
+        for (String term : query) {
+            int t = Arrays.binarySearch(terms, term);
+            if (t >= 0) {
+                Cursor cursor = new Cursor(t);
+                cursor.scorer = ranker.scorer(this, term, docFreq[t]);
+                // The negative bounds (e.g. BM25 of terms in more than half
+                // of documents) are clamped so that the bound of any subset
+                // of terms is not greater than the bound of all of them.
+                cursor.upperBound = Math.max(0.0, cursor.scorer.upperBound(termMaxtf[t], minDocSize[t]));
+                cursor.next();
+                list.add(cursor);
+            }
+        }
+
+        TopK top = new TopK(k);
+        Cursor[] cursors = list.toArray(new Cursor[0]);
+        int m = cursors.length;
+        while (true) {
+            // Sorts the cursors by the current document.
+            for (int i = 1; i < m; i++) {
+                Cursor cursor = cursors[i];
+                int j = i - 1;
+                for (; j >= 0 && cursors[j].doc > cursor.doc; j--) {
+                    cursors[j + 1] = cursors[j];
+                }
+                cursors[j + 1] = cursor;
+            }
+
+            // Finds the pivot, the first document that may
+            // make into the top k.
+            double threshold = top.threshold();
+            double bound = 0.0;
+            int pivot = -1;
+            for (int i = 0; i < m && cursors[i].doc != Integer.MAX_VALUE; i++) {
+                bound += cursors[i].upperBound;
+                if (bound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+
+            if (pivot < 0) break;
+
+            int doc = cursors[pivot].doc;
+            if (cursors[0].doc == doc) {
+                double score = 0.0;
+                for (int i = 0; i < m && cursors[i].doc == doc; i++) {
+                    Cursor cursor = cursors[i];
+                    score += cursor.scorer.score(cursor.tf, docSize[doc], maxtf[doc]);
+                    cursor.next();
+                }
+                top.add(doc, score);
+            } else {
+                for (int i = 0; i < pivot; i++) {
+                    cursors[i].advance(doc);
+                }
+            }
+        }
+
+        return top.toArray();
+    }
+
+    /** Returns the key of bigram. */
+    private static long key(int t1, int t2) {
+        return ((long) t1 << 32) | t2;
+    }
+
+    /**
+     * The cursor over the posting list of a term. The document id is
+     * Integer.MAX_VALUE after the end of list.
+     */
+    private class Cursor {
+        /** The term id. */
+        final int term;
+        /** The number of postings. */
+        final int df;
+        /** The posting segment. */
+        final ByteBuffer buffer;
+        /** The start position of postings in the segment. */
+        final int start;
+        /** The position in the segment. */
+        int pos;
+        /** The number of remaining postings. */
+        int remaining;
+        /** The current document. */
+        int doc = 0;
+        /** The term frequency in the current document. */
+        int tf = 0;
+        /** The position of next skip entry. */
+        int skipPos;
+        /** The end position of skip table. */
+        int skipEnd;
+        /** The index of block of next skip entry. */
+        int skipBlock = 1;
+        /** The last document of previous skip entry. */
+        int skipDoc = 0;
+        /** The byte offset of previous skip entry. */
+        int skipOffset = 0;
+        /** The term scorer in ranked search. */
+        TermScorer scorer;
+        /** The upper bound of scores in ranked search. */
+        double upperBound;
+
+        /** Constructor. */
+        Cursor(int term) {
+            this.term = term;
+            df = docFreq[term];
+            buffer = segments[(int) (offset[term] / SEGMENT_SIZE)];
+            pos = (int) (offset[term] % SEGMENT_SIZE);
+            skipPos = pos;
+            if (df > SKIP_INTERVAL) {
+                int length = read();
+                skipPos = pos;
+                pos += length;
+            }
+            skipEnd = pos;
+            start = pos;
+            remaining = df;
+        }
+
+        /** Reads a variable length integer. */
+        private int read() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(pos++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /** Reads a variable length integer of skip table. */
+        private int readSkip() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(skipPos++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /**
+         * Reads a block of postings.
+         * @param docs the document of postings.
+         * @param tf the term frequency of postings.
+         * @return the number of postings read, 0 at the end of list.
+         */
+        int read(int[] docs, int[] tf) {
+            int n = Math.min(remaining, docs.length);
+            for (int i = 0; i < n; i++) {
+                doc += read();
+                docs[i] = doc;
+                tf[i] = read();
+            }
+            remaining -= n;
+            return n;
+        }
+
+        /**
+         * Moves to the first posting whose document is not less than
+         * the target. The cursor must be positioned by next() before.
+         * Returns false at the end of list.
+         */
+        boolean advance(int target) {
+            while (doc < target && skipPos < skipEnd) {
+                int p = skipPos;
+                int last = skipDoc + readSkip();
+                int bytes = skipOffset + readSkip();
+                if (last >= target) {
+                    skipPos = p;
+                    break;
+                }
+
+                // The block after the skip entry is ahead of the cursor.
+                int block = skipBlock * SKIP_INTERVAL;
+                if (block > df - remaining) {
+                    doc = last;
+                    pos = start + bytes;
+                    remaining = df - block;
+                }
+
+                skipDoc = last;
+                skipOffset = bytes;
+                skipBlock++;
+            }
+
+            while (doc < target && next());
+            return doc != Integer.MAX_VALUE;
+        }
+
+        /** Moves to the next posting. Returns false at the end of list. */
+        boolean next() {
+            if (remaining == 0) {
+                doc = Integer.MAX_VALUE;
+                tf = 0;
+                return false;
+            }
+
+            doc += read();
+            tf = read();
+            remaining--;
+            return true;
+        }
+    }
+
+    /**
+     * A document in the corpus. The text body is not available, i.e. null.
+     * The terms of document are collected from the posting lists on demand.
+     */
+    private class Document extends Text implements TextTerms {
+        /** The document index. */
+        final int index;
+        /** The ids of terms in the document, which are collected on demand. */
+        private int[] termIds;
+
+        /** Constructor. */
+        Document(int index) {
+            super(ids[index], titles[index], null);
+            this.index = index;
+        }
+
+        @Override
+        public int size() {
+            return docSize[index];
+        }
+
+        /**
+         * Returns the words of document. As the positions of words are not
+         * indexed, each term is repeated by its frequency in the order of
+         * term dictionary. This scans the posting lists of all terms at
+         * the first call.
+         */
+        @Override
+        public Iterable<String> words() {
+            List<String> words = new ArrayList<>();
+            for (int t : termIds()) {
+                String term = terms[t];
+                for (int i = tf(t); i > 0; i--) {
+                    words.add(term);
+                }
+            }
+            return words;
+        }
+
+        /**
+         * Returns the unique words of document in the order of term
+         * dictionary. This scans the posting lists of all terms at
+         * the first call.
+         */
+        @Override
+        public Iterable<String> unique() {
+            List<String> words = new ArrayList<>();
+            for (int t : termIds()) {
+                words.add(terms[t]);
+            }
+            return words;
+        }
+
+        /** Returns the ids of terms in the document. */
+        private synchronized int[] termIds() {
+            if (termIds == null) {
+                termIds = IntStream.range(0, terms.length).parallel().filter(t -> tf(t) > 0).toArray();
+            }
+            return termIds;
+        }
+
+        @Override
+        public int tf(String term) {
+            int t = Arrays.binarySearch(terms, term);
+            return t < 0 ? 0 : tf(t);
+        }
+
+        /** Returns the frequency of term t in the document. */
+        private int tf(int t) {
+            Cursor cursor = new Cursor(t);
+            return cursor.next() && cursor.advance(index) && cursor.doc == index ? cursor.tf : 0;
+        }
+
+        @Override
+        public int maxtf() {
+            return maxtf[index];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Document[%s]", id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Document && ((Document) o).index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+    }
+
+    /**
+     * The top k documents with the highest scores, which is a min-heap
+     * of primitive arrays.
+     */
+    private class TopK {
+        /** The documents in the heap. */
+        final int[] docs;
+        /** The scores of documents in the heap. */
+        final double[] scores;
+        /** The number of documents in the heap. */
+        int n;
+
+        /** Constructor. */
+        TopK(int k) {
+            docs = new int[k];
+            scores = new double[k];
+        }
+
+        /** Returns the k-th best score, or negative infinity if less than k documents. */
+        double threshold() {
+            return n < docs.length ? Double.NEGATIVE_INFINITY : scores[0];
+        }
+
+        /** Adds a scored document. */
+        void add(int doc, double score) {
+            int k = docs.length;
+            if (n < k) {
+                int i = n++;
+                docs[i] = doc;
+                scores[i] = score;
+                // sift up
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (scores[parent] <= scores[i]) break;
+                    swap(i, parent);
+                    i = parent;
+                }
+            } else if (score > scores[0]) {
+                docs[0] = doc;
+                scores[0] = score;
+                // sift down
+                int i = 0;
+                while (2 * i + 1 < k) {
+                    int child = 2 * i + 1;
+                    if (child + 1 < k && scores[child + 1] < scores[child]) child++;
+                    if (scores[i] <= scores[child]) break;
+                    swap(i, child);
+                    i = child;
+                }
+            }
+        }
+
+        /** Swaps two heap entries. */
+        private void swap(int i, int j) {
+            int doc = docs[i];
+            docs[i] = docs[j];
+            docs[j] = doc;
+            double score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+
+        /** Returns the documents in descending order of scores. */
+        Relevance[] toArray() {
+            Relevance[] top = new Relevance[n];
+            for (int i = 0; i < n; i++) {
+                top[i] = new Relevance(new Document(docs[i]), scores[i]);
+            }
+            Arrays.sort(top, Collections.reverseOrder());
+            return top;
+        }
+    }
+
+    /**
+     * The growable byte array with variable length integer encoding.
+     */
+    private static class Bytes {
+        /** The bytes. */
+        byte[] data = new byte[4096];
+        /** The number of bytes. */
+        int size = 0;
+        /** The read position. */
+        int pos = 0;
+
+        /** Ensures the capacity. */
+        void ensureCapacity(int capacity) {
+            if (capacity > data.length) {
+                data = Arrays.copyOf(data, Math.max(capacity, 2 * data.length));
+            }
+        }
+
+        /** Appends a variable length integer. */
+        void writeVarint(int value) {
+            ensureCapacity(size + 5);
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        /** Reads a variable length integer at the position. */
+        int readVarint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /** Appends bytes. */
+        void write(byte[] bytes, int from, int length) {
+            ensureCapacity(size + length);
+            System.arraycopy(bytes, from, data, size, length);
+            size += length;
+        }
+    }
+
+    /**
+     * The hash table of long keys and int values with open addressing.
+     * The keys must be non-negative.
+     */
+    private static class LongIntHashMap {
+        /** The empty slot. */
+        static final long EMPTY = -1;
+        /** The keys. */
+        long[] keys;
+        /** The values. */
+        int[] values;
+        /** The number of entries. */
+        int size;
+
+        /** Constructor. */
+        LongIntHashMap(int capacity) {
+            int n = Integer.highestOneBit(Math.max(16, 2 * capacity) - 1) << 1;
+            keys = new long[n];
+            values = new int[n];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        /** Returns the number of entries. */
+        int size() {
+            return size;
+        }
+
+        /** Returns the number of slots. */
+        int capacity() {
+            return keys.length;
+        }
+
+        /** Returns the key in a slot, or -1 if empty. */
+        long key(int slot) {
+            return keys[slot];
+        }
+
+        /** Returns the slot of a key, which may be empty. */
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            long h = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /** Returns the value of a key, or 0 if not found. */
+        int get(long key) {
+            int slot = slot(key);
+            return keys[slot] == key ? values[slot] : 0;
+        }
+
+        /** Adds a value to a key. */
+        void add(long key, int value) {
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                if (2 * ++size > keys.length) {
+                    long[] oldKeys = keys;
+                    int[] oldValues = values;
+                    keys = new long[2 * oldKeys.length];
+                    values = new int[keys.length];
+                    Arrays.fill(keys, EMPTY);
+                    size = 0;
+                    for (int i = 0; i < oldKeys.length; i++) {
+                        if (oldKeys[i] != EMPTY) {
+                            add(oldKeys[i], oldValues[i]);
+                        }
+                    }
+                    return;
+                }
+            }
+            values[slot] += value;
+        }
+    }
+
+    /** The parsed document in indexing. */
+    private static class Parsed {
+        /** The text. */
+        Text text;
+        /** The number of words. */
+        int size;
+        /** The (temporary) term ids in ascending order. */
+        int[] terms;
+        /** The term frequencies. */
+        int[] tf;
+        /** The maximum term frequency. */
+        int maxtf;
+        /** The keys of bigrams. */
+        long[] bigrams;
+    }
+
+    /** The posting lists of an indexing batch in the run file. */
+    private static class Run {
+        /** The (temporary) term ids in ascending order. */
+        int[] terms;
+        /** The offset of posting lists in the run file. */
+        long[] offset;
+        /** The byte length of posting lists. */
+        int[] length;
+        /** The number of postings. */
+        int[] count;
+        /** The last document of posting lists. */
+        int[] last;
+    }
+
+    /**
+     * The parallel bulk indexer.
+     */
+    private static class Indexer {
+        /** Sentence splitter. */
+        final SentenceSplitter splitter;
+        /** Tokenizer. */
+        final Tokenizer tokenizer;
+        /** The set of stop words. */
+        final StopWords stopWords;
+        /** The set of punctuations marks. */
+        final Punctuations punctuations;
+        /** The dictionary of temporary term ids in the order of occurrence. */
+        ConcurrentHashMap<String, Integer> dictionary = new ConcurrentHashMap<>();
+        /** The number of terms. */
+        final AtomicInteger numTerms = new AtomicInteger();
+        /** The number of words. */
+        long size = 0;
+        /** The frequency of terms. */
+        long[] termFreq = new long[1024];
+        /** The size of documents. */
+        final IntArrayList docSize = new IntArrayList();
+        /** The maximum term frequency of documents. */
+        final IntArrayList maxtf = new IntArrayList();
+        /** The id of documents. */
+        final ArrayList<String> ids = new ArrayList<>();
+        /** The title of documents. */
+        final ArrayList<String> titles = new ArrayList<>();
+        /** The frequency of bigrams keyed by temporary term ids. */
+        LongIntHashMap bigrams = new LongIntHashMap(1024);
+        /** The runs of posting lists. */
+        final ArrayList<Run> runs = new ArrayList<>();
+        /** The temporary run file. */
+        final Path runFile;
+        /** The channel of run file. */
+        final FileChannel run;
+
+        /** Constructor. */
+        Indexer(SentenceSplitter splitter, Tokenizer tokenizer, StopWords stopWords, Punctuations punctuations) throws IOException {
+            this.splitter = splitter;
+            this.tokenizer = tokenizer;
+            this.stopWords = stopWords;
+            this.punctuations = punctuations;
+            runFile = Files.createTempFile("smile-corpus", ".run");
+            run = FileChannel.open(runFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        /** Deletes the run file. */
+        void close() throws IOException {
+            run.close();
+            Files.deleteIfExists(runFile);
+        }
+
+        /** Returns the temporary id of a term. */
+        private int term(String word) {
+            return dictionary.computeIfAbsent(word, w -> numTerms.getAndIncrement());
+        }
+
+        /** Tokenizes a document. */
+        private Parsed parse(Text text) {
+            IntArrayList words = new IntArrayList();
+            long[] bigrams = new long[16];
+            int numBigrams = 0;
+
+            for (String sentence : splitter.split(text.body)) {
+                int prev = -1;
+                for (String token : tokenizer.split(sentence)) {
+                    String w = token.toLowerCase();
+                    boolean keep = true;
+                    if (punctuations != null && punctuations.contains(w)) {
+                        keep = false;
+                    } else if (stopWords != null && stopWords.contains(w)) {
+                        keep = false;
+                    }
+
+                    if (keep) {
+                        int id = term(w);
+                        words.add(id);
+                        if (prev >= 0) {
+                            if (numBigrams == bigrams.length) {
+                                bigrams = Arrays.copyOf(bigrams, 2 * numBigrams);
+                            }
+                            bigrams[numBigrams++] = key(prev, id);
+                        }
+                        prev = id;
+                    } else {
+                        prev = -1;
+                    }
+                }
+            }
+
+            Parsed doc = new Parsed();
+            doc.text = text;
+            doc.size = words.size();
+            doc.bigrams = Arrays.copyOf(bigrams, numBigrams);
+
+            int[] w = words.toArray();
+            Arrays.sort(w);
+            int[] terms = new int[w.length];
+            int[] tf = new int[w.length];
+            int n = 0;
+            for (int i = 0; i < w.length; i++) {
+                if (n > 0 && terms[n - 1] == w[i]) {
+                    tf[n - 1]++;
+                } else {
+                    terms[n] = w[i];
+                    tf[n++] = 1;
+                }
+            }
+
+            for (int i = 0; i < n; i++) {
+                doc.maxtf = Math.max(doc.maxtf, tf[i]);
+            }
+
+            doc.terms = Arrays.copyOf(terms, n);
+            doc.tf = Arrays.copyOf(tf, n);
+            return doc;
+        }
+
+        /** Indexes a batch of documents. */
+        void add(List<Text> batch) throws IOException {
+            int n = batch.size();
+            Parsed[] docs = new Parsed[n];
+            IntStream.range(0, n).parallel().forEach(i -> docs[i] = parse(batch.get(i)));
+
+            int base = docSize.size();
+            int V = numTerms.get();
+            if (termFreq.length < V) {
+                termFreq = Arrays.copyOf(termFreq, Math.max(V, 2 * termFreq.length));
+            }
+
+            int[] start = new int[V + 1];
+            for (Parsed doc : docs) {
+                size += doc.size;
+                docSize.add(doc.size);
+                maxtf.add(doc.maxtf);
+                ids.add(doc.text.id);
+                titles.add(doc.text.title);
+                for (int j = 0; j < doc.terms.length; j++) {
+                    start[doc.terms[j] + 1]++;
+                    termFreq[doc.terms[j]] += doc.tf[j];
+                }
+
+                for (long bigram : doc.bigrams) {
+                    bigrams.add(bigram, 1);
+                }
+            }
+
+            // Inverts the batch by counting sort.
+            int numTermsInBatch = 0;
+            for (int t = 0; t < V; t++) {
+                if (start[t + 1] > 0) numTermsInBatch++;
+                start[t + 1] += start[t];
+            }
+
+            int[] pos = Arrays.copyOf(start, V);
+            int[] postingDoc = new int[start[V]];
+            int[] postingTf = new int[start[V]];
+            for (int i = 0; i < n; i++) {
+                Parsed doc = docs[i];
+                for (int j = 0; j < doc.terms.length; j++) {
+                    int p = pos[doc.terms[j]]++;
+                    postingDoc[p] = base + i;
+                    postingTf[p] = doc.tf[j];
+                }
+            }
+
+            Run r = new Run();
+            r.terms = new int[numTermsInBatch];
+            r.offset = new long[numTermsInBatch];
+            r.length = new int[numTermsInBatch];
+            r.count = new int[numTermsInBatch];
+            r.last = new int[numTermsInBatch];
+
+            long position = run.size();
+            Bytes bytes = new Bytes();
+            for (int t = 0, k = 0; t < V; t++) {
+                if (start[t + 1] == start[t]) continue;
+
+                int from = bytes.size;
+                int prev = 0;
+                for (int p = start[t]; p < start[t + 1]; p++) {
+                    bytes.writeVarint(postingDoc[p] - prev);
+                    bytes.writeVarint(postingTf[p]);
+                    prev = postingDoc[p];
+                }
+
+                r.terms[k] = t;
+                r.offset[k] = position + from;
+                r.length[k] = bytes.size - from;
+                r.count[k] = start[t + 1] - start[t];
+                r.last[k] = prev;
+                k++;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.data, 0, bytes.size);
+            while (buffer.hasRemaining()) {
+                position += run.write(buffer, position);
+            }
+            runs.add(r);
+            logger.info("Indexed {} documents", docSize.size());
+        }
+
+        /** Merges the runs into the final posting lists. */
+        IndexedCorpus build(Path file) throws IOException {
+            String[] terms = dictionary.keySet().toArray(new String[0]);
+            Arrays.parallelSort(terms);
+            int V = terms.length;
+            int[] tempId = new int[V];
+            int[] finalId = new int[V];
+            for (int t = 0; t < V; t++) {
+                tempId[t] = dictionary.get(terms[t]);
+                finalId[tempId[t]] = t;
+            }
+            dictionary = null;
+
+            long[] freq = new long[V];
+            int[] docFreq = new int[V];
+            int[] termMaxtf = new int[V];
+            int[] minDocSize = new int[V];
+            long[] offset = new long[V];
+            int[] docSize = this.docSize.toArray();
+            PostingWriter writer = new PostingWriter(file);
+            Bytes list = new Bytes();
+            Bytes skips = new Bytes();
+            Bytes postings = new Bytes();
+            byte[] part = new byte[4096];
+            for (int t = 0; t < V; t++) {
+                int temp = tempId[t];
+                freq[t] = termFreq[temp];
+                list.size = 0;
+                int prevLast = 0;
+                for (Run r : runs) {
+                    int k = Arrays.binarySearch(r.terms, temp);
+                    if (k < 0) continue;
+
+                    int length = r.length[k];
+                    if (part.length < length) {
+                        part = new byte[Math.max(length, 2 * part.length)];
+                    }
+
+                    ByteBuffer buffer = ByteBuffer.wrap(part, 0, length);
+                    long position = r.offset[k];
+                    while (buffer.hasRemaining()) {
+                        position += run.read(buffer, position);
+                    }
+
+                    // Re-encodes the first document as the delta to
+                    // the last document of previous run.
+                    int first = 0;
+                    int shift = 0;
+                    int i = 0;
+                    byte b;
+                    do {
+                        b = part[i++];
+                        first |= (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+
+                    list.writeVarint(first - prevLast);
+                    list.write(part, i, length - i);
+                    prevLast = r.last[k];
+                    docFreq[t] += r.count[k];
+                }
+
+                // Scans the postings for the skip table and score bounds.
+                int df = docFreq[t];
+                int doc = 0;
+                int skipDoc = 0;
+                int skipOffset = 0;
+                minDocSize[t] = Integer.MAX_VALUE;
+                skips.size = 0;
+                list.pos = 0;
+                for (int i = 0; i < df; i++) {
+                    if (i > 0 && i % SKIP_INTERVAL == 0) {
+                        skips.writeVarint(doc - skipDoc);
+                        skips.writeVarint(list.pos - skipOffset);
+                        skipDoc = doc;
+                        skipOffset = list.pos;
+                    }
+
+                    doc += list.readVarint();
+                    termMaxtf[t] = Math.max(termMaxtf[t], list.readVarint());
+                    minDocSize[t] = Math.min(minDocSize[t], docSize[doc]);
+                }
+
+                postings.size = 0;
+                if (df > SKIP_INTERVAL) {
+                    postings.writeVarint(skips.size);
+                    postings.write(skips.data, 0, skips.size);
+                }
+                postings.write(list.data, 0, list.size);
+                offset[t] = writer.write(postings.data, postings.size);
+            }
+
+            ByteBuffer[] segments = writer.close();
+
+            LongIntHashMap map = new LongIntHashMap(bigrams.size());
+            for (int i = 0; i < bigrams.capacity(); i++) {
+                long key = bigrams.key(i);
+                if (key >= 0) {
+                    map.add(key(finalId[(int) (key >>> 32)], finalId[(int) key]), bigrams.values[i]);
+                }
+            }
+
+            int n = docSize.length;
+            logger.info("Indexed {} documents, {} terms, {} bigrams", n, V, map.size());
+            return new IndexedCorpus(size, terms, freq, docFreq, termMaxtf, minDocSize, offset, segments, docSize, maxtf.toArray(),
+                    ids.toArray(new String[n]), titles.toArray(new String[n]), map);
+        }
+    }
+
+    /**
+     * The writer of posting lists into the heap or a file in segments.
+     */
+    private static class PostingWriter {
+        /** The file of posting lists, or null to store them on the heap. */
+        final Path file;
+        /** The output stream of file. */
+        OutputStream output;
+        /** The heap segments. */
+        final ArrayList<Bytes> heap = new ArrayList<>();
+        /** The current position. */
+        long position = 0;
+
+        /** Constructor. */
+        PostingWriter(Path file) throws IOException {
+            this.file = file;
+            if (file != null) {
+                output = new BufferedOutputStream(Files.newOutputStream(file));
+            } else {
+                heap.add(new Bytes());
+            }
+        }
+
+        /**
+         * Writes a posting list and returns its offset. The posting list
+         * starts in a new segment if it doesn't fit in the current one.
+         */
+        long write(byte[] bytes, int length) throws IOException {
+            if (length > SEGMENT_SIZE) {
+                throw new IllegalStateException("Posting list too large: " + length);
+            }
+
+            long used = position % SEGMENT_SIZE;
+            if (used + length > SEGMENT_SIZE) {
+                long padding = SEGMENT_SIZE - used;
+                if (output != null) {
+                    for (long i = 0; i < padding; i++) output.write(0);
+                } else {
+                    heap.add(new Bytes());
+                }
+                position += padding;
+            }
+
+            long offset = position;
+            if (output != null) {
+                output.write(bytes, 0, length);
+            } else {
+                heap.get(heap.size() - 1).write(bytes, 0, length);
+            }
+            position += length;
+            return offset;
+        }
+
+        /** Closes the writer and returns the segments. */
+        ByteBuffer[] close() throws IOException {
+            if (output == null) {
+                return heap.stream().map(bytes -> ByteBuffer.wrap(bytes.data, 0, bytes.size)).toArray(ByteBuffer[]::new);
+            }
+
+            output.close();
+            int n = (int) ((position + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            ByteBuffer[] segments = new ByteBuffer[Math.max(n, 1)];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < segments.length; i++) {
+                    long from = i * SEGMENT_SIZE;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(SEGMENT_SIZE, position - from));
+                }
+            }
+            return segments;
+        }
+    }
+}
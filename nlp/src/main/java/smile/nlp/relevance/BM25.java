@@ -42,6 +42,10 @@ import smile.nlp.TextTerms;
  * @author Haifeng Li
  */
 public class BM25 implements RelevanceRanker {
+    /**
+     * The size of precomputed length normalization table in batch scoring.
+     */
+    private static final int NORM_TABLE_SIZE = 1024;
 
     /**
      * Free parameter, usually chosen as k1 = 2.0.
@@ -190,4 +194,44 @@ public class BM25 implements RelevanceRanker {
 
         return r;
     }
+
+    @Override
+    public TermScorer scorer(Corpus corpus, String term, int n) {
+        int N = corpus.getNumDocuments();
+        double avgDocSize = corpus.getAverageDocumentSize();
+        double idf = Math.log((N - n + 0.5) / (n + 0.5));
+
+        // The length normalization of short documents, which
+        // are the majority of documents in most corpora.
+        double[] norm = new double[NORM_TABLE_SIZE];
+        for (int len = 0; len < norm.length; len++) {
+            norm[len] = k1 * (1 - b + b * len / avgDocSize);
+        }
+
+        return new TermScorer() {
+            @Override
+            public double score(int tf, int docSize, int maxtf) {
+                if (tf <= 0) return 0.0;
+
+                double K = docSize < norm.length ? norm[docSize] : k1 * (1 - b + b * docSize / avgDocSize);
+                double freq = tf;
+                return (freq * (k1 + 1) / (freq + K) + delta) * idf;
+            }
+
+            @Override
+            public void score(int[] docs, int[] tf, int length, int[] docSize, int[] maxtf, double[] scores) {
+                for (int i = 0; i < length; i++) {
+                    int doc = docs[i];
+                    scores[doc] += score(tf[i], docSize[doc], 0);
+                }
+            }
+
+            @Override
+            public double upperBound(int maxtf, int minDocSize) {
+                // The term frequency normalization is in [0, k1+1),
+                // which increases with tf and decreases with docSize.
+                return idf >= 0 ? score(maxtf, minDocSize, maxtf) : delta * idf;
+            }
+        };
+    }
 }
@@ -45,4 +45,42 @@ public interface RelevanceRanker {
      * @param n the number of documents containing the given term in the corpus;
      */
     double rank(Corpus corpus, TextTerms doc, String[] terms, int[] tf, int n);
+
+    /**
+     * Returns the scorer of a term for batch scoring of its posting list.
+     * The default implementation delegates to the rank method of single
+     * term, which only has the size and maximum term frequency of document.
+     * @param corpus the corpus.
+     * @param term the searching term.
+     * @param n the number of documents containing the given term in the corpus;
+     * @return the term scorer.
+     */
+    default TermScorer scorer(Corpus corpus, String term, int n) {
+        return (tf, docSize, maxtf) -> rank(corpus, new TextTerms() {
+            @Override
+            public int size() {
+                return docSize;
+            }
+
+            @Override
+            public Iterable<String> words() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Iterable<String> unique() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int tf(String word) {
+                return word.equals(term) ? tf : 0;
+            }
+
+            @Override
+            public int maxtf() {
+                return maxtf;
+            }
+        }, term, tf, n);
+    }
 }
\ No newline at end of file
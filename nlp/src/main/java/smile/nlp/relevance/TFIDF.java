@@ -118,4 +118,34 @@ public class TFIDF implements RelevanceRanker {
 
         return r;
     }
+
+    @Override
+    public TermScorer scorer(Corpus corpus, String term, int n) {
+        double idf = Math.log((double) corpus.getNumDocuments() / n);
+
+        return new TermScorer() {
+            @Override
+            public double score(int tf, int docSize, int maxtf) {
+                if (tf == 0) return 0.0;
+                return (a + (1-a) * tf / maxtf) * idf;
+            }
+
+            @Override
+            public void score(int[] docs, int[] tf, int length, int[] docSize, int[] maxtf, double[] scores) {
+                for (int i = 0; i < length; i++) {
+                    int doc = docs[i];
+                    if (tf[i] != 0) {
+                        scores[doc] += (a + (1-a) * tf[i] / maxtf[doc]) * idf;
+                    }
+                }
+            }
+
+            @Override
+            public double upperBound(int maxtf, int minDocSize) {
+                // tf / maxtf of document is at most 1. The small
+                // slack covers the rounding errors of score.
+                return (a + (1-a)) * idf * (1 + 1E-12);
+            }
+        };
+    }
 }
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.nlp.relevance;
+
+/**
+ * The relevance scorer of a query term, which is bound to the statistics
+ * of corpus and term (e.g. the number of documents and the inverse document
+ * frequency). The term independent factors are computed once so that the
+ * posting list of term can be scored in batch without virtual calls per
+ * document.
+ *
+ * @author Haifeng Li
+ */
+public interface TermScorer {
+    /**
+     * Returns the relevance score of the term in a document.
+     * @param tf the term frequency in the document.
+     * @param docSize the size of document.
+     * @param maxtf the maximum term frequency over all terms in the document.
+     * @return the relevance score.
+     */
+    double score(int tf, int docSize, int maxtf);
+
+    /**
+     * Accumulates the relevance scores of a block of postings.
+     * @param docs the document index of postings.
+     * @param tf the term frequency of postings.
+     * @param length the number of postings in the block.
+     * @param docSize the size of documents, indexed by document index.
+     * @param maxtf the maximum term frequency of documents, indexed by document index.
+     * @param scores the score accumulators, indexed by document index.
+     */
+    default void score(int[] docs, int[] tf, int length, int[] docSize, int[] maxtf, double[] scores) {
+        for (int i = 0; i < length; i++) {
+            int doc = docs[i];
+            scores[doc] += score(tf[i], docSize[doc], maxtf[doc]);
+        }
+    }
+
+    /**
+     * Returns the upper bound of relevance scores on a posting list,
+     * which is used by dynamic pruning such as WAND. The default
+     * implementation returns positive infinity, i.e. no pruning.
+     * @param maxtf the maximum term frequency in the posting list.
+     * @param minDocSize the minimum size of documents in the posting list.
+     * @return the upper bound of scores.
+     */
+    default double upperBound(int maxtf, int minDocSize) {
+        return Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2020 Haifeng Li. All rights reserved.
+ *
+ * Smile is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * Smile is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Smile.  If not, see <https://www.gnu.org/licenses/>.
+ ******************************************************************************/
+
+package smile.nlp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import smile.nlp.relevance.BM25;
+import smile.nlp.relevance.Relevance;
+import smile.nlp.relevance.TFIDF;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Haifeng Li
+ */
+public class IndexedCorpusTest {
+    IndexedCorpus corpus;
+
+    public IndexedCorpusTest() throws IOException {
+        corpus = IndexedCorpus.of(docs());
+    }
+
+    static Stream<Text> docs() throws IOException {
+        return smile.util.Paths.getTestDataLines("text/plot.tok.gt9.5000")
+                .map(String::trim)
+                .filter(line -> !line.isEmpty())
+                .map(Text::new);
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    @Test
+    public void testStatistics() {
+        System.out.println("statistics");
+        assertEquals(58064, corpus.size());
+        assertEquals(5000, corpus.getNumDocuments());
+        assertEquals(15077, corpus.getNumTerms());
+        assertEquals(18303, corpus.getNumBigrams());
+        assertEquals(11, corpus.getAverageDocumentSize());
+        assertEquals(27, corpus.getTermFrequency("romantic"));
+        assertEquals(9, corpus.getBigramFrequency(new Bigram("romantic", "comedy")));
+
+        int n = 0;
+        for (Iterator<Bigram> iter = corpus.getBigrams(); iter.hasNext(); iter.next()) n++;
+        assertEquals(18303, n);
+    }
+
+    @Test
+    public void testSearch() {
+        System.out.println("search");
+        Iterator<Text> docs = corpus.search("romantic");
+        int n = 0;
+        while (docs.hasNext()) {
+            Text doc = docs.next();
+            assertTrue(((TextTerms) doc).tf("romantic") > 0);
+            n++;
+        }
+        assertEquals(27, n);
+
+        Iterator<Relevance> hits = corpus.search(new BM25(), "romantic");
+        n = 0;
+        while (hits.hasNext()) {
+            n++;
+            Relevance hit = hits.next();
+            System.out.println(hit.text + "\t" + hit.score);
+        }
+        assertEquals(27, n);
+
+        assertEquals(Collections.emptyIterator(), corpus.search(new BM25(), "find"));
+        assertFalse(corpus.search(new BM25(), new String[]{"thisisnotaword"}).hasNext());
+    }
+
+    /** Returns the sorted words of document and checks its unique words. */
+    private String words(TextTerms doc) {
+        List<String> words = new ArrayList<>();
+        doc.words().forEach(words::add);
+        Set<String> unique = new HashSet<>();
+        doc.unique().forEach(unique::add);
+        assertEquals(new HashSet<>(words), unique);
+
+        Collections.sort(words);
+        return String.join(" ", words);
+    }
+
+    @Test
+    public void testTerms() {
+        System.out.println("terms");
+        SimpleCorpus simple = new SimpleCorpus();
+        try {
+            docs().forEach(simple::add);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+
+        List<String> expected = new ArrayList<>();
+        simple.search("romantic").forEachRemaining(doc -> expected.add(words((TextTerms) doc)));
+        List<String> actual = new ArrayList<>();
+        corpus.search("romantic").forEachRemaining(doc -> {
+            assertNull(doc.body);
+            actual.add(words((TextTerms) doc));
+        });
+
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(27, actual.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testTopK() {
+        System.out.println("top k");
+        String[] terms = {"romantic", "comedy"};
+        Iterator<Relevance> hits = corpus.search(new BM25(), terms);
+        Relevance[] top = corpus.search(new BM25(), terms, 10);
+        assertEquals(10, top.length);
+
+        int n = 0;
+        while (hits.hasNext()) {
+            Relevance hit = hits.next();
+            if (n < top.length) {
+                assertEquals(hit.score, top[n].score, 1E-10);
+            }
+            n++;
+        }
+        assertEquals(78, n);
+
+        top = corpus.search(new TFIDF(), terms, 100);
+        assertEquals(78, top.length);
+        for (int i = 1; i < top.length; i++) {
+            assertTrue(top[i-1].score >= top[i].score);
+        }
+    }
+
+    @Test
+    public void testBatchScoring() {
+        System.out.println("batch scoring");
+        SimpleCorpus simple = new SimpleCorpus();
+        try {
+            docs().forEach(simple::add);
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+
+        for (String term : new String[]{"romantic", "film", "story", "life"}) {
+            Iterator<Relevance> expected = simple.search(new BM25(), term);
+            Iterator<Relevance> hits = corpus.search(new BM25(), term);
+            while (expected.hasNext()) {
+                assertEquals(expected.next().score, hits.next().score, 1E-10);
+            }
+            assertFalse(hits.hasNext());
+        }
+    }
+
+    @Test
+    public void testWAND() {
+        System.out.println("WAND");
+        String[][] queries = {
+                {"film", "story"},
+                {"life", "love", "young"},
+                {"romantic", "comedy", "film"},
+                {"man", "woman", "world", "story"}
+        };
+
+        for (String[] query : queries) {
+            for (int k : new int[]{1, 10, 100}) {
+                Relevance[] top = corpus.search(new BM25(), query, k);
+                Iterator<Relevance> hits = corpus.search(new BM25(), query);
+                for (int i = 0; i < top.length; i++) {
+                    assertEquals(hits.next().score, top[i].score, 1E-10);
+                }
+
+                top = corpus.search(new TFIDF(), query, k);
+                hits = corpus.search(new TFIDF(), query);
+                for (int i = 0; i < top.length; i++) {
+                    assertEquals(hits.next().score, top[i].score, 1E-10);
+                }
+            }
+        }
+
+        Iterator<Text> docs = corpus.search("film");
+        int n = 0;
+        while (docs.hasNext()) {
+            TextTerms doc = (TextTerms) docs.next();
+            assertTrue(doc.tf("film") > 0);
+            n++;
+        }
+        assertTrue(n > 128);
+    }
+
+    @Test
+    public void testMemoryMapped() throws IOException {
+        System.out.println("memory mapped");
+        Path file = Files.createTempFile("smile-corpus", ".postings");
+        file.toFile().deleteOnExit();
+        IndexedCorpus mapped = IndexedCorpus.of(docs(), file);
+        assertEquals(corpus.getNumTerms(), mapped.getNumTerms());
+        assertEquals(corpus.getNumBigrams(), mapped.getNumBigrams());
+
+        String[] terms = {"romantic", "comedy"};
+        Relevance[] expected = corpus.search(new BM25(), terms, 20);
+        Relevance[] top = mapped.search(new BM25(), terms, 20);
+        assertEquals(expected.length, top.length);
+        for (int i = 0; i < top.length; i++) {
+            assertEquals(expected[i].score, top[i].score, 1E-10);
+        }
+    }
+}